@@ -0,0 +1,201 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.HostfullyApplication;
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.OccupancyCalendar;
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conflict checks of {@link BookingService} and {@link BlockService}, and the full booking save path,
+ * for each availability strategy over calendars of growing size and occupancy.
+ * <p>
+ * Each trial starts the application without its web layer on a fresh in-memory database and seeds it over JDBC:
+ * {@code reservations} stays of {@value #NIGHTS} nights, one in ten of them a block, spread over properties of
+ * {@value #RESERVATIONS_PER_PROPERTY} stays each and spaced so that exactly {@code density} of their nights are taken.
+ * The stays are long enough for each density to be a whole spacing, so the 0.9 runs are not full calendars.
+ * The in-memory views are then rebuilt from the tables. The checks are asked for random stays of one to seven nights
+ * within the seeded span of a random property, so their answer is a mix of conflicts and free ranges.
+ * The checks are called through the service proxies, so each one includes the transaction the service opens.
+ * <p>
+ * The {@code nights} strategy is left out: it has no check of its own, the database rejects the write.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ConflictCheckBenchmark {
+
+    private static final int RESERVATIONS_PER_PROPERTY = 1_000;
+    private static final int NIGHTS = 9;
+    private static final int BLOCK_EVERY = 10;
+    private static final int CANDIDATES = 4_096;
+    private static final long FIRST_ID = 100_000_000L;
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"database", "index", "bitmap"})
+    public String strategy;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int reservations;
+
+    @Param({"0.1", "0.5", "0.9"})
+    public double density;
+
+    private ConfigurableApplicationContext context;
+    private BookingService bookingService;
+    private BlockService blockService;
+    private Booking[] bookings;
+    private Block[] blocks;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(HostfullyApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:jmh-" + strategy + "-" + reservations + "-" + density + ";DB_CLOSE_DELAY=-1",
+                        "--hostfully.availability.strategy=" + strategy,
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=warn"
+                );
+        bookingService = context.getBean(BookingService.class);
+        blockService = context.getBean(BlockService.class);
+
+        int properties = Math.max(1, reservations / RESERVATIONS_PER_PROPERTY);
+        int perProperty = reservations / properties;
+        int spacing = (int) Math.round(NIGHTS / density);
+        if (spacing < NIGHTS || Math.abs((double) NIGHTS / spacing - density) > 1e-9) {
+            throw new IllegalArgumentException("A density of " + density + " cannot be seeded with stays of " + NIGHTS + " nights");
+        }
+        LocalDate origin = LocalDate.now().withDayOfYear(1);
+        seed(context.getBean(JdbcTemplate.class), properties, perProperty, spacing, origin);
+        context.getBean(AvailabilityIndex.class).load();
+        context.getBean(OccupancyCalendar.class).load();
+
+        SplittableRandom random = new SplittableRandom(42);
+        int span = perProperty * spacing;
+        bookings = new Booking[CANDIDATES];
+        blocks = new Block[CANDIDATES];
+        for (int i = 0; i < CANDIDATES; i++) {
+            long propertyId = FIRST_ID + random.nextInt(properties);
+            LocalDate from = origin.plusDays(random.nextInt(span));
+            LocalDate to = from.plusDays(random.nextInt(7));
+            bookings[i] = booking(propertyId, from, to);
+            blocks[i] = block(propertyId, from, to);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean bookingHasBookingConflicts() {
+        return bookingService.hasBookingConflicts(bookings[nextCandidate()]);
+    }
+
+    @Benchmark
+    public boolean bookingHasBlockConflicts() {
+        return bookingService.hasBlockConflicts(bookings[nextCandidate()]);
+    }
+
+    @Benchmark
+    public boolean blockHasBookingConflicts() {
+        return blockService.hasBookingConflicts(blocks[nextCandidate()]);
+    }
+
+    /**
+     * Saves a new booking through the service: locking, conflict check, insert, and the updates of the in-memory
+     * views, the change log and the event stream. Ranges that are taken come back rejected, the others are inserted,
+     * so the calendar fills up slowly over the iterations.
+     */
+    @Benchmark
+    public Booking save() {
+        Booking candidate = bookings[nextCandidate()];
+        return bookingService.save(booking(candidate.getPropertyId(), candidate.getDateFrom(), candidate.getDateTo()));
+    }
+
+    private int nextCandidate() {
+        next = (next + 1) & (CANDIDATES - 1);
+        return next;
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate, int properties, int perProperty, int spacing, LocalDate origin) {
+        List<Object[]> propertyRows = new ArrayList<>();
+        for (int p = 0; p < properties; p++) {
+            propertyRows.add(new Object[]{FIRST_ID + p, "property " + p});
+        }
+        jdbcTemplate.batchUpdate("insert into property (property_id, name) values (?, ?)", propertyRows);
+
+        List<Object[]> bookingRows = new ArrayList<>();
+        List<Object[]> blockRows = new ArrayList<>();
+        long id = FIRST_ID;
+        for (int p = 0; p < properties; p++) {
+            for (int i = 0; i < perProperty; i++) {
+                LocalDate from = origin.plusDays((long) i * spacing);
+                Object[] row = {id++, FIRST_ID + p, Date.valueOf(from), Date.valueOf(from.plusDays(NIGHTS - 1))};
+                if (i % BLOCK_EVERY == BLOCK_EVERY - 1) {
+                    blockRows.add(row);
+                } else {
+                    bookingRows.add(row);
+                }
+                if (bookingRows.size() == BATCH_SIZE) {
+                    insertBookings(jdbcTemplate, bookingRows);
+                }
+                if (blockRows.size() == BATCH_SIZE) {
+                    insertBlocks(jdbcTemplate, blockRows);
+                }
+            }
+        }
+        insertBookings(jdbcTemplate, bookingRows);
+        insertBlocks(jdbcTemplate, blockRows);
+    }
+
+    private static void insertBookings(JdbcTemplate jdbcTemplate, List<Object[]> rows) {
+        jdbcTemplate.batchUpdate("insert into booking (booking_id, property_id, date_from, date_to, guest_name, state, version)"
+                + " values (?, ?, ?, ?, 'guest', 'BOOKED', 0)", rows);
+        rows.clear();
+    }
+
+    private static void insertBlocks(JdbcTemplate jdbcTemplate, List<Object[]> rows) {
+        jdbcTemplate.batchUpdate("insert into block (block_id, property_id, date_from, date_to, manager, version)"
+                + " values (?, ?, ?, ?, 'manager', 0)", rows);
+        rows.clear();
+    }
+
+    private static Booking booking(long propertyId, LocalDate from, LocalDate to) {
+        Booking booking = new Booking();
+        booking.setPropertyId(propertyId);
+        booking.setDateFrom(from);
+        booking.setDateTo(to);
+        booking.setGuestName("benchmark");
+        return booking;
+    }
+
+    private static Block block(long propertyId, LocalDate from, LocalDate to) {
+        Block block = new Block();
+        block.setPropertyId(propertyId);
+        block.setDateFrom(from);
+        block.setDateTo(to);
+        block.setManager("benchmark");
+        return block;
+    }
+}
@@ -1,18 +1,25 @@
 package com.hostfullystay.app;
 
+import com.hostfullystay.app.repository.BookingRepository;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.retry.annotation.EnableRetry;
 
 /**
  * The main application class for the Hostfully application.
  * This class is annotated with {@code @SpringBootApplication}, indicating that it is the main entry point
  * for the Spring Boot application and includes various configuration and component scanning by default.
  * The {@code main} method is responsible for starting the Spring Boot application.
+ * {@code @EnableRetry} activates the bounded retries of conflicting updates.
+ * JPA repositories are only looked for in the repository package, the reactive ones are left to R2DBC.
  *
  * @see org.springframework.boot.autoconfigure.SpringBootApplication
  * @see org.springframework.boot.SpringApplication
  */
 @SpringBootApplication
+@EnableRetry
+@EnableJpaRepositories(basePackageClasses = BookingRepository.class)
 public class HostfullyApplication {
 
     /**
@@ -0,0 +1,96 @@
+package com.hostfullystay.app;
+
+import com.hostfullystay.app.repository.StatementCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Routes the application's data source through a proxy that reports every statement to the
+ * {@link StatementCounter}, and records how many statements each request ran as {@value #PER_REQUEST},
+ * tagged with the method and the URI pattern like the {@code http.server.requests} timers. A request that starts
+ * asynchronous processing is measured on the dispatch that completes it.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Configuration(proxyBeanMethods = false)
+public class StatementCountingConfiguration implements WebMvcConfigurer {
+
+    /**
+     * Distribution of the statements run per request.
+     */
+    public static final String PER_REQUEST = "hostfully.jdbc.statements.per.request";
+
+    private static final String TALLY = StatementCountingConfiguration.class.getName() + ".tally";
+
+    private final StatementCounter statementCounter;
+    private final MeterRegistry registry;
+
+    public StatementCountingConfiguration(StatementCounter statementCounter, MeterRegistry registry) {
+        this.statementCounter = statementCounter;
+        this.registry = registry;
+    }
+
+    @Bean
+    public static BeanPostProcessor statementCountingDataSource(ObjectProvider<StatementCounter> statementCounter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource).name(beanName).listener(statementCounter.getObject()).build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AsyncHandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                request.setAttribute(TALLY, statementCounter.start(false));
+                return true;
+            }
+
+            @Override
+            public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                StatementCounter.Tally tally = (StatementCounter.Tally) request.getAttribute(TALLY);
+                request.removeAttribute(TALLY);
+                if (tally != null) {
+                    tally.close();
+                }
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+                StatementCounter.Tally tally = (StatementCounter.Tally) request.getAttribute(TALLY);
+                if (tally == null) {
+                    return;
+                }
+                request.removeAttribute(TALLY);
+                tally.close();
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                DistributionSummary.builder(PER_REQUEST)
+                        .description("JDBC statements run by a request")
+                        .tag("method", request.getMethod())
+                        .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                        .register(StatementCountingConfiguration.this.registry)
+                        .record(tally.total());
+            }
+        });
+    }
+}
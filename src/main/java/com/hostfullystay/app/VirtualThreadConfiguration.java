@@ -0,0 +1,36 @@
+package com.hostfullystay.app;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+/**
+ * Runs every request on a virtual thread of its own when {@code hostfully.threads.virtual} is set, instead of on
+ * Tomcat's bounded pool of platform threads. The controllers and the transactional services they call run on the
+ * request thread, so a request waiting on a connection or a query parks its virtual thread and frees the carrier
+ * for other requests; concurrency is then bounded by the connection pool rather than by the worker pool.
+ * The asynchronous exports and event streams get virtual threads as well.
+ * <p>
+ * Locks held across blocking calls must be {@link java.util.concurrent.locks.Lock}s rather than monitors, which
+ * pin the virtual thread to its carrier; the application code only holds monitors around in-memory updates.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "hostfully.threads.virtual", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadRequests() {
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor());
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(VirtualThreads.newThreadPerTaskExecutor());
+    }
+}
@@ -0,0 +1,37 @@
+package com.hostfullystay.app;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads, which need Java 21. The build still targets Java 17, so the executor is looked up
+ * at runtime and the virtual thread mode fails at startup on older runtimes instead of at compile time.
+ *
+ * @author Sakthidharan Ashwin
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    static boolean isSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread for every task.
+     *
+     * @throws IllegalStateException If the runtime is older than Java 21.
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, this is Java " + Runtime.version());
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Virtual threads are not available on Java " + Runtime.version(), e);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.hostfullystay.app.availability;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.repository.BookingRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.locks.StampedLock;
+
+import static com.hostfullystay.app.domain.Booking.State.BOOKED;
+
+/**
+ * In-memory index of the BOOKED bookings and the blocks, used to answer conflict checks
+ * without going to the database.
+ * The index is loaded once at startup and kept in sync by the services; changes are applied
+ * only after the surrounding transaction commits, so rolled back writes never reach it.
+ * <p>
+ * The index is partitioned by property: each property has its own interval trees and its own lock,
+ * so a check or a write only ever touches the calendar of one property, whatever the size of the portfolio.
+ * <p>
+ * With the {@link AvailabilityStrategy#BITMAP} strategy, nights inside the configured horizon are
+ * also mirrored into {@link OccupancyBitmap}s. Checks on those nights read the bitmaps under an
+ * optimistic lock and only consult the interval trees when the bitmap reports a hit that may
+ * belong to the excluded booking, or when the range leaves the horizon.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Component
+public class AvailabilityIndex {
+
+    private static final long[] NO_RANGES = new long[0];
+
+    private final BookingRepository bookingRepository;
+    private final BlockRepository blockRepository;
+    private final AvailabilityStrategy strategy;
+    private final LocalDate bitmapOrigin;
+    private final int bitmapDays;
+
+    private final PartitionMap<Partition> partitions = new PartitionMap<>();
+
+    public AvailabilityIndex(
+            BookingRepository bookingRepository,
+            BlockRepository blockRepository,
+            @Value("${hostfully.availability.strategy:index}") AvailabilityStrategy strategy,
+            @Value("${hostfully.availability.bitmap.years:5}") int bitmapYears
+    ) {
+        this.bookingRepository = bookingRepository;
+        this.blockRepository = blockRepository;
+        this.strategy = strategy;
+        // The horizon starts with the previous year so recent stays are still answered from the bitmap.
+        this.bitmapOrigin = LocalDate.now().withDayOfYear(1).minusYears(1);
+        this.bitmapDays = (int) ChronoUnit.DAYS.between(bitmapOrigin, bitmapOrigin.plusYears(bitmapYears + 1L));
+    }
+
+    /**
+     * Tells whether conflict checks should be answered by this index
+     * rather than by repository queries.
+     *
+     * @return {@code true} if the index is in use.
+     */
+    public boolean isEnabled() {
+        return strategy == AvailabilityStrategy.INDEX || strategy == AvailabilityStrategy.BITMAP;
+    }
+
+    /**
+     * Rebuilds the index from the Booking and Block tables.
+     */
+    @PostConstruct
+    public void load() {
+        if (isEnabled()) {
+            load(bookingRepository.findAll(), blockRepository.findAll());
+        }
+    }
+
+    /**
+     * Rebuilds the index from the given bookings and blocks, replacing whatever it held.
+     */
+    public void load(Iterable<Booking> bookings, Iterable<Block> blocks) {
+        if (!isEnabled()) {
+            return;
+        }
+        partitions.clear();
+        for (Booking booking : bookings) {
+            if (BOOKED.equals(booking.getState())) {
+                partition(booking.getPropertyId()).write(true, booking.getBookingId(),
+                        booking.getDateFrom().toEpochDay(), booking.getDateTo().toEpochDay());
+            }
+        }
+        for (Block block : blocks) {
+            partition(block.getPropertyId()).write(false, block.getBlockId(),
+                    block.getDateFrom().toEpochDay(), block.getDateTo().toEpochDay());
+        }
+    }
+
+    public boolean hasBookingOverlap(long propertyId, LocalDate dateFrom, LocalDate dateTo, Long excludeBookingId) {
+        Partition partition = partitions.get(propertyId);
+        return partition != null && partition.overlaps(true, dateFrom.toEpochDay(), dateTo.toEpochDay(), excludeBookingId);
+    }
+
+    public boolean hasBlockOverlap(long propertyId, LocalDate dateFrom, LocalDate dateTo, Long excludeBlockId) {
+        Partition partition = partitions.get(propertyId);
+        return partition != null && partition.overlaps(false, dateFrom.toEpochDay(), dateTo.toEpochDay(), excludeBlockId);
+    }
+
+    /**
+     * Returns the property's BOOKED ranges overlapping {@code [dateFrom, dateTo]}, as epoch day {@code from, to} pairs in start order.
+     */
+    public long[] bookingRanges(long propertyId, LocalDate dateFrom, LocalDate dateTo) {
+        Partition partition = partitions.get(propertyId);
+        return partition == null ? NO_RANGES : partition.ranges(true, dateFrom.toEpochDay(), dateTo.toEpochDay());
+    }
+
+    /**
+     * Returns the property's block ranges overlapping {@code [dateFrom, dateTo]}, as epoch day {@code from, to} pairs in start order.
+     */
+    public long[] blockRanges(long propertyId, LocalDate dateFrom, LocalDate dateTo) {
+        Partition partition = partitions.get(propertyId);
+        return partition == null ? NO_RANGES : partition.ranges(false, dateFrom.toEpochDay(), dateTo.toEpochDay());
+    }
+
+    /**
+     * Records the saved state of a booking. Only BOOKED bookings are kept in the index.
+     *
+     * @param booking The booking as it was persisted.
+     */
+    public void bookingSaved(Booking booking) {
+        if (!isEnabled()) {
+            return;
+        }
+        long propertyId = booking.getPropertyId();
+        long id = booking.getBookingId();
+        if (BOOKED.equals(booking.getState())) {
+            long from = booking.getDateFrom().toEpochDay();
+            long to = booking.getDateTo().toEpochDay();
+            AfterCommit.run(() -> partition(propertyId).write(true, id, from, to));
+        } else {
+            AfterCommit.run(() -> partition(propertyId).erase(true, id));
+        }
+    }
+
+    public void bookingDeleted(Booking booking) {
+        if (isEnabled()) {
+            long propertyId = booking.getPropertyId();
+            long id = booking.getBookingId();
+            AfterCommit.run(() -> partition(propertyId).erase(true, id));
+        }
+    }
+
+    public void blockSaved(Block block) {
+        if (!isEnabled()) {
+            return;
+        }
+        long propertyId = block.getPropertyId();
+        long id = block.getBlockId();
+        long from = block.getDateFrom().toEpochDay();
+        long to = block.getDateTo().toEpochDay();
+        AfterCommit.run(() -> partition(propertyId).write(false, id, from, to));
+    }
+
+    public void blockDeleted(Block block) {
+        if (isEnabled()) {
+            long propertyId = block.getPropertyId();
+            long id = block.getBlockId();
+            AfterCommit.run(() -> partition(propertyId).erase(false, id));
+        }
+    }
+
+    private Partition partition(long propertyId) {
+        return partitions.computeIfAbsent(propertyId, key -> strategy == AvailabilityStrategy.BITMAP
+                ? new Partition(new OccupancyBitmap(bitmapOrigin, bitmapDays), new OccupancyBitmap(bitmapOrigin, bitmapDays))
+                : new Partition(null, null));
+    }
+
+    /**
+     * The bookings and blocks of one property, guarded by a lock of its own.
+     */
+    private static final class Partition {
+
+        private final IntervalTree bookings = new IntervalTree();
+        private final IntervalTree blocks = new IntervalTree();
+        private final OccupancyBitmap bookedNights;
+        private final OccupancyBitmap blockedNights;
+        private final StampedLock lock = new StampedLock();
+
+        Partition(OccupancyBitmap bookedNights, OccupancyBitmap blockedNights) {
+            this.bookedNights = bookedNights;
+            this.blockedNights = blockedNights;
+        }
+
+        boolean overlaps(boolean booked, long from, long to, Long excludeId) {
+            IntervalTree tree = booked ? bookings : blocks;
+            OccupancyBitmap nights = booked ? bookedNights : blockedNights;
+            if (nights != null && nights.covers(from, to)) {
+                long stamp = lock.tryOptimisticRead();
+                boolean taken = nights.anySet(from, to);
+                if (!lock.validate(stamp)) {
+                    stamp = lock.readLock();
+                    try {
+                        taken = nights.anySet(from, to);
+                    } finally {
+                        lock.unlockRead(stamp);
+                    }
+                }
+                // A free range stays free whatever is excluded; a hit is final only when nothing is excluded.
+                if (!taken || excludeId == null) {
+                    return taken;
+                }
+            }
+            long stamp = lock.readLock();
+            try {
+                return tree.overlaps(from, to, excludeId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        long[] ranges(boolean booked, long from, long to) {
+            long stamp = lock.readLock();
+            try {
+                return (booked ? bookings : blocks).overlapping(from, to);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void write(boolean booked, long id, long from, long to) {
+            IntervalTree tree = booked ? bookings : blocks;
+            OccupancyBitmap nights = booked ? bookedNights : blockedNights;
+            long stamp = lock.writeLock();
+            try {
+                long[] previous = tree.range(id);
+                tree.put(id, from, to);
+                if (nights == null) {
+                    return;
+                }
+                if (previous != null) {
+                    unmark(tree, nights, previous[0], previous[1]);
+                }
+                nights.set(from, to);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void erase(boolean booked, long id) {
+            IntervalTree tree = booked ? bookings : blocks;
+            OccupancyBitmap nights = booked ? bookedNights : blockedNights;
+            long stamp = lock.writeLock();
+            try {
+                long[] previous = tree.range(id);
+                if (tree.remove(id) && nights != null) {
+                    unmark(tree, nights, previous[0], previous[1]);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Clears a range of nights and marks back the parts still covered by other intervals,
+         * since blocks, and bookings loaded from older data, may overlap each other.
+         */
+        private static void unmark(IntervalTree tree, OccupancyBitmap nights, long from, long to) {
+            nights.clear(from, to);
+            tree.forEachOverlap(from, to, (otherId, otherFrom, otherTo) ->
+                    nights.set(Math.max(otherFrom, from), Math.min(otherTo, to)));
+        }
+    }
+}
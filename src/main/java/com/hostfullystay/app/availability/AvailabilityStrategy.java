@@ -0,0 +1,30 @@
+package com.hostfullystay.app.availability;
+
+/**
+ * Selects how BookingService and BlockService answer date range conflict checks.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public enum AvailabilityStrategy {
+
+    /**
+     * Conflicts are looked up with repository queries on every check.
+     */
+    DATABASE,
+
+    /**
+     * Conflicts are answered from the in-memory {@link AvailabilityIndex}.
+     */
+    INDEX,
+
+    /**
+     * Like {@link #INDEX}, with a per-night {@link OccupancyBitmap} answering checks that fall inside its horizon.
+     */
+    BITMAP,
+
+    /**
+     * Conflicts are detected by the database when a write claims its rows in the occupied night table,
+     * see {@link NightLedger}.
+     */
+    NIGHTS,
+}
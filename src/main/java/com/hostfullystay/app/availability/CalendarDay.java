@@ -0,0 +1,36 @@
+package com.hostfullystay.app.availability;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+
+/**
+ * The state of a single night in the occupancy calendar, with the id of the booking or block owning it.
+ *
+ * @param date      The night.
+ * @param state     Whether the night is free, booked or blocked.
+ * @param bookingId The BOOKED booking holding the night, if any.
+ * @param blockId   The block holding the night, if any and not booked.
+ * @author Sakthidharan Ashwin
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CalendarDay(LocalDate date, State state, Long bookingId, Long blockId) {
+
+    public enum State {
+        FREE,
+        BOOKED,
+        BLOCKED,
+    }
+
+    static CalendarDay free(LocalDate date) {
+        return new CalendarDay(date, State.FREE, null, null);
+    }
+
+    static CalendarDay booked(LocalDate date, long bookingId) {
+        return new CalendarDay(date, State.BOOKED, bookingId, null);
+    }
+
+    static CalendarDay blocked(LocalDate date, long blockId) {
+        return new CalendarDay(date, State.BLOCKED, null, blockId);
+    }
+}
@@ -0,0 +1,130 @@
+package com.hostfullystay.app.availability;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes writes whose date ranges could conflict, while letting writes on other properties or unrelated
+ * months run in parallel. Every month of every property maps to one of a fixed number of lock stripes, the
+ * months of a property on consecutive stripes from an offset spread by the property id; a write takes the
+ * stripes of all the months it touches, in ascending stripe order so that two writes can never wait on each other.
+ * <p>
+ * Locks are taken inside the caller's transaction and released only once it has completed, after the
+ * availability index has seen the commit, so the next writer on those months always checks against
+ * the committed state.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Component
+public class DateRangeLocks {
+
+    private final ReentrantLock[] stripes;
+
+    public DateRangeLocks(@Value("${hostfully.locking.stripes:64}") int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("At least one lock stripe is required");
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the months of the property covered by {@code [dateFrom, dateTo]} until the current transaction completes.
+     * Outside a transaction there is nothing to hold the locks for, so the call does nothing.
+     *
+     * @param propertyId The property written to.
+     * @param dateFrom   The first day of the range, inclusive.
+     * @param dateTo     The last day of the range, inclusive.
+     */
+    public void lockUntilCompletion(long propertyId, LocalDate dateFrom, LocalDate dateTo) {
+        lockUntilCompletion(List.of(new Span(propertyId, dateFrom, dateTo)));
+    }
+
+    /**
+     * Locks the months covered by all the given spans until the current transaction completes.
+     * The stripes are taken together, so a write spanning several properties keeps the ascending order.
+     *
+     * @param spans The ranges written to.
+     */
+    public void lockUntilCompletion(Collection<Span> spans) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        boolean[] wanted = new boolean[stripes.length];
+        for (Span span : spans) {
+            mark(wanted, span.propertyId(), span.dateFrom(), span.dateTo());
+        }
+        lock(wanted);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unlock(wanted);
+            }
+        });
+    }
+
+    /**
+     * Returns which stripes guard the months of the property covered by {@code [dateFrom, dateTo]}.
+     */
+    boolean[] stripesFor(long propertyId, LocalDate dateFrom, LocalDate dateTo) {
+        boolean[] wanted = new boolean[stripes.length];
+        mark(wanted, propertyId, dateFrom, dateTo);
+        return wanted;
+    }
+
+    private void mark(boolean[] wanted, long propertyId, LocalDate dateFrom, LocalDate dateTo) {
+        long first = monthOf(dateFrom);
+        long last = Math.max(first, monthOf(dateTo));
+        if (last - first + 1 >= stripes.length) {
+            Arrays.fill(wanted, true);
+            return;
+        }
+        long offset = spread(propertyId);
+        for (long month = first; month <= last; month++) {
+            wanted[(int) Math.floorMod(offset + month, (long) stripes.length)] = true;
+        }
+    }
+
+    private void lock(boolean[] wanted) {
+        for (int i = 0; i < wanted.length; i++) {
+            if (wanted[i]) {
+                stripes[i].lock();
+            }
+        }
+    }
+
+    private void unlock(boolean[] wanted) {
+        for (int i = wanted.length - 1; i >= 0; i--) {
+            if (wanted[i]) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    private static long monthOf(LocalDate date) {
+        return date.getYear() * 12L + date.getMonthValue() - 1;
+    }
+
+    /**
+     * Scatters consecutive property ids over the stripes with a Fibonacci hash.
+     */
+    private static long spread(long propertyId) {
+        return (propertyId * 0x9E3779B97F4A7C15L) >>> 32;
+    }
+
+    /**
+     * A date range of one property, inclusive at both ends.
+     */
+    public record Span(long propertyId, LocalDate dateFrom, LocalDate dateTo) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.hostfullystay.app.availability;
+
+import java.time.LocalDate;
+
+/**
+ * A maximal run of free nights, neither booked nor blocked.
+ * Both ends are inclusive, like the ranges of bookings and blocks, so any stay that fits
+ * between them can be posted as a booking as is.
+ *
+ * @param dateFrom The first free night.
+ * @param dateTo   The last free night.
+ * @author Sakthidharan Ashwin
+ */
+public record FreeWindow(LocalDate dateFrom, LocalDate dateTo) {
+}
@@ -0,0 +1,68 @@
+package com.hostfullystay.app.availability;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the free windows of a date range in a single sweep over the taken ranges.
+ * <p>
+ * Taken ranges come as flattened {@code from, to} pairs of epoch days, sorted by start day.
+ * Bookings and blocks are passed separately and merged on the fly, so neither list has to be
+ * copied or re-sorted. Ranges may overlap each other, and may start before the searched range.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public final class FreeWindows {
+
+    private FreeWindows() {
+    }
+
+    /**
+     * Returns the first free windows of {@code [from, to]} that are at least {@code nights} long.
+     *
+     * @param first  Taken ranges, as sorted {@code from, to} pairs.
+     * @param second More taken ranges, as sorted {@code from, to} pairs.
+     * @param from   The first day searched, inclusive.
+     * @param to     The last day searched, inclusive.
+     * @param nights The minimum number of nights in a window.
+     * @param limit  The maximum number of windows returned.
+     * @return The windows in date order, clipped to the searched range.
+     */
+    public static List<FreeWindow> sweep(long[] first, long[] second, long from, long to, int nights, int limit) {
+        List<FreeWindow> windows = new ArrayList<>(Math.min(limit, 16));
+        long cursor = from;
+        int i = 0;
+        int j = 0;
+        while (cursor <= to && windows.size() < limit && (i < first.length || j < second.length)) {
+            long start;
+            long end;
+            if (j >= second.length || (i < first.length && first[i] <= second[j])) {
+                start = first[i];
+                end = first[i + 1];
+                i += 2;
+            } else {
+                start = second[j];
+                end = second[j + 1];
+                j += 2;
+            }
+            if (start > to) {
+                break;
+            }
+            if (start > cursor) {
+                add(windows, cursor, start - 1, nights);
+            }
+            cursor = Math.max(cursor, end + 1);
+        }
+        if (cursor <= to && windows.size() < limit) {
+            add(windows, cursor, to, nights);
+        }
+        return windows;
+    }
+
+    private static void add(List<FreeWindow> windows, long from, long to, int nights) {
+        if (to - from + 1 >= nights) {
+            windows.add(new FreeWindow(LocalDate.ofEpochDay(from), LocalDate.ofEpochDay(to)));
+        }
+    }
+}
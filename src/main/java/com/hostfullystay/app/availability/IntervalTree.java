@@ -0,0 +1,287 @@
+package com.hostfullystay.app.availability;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Augmented AVL tree of closed day intervals, ordered by start day and owner id.
+ * Every node keeps the largest end day found in its subtree, which lets overlap
+ * queries discard whole branches and answer in O(log n).
+ * <p>
+ * Days are epoch days and both ends are inclusive, matching the way bookings and
+ * blocks are compared elsewhere. The tree is not thread-safe.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public class IntervalTree {
+
+    private static final long NO_ID = Long.MIN_VALUE;
+
+    private final Map<Long, Node> nodesById = new HashMap<>();
+
+    private Node root;
+
+    /**
+     * Inserts the interval owned by the given id, replacing any interval it already had.
+     *
+     * @param id   The owner id of the interval.
+     * @param from The first day of the interval, inclusive.
+     * @param to   The last day of the interval, inclusive.
+     */
+    public void put(long id, long from, long to) {
+        remove(id);
+        Node node = new Node(id, from, to);
+        root = insert(root, node);
+        nodesById.put(id, node);
+    }
+
+    /**
+     * Removes the interval owned by the given id.
+     *
+     * @param id The owner id of the interval.
+     * @return {@code true} if an interval was removed.
+     */
+    public boolean remove(long id) {
+        Node node = nodesById.remove(id);
+        if (node == null) {
+            return false;
+        }
+        root = delete(root, node);
+        return true;
+    }
+
+    /**
+     * Checks whether any stored interval overlaps {@code [from, to]}.
+     *
+     * @param from      The first day of the range, inclusive.
+     * @param to        The last day of the range, inclusive.
+     * @param excludeId An owner id to ignore, or {@code null}.
+     * @return {@code true} if at least one other interval overlaps the range.
+     */
+    public boolean overlaps(long from, long to, Long excludeId) {
+        return overlaps(root, from, to, excludeId == null ? NO_ID : excludeId);
+    }
+
+    /**
+     * Calls the consumer for every stored interval overlapping {@code [from, to]}, in start day order.
+     */
+    public void forEachOverlap(long from, long to, IntervalConsumer consumer) {
+        forEachOverlap(root, from, to, consumer);
+    }
+
+    /**
+     * Returns the intervals overlapping {@code [from, to]} in start day order, flattened as {@code from, to} pairs.
+     */
+    public long[] overlapping(long from, long to) {
+        RangeCollector collector = new RangeCollector();
+        forEachOverlap(root, from, to, collector);
+        return collector.toArray();
+    }
+
+    /**
+     * Returns the {@code [from, to]} interval owned by the given id, or {@code null}.
+     */
+    public long[] range(long id) {
+        Node node = nodesById.get(id);
+        return node == null ? null : new long[]{node.from, node.to};
+    }
+
+    public boolean contains(long id) {
+        return nodesById.containsKey(id);
+    }
+
+    public int size() {
+        return nodesById.size();
+    }
+
+    public void clear() {
+        nodesById.clear();
+        root = null;
+    }
+
+    private static boolean overlaps(Node node, long from, long to, long excludeId) {
+        if (node == null || node.maxTo < from) {
+            return false;
+        }
+        if (overlaps(node.left, from, to, excludeId)) {
+            return true;
+        }
+        if (node.from > to) {
+            return false;
+        }
+        if (node.to >= from && node.id != excludeId) {
+            return true;
+        }
+        return overlaps(node.right, from, to, excludeId);
+    }
+
+    private static void forEachOverlap(Node node, long from, long to, IntervalConsumer consumer) {
+        if (node == null || node.maxTo < from) {
+            return;
+        }
+        forEachOverlap(node.left, from, to, consumer);
+        if (node.from > to) {
+            return;
+        }
+        if (node.to >= from) {
+            consumer.accept(node.id, node.from, node.to);
+        }
+        forEachOverlap(node.right, from, to, consumer);
+    }
+
+    private static int compare(Node a, Node b) {
+        int result = Long.compare(a.from, b.from);
+        return result != 0 ? result : Long.compare(a.id, b.id);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return rebalance(node);
+    }
+
+    private static Node delete(Node node, Node removed) {
+        if (node == null) {
+            return null;
+        }
+        int result = compare(removed, node);
+        if (result < 0) {
+            node.left = delete(node.left, removed);
+        } else if (result > 0) {
+            node.right = delete(node.right, removed);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Relink the successor in place of the removed node so that nodesById stays valid.
+            Node successor = min(node.right);
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return rebalance(node);
+    }
+
+    private static Node min(Node node) {
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    private static Node deleteMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return rebalance(node);
+    }
+
+    private static Node rebalance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxTo = node.to;
+        if (node.left != null) {
+            maxTo = Math.max(maxTo, node.left.maxTo);
+        }
+        if (node.right != null) {
+            maxTo = Math.max(maxTo, node.right.maxTo);
+        }
+        node.maxTo = maxTo;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * Receives the intervals visited by {@link #forEachOverlap}.
+     */
+    @FunctionalInterface
+    public interface IntervalConsumer {
+        void accept(long id, long from, long to);
+    }
+
+    private static final class RangeCollector implements IntervalConsumer {
+
+        private long[] ranges = new long[32];
+        private int size;
+
+        @Override
+        public void accept(long id, long from, long to) {
+            if (size == ranges.length) {
+                ranges = Arrays.copyOf(ranges, size * 2);
+            }
+            ranges[size++] = from;
+            ranges[size++] = to;
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(ranges, size);
+        }
+    }
+
+    private static final class Node {
+
+        private final long id;
+        private final long from;
+        private final long to;
+
+        private long maxTo;
+        private int height = 1;
+        private Node left;
+        private Node right;
+
+        private Node(long id, long from, long to) {
+            this.id = id;
+            this.from = from;
+            this.to = to;
+            this.maxTo = to;
+        }
+    }
+}
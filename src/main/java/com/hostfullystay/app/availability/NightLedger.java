@@ -0,0 +1,147 @@
+package com.hostfullystay.app.availability;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.repository.BookingRepository;
+import com.hostfullystay.app.repository.OccupiedNightRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+import static com.hostfullystay.app.domain.Booking.State.BOOKED;
+
+/**
+ * Keeps the occupied night table in step with bookings and blocks when the
+ * {@link AvailabilityStrategy#NIGHTS} strategy is active. Nights are keyed by property and date.
+ * Claiming the nights of a write is the conflict check: an overlap fails the insert on the
+ * night's primary key, atomically and without any pre-check query or application lock.
+ * Releases run in the caller's transaction, so a cancel or delete and the freed nights commit together.
+ * <p>
+ * Since a night of a property has a single owner in this mode, blocks cannot overlap other blocks either.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Component
+public class NightLedger {
+
+    private final OccupiedNightRepository occupiedNightRepository;
+    private final BookingRepository bookingRepository;
+    private final BlockRepository blockRepository;
+    private final AvailabilityStrategy strategy;
+
+    public NightLedger(
+            OccupiedNightRepository occupiedNightRepository,
+            BookingRepository bookingRepository,
+            BlockRepository blockRepository,
+            @Value("${hostfully.availability.strategy:index}") AvailabilityStrategy strategy
+    ) {
+        this.occupiedNightRepository = occupiedNightRepository;
+        this.bookingRepository = bookingRepository;
+        this.blockRepository = blockRepository;
+        this.strategy = strategy;
+    }
+
+    public boolean isEnabled() {
+        return strategy == AvailabilityStrategy.NIGHTS;
+    }
+
+    /**
+     * Rebuilds the occupied night table from the Booking and Block tables.
+     */
+    @PostConstruct
+    public void rebuild() {
+        if (isEnabled()) {
+            rebuild(bookingRepository.findAll(), blockRepository.findAll());
+        }
+    }
+
+    /**
+     * Rebuilds the occupied night table from the given bookings and blocks, replacing whatever it held.
+     */
+    public void rebuild(Iterable<Booking> bookings, Iterable<Block> blocks) {
+        if (!isEnabled()) {
+            return;
+        }
+        occupiedNightRepository.deleteAllInBatch();
+        for (Booking booking : bookings) {
+            if (BOOKED.equals(booking.getState())) {
+                claim(booking.getPropertyId(), booking.getDateFrom(), booking.getDateTo(), booking.getBookingId(), null);
+            }
+        }
+        for (Block block : blocks) {
+            claim(block.getPropertyId(), block.getDateFrom(), block.getDateTo(), null, block.getBlockId());
+        }
+    }
+
+    /**
+     * Moves the nights of a saved booking to its current range, or releases them if it is no longer BOOKED.
+     *
+     * @param booking The booking as it was persisted, with its id assigned.
+     * @return {@code false} if a night is already taken; the transaction is then marked for rollback.
+     */
+    public boolean bookingSaved(Booking booking) {
+        if (!isEnabled()) {
+            return true;
+        }
+        occupiedNightRepository.releaseBooking(booking.getBookingId());
+        if (!BOOKED.equals(booking.getState())) {
+            return true;
+        }
+        return claimOrRollback(booking.getPropertyId(), booking.getDateFrom(), booking.getDateTo(), booking.getBookingId(), null);
+    }
+
+    public void bookingDeleted(Long bookingId) {
+        if (isEnabled()) {
+            occupiedNightRepository.releaseBooking(bookingId);
+        }
+    }
+
+    /**
+     * Moves the nights of a saved block to its current range.
+     *
+     * @param block The block as it was persisted, with its id assigned.
+     * @return {@code false} if a night is already taken; the transaction is then marked for rollback.
+     */
+    public boolean blockSaved(Block block) {
+        if (!isEnabled()) {
+            return true;
+        }
+        occupiedNightRepository.releaseBlock(block.getBlockId());
+        return claimOrRollback(block.getPropertyId(), block.getDateFrom(), block.getDateTo(), null, block.getBlockId());
+    }
+
+    public void blockDeleted(Long blockId) {
+        if (isEnabled()) {
+            occupiedNightRepository.releaseBlock(blockId);
+        }
+    }
+
+    private boolean claimOrRollback(Long propertyId, LocalDate dateFrom, LocalDate dateTo, Long bookingId, Long blockId) {
+        try {
+            claim(propertyId, dateFrom, dateTo, bookingId, blockId);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // The booking or block row may already be flushed; nothing of this write may commit.
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            }
+            return false;
+        }
+    }
+
+    private void claim(Long propertyId, LocalDate dateFrom, LocalDate dateTo, Long bookingId, Long blockId) {
+        long nights = ChronoUnit.DAYS.between(dateFrom, dateTo);
+        if (bookingId != null) {
+            occupiedNightRepository.claimForBooking(propertyId, dateFrom, nights, bookingId);
+        } else {
+            occupiedNightRepository.claimForBlock(propertyId, dateFrom, nights, blockId);
+        }
+    }
+}
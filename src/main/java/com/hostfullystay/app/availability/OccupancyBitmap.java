@@ -0,0 +1,114 @@
+package com.hostfullystay.app.availability;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Fixed-horizon calendar with one bit per night, packed into {@code long} words and keyed by epoch day.
+ * A year of horizon costs six words, and a range check is a handful of word-wide ANDs that never allocate.
+ * <p>
+ * Days outside the horizon are ignored on writes and reported as not covered on reads, so callers
+ * can fall back to another structure for them. The bitmap is not thread-safe.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public class OccupancyBitmap {
+
+    private final long originDay;
+    private final int days;
+    private final long[] words;
+
+    /**
+     * Creates an empty bitmap.
+     *
+     * @param origin The first night covered by the bitmap.
+     * @param days   The number of nights covered, starting at {@code origin}.
+     */
+    public OccupancyBitmap(LocalDate origin, int days) {
+        if (days <= 0) {
+            throw new IllegalArgumentException("The horizon must cover at least one day");
+        }
+        this.originDay = origin.toEpochDay();
+        this.days = days;
+        this.words = new long[(days + 63) >>> 6];
+    }
+
+    /**
+     * Tells whether every night of {@code [from, to]} lies inside the horizon.
+     */
+    public boolean covers(long from, long to) {
+        return from >= originDay && to < originDay + days && from <= to;
+    }
+
+    /**
+     * Checks whether any night of {@code [from, to]} is set. The range must be {@link #covers covered}.
+     */
+    public boolean anySet(long from, long to) {
+        int first = (int) (from - originDay);
+        int last = (int) (to - originDay);
+        int firstWord = first >>> 6;
+        int lastWord = last >>> 6;
+        long firstMask = -1L << first;
+        long lastMask = -1L >>> ~last;
+        if (firstWord == lastWord) {
+            return (words[firstWord] & firstMask & lastMask) != 0;
+        }
+        if ((words[firstWord] & firstMask) != 0) {
+            return true;
+        }
+        for (int word = firstWord + 1; word < lastWord; word++) {
+            if (words[word] != 0) {
+                return true;
+            }
+        }
+        return (words[lastWord] & lastMask) != 0;
+    }
+
+    /**
+     * Marks the nights of {@code [from, to]} that fall inside the horizon.
+     */
+    public void set(long from, long to) {
+        apply(from, to, true);
+    }
+
+    /**
+     * Clears the nights of {@code [from, to]} that fall inside the horizon.
+     */
+    public void clear(long from, long to) {
+        apply(from, to, false);
+    }
+
+    public void clearAll() {
+        Arrays.fill(words, 0L);
+    }
+
+    public int sizeInBytes() {
+        return words.length * Long.BYTES;
+    }
+
+    private void apply(long from, long to, boolean value) {
+        long clampedFrom = Math.max(from, originDay);
+        long clampedTo = Math.min(to, originDay + days - 1);
+        if (clampedFrom > clampedTo) {
+            return;
+        }
+        int first = (int) (clampedFrom - originDay);
+        int last = (int) (clampedTo - originDay);
+        int firstWord = first >>> 6;
+        int lastWord = last >>> 6;
+        for (int word = firstWord; word <= lastWord; word++) {
+            long mask = -1L;
+            if (word == firstWord) {
+                mask &= -1L << first;
+            }
+            if (word == lastWord) {
+                mask &= -1L >>> ~last;
+            }
+            if (value) {
+                words[word] |= mask;
+            } else {
+                words[word] &= ~mask;
+            }
+        }
+    }
+}
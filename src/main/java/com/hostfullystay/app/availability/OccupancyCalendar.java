@@ -0,0 +1,227 @@
+package com.hostfullystay.app.availability;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.repository.BookingRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+import static com.hostfullystay.app.domain.Booking.State.BOOKED;
+
+/**
+ * Night-by-night occupancy of the calendar of every property, kept ready to serve so that reading a range
+ * costs one lookup per night instead of loading and expanding every booking and block.
+ * <p>
+ * Each property has a partition and a lock of its own. Each night holds the id of the BOOKED booking
+ * and of the block owning it, in arrays of {@value #CHUNK_DAYS} consecutive nights allocated on first
+ * use. The services report every write, which is applied once its transaction commits; a moved or
+ * released range is cleared and the nights still covered by other ranges, which older data may contain,
+ * are written back from the interval trees.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Component
+public class OccupancyCalendar {
+
+    private static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK_DAYS = 1 << CHUNK_SHIFT;
+    private static final long FREE = 0;
+
+    private final BookingRepository bookingRepository;
+    private final BlockRepository blockRepository;
+
+    private final PartitionMap<Partition> partitions = new PartitionMap<>();
+
+    public OccupancyCalendar(BookingRepository bookingRepository, BlockRepository blockRepository) {
+        this.bookingRepository = bookingRepository;
+        this.blockRepository = blockRepository;
+    }
+
+    /**
+     * Rebuilds the calendar from the Booking and Block tables.
+     */
+    @PostConstruct
+    public void load() {
+        load(bookingRepository.findAll(), blockRepository.findAll());
+    }
+
+    /**
+     * Rebuilds the calendar from the given bookings and blocks, replacing whatever it held.
+     */
+    public void load(Iterable<Booking> bookings, Iterable<Block> blocks) {
+        partitions.clear();
+        for (Booking booking : bookings) {
+            if (BOOKED.equals(booking.getState())) {
+                long from = booking.getDateFrom().toEpochDay();
+                long to = booking.getDateTo().toEpochDay();
+                long id = booking.getBookingId();
+                partition(booking.getPropertyId()).write(nights -> nights.booked.put(id, from, to));
+            }
+        }
+        for (Block block : blocks) {
+            long from = block.getDateFrom().toEpochDay();
+            long to = block.getDateTo().toEpochDay();
+            long id = block.getBlockId();
+            partition(block.getPropertyId()).write(nights -> nights.blocked.put(id, from, to));
+        }
+    }
+
+    /**
+     * Returns the state of every night of {@code [dateFrom, dateTo]} of a property, in date order.
+     * A night both booked and blocked, which only older data may contain, is reported as booked.
+     *
+     * @param propertyId The property.
+     * @param dateFrom   The first night, inclusive.
+     * @param dateTo     The last night, inclusive.
+     * @return One entry per night.
+     */
+    public List<CalendarDay> days(long propertyId, LocalDate dateFrom, LocalDate dateTo) {
+        long from = dateFrom.toEpochDay();
+        long to = dateTo.toEpochDay();
+        List<CalendarDay> days = new ArrayList<>((int) Math.max(0, to - from + 1));
+        Partition partition = partitions.get(propertyId);
+        if (partition == null) {
+            for (long day = from; day <= to; day++) {
+                days.add(CalendarDay.free(LocalDate.ofEpochDay(day)));
+            }
+            return days;
+        }
+        long stamp = partition.lock.readLock();
+        try {
+            for (long day = from; day <= to; day++) {
+                LocalDate date = LocalDate.ofEpochDay(day);
+                long bookingId = partition.booked.owner(day);
+                long blockId = partition.blocked.owner(day);
+                if (bookingId != FREE) {
+                    days.add(CalendarDay.booked(date, bookingId));
+                } else if (blockId != FREE) {
+                    days.add(CalendarDay.blocked(date, blockId));
+                } else {
+                    days.add(CalendarDay.free(date));
+                }
+            }
+        } finally {
+            partition.lock.unlockRead(stamp);
+        }
+        return days;
+    }
+
+    /**
+     * Records the saved state of a booking. Only BOOKED bookings hold nights.
+     *
+     * @param booking The booking as it was persisted.
+     */
+    public void bookingSaved(Booking booking) {
+        long propertyId = booking.getPropertyId();
+        long id = booking.getBookingId();
+        if (BOOKED.equals(booking.getState())) {
+            long from = booking.getDateFrom().toEpochDay();
+            long to = booking.getDateTo().toEpochDay();
+            AfterCommit.run(() -> partition(propertyId).write(nights -> nights.booked.put(id, from, to)));
+        } else {
+            AfterCommit.run(() -> partition(propertyId).write(nights -> nights.booked.remove(id)));
+        }
+    }
+
+    public void bookingDeleted(Booking booking) {
+        long propertyId = booking.getPropertyId();
+        long id = booking.getBookingId();
+        AfterCommit.run(() -> partition(propertyId).write(nights -> nights.booked.remove(id)));
+    }
+
+    public void blockSaved(Block block) {
+        long propertyId = block.getPropertyId();
+        long id = block.getBlockId();
+        long from = block.getDateFrom().toEpochDay();
+        long to = block.getDateTo().toEpochDay();
+        AfterCommit.run(() -> partition(propertyId).write(nights -> nights.blocked.put(id, from, to)));
+    }
+
+    public void blockDeleted(Block block) {
+        long propertyId = block.getPropertyId();
+        long id = block.getBlockId();
+        AfterCommit.run(() -> partition(propertyId).write(nights -> nights.blocked.remove(id)));
+    }
+
+    private Partition partition(long propertyId) {
+        return partitions.computeIfAbsent(propertyId, key -> new Partition());
+    }
+
+    /**
+     * The booked and blocked nights of one property, guarded by a lock of its own.
+     */
+    private static final class Partition {
+
+        private final Nights booked = new Nights();
+        private final Nights blocked = new Nights();
+        private final StampedLock lock = new StampedLock();
+
+        void write(Consumer<Partition> change) {
+            long stamp = lock.writeLock();
+            try {
+                change.accept(this);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * The owners of the nights of one kind, with the ranges they were written from. Not thread-safe.
+     */
+    private static final class Nights {
+
+        private final IntervalTree ranges = new IntervalTree();
+        private final Map<Long, long[]> chunks = new HashMap<>();
+
+        void put(long id, long from, long to) {
+            long[] previous = ranges.range(id);
+            ranges.put(id, from, to);
+            if (previous != null) {
+                release(previous[0], previous[1]);
+            }
+            fill(id, from, to);
+        }
+
+        void remove(long id) {
+            long[] previous = ranges.range(id);
+            if (ranges.remove(id)) {
+                release(previous[0], previous[1]);
+            }
+        }
+
+        long owner(long day) {
+            long[] chunk = chunks.get(day >> CHUNK_SHIFT);
+            return chunk == null ? FREE : chunk[(int) (day & (CHUNK_DAYS - 1))];
+        }
+
+        /**
+         * Frees a range of nights and writes back the owners of the other ranges still covering part of it.
+         */
+        private void release(long from, long to) {
+            fill(FREE, from, to);
+            ranges.forEachOverlap(from, to, (otherId, otherFrom, otherTo) ->
+                    fill(otherId, Math.max(otherFrom, from), Math.min(otherTo, to)));
+        }
+
+        private void fill(long id, long from, long to) {
+            for (long day = from; day <= to; day++) {
+                long[] chunk = id == FREE
+                        ? chunks.get(day >> CHUNK_SHIFT)
+                        : chunks.computeIfAbsent(day >> CHUNK_SHIFT, key -> new long[CHUNK_DAYS]);
+                if (chunk != null) {
+                    chunk[(int) (day & (CHUNK_DAYS - 1))] = id;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.hostfullystay.app.availability;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongFunction;
+
+/**
+ * Open-addressing map from property id to the per-property partition of an in-memory calendar.
+ * <p>
+ * Lookups take a primitive id and never lock or allocate, so the hot conflict checks do not box
+ * the id the way a {@code Map<Long, P>} would. Partitions are only ever added, one per property,
+ * under the map's monitor; a reader sees either the old table or a fully built new one.
+ *
+ * @param <P> The partition type.
+ * @author Sakthidharan Ashwin
+ */
+final class PartitionMap<P> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private volatile Table<P> table = new Table<>(INITIAL_CAPACITY);
+
+    /**
+     * Returns the partition of the given property, or {@code null} if it has none yet.
+     */
+    P get(long propertyId) {
+        return table.get(propertyId);
+    }
+
+    /**
+     * Returns the partition of the given property, creating it on first use.
+     */
+    P computeIfAbsent(long propertyId, LongFunction<P> factory) {
+        P partition = table.get(propertyId);
+        return partition != null ? partition : create(propertyId, factory);
+    }
+
+    synchronized void clear() {
+        table = new Table<>(INITIAL_CAPACITY);
+    }
+
+    private synchronized P create(long propertyId, LongFunction<P> factory) {
+        Table<P> current = table;
+        P partition = current.get(propertyId);
+        if (partition != null) {
+            return partition;
+        }
+        partition = factory.apply(propertyId);
+        // Keep the load under one half so probe chains stay short.
+        if (2 * (current.size + 1) > current.capacity()) {
+            Table<P> grown = new Table<>(current.capacity() * 2);
+            for (int i = 0; i < current.capacity(); i++) {
+                P value = current.values.get(i);
+                if (value != null) {
+                    grown.put(current.keys[i], value);
+                }
+            }
+            grown.put(propertyId, partition);
+            table = grown;
+        } else {
+            current.put(propertyId, partition);
+        }
+        return partition;
+    }
+
+    private static long spread(long propertyId) {
+        return propertyId * 0x9E3779B97F4A7C15L;
+    }
+
+    private static final class Table<P> {
+
+        private final long[] keys;
+        private final AtomicReferenceArray<P> values;
+        private final int mask;
+        private int size;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        P get(long propertyId) {
+            for (int i = (int) (spread(propertyId) >>> 32) & mask; ; i = (i + 1) & mask) {
+                // The key is written before the value is published, so a non-null value makes its key visible.
+                P value = values.get(i);
+                if (value == null || keys[i] == propertyId) {
+                    return value;
+                }
+            }
+        }
+
+        void put(long propertyId, P value) {
+            int i = (int) (spread(propertyId) >>> 32) & mask;
+            while (values.get(i) != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = propertyId;
+            values.set(i, value);
+            size++;
+        }
+    }
+}
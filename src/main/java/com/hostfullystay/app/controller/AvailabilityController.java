@@ -0,0 +1,89 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.availability.FreeWindow;
+import com.hostfullystay.app.service.AvailabilityService;
+import com.hostfullystay.app.service.PropertyService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Controller class for handling availability searches across bookings and blocks.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@RestController
+@RequestMapping("/v1/api/availability")
+public class AvailabilityController {
+
+    /**
+     * Largest number of windows a single search may return.
+     */
+    static final int MAX_LIMIT = 1000;
+
+    /**
+     * Service for answering availability searches.
+     */
+    private final AvailabilityService availabilityService;
+
+    /**
+     * Service for looking up the properties searched.
+     */
+    private final PropertyService propertyService;
+
+    /**
+     * Constructor for AvailabilityController.
+     *
+     * @param availabilityService Service for answering availability searches.
+     * @param propertyService     Service for looking up the properties searched.
+     */
+    public AvailabilityController(AvailabilityService availabilityService, PropertyService propertyService) {
+        this.availabilityService = availabilityService;
+        this.propertyService = propertyService;
+    }
+
+    /**
+     * Handles HTTP GET requests to find free windows for a stay.
+     *
+     * @param propertyId The property searched.
+     * @param from       The first day searched, inclusive.
+     * @param to         The last day searched, inclusive.
+     * @param nights     The length of the stay, in nights.
+     * @param limit      The maximum number of windows returned, at most {@value #MAX_LIMIT}.
+     * @return ResponseEntity with the free windows in date order and HTTP status 200 (OK).
+     * @throws ResponseStatusException With HTTP status 404 (Not Found) if the property does not exist,
+     *                                 or 400 (Bad Request) if the range or the numbers are invalid.
+     */
+    @GetMapping("/windows")
+    public ResponseEntity<List<FreeWindow>> getFreeWindows(
+            @RequestParam("propertyId") Long propertyId,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "nights", defaultValue = "1") int nights,
+            @RequestParam(value = "limit", defaultValue = "10") int limit
+    ) {
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The range must not end before it starts");
+        }
+        if (nights < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A stay must last at least one night");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The limit must be between 1 and " + MAX_LIMIT);
+        }
+
+        if (!propertyService.exists(propertyId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Property not found");
+        }
+
+        return ResponseEntity.ok().body(availabilityService.findFreeWindows(propertyId, from, to, nights, limit));
+    }
+}
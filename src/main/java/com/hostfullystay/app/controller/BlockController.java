@@ -1,10 +1,17 @@
 package com.hostfullystay.app.controller;
 
 import com.hostfullystay.app.domain.Block;
-import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.repository.Keyset;
 import com.hostfullystay.app.service.BlockService;
+import com.hostfullystay.app.service.MissingEntityException;
+import com.hostfullystay.app.service.PropertyService;
+import com.hostfullystay.app.service.StaleVersionException;
+import com.hostfullystay.app.service.WritePipeline;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -12,9 +19,11 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Controller class for handling HTTP requests related to Block entities.
@@ -31,19 +40,26 @@ public class BlockController {
     private final BlockService blockService;
 
     /**
-     * Repository for accessing and manipulating Block entities in the database.
+     * Service for looking up the properties blocks belong to.
      */
-    private final BlockRepository blockRepository;
+    private final PropertyService propertyService;
+
+    /**
+     * Saves new blocks, in groups when batching is enabled.
+     */
+    private final WritePipeline writePipeline;
 
     /**
      * Constructor for BlockController.
      *
      * @param blockService    Service for handling business logic related to Block entities.
-     * @param blockRepository Repository for accessing and manipulating Block entities in the database.
+     * @param propertyService Service for looking up the properties blocks belong to.
+     * @param writePipeline   Saves new blocks, in groups when batching is enabled.
      */
-    public BlockController(BlockService blockService, BlockRepository blockRepository) {
+    public BlockController(BlockService blockService, PropertyService propertyService, WritePipeline writePipeline) {
         this.blockService = blockService;
-        this.blockRepository = blockRepository;
+        this.propertyService = propertyService;
+        this.writePipeline = writePipeline;
     }
 
     /**
@@ -58,7 +74,10 @@ public class BlockController {
         if (block.getBlockId() != null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A new block cannot already have an ID");
         }
-        Block result = blockService.save(block);
+        if (!propertyService.exists(block.getPropertyId())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Property not found");
+        }
+        Block result = writePipeline.save(block);
 
         if (result == null) {
             throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "The block can't be scheduled in that date range");
@@ -66,21 +85,24 @@ public class BlockController {
 
         return ResponseEntity
                 .created(new URI("/v1/api/blocks/" + result.getBlockId()))
+                .eTag(ETags.of(result.getVersion()))
                 .body(result);
     }
 
     /**
      * Handles HTTP PUT requests to update an existing Block entity.
      *
-     * @param id    The ID of the Block entity to be updated.
-     * @param block The updated Block entity.
+     * @param id      The ID of the Block entity to be updated.
+     * @param block   The updated Block entity.
+     * @param ifMatch The version the client expects to replace, as an entity tag, or {@code null} for an unconditional update.
      * @return ResponseEntity with the updated Block entity and HTTP status 200 (OK).
      * @throws URISyntaxException If the URI syntax is incorrect.
      */
     @PutMapping("/{id}")
     public ResponseEntity<Block> updateBlock(
             @PathVariable final Long id,
-            @Valid @RequestBody Block block
+            @Valid @RequestBody Block block,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         if (block.getBlockId() == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
@@ -88,32 +110,33 @@ public class BlockController {
         if (!Objects.equals(id, block.getBlockId())) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
         }
-        if (!blockRepository.existsById(id)) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Entity not found");
-        }
 
-        Block result = blockService.update(block);
+        block.setVersion(ETags.parseIfMatch(ifMatch));
+        Block result = withVersionCheck(() -> blockService.update(block));
         if (result == null) {
             throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "The block can't be scheduled in that date range");
         }
 
         return ResponseEntity
                 .ok()
+                .eTag(ETags.of(result.getVersion()))
                 .body(result);
     }
 
     /**
      * Handles HTTP PATCH requests to partially update an existing Block entity.
      *
-     * @param id    The ID of the Block entity to be partially updated.
-     * @param block The partial update data for the Block entity.
+     * @param id      The ID of the Block entity to be partially updated.
+     * @param block   The partial update data for the Block entity.
+     * @param ifMatch The version the client expects to patch, as an entity tag, or {@code null} for an unconditional patch.
      * @return ResponseEntity with the partially updated Block entity and HTTP status 200 (OK).
      * @throws URISyntaxException If the URI syntax is incorrect.
      */
     @PatchMapping(value = "/{id}", consumes = {"application/json", "application/merge-patch+json"})
     public ResponseEntity<Block> partialUpdateBlock(
             @PathVariable final Long id,
-            @NotNull @RequestBody Block block
+            @NotNull @RequestBody Block block,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         if (block.getBlockId() == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
@@ -121,36 +144,71 @@ public class BlockController {
         if (!Objects.equals(id, block.getBlockId())) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
         }
-        if (!blockRepository.existsById(id)) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Entity not found");
-        }
 
-        Optional<Block> result = blockService.partialUpdate(block);
+        block.setVersion(ETags.parseIfMatch(ifMatch));
+        Optional<Block> result = withVersionCheck(() -> blockService.partialUpdate(block));
 
         return result
-                .map((response) -> ResponseEntity.ok().body(response))
+                .map((response) -> ResponseEntity.ok().eTag(ETags.of(response.getVersion())).body(response))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "The block can't be scheduled in that date range"));
     }
 
     /**
-     * Handles HTTP GET requests to retrieve all Block entities.
+     * Handles HTTP GET requests to list Block entities, one page at a time in (dateFrom, blockId) order.
+     * The cursor of the next page, if any, is returned in the {@code X-Next-Cursor} header.
      *
-     * @return ResponseEntity with a list of all Block entities and HTTP status 200 (OK).
+     * @param propertyId  Only blocks of this property.
+     * @param from        Only blocks with a night on or after this day.
+     * @param to          Only blocks with a night on or before this day.
+     * @param manager     Only blocks set by this manager.
+     * @param cursor      The cursor returned with the previous page, to read the next one.
+     * @param size        The page size, 50 by default and at most 500.
+     * @param unpaged     Opts in to the unbounded listing of every block, which ignores all the other parameters.
+     * @param ifNoneMatch The entity tag of a listing the client already has.
+     * @return ResponseEntity with a page of Block entities and HTTP status 200 (OK), or HTTP status 304
+     * (Not Modified) without reading the table if the collection has not changed since.
      */
     @GetMapping
-    public ResponseEntity<List<Block>> getAllBlocks() {
-        List<Block> list = blockService.findAll();
-        return ResponseEntity.ok().body(list);
+    public ResponseEntity<List<Block>> getAllBlocks(
+            @RequestParam(value = "propertyId", required = false) Long propertyId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "manager", required = false) String manager,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "unpaged", defaultValue = "false") boolean unpaged,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        Keyset after = unpaged ? null : Paging.cursor(cursor);
+        int pageSize = unpaged ? 0 : Paging.pageSize(size);
+        // Read before the rows, so the tag is never newer than the data it is sent with.
+        String eTag = ETags.ofRevision(blockService.revision());
+        if (ETags.matchesIfNoneMatch(ifNoneMatch, eTag)) {
+            return ETags.notModified(eTag);
+        }
+
+        if (unpaged) {
+            List<Block> list = blockService.findAll();
+            return ResponseEntity.ok().eTag(eTag).body(list);
+        }
+
+        return Paging.toResponse(blockService.findPage(propertyId, from, to, manager, after, pageSize), eTag);
     }
 
     /**
      * Handles HTTP GET requests to retrieve the count of Block entities.
      *
-     * @return ResponseEntity with the count of Block entities and HTTP status 200 (OK).
+     * @param ifNoneMatch The entity tag of a count the client already has.
+     * @return ResponseEntity with the count of Block entities and HTTP status 200 (OK),
+     * or HTTP status 304 (Not Modified) without reading the table if the collection has not changed since.
      */
     @GetMapping("/count")
-    public ResponseEntity<Long> countBlocks() {
-        return ResponseEntity.ok().body(blockService.count());
+    public ResponseEntity<Long> countBlocks(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String eTag = ETags.ofRevision(blockService.revision());
+        if (ETags.matchesIfNoneMatch(ifNoneMatch, eTag)) {
+            return ETags.notModified(eTag);
+        }
+        return ResponseEntity.ok().eTag(eTag).body(blockService.count());
     }
 
     /**
@@ -164,7 +222,7 @@ public class BlockController {
     public ResponseEntity<Block> getBlock(@PathVariable Long id) {
         Optional<Block> block = blockService.findOne(id);
         return block
-                .map((response) -> ResponseEntity.ok().body(response))
+                .map((response) -> ResponseEntity.ok().eTag(ETags.of(response.getVersion())).body(response))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
@@ -172,13 +230,34 @@ public class BlockController {
      * Handles HTTP DELETE requests to delete a specific Block entity by ID.
      *
      * @param id The ID of the Block entity to be deleted.
-     * @return ResponseEntity with no content and HTTP status 204 (No Content).
+     * @return ResponseEntity with no content and HTTP status 204 (No Content), or HTTP status 409 (Conflict)
+     * if concurrent writes of the entity kept winning past the retries.
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteBlock(@PathVariable Long id) {
-        blockService.delete(id);
+        withVersionCheck(() -> {
+            blockService.delete(id);
+            return null;
+        });
         return ResponseEntity
                 .noContent()
                 .build();
     }
+
+    /**
+     * Runs an update and maps its failures to HTTP statuses: 400 (Bad Request) when the entity does not exist,
+     * 412 (Precondition Failed) when the If-Match version is stale, 409 (Conflict) when concurrent writers kept
+     * winning past the retries.
+     */
+    private static <T> T withVersionCheck(Supplier<T> update) {
+        try {
+            return update.get();
+        } catch (MissingEntityException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Entity not found");
+        } catch (StaleVersionException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "The block was modified concurrently, please retry");
+        }
+    }
 }
@@ -1,10 +1,17 @@
 package com.hostfullystay.app.controller;
 
 import com.hostfullystay.app.domain.Booking;
-import com.hostfullystay.app.repository.BookingRepository;
+import com.hostfullystay.app.repository.Keyset;
 import com.hostfullystay.app.service.BookingService;
+import com.hostfullystay.app.service.MissingEntityException;
+import com.hostfullystay.app.service.PropertyService;
+import com.hostfullystay.app.service.StaleVersionException;
+import com.hostfullystay.app.service.WritePipeline;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -12,9 +19,11 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Controller class for handling HTTP requests related to Booking entities.
@@ -31,19 +40,26 @@ public class BookingController {
     private final BookingService bookingService;
 
     /**
-     * Repository for accessing and manipulating Booking entities in the database.
+     * Service for looking up the properties bookings belong to.
      */
-    private final BookingRepository bookingRepository;
+    private final PropertyService propertyService;
+
+    /**
+     * Saves new bookings, in groups when batching is enabled.
+     */
+    private final WritePipeline writePipeline;
 
     /**
      * Constructor for BookingController.
      *
-     * @param bookingService    Service for handling business logic related to Booking entities.
-     * @param bookingRepository Repository for accessing and manipulating Booking entities in the database.
+     * @param bookingService  Service for handling business logic related to Booking entities.
+     * @param propertyService Service for looking up the properties bookings belong to.
+     * @param writePipeline   Saves new bookings, in groups when batching is enabled.
      */
-    public BookingController(BookingService bookingService, BookingRepository bookingRepository) {
+    public BookingController(BookingService bookingService, PropertyService propertyService, WritePipeline writePipeline) {
         this.bookingService = bookingService;
-        this.bookingRepository = bookingRepository;
+        this.propertyService = propertyService;
+        this.writePipeline = writePipeline;
     }
 
     /**
@@ -58,8 +74,11 @@ public class BookingController {
         if (booking.getBookingId() != null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A new block cannot already have an ID");
         }
+        if (!propertyService.exists(booking.getPropertyId())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Property not found");
+        }
 
-        Booking result = bookingService.save(booking);
+        Booking result = writePipeline.save(booking);
 
         if (result == null) {
             throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "The booking can't be scheduled in that date range");
@@ -67,6 +86,7 @@ public class BookingController {
 
         return ResponseEntity
                 .created(new URI("/v1/api/bookings/" + result.getBookingId()))
+                .eTag(ETags.of(result.getVersion()))
                 .body(result);
     }
 
@@ -75,13 +95,15 @@ public class BookingController {
      *
      * @param id      The ID of the Booking entity to be updated.
      * @param booking The updated Booking entity.
+     * @param ifMatch The version the client expects to replace, as an entity tag, or {@code null} for an unconditional update.
      * @return ResponseEntity with the updated Booking entity and HTTP status 200 (OK).
      * @throws URISyntaxException If the URI syntax is incorrect.
      */
     @PutMapping("/{id}")
     public ResponseEntity<Booking> updateBooking(
             @PathVariable(value = "id", required = false) final Long id,
-            @Valid @RequestBody Booking booking
+            @Valid @RequestBody Booking booking,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         if (booking.getBookingId() == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
@@ -89,17 +111,16 @@ public class BookingController {
         if (!Objects.equals(id, booking.getBookingId())) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
         }
-        if (!bookingRepository.existsById(id)) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Entity not found");
-        }
 
-        Booking result = bookingService.update(booking);
+        booking.setVersion(ETags.parseIfMatch(ifMatch));
+        Booking result = withVersionCheck(() -> bookingService.update(booking));
         if (result == null) {
             throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "The booking can't be scheduled in that date range");
         }
 
         return ResponseEntity
                 .ok()
+                .eTag(ETags.of(result.getVersion()))
                 .body(result);
     }
 
@@ -108,13 +129,15 @@ public class BookingController {
      *
      * @param id      The ID of the Booking entity to be partially updated.
      * @param booking The partial update data for the Booking entity.
+     * @param ifMatch The version the client expects to patch, as an entity tag, or {@code null} for an unconditional patch.
      * @return ResponseEntity with the partially updated Booking entity and HTTP status 200 (OK).
      * @throws URISyntaxException If the URI syntax is incorrect.
      */
     @PatchMapping(value = "/{id}", consumes = {"application/json", "application/merge-patch+json"})
     public ResponseEntity<Booking> partialUpdateBooking(
             @PathVariable(value = "id", required = false) final Long id,
-            @NotNull @RequestBody Booking booking
+            @NotNull @RequestBody Booking booking,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         if (booking.getBookingId() == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
@@ -122,36 +145,73 @@ public class BookingController {
         if (!Objects.equals(id, booking.getBookingId())) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
         }
-        if (!bookingRepository.existsById(id)) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Entity not found");
-        }
 
-        Optional<Booking> result = bookingService.partialUpdate(booking);
+        booking.setVersion(ETags.parseIfMatch(ifMatch));
+        Optional<Booking> result = withVersionCheck(() -> bookingService.partialUpdate(booking));
 
         return result
-                .map((response) -> ResponseEntity.ok().body(response))
+                .map((response) -> ResponseEntity.ok().eTag(ETags.of(response.getVersion())).body(response))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "The booking can't be scheduled in that date range"));
     }
 
     /**
-     * Handles HTTP GET requests to retrieve all Booking entities.
+     * Handles HTTP GET requests to list Booking entities, one page at a time in (dateFrom, bookingId) order.
+     * The cursor of the next page, if any, is returned in the {@code X-Next-Cursor} header.
      *
-     * @return ResponseEntity with a list of all Booking entities and HTTP status 200 (OK).
+     * @param propertyId  Only bookings of this property.
+     * @param from        Only bookings with a night on or after this day.
+     * @param to          Only bookings with a night on or before this day.
+     * @param state       Only bookings in this state.
+     * @param guestName   Only bookings of this guest.
+     * @param cursor      The cursor returned with the previous page, to read the next one.
+     * @param size        The page size, 50 by default and at most 500.
+     * @param unpaged     Opts in to the unbounded listing of every booking, which ignores all the other parameters.
+     * @param ifNoneMatch The entity tag of a listing the client already has.
+     * @return ResponseEntity with a page of Booking entities and HTTP status 200 (OK), or HTTP status 304
+     * (Not Modified) without reading the table if the collection has not changed since.
      */
     @GetMapping
-    public ResponseEntity<List<Booking>> getAllBookings() {
-        List<Booking> list = bookingService.findAll();
-        return ResponseEntity.ok().body(list);
+    public ResponseEntity<List<Booking>> getAllBookings(
+            @RequestParam(value = "propertyId", required = false) Long propertyId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "state", required = false) Booking.State state,
+            @RequestParam(value = "guestName", required = false) String guestName,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "unpaged", defaultValue = "false") boolean unpaged,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        Keyset after = unpaged ? null : Paging.cursor(cursor);
+        int pageSize = unpaged ? 0 : Paging.pageSize(size);
+        // Read before the rows, so the tag is never newer than the data it is sent with.
+        String eTag = ETags.ofRevision(bookingService.revision());
+        if (ETags.matchesIfNoneMatch(ifNoneMatch, eTag)) {
+            return ETags.notModified(eTag);
+        }
+
+        if (unpaged) {
+            List<Booking> list = bookingService.findAll();
+            return ResponseEntity.ok().eTag(eTag).body(list);
+        }
+
+        return Paging.toResponse(bookingService.findPage(propertyId, from, to, state, guestName, after, pageSize), eTag);
     }
 
     /**
      * Handles HTTP GET requests to retrieve the count of Booking entities.
      *
-     * @return ResponseEntity with the count of Booking entities and HTTP status 200 (OK).
+     * @param ifNoneMatch The entity tag of a count the client already has.
+     * @return ResponseEntity with the count of Booking entities and HTTP status 200 (OK),
+     * or HTTP status 304 (Not Modified) without reading the table if the collection has not changed since.
      */
     @GetMapping("/count")
-    public ResponseEntity<Long> countBookings() {
-        return ResponseEntity.ok().body(bookingService.count());
+    public ResponseEntity<Long> countBookings(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String eTag = ETags.ofRevision(bookingService.revision());
+        if (ETags.matchesIfNoneMatch(ifNoneMatch, eTag)) {
+            return ETags.notModified(eTag);
+        }
+        return ResponseEntity.ok().eTag(eTag).body(bookingService.count());
     }
 
     /**
@@ -165,7 +225,7 @@ public class BookingController {
     public ResponseEntity<Booking> getBooking(@PathVariable Long id) {
         Optional<Booking> booking = bookingService.findOne(id);
         return booking
-                .map((response) -> ResponseEntity.ok().body(response))
+                .map((response) -> ResponseEntity.ok().eTag(ETags.of(response.getVersion())).body(response))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
@@ -173,13 +233,34 @@ public class BookingController {
      * Handles HTTP DELETE requests to delete a specific Booking entity by ID.
      *
      * @param id The ID of the Booking entity to be deleted.
-     * @return ResponseEntity with no content and HTTP status 204 (No Content).
+     * @return ResponseEntity with no content and HTTP status 204 (No Content), or HTTP status 409 (Conflict)
+     * if concurrent writes of the entity kept winning past the retries.
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteBooking(@PathVariable Long id) {
-        bookingService.delete(id);
+        withVersionCheck(() -> {
+            bookingService.delete(id);
+            return null;
+        });
         return ResponseEntity
                 .noContent()
                 .build();
     }
+
+    /**
+     * Runs an update and maps its failures to HTTP statuses: 400 (Bad Request) when the entity does not exist,
+     * 412 (Precondition Failed) when the If-Match version is stale, 409 (Conflict) when concurrent writers kept
+     * winning past the retries.
+     */
+    private static <T> T withVersionCheck(Supplier<T> update) {
+        try {
+            return update.get();
+        } catch (MissingEntityException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Entity not found");
+        } catch (StaleVersionException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "The booking was modified concurrently, please retry");
+        }
+    }
 }
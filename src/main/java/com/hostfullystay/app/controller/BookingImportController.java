@@ -0,0 +1,107 @@
+package com.hostfullystay.app.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.service.BookingImportResult;
+import com.hostfullystay.app.service.BookingImportService;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Controller class for handling bulk imports of Booking entities, as sent by channel-manager syncs.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@RestController
+@RequestMapping("/v1/api/bookings")
+public class BookingImportController {
+
+    /**
+     * Largest number of bookings a single import may carry.
+     */
+    static final int MAX_IMPORT_SIZE = 10_000;
+
+    /**
+     * Service for importing batches of Booking entities.
+     */
+    private final BookingImportService bookingImportService;
+
+    /**
+     * Mapper for reading newline-delimited JSON bodies.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructor for BookingImportController.
+     *
+     * @param bookingImportService Service for importing batches of Booking entities.
+     * @param objectMapper         Mapper for reading newline-delimited JSON bodies.
+     */
+    public BookingImportController(BookingImportService bookingImportService, ObjectMapper objectMapper) {
+        this.bookingImportService = bookingImportService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Handles HTTP POST requests to import a JSON array of new Booking entities.
+     *
+     * @param bookings The bookings to create.
+     * @return ResponseEntity with one result per booking, in request order, and HTTP status 200 (OK).
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BookingImportResult>> importBookings(@RequestBody List<Booking> bookings) {
+        return importAll(bookings);
+    }
+
+    /**
+     * Handles HTTP POST requests to import new Booking entities sent as newline-delimited JSON, one per line.
+     *
+     * @param body The request body.
+     * @return ResponseEntity with one result per booking, in request order, and HTTP status 200 (OK).
+     * @throws IOException If the request body cannot be read.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<BookingImportResult>> importBookingStream(InputStream body) throws IOException {
+        List<Booking> bookings = new ArrayList<>();
+        try (MappingIterator<Booking> iterator = objectMapper.readerFor(Booking.class).readValues(body)) {
+            while (iterator.hasNextValue()) {
+                if (bookings.size() == MAX_IMPORT_SIZE) {
+                    throw tooLarge();
+                }
+                bookings.add(iterator.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The body is not a stream of bookings: " + e.getOriginalMessage());
+        }
+        return importAll(bookings);
+    }
+
+    private ResponseEntity<List<BookingImportResult>> importAll(List<Booking> bookings) {
+        if (bookings.size() > MAX_IMPORT_SIZE) {
+            throw tooLarge();
+        }
+        try {
+            return ResponseEntity.ok().body(bookingImportService.importAll(bookings));
+        } catch (ConcurrencyFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    private static ResponseStatusException tooLarge() {
+        return new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "An import carries at most " + MAX_IMPORT_SIZE + " bookings");
+    }
+}
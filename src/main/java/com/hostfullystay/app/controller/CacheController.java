@@ -0,0 +1,43 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.service.EntityCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Controller class for reporting the hit, miss and eviction counters of the entity read caches.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@RestController
+@RequestMapping("/v1/api/caches")
+public class CacheController {
+
+    /**
+     * The entity read caches.
+     */
+    private final List<EntityCache<?>> caches;
+
+    /**
+     * Constructor for CacheController.
+     *
+     * @param caches The entity read caches.
+     */
+    public CacheController(List<EntityCache<?>> caches) {
+        this.caches = caches;
+    }
+
+    /**
+     * Handles HTTP GET requests to retrieve the counters of every cache.
+     *
+     * @return ResponseEntity with the counters of each cache and HTTP status 200 (OK).
+     */
+    @GetMapping
+    public ResponseEntity<List<EntityCache.Stats>> getCacheStats() {
+        return ResponseEntity.ok().body(caches.stream().map(EntityCache::stats).toList());
+    }
+}
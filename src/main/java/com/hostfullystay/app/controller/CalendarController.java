@@ -0,0 +1,83 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.availability.CalendarDay;
+import com.hostfullystay.app.service.AvailabilityService;
+import com.hostfullystay.app.service.PropertyService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Controller class for serving the night-by-night occupancy calendar drawn by the owner dashboard.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@RestController
+@RequestMapping("/v1/api/calendar")
+public class CalendarController {
+
+    /**
+     * Largest number of nights a single calendar may span, two years.
+     */
+    static final int MAX_DAYS = 731;
+
+    /**
+     * Service for answering availability searches.
+     */
+    private final AvailabilityService availabilityService;
+
+    /**
+     * Service for looking up the properties searched.
+     */
+    private final PropertyService propertyService;
+
+    /**
+     * Constructor for CalendarController.
+     *
+     * @param availabilityService Service for answering availability searches.
+     * @param propertyService     Service for looking up the properties searched.
+     */
+    public CalendarController(AvailabilityService availabilityService, PropertyService propertyService) {
+        this.availabilityService = availabilityService;
+        this.propertyService = propertyService;
+    }
+
+    /**
+     * Handles HTTP GET requests to read the calendar of a date range.
+     *
+     * @param propertyId The property searched.
+     * @param from       The first night, inclusive.
+     * @param to         The last night, inclusive.
+     * @return ResponseEntity with the state of every night in date order and HTTP status 200 (OK).
+     * @throws ResponseStatusException With HTTP status 404 (Not Found) if the property does not exist,
+     *                                 or 400 (Bad Request) if the range is invalid or longer than {@value #MAX_DAYS} nights.
+     */
+    @GetMapping
+    public ResponseEntity<List<CalendarDay>> getCalendar(
+            @RequestParam("propertyId") Long propertyId,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The range must not end before it starts");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A calendar spans at most " + MAX_DAYS + " nights");
+        }
+
+        if (!propertyService.exists(propertyId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Property not found");
+        }
+
+        return ResponseEntity.ok().body(availabilityService.getCalendar(propertyId, from, to));
+    }
+}
@@ -0,0 +1,55 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.service.ChangeFeed;
+import com.hostfullystay.app.service.ChangeFeedService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Controller class for the change feed, which lets sync clients fetch only the bookings and blocks written
+ * or deleted since their last sync.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@RestController
+@RequestMapping("/v1/api/changes")
+public class ChangeController {
+
+    /**
+     * Service for reading the change feed.
+     */
+    private final ChangeFeedService changeFeedService;
+
+    /**
+     * Constructor for ChangeController.
+     *
+     * @param changeFeedService Service for reading the change feed.
+     */
+    public ChangeController(ChangeFeedService changeFeedService) {
+        this.changeFeedService = changeFeedService;
+    }
+
+    /**
+     * Handles HTTP GET requests to read the changes after a revision.
+     *
+     * @param since The {@code next} revision of the previous response, or {@code 0} for a full sync.
+     * @param size  The page size, {@value Paging#DEFAULT_PAGE_SIZE} by default.
+     * @return ResponseEntity with the changes, oldest first, the revision to continue from and HTTP status 200 (OK).
+     * @throws ResponseStatusException With HTTP status 400 (Bad Request) if the revision is negative or the page size is invalid.
+     */
+    @GetMapping
+    public ResponseEntity<ChangeFeed> getChanges(
+            @RequestParam(value = "since", defaultValue = "0") long since,
+            @RequestParam(value = "size", required = false) Integer size
+    ) {
+        if (since < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The revision must not be negative");
+        }
+        return ResponseEntity.ok().body(changeFeedService.changesSince(since, Paging.pageSize(size)));
+    }
+}
@@ -0,0 +1,85 @@
+package com.hostfullystay.app.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Maps entity versions and collection revisions to strong entity tags and back, for the {@code ETag},
+ * {@code If-Match} and {@code If-None-Match} headers.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * Returns the quoted entity tag of a version, or {@code null} if the entity has none yet.
+     */
+    public static String of(Long version) {
+        return version == null ? null : "\"" + version + "\"";
+    }
+
+    /**
+     * Returns the quoted entity tag of a collection revision.
+     */
+    static String ofRevision(String revision) {
+        return "\"" + revision + "\"";
+    }
+
+    /**
+     * Tells whether an {@code If-None-Match} header names the given entity tag, so the response may be 304 (Not Modified).
+     *
+     * @param ifNoneMatch The header value, possibly {@code null}.
+     * @param eTag        The current quoted entity tag.
+     * @return {@code true} if the header is {@code *} or lists the tag; weak tags match too, since If-None-Match
+     * uses the weak comparison.
+     */
+    static boolean matchesIfNoneMatch(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns an empty 304 (Not Modified) response carrying the entity tag.
+     */
+    static <T> ResponseEntity<T> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+    }
+
+    /**
+     * Reads the version named by an {@code If-Match} header.
+     *
+     * @param ifMatch The header value, possibly {@code null}.
+     * @return The expected version, or {@code null} if the header is absent or {@code *}.
+     * @throws ResponseStatusException With 412 (Precondition Failed) if the header names no version of ours;
+     *                                 weak tags never match, since If-Match uses the strong comparison.
+     */
+    public static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.valueOf(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // Falls through to the 412 below.
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match does not name a current version");
+    }
+}
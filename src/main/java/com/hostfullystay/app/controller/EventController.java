@@ -0,0 +1,70 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.service.MutationEvent;
+import com.hostfullystay.app.service.MutationEvents;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+/**
+ * Controller class for the Server-Sent Events stream that pushes committed writes of bookings and blocks
+ * to dashboards, instead of having them poll the listings.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@RestController
+@RequestMapping("/v1/api/events")
+public class EventController {
+
+    /**
+     * Hub fanning the committed writes out to the subscribers.
+     */
+    private final MutationEvents mutationEvents;
+
+    /**
+     * Constructor for EventController.
+     *
+     * @param mutationEvents Hub fanning the committed writes out to the subscribers.
+     */
+    public EventController(MutationEvents mutationEvents) {
+        this.mutationEvents = mutationEvents;
+    }
+
+    /**
+     * Handles HTTP GET requests to subscribe to the writes. Each event is named after its
+     * {@link MutationEvent.Type}, carries the revision of the write as its id and the change as its data.
+     * A subscriber that falls too far behind has its stream closed and catches up with the change feed,
+     * from the id of the last event it received.
+     *
+     * @param propertyId Only the writes of this property, or all of them if absent.
+     * @return The event stream, which stays open until the client disconnects or is dropped.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam(value = "propertyId", required = false) Long propertyId) {
+        // No timeout: the connection costs no thread while it waits for events.
+        SseEmitter emitter = new SseEmitter(0L);
+        MutationEvents.Subscription subscription = mutationEvents.subscribe(propertyId, new MutationEvents.Sink() {
+            @Override
+            public void send(MutationEvent event) throws IOException {
+                emitter.send(SseEmitter.event()
+                        .id(Long.toString(event.change().revision()))
+                        .name(event.type().name())
+                        .data(event.change(), MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        return emitter;
+    }
+}
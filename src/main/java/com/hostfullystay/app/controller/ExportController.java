@@ -0,0 +1,58 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.service.ExportService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Controller class for exporting every Booking and Block entity as newline-delimited JSON, for nightly reconciliation.
+ * The body is written while the rows are read, so exports of any size are served with constant memory.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@RestController
+@RequestMapping("/v1/api")
+public class ExportController {
+
+    /**
+     * Service for exporting Booking and Block entities.
+     */
+    private final ExportService exportService;
+
+    /**
+     * Constructor for ExportController.
+     *
+     * @param exportService Service for exporting Booking and Block entities.
+     */
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    /**
+     * Handles HTTP GET requests to export all Booking entities.
+     *
+     * @return ResponseEntity streaming one Booking per line and HTTP status 200 (OK).
+     */
+    @GetMapping(value = "/bookings/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBookings() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(exportService::exportBookings);
+    }
+
+    /**
+     * Handles HTTP GET requests to export all Block entities.
+     *
+     * @return ResponseEntity streaming one Block per line and HTTP status 200 (OK).
+     */
+    @GetMapping(value = "/blocks/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBlocks() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(exportService::exportBlocks);
+    }
+}
@@ -0,0 +1,60 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.repository.Keyset;
+import com.hostfullystay.app.repository.KeysetPage;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Request and response conventions shared by the keyset-paginated listings.
+ * The next page is announced in the {@value #NEXT_CURSOR_HEADER} header; it is absent on the last page.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public final class Paging {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+
+    private Paging() {
+    }
+
+    /**
+     * Validates the requested page size, defaulting to {@value #DEFAULT_PAGE_SIZE}.
+     */
+    public static int pageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return size;
+    }
+
+    /**
+     * Reads the cursor sent by the client, or returns {@code null} for the first page.
+     */
+    static Keyset cursor(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return Keyset.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    static <T> ResponseEntity<List<T>> toResponse(KeysetPage<T> page, String eTag) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().eTag(eTag);
+        if (page.next() != null) {
+            builder.header(NEXT_CURSOR_HEADER, page.next().encode());
+        }
+        return builder.body(page.content());
+    }
+}
@@ -0,0 +1,81 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.service.PropertyService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+
+/**
+ * Controller class for handling HTTP requests related to Property entities.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@RestController
+@RequestMapping("/v1/api/properties")
+public class PropertyController {
+
+    /**
+     * Service for handling business logic related to Property entities.
+     */
+    private final PropertyService propertyService;
+
+    /**
+     * Constructor for PropertyController.
+     *
+     * @param propertyService Service for handling business logic related to Property entities.
+     */
+    public PropertyController(PropertyService propertyService) {
+        this.propertyService = propertyService;
+    }
+
+    /**
+     * Handles HTTP POST requests to create a new Property entity.
+     *
+     * @param property The Property entity to be created. Must be a valid and non-existing entity.
+     * @return ResponseEntity with the created Property entity and HTTP status 201 (Created).
+     * @throws URISyntaxException If the URI syntax is incorrect.
+     */
+    @PostMapping
+    public ResponseEntity<Property> createProperty(@Valid @RequestBody Property property) throws URISyntaxException {
+        if (property.getPropertyId() != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A new property cannot already have an ID");
+        }
+
+        Property result = propertyService.save(property);
+
+        return ResponseEntity
+                .created(new URI("/v1/api/properties/" + result.getPropertyId()))
+                .body(result);
+    }
+
+    /**
+     * Handles HTTP GET requests to retrieve all Property entities.
+     *
+     * @return ResponseEntity with the list of Property entities and HTTP status 200 (OK).
+     */
+    @GetMapping
+    public ResponseEntity<List<Property>> getAllProperties() {
+        return ResponseEntity.ok().body(propertyService.findAll());
+    }
+
+    /**
+     * Handles HTTP GET requests to retrieve a specific Property entity by ID.
+     *
+     * @param id The ID of the Property entity to be retrieved.
+     * @return ResponseEntity with the retrieved Property entity and HTTP status 200 (OK).
+     * @throws ResponseStatusException If the entity is not found, HTTP status 404 (Not Found) is returned.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Property> getProperty(@PathVariable Long id) {
+        return propertyService.findOne(id)
+                .map(response -> ResponseEntity.ok().body(response))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+}
@@ -1,5 +1,6 @@
 package com.hostfullystay.app.domain;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -8,15 +9,24 @@ import java.io.Serializable;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "block")
+@Table(name = "block", indexes = {
+        @Index(name = "idx_block_property_dates", columnList = "propertyId, dateTo, dateFrom"),
+        @Index(name = "idx_block_date_from_id", columnList = "dateFrom, blockId"),
+        @Index(name = "idx_block_revision", columnList = "revision")
+})
 public class Block implements Serializable {
 
     @Id
+    @org.springframework.data.annotation.Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
     @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000)
     @Column(name = "blockId")
     private Long blockId;
 
+    @NotNull
+    @Column(name = "propertyId", nullable = false, updatable = false)
+    private Long propertyId;
+
     @NotNull
     @Column(name = "dateFrom", nullable = false)
     private LocalDate dateFrom;
@@ -30,6 +40,18 @@ public class Block implements Serializable {
     @Column(name = "manager", length = 255, nullable = false)
     private String manager;
 
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    /**
+     * Position of the last write in the change feed, stamped by the service on every save.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "revision")
+    private Long revision;
+
     public Long getBlockId() {
         return blockId;
     }
@@ -38,6 +60,14 @@ public class Block implements Serializable {
         this.blockId = blockId;
     }
 
+    public Long getPropertyId() {
+        return propertyId;
+    }
+
+    public void setPropertyId(Long propertyId) {
+        this.propertyId = propertyId;
+    }
+
     public LocalDate getDateFrom() {
         return dateFrom;
     }
@@ -61,4 +91,20 @@ public class Block implements Serializable {
     public void setManager(String manager) {
         this.manager = manager;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
 }
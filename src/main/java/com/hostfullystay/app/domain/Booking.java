@@ -1,5 +1,6 @@
 package com.hostfullystay.app.domain;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -8,15 +9,24 @@ import java.io.Serializable;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "booking")
+@Table(name = "booking", indexes = {
+        @Index(name = "idx_booking_property_dates", columnList = "propertyId, state, dateTo, dateFrom"),
+        @Index(name = "idx_booking_date_from_id", columnList = "dateFrom, bookingId"),
+        @Index(name = "idx_booking_revision", columnList = "revision")
+})
 public class Booking implements Serializable {
 
     @Id
+    @org.springframework.data.annotation.Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
     @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000)
     @Column(name = "bookingId")
     private Long bookingId;
 
+    @NotNull
+    @Column(name = "propertyId", nullable = false, updatable = false)
+    private Long propertyId;
+
     @NotNull
     @Column(name = "dateFrom", nullable = false)
     private LocalDate dateFrom;
@@ -34,6 +44,18 @@ public class Booking implements Serializable {
     @Column(name = "state")
     private State state;
 
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    /**
+     * Position of the last write in the change feed, stamped by the service on every save.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "revision")
+    private Long revision;
+
     public enum State {
         BOOKED,
         CANCELED,
@@ -47,6 +69,14 @@ public class Booking implements Serializable {
         this.bookingId = bookingId;
     }
 
+    public Long getPropertyId() {
+        return propertyId;
+    }
+
+    public void setPropertyId(Long propertyId) {
+        this.propertyId = propertyId;
+    }
+
     public LocalDate getDateFrom() {
         return dateFrom;
     }
@@ -78,4 +108,20 @@ public class Booking implements Serializable {
     public void setState(State state) {
         this.state = state;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
 }
@@ -0,0 +1,9 @@
+package com.hostfullystay.app.domain;
+
+/**
+ * The kinds of entity reported by the change feed.
+ */
+public enum EntityKind {
+    BOOKING,
+    BLOCK,
+}
@@ -0,0 +1,100 @@
+package com.hostfullystay.app.domain;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * One night of a property taken by a BOOKED booking or by a block. The property and the night form the
+ * primary key, so inserting a night that is already taken fails with a constraint violation instead of
+ * needing a pre-check.
+ */
+@Entity
+@IdClass(OccupiedNight.Key.class)
+@Table(name = "occupied_night", indexes = {
+        @Index(name = "idx_occupied_night_booking", columnList = "bookingId"),
+        @Index(name = "idx_occupied_night_block", columnList = "blockId")
+})
+public class OccupiedNight implements Serializable {
+
+    @Id
+    @Column(name = "propertyId")
+    private Long propertyId;
+
+    @Id
+    @Column(name = "night")
+    private LocalDate night;
+
+    @Column(name = "bookingId")
+    private Long bookingId;
+
+    @Column(name = "blockId")
+    private Long blockId;
+
+    public Long getPropertyId() {
+        return propertyId;
+    }
+
+    public void setPropertyId(Long propertyId) {
+        this.propertyId = propertyId;
+    }
+
+    public LocalDate getNight() {
+        return night;
+    }
+
+    public void setNight(LocalDate night) {
+        this.night = night;
+    }
+
+    public Long getBookingId() {
+        return bookingId;
+    }
+
+    public void setBookingId(Long bookingId) {
+        this.bookingId = bookingId;
+    }
+
+    public Long getBlockId() {
+        return blockId;
+    }
+
+    public void setBlockId(Long blockId) {
+        this.blockId = blockId;
+    }
+
+    /**
+     * Primary key of an occupied night.
+     */
+    public static class Key implements Serializable {
+
+        private Long propertyId;
+        private LocalDate night;
+
+        public Key() {
+        }
+
+        public Key(Long propertyId, LocalDate night) {
+            this.propertyId = propertyId;
+            this.night = night;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return Objects.equals(propertyId, key.propertyId) && Objects.equals(night, key.night);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(propertyId, night);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.hostfullystay.app.domain;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.io.Serializable;
+
+/**
+ * A rentable listing. Every booking and block belongs to exactly one property, and each property
+ * has a calendar of its own: ranges only ever conflict with ranges of the same property.
+ */
+@Entity
+@Table(name = "property")
+public class Property implements Serializable {
+
+    @Id
+    @org.springframework.data.annotation.Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000)
+    @Column(name = "propertyId")
+    private Long propertyId;
+
+    @NotNull
+    @Size(max = 255)
+    @Column(name = "name", length = 255, nullable = false)
+    private String name;
+
+    public Long getPropertyId() {
+        return propertyId;
+    }
+
+    public void setPropertyId(Long propertyId) {
+        this.propertyId = propertyId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
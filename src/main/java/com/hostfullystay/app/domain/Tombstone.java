@@ -0,0 +1,60 @@
+package com.hostfullystay.app.domain;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+
+/**
+ * Record of a deleted booking or block, kept so the change feed can report the deletion to clients
+ * that synced the entity before it was removed. The revision of the deletion is the primary key.
+ */
+@Entity
+@Table(name = "tombstone")
+public class Tombstone implements Serializable {
+
+    @Id
+    @Column(name = "revision")
+    private Long revision;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false)
+    private EntityKind kind;
+
+    @Column(name = "entityId", nullable = false)
+    private Long entityId;
+
+    @Column(name = "propertyId", nullable = false)
+    private Long propertyId;
+
+    public Long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+
+    public EntityKind getKind() {
+        return kind;
+    }
+
+    public void setKind(EntityKind kind) {
+        this.kind = kind;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public Long getPropertyId() {
+        return propertyId;
+    }
+
+    public void setPropertyId(Long propertyId) {
+        this.propertyId = propertyId;
+    }
+}
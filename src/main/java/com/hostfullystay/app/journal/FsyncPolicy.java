@@ -0,0 +1,27 @@
+package com.hostfullystay.app.journal;
+
+/**
+ * When the journal forces appended entries from the page cache to the disk.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public enum FsyncPolicy {
+
+    /**
+     * A write returns only once its entries are on disk. Writers committing at the same time share one force:
+     * the first to arrive forces everything appended so far while the others wait for it.
+     */
+    ALWAYS,
+
+    /**
+     * Entries are forced in the background at a fixed interval; a write returns once appended, and a power
+     * failure loses at most the last interval of writes. A crash of the process alone loses nothing, since the
+     * appended pages belong to the operating system.
+     */
+    INTERVAL,
+
+    /**
+     * Entries are never forced explicitly and reach the disk whenever the operating system writes the pages back.
+     */
+    NEVER
+}
@@ -0,0 +1,452 @@
+package com.hostfullystay.app.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of the committed writes, kept in a directory of memory-mapped, checksummed segment files, with
+ * snapshots of the whole state so that recovery only replays the entries written since the last one.
+ * <p>
+ * Every entry gets the next sequence number. Appends copy the entry into the mapped segment, which costs no system
+ * call; {@link #sync} then makes them durable according to the {@link FsyncPolicy}. With
+ * {@link FsyncPolicy#ALWAYS}, concurrent writers commit as a group: one of them forces every entry appended so far
+ * and the others, whose entries that force covered, return without forcing again.
+ * <p>
+ * A snapshot covers every entry up to a sequence. The two latest snapshots are kept, and with them every segment
+ * holding an entry after the older one, so a damaged latest snapshot can still be recovered from the one before.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public class Journal implements Closeable {
+
+    /**
+     * Writes the full state of a snapshot, one entry at a time.
+     */
+    @FunctionalInterface
+    public interface Contents {
+        void writeTo(Consumer<JournalEntry> entries);
+    }
+
+    /**
+     * What a recovery read.
+     *
+     * @param snapshotSequence The sequence covered by the snapshot it started from, or 0 without one.
+     * @param lastSequence     The sequence of the last entry in the journal.
+     * @param entries          The number of entries read from the snapshot and the segments after it.
+     */
+    public record Recovery(long snapshotSequence, long lastSequence, long entries) {
+    }
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int SNAPSHOT_MAGIC = 0x48465331;
+    private static final int SNAPSHOT_FORMAT = 1;
+    private static final int SNAPSHOTS_KEPT = 2;
+    private static final int MAX_ENTRY_BYTES = 64 * 1024;
+    private static final int MIN_SEGMENT_BYTES = 4096;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy policy;
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_ENTRY_BYTES);
+    private final List<JournalSegment> sealed = new ArrayList<>();
+    private JournalSegment current;
+
+    private final AtomicLong durable = new AtomicLong();
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private final Condition forceDone = forceLock.newCondition();
+    private boolean forcing;
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Opens the journal in the given directory, creating it if needed, and continues after its last valid entry.
+     *
+     * @param directory     Where the segments and snapshots are kept.
+     * @param segmentSize   The size of each segment file, in bytes.
+     * @param policy        When appended entries are forced to the disk.
+     * @param fsyncInterval How often they are forced with {@link FsyncPolicy#INTERVAL}.
+     */
+    public Journal(Path directory, int segmentSize, FsyncPolicy policy, Duration fsyncInterval) throws IOException {
+        if (segmentSize < MIN_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Journal segments must hold at least " + MIN_SEGMENT_BYTES + " bytes");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.policy = policy;
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path temporary : files.filter(path -> path.getFileName().toString().endsWith(TEMPORARY_SUFFIX)).toList()) {
+                Files.delete(temporary);
+            }
+        }
+        List<Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        if (!segments.isEmpty() && JournalSegment.isUnwritten(segments.get(segments.size() - 1))) {
+            // Created just before a crash, before anything was appended to it.
+            Files.delete(segments.remove(segments.size() - 1));
+        }
+        for (int i = 0; i < segments.size() - 1; i++) {
+            sealed.add(JournalSegment.open(segments.get(i), false));
+        }
+        if (segments.isEmpty()) {
+            long next = Math.max(sealed.isEmpty() ? 0 : sealed.get(sealed.size() - 1).lastSequence(), latestSnapshotSequence()) + 1;
+            current = JournalSegment.create(segmentPath(next), next, segmentSize);
+            forceDirectory();
+        } else {
+            current = JournalSegment.open(segments.get(segments.size() - 1), true);
+        }
+        durable.set(current.lastSequence());
+
+        if (policy == FsyncPolicy.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = Math.max(1, fsyncInterval.toMillis());
+            flusher.scheduleWithFixedDelay(this::forcePending, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    public FsyncPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * Returns the sequence of the last entry appended.
+     */
+    public synchronized long lastSequence() {
+        return current.lastSequence();
+    }
+
+    /**
+     * Appends entries under consecutive sequences, starting a new segment when the current one is full.
+     * The entries are not durable until {@link #sync} returns.
+     *
+     * @return The sequence of the last of them.
+     */
+    public synchronized long append(List<JournalEntry> entries) throws IOException {
+        for (JournalEntry entry : entries) {
+            scratch.clear();
+            try {
+                entry.writeTo(scratch);
+            } catch (BufferOverflowException e) {
+                throw new IllegalArgumentException("A journal entry cannot exceed " + MAX_ENTRY_BYTES + " bytes", e);
+            }
+            scratch.flip();
+            if (!current.append(scratch)) {
+                roll();
+                if (!current.append(scratch)) {
+                    throw new IllegalArgumentException("A journal entry of " + scratch.remaining() + " bytes does not fit in a segment");
+                }
+            }
+        }
+        return current.lastSequence();
+    }
+
+    /**
+     * Returns once the entries up to the given sequence are durable under the {@link FsyncPolicy#ALWAYS} policy;
+     * under the other policies, returns right away.
+     */
+    public void sync(long sequence) {
+        if (policy != FsyncPolicy.ALWAYS) {
+            return;
+        }
+        while (durable.get() < sequence) {
+            forceLock.lock();
+            try {
+                if (durable.get() >= sequence) {
+                    return;
+                }
+                if (forcing) {
+                    // Another writer is forcing; its force may already cover this sequence.
+                    forceDone.awaitUninterruptibly();
+                    continue;
+                }
+                forcing = true;
+            } finally {
+                forceLock.unlock();
+            }
+            try {
+                forcePending();
+            } finally {
+                forceLock.lock();
+                try {
+                    forcing = false;
+                    forceDone.signalAll();
+                } finally {
+                    forceLock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the state back: the entries of the latest valid snapshot, then every entry appended after it.
+     *
+     * @param entries Receives the entries in order.
+     * @throws IOException If no snapshot is usable and the first entries of the journal are gone.
+     */
+    public synchronized Recovery recover(Consumer<JournalEntry> entries) throws IOException {
+        long firstSequence = sealed.isEmpty() ? current.firstSequence() : sealed.get(0).firstSequence();
+        List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path snapshot = snapshots.get(i);
+            long covered = sequenceOf(snapshot, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            if (covered + 1 < firstSequence || readSnapshot(snapshot, null) < 0) {
+                continue;
+            }
+            long read = readSnapshot(snapshot, entries);
+            return new Recovery(covered, current.lastSequence(), read + replay(covered, entries));
+        }
+        if (firstSequence > 1) {
+            throw new IOException("The journal in " + directory + " has no usable snapshot and its entries before "
+                    + firstSequence + " are gone");
+        }
+        return new Recovery(0, current.lastSequence(), replay(0, entries));
+    }
+
+    /**
+     * Writes a snapshot covering every entry up to the given sequence, then drops the snapshots and segments it
+     * makes obsolete. The contents must include the effect of every entry up to that sequence; they may include
+     * later writes as well, which replaying the entries after the snapshot applies again.
+     */
+    public void snapshot(long sequence, Contents contents) throws IOException {
+        Path target = directory.resolve(SNAPSHOT_PREFIX + String.format("%019d", sequence) + SNAPSHOT_SUFFIX);
+        Path temporary = target.resolveSibling(target.getFileName() + TEMPORARY_SUFFIX);
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 20))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_FORMAT);
+            out.writeLong(sequence);
+            ByteBuffer buffer = ByteBuffer.allocate(MAX_ENTRY_BYTES);
+            CRC32C crc = new CRC32C();
+            long[] count = {0};
+            try {
+                contents.writeTo(entry -> {
+                    buffer.clear();
+                    entry.writeTo(buffer);
+                    crc.reset();
+                    crc.update(buffer.array(), 0, buffer.position());
+                    try {
+                        out.writeInt(buffer.position());
+                        out.writeInt((int) crc.getValue());
+                        out.write(buffer.array(), 0, buffer.position());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    count[0]++;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.writeInt(0);
+            out.writeLong(count[0]);
+            out.flush();
+            file.getChannel().force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory();
+        prune();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        synchronized (this) {
+            if (policy != FsyncPolicy.NEVER) {
+                current.force(current.forced(), current.position());
+            }
+            for (JournalSegment segment : sealed) {
+                segment.close();
+            }
+            current.close();
+        }
+    }
+
+    /**
+     * Forces the entries appended to the current segment since the last force.
+     */
+    private void forcePending() {
+        JournalSegment segment;
+        int from;
+        int to;
+        long upTo;
+        synchronized (this) {
+            segment = current;
+            from = segment.forced();
+            to = segment.position();
+            upTo = segment.lastSequence();
+        }
+        segment.force(from, to);
+        synchronized (this) {
+            segment.forcedTo(to);
+        }
+        durable.accumulateAndGet(upTo, Math::max);
+    }
+
+    private void roll() throws IOException {
+        if (policy != FsyncPolicy.NEVER) {
+            current.force(current.forced(), current.position());
+            current.forcedTo(current.position());
+            durable.accumulateAndGet(current.lastSequence(), Math::max);
+        }
+        long next = current.lastSequence() + 1;
+        sealed.add(current);
+        current = JournalSegment.create(segmentPath(next), next, segmentSize);
+        forceDirectory();
+    }
+
+    /**
+     * Replays the entries after the given sequence, checking that no sequence is missing between segments.
+     */
+    private long replay(long after, Consumer<JournalEntry> entries) throws IOException {
+        long[] count = {0};
+        Consumer<JournalEntry> counting = entry -> {
+            entries.accept(entry);
+            count[0]++;
+        };
+        long expected = -1;
+        List<JournalSegment> segments = new ArrayList<>(sealed);
+        segments.add(current);
+        for (JournalSegment segment : segments) {
+            if (expected >= 0 && segment.firstSequence() != expected) {
+                throw new IOException("The journal in " + directory + " is missing the entries from " + expected
+                        + " to " + (segment.firstSequence() - 1) + ", before " + segment.path().getFileName());
+            }
+            expected = segment.lastSequence() + 1;
+            if (segment.lastSequence() > after) {
+                segment.read(after, counting);
+            }
+        }
+        return count[0];
+    }
+
+    /**
+     * Reads a snapshot, checking every entry and the count at its end.
+     *
+     * @param entries Receives the entries, or {@code null} to only check the snapshot.
+     * @return The number of entries, or -1 if the snapshot is damaged.
+     */
+    private static long readSnapshot(Path snapshot, Consumer<JournalEntry> entries) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 20))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_FORMAT) {
+                return -1;
+            }
+            in.readLong();
+            byte[] bytes = new byte[MAX_ENTRY_BYTES];
+            CRC32C crc = new CRC32C();
+            long count = 0;
+            for (int length = in.readInt(); length != 0; length = in.readInt()) {
+                if (length < 0 || length > MAX_ENTRY_BYTES) {
+                    return -1;
+                }
+                int checksum = in.readInt();
+                in.readFully(bytes, 0, length);
+                crc.reset();
+                crc.update(bytes, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    return -1;
+                }
+                if (entries != null) {
+                    entries.accept(JournalEntry.readFrom(ByteBuffer.wrap(bytes, 0, length)));
+                }
+                count++;
+            }
+            return in.readLong() == count ? count : -1;
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Keeps the latest snapshots and the segments holding entries after the oldest of them.
+     */
+    private void prune() throws IOException {
+        List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        if (snapshots.size() < SNAPSHOTS_KEPT) {
+            return;
+        }
+        for (Path snapshot : snapshots.subList(0, snapshots.size() - SNAPSHOTS_KEPT)) {
+            Files.deleteIfExists(snapshot);
+        }
+        long kept = sequenceOf(snapshots.get(snapshots.size() - SNAPSHOTS_KEPT), SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        synchronized (this) {
+            while (!sealed.isEmpty() && sealed.get(0).lastSequence() <= kept) {
+                JournalSegment segment = sealed.remove(0);
+                segment.close();
+                Files.deleteIfExists(segment.path());
+            }
+        }
+    }
+
+    private long latestSnapshotSequence() throws IOException {
+        List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        return snapshots.isEmpty() ? 0 : sequenceOf(snapshots.get(snapshots.size() - 1), SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Lists the files with the given prefix and suffix, by the sequence in their name.
+     */
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files
+                    .filter(path -> path.getFileName().toString().startsWith(prefix) && path.getFileName().toString().endsWith(suffix))
+                    .sorted(Comparator.comparingLong(path -> sequenceOf(path, prefix, suffix)))
+                    .toList());
+        }
+    }
+
+    private static long sequenceOf(Path path, String prefix, String suffix) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%019d", firstSequence) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Makes created, renamed and deleted files durable, on the file systems that support forcing a directory.
+     */
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened for forcing on every platform; their entries then reach the disk on their own.
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.hostfullystay.app.journal;
+
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.NightLedger;
+import com.hostfullystay.app.availability.OccupancyCalendar;
+import com.hostfullystay.app.service.ChangeLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Keeps the bookings, blocks and properties in a {@link Journal} on the local disk when
+ * {@code hostfully.journal.enabled} is set, so they survive restarts of an in-memory database.
+ * Only the servlet stack writes through the journal; the reactive services of the "reactive" profile do not.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "hostfully.journal.enabled", havingValue = "true")
+public class JournalConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public Journal journal(
+            @Value("${hostfully.journal.directory:data/journal}") Path directory,
+            @Value("${hostfully.journal.segment-size:64MB}") DataSize segmentSize,
+            @Value("${hostfully.journal.fsync:always}") FsyncPolicy fsync,
+            @Value("${hostfully.journal.fsync-interval:10ms}") Duration fsyncInterval
+    ) throws IOException {
+        return new Journal(directory, Math.toIntExact(segmentSize.toBytes()), fsync, fsyncInterval);
+    }
+
+    @Bean
+    public JournalStorage journalStorage(
+            Journal journal,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            AvailabilityIndex availabilityIndex,
+            OccupancyCalendar occupancyCalendar,
+            NightLedger nightLedger,
+            ChangeLog changeLog,
+            @Value("${hostfully.journal.snapshot-every:100000}") long snapshotEvery
+    ) {
+        return new JournalStorage(journal, jdbcTemplate, transactionTemplate, availabilityIndex, occupancyCalendar,
+                nightLedger, changeLog, snapshotEvery);
+    }
+}
@@ -0,0 +1,173 @@
+package com.hostfullystay.app.journal;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.EntityKind;
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.domain.Tombstone;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * One committed write, as recorded in the journal and in its snapshots: the saved state of a property, booking or
+ * block, or the tombstone of a deleted booking or block. Exactly one of the entity fields is set, matching the type.
+ * <p>
+ * Entries are encoded in a compact binary form: a type byte followed by the fields of the entity, with dates as
+ * epoch days and strings as UTF-8 prefixed with their length.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public record JournalEntry(Type type, Property property, Booking booking, Block block, Tombstone tombstone) {
+
+    public enum Type {
+        PROPERTY_SAVED,
+        BOOKING_SAVED,
+        BLOCK_SAVED,
+        DELETED
+    }
+
+    private static final Type[] TYPES = Type.values();
+    private static final EntityKind[] KINDS = EntityKind.values();
+    private static final Booking.State[] STATES = Booking.State.values();
+    private static final long NULL = Long.MIN_VALUE;
+
+    public static JournalEntry of(Property property) {
+        return new JournalEntry(Type.PROPERTY_SAVED, property, null, null, null);
+    }
+
+    public static JournalEntry of(Booking booking) {
+        return new JournalEntry(Type.BOOKING_SAVED, null, booking, null, null);
+    }
+
+    public static JournalEntry of(Block block) {
+        return new JournalEntry(Type.BLOCK_SAVED, null, null, block, null);
+    }
+
+    public static JournalEntry deleted(Tombstone tombstone) {
+        return new JournalEntry(Type.DELETED, null, null, null, tombstone);
+    }
+
+    public static JournalEntry deleted(long revision, EntityKind kind, Long id, Long propertyId) {
+        Tombstone tombstone = new Tombstone();
+        tombstone.setRevision(revision);
+        tombstone.setKind(kind);
+        tombstone.setEntityId(id);
+        tombstone.setPropertyId(propertyId);
+        return deleted(tombstone);
+    }
+
+    /**
+     * Writes the entry at the position of the buffer.
+     *
+     * @throws java.nio.BufferOverflowException If the buffer has no room left for it.
+     */
+    void writeTo(ByteBuffer buffer) {
+        buffer.put((byte) type.ordinal());
+        switch (type) {
+            case PROPERTY_SAVED -> {
+                buffer.putLong(property.getPropertyId());
+                putString(buffer, property.getName());
+            }
+            case BOOKING_SAVED -> {
+                buffer.putLong(booking.getBookingId());
+                buffer.putLong(booking.getPropertyId());
+                buffer.putLong(booking.getDateFrom().toEpochDay());
+                buffer.putLong(booking.getDateTo().toEpochDay());
+                buffer.put(booking.getState() != null ? (byte) booking.getState().ordinal() : -1);
+                putString(buffer, booking.getGuestName());
+                putLong(buffer, booking.getVersion());
+                putLong(buffer, booking.getRevision());
+            }
+            case BLOCK_SAVED -> {
+                buffer.putLong(block.getBlockId());
+                buffer.putLong(block.getPropertyId());
+                buffer.putLong(block.getDateFrom().toEpochDay());
+                buffer.putLong(block.getDateTo().toEpochDay());
+                putString(buffer, block.getManager());
+                putLong(buffer, block.getVersion());
+                putLong(buffer, block.getRevision());
+            }
+            case DELETED -> {
+                buffer.putLong(tombstone.getRevision());
+                buffer.put((byte) tombstone.getKind().ordinal());
+                buffer.putLong(tombstone.getEntityId());
+                buffer.putLong(tombstone.getPropertyId());
+            }
+        }
+    }
+
+    /**
+     * Reads an entry written by {@link #writeTo}, from the position of the buffer.
+     */
+    static JournalEntry readFrom(ByteBuffer buffer) {
+        Type type = TYPES[buffer.get()];
+        return switch (type) {
+            case PROPERTY_SAVED -> {
+                Property property = new Property();
+                property.setPropertyId(buffer.getLong());
+                property.setName(getString(buffer));
+                yield of(property);
+            }
+            case BOOKING_SAVED -> {
+                Booking booking = new Booking();
+                booking.setBookingId(buffer.getLong());
+                booking.setPropertyId(buffer.getLong());
+                booking.setDateFrom(LocalDate.ofEpochDay(buffer.getLong()));
+                booking.setDateTo(LocalDate.ofEpochDay(buffer.getLong()));
+                byte state = buffer.get();
+                booking.setState(state >= 0 ? STATES[state] : null);
+                booking.setGuestName(getString(buffer));
+                booking.setVersion(getLong(buffer));
+                booking.setRevision(getLong(buffer));
+                yield of(booking);
+            }
+            case BLOCK_SAVED -> {
+                Block block = new Block();
+                block.setBlockId(buffer.getLong());
+                block.setPropertyId(buffer.getLong());
+                block.setDateFrom(LocalDate.ofEpochDay(buffer.getLong()));
+                block.setDateTo(LocalDate.ofEpochDay(buffer.getLong()));
+                block.setManager(getString(buffer));
+                block.setVersion(getLong(buffer));
+                block.setRevision(getLong(buffer));
+                yield of(block);
+            }
+            case DELETED -> {
+                long revision = buffer.getLong();
+                EntityKind kind = KINDS[buffer.get()];
+                yield deleted(revision, kind, buffer.getLong(), buffer.getLong());
+            }
+        };
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putLong(ByteBuffer buffer, Long value) {
+        buffer.putLong(value != null ? value : NULL);
+    }
+
+    private static Long getLong(ByteBuffer buffer) {
+        long value = buffer.getLong();
+        return value != NULL ? value : null;
+    }
+}
@@ -0,0 +1,107 @@
+package com.hostfullystay.app.journal;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.EntityKind;
+import com.hostfullystay.app.domain.Property;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Records the writes of the services in the {@link Journal}, when the journal is enabled.
+ * <p>
+ * The writes of a transaction are collected while it runs and appended together once it commits, so rolled back
+ * writes never reach the journal; the entries are encoded then, with the versions the commit assigned. The committing
+ * thread waits until they are durable under the configured {@link FsyncPolicy}, so a write is only acknowledged once
+ * it would survive a restart.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Component
+public class JournalRecorder {
+
+    private final Journal journal;
+
+    /**
+     * @param journal The journal, which is only there when it is enabled.
+     */
+    public JournalRecorder(Optional<Journal> journal) {
+        this.journal = journal.orElse(null);
+    }
+
+    public boolean isEnabled() {
+        return journal != null;
+    }
+
+    public void propertySaved(Property property) {
+        record(() -> JournalEntry.of(property));
+    }
+
+    public void bookingSaved(Booking booking) {
+        record(() -> JournalEntry.of(booking));
+    }
+
+    public void bookingDeleted(long revision, Long id, Long propertyId) {
+        record(() -> JournalEntry.deleted(revision, EntityKind.BOOKING, id, propertyId));
+    }
+
+    public void blockSaved(Block block) {
+        record(() -> JournalEntry.of(block));
+    }
+
+    public void blockDeleted(long revision, Long id, Long propertyId) {
+        record(() -> JournalEntry.deleted(revision, EntityKind.BLOCK, id, propertyId));
+    }
+
+    /**
+     * Adds the entry to the writes of the current transaction, or writes it right away outside a transaction.
+     */
+    private void record(Supplier<JournalEntry> entry) {
+        if (journal == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(List.of(entry));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Supplier<JournalEntry>> entries = (List<Supplier<JournalEntry>>) TransactionSynchronizationManager.getResource(this);
+        if (entries == null) {
+            List<Supplier<JournalEntry>> batch = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    write(batch);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(JournalRecorder.this);
+                }
+            });
+            entries = batch;
+        }
+        entries.add(entry);
+    }
+
+    private void write(List<Supplier<JournalEntry>> entries) {
+        List<JournalEntry> encoded = new ArrayList<>(entries.size());
+        for (Supplier<JournalEntry> entry : entries) {
+            encoded.add(entry.get());
+        }
+        try {
+            journal.sync(journal.append(encoded));
+        } catch (IOException e) {
+            throw new UncheckedIOException("The write committed but could not be journaled", e);
+        }
+    }
+}
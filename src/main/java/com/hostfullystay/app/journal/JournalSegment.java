@@ -0,0 +1,205 @@
+package com.hostfullystay.app.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * One file of the journal, mapped into memory whole. The file starts with a header naming the sequence of its first
+ * entry, followed by frames of {@code [length][crc][sequence][entry]}: the checksum covers the sequence and the entry,
+ * so a frame torn by a crash, or never written at all, which reads as zeros, ends the segment.
+ *
+ * @author Sakthidharan Ashwin
+ */
+final class JournalSegment implements Closeable {
+
+    private static final int MAGIC = 0x48464a31;
+    private static final int FORMAT = 1;
+    static final int HEADER_BYTES = 16;
+    static final int FRAME_HEADER_BYTES = 16;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long firstSequence;
+    private int position = HEADER_BYTES;
+    private int forced = 0;
+    private long lastSequence;
+
+    private JournalSegment(Path path, FileChannel channel, MappedByteBuffer buffer, long firstSequence) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.firstSequence = firstSequence;
+        this.lastSequence = firstSequence - 1;
+    }
+
+    /**
+     * Tells whether a segment file was created but its header never reached the disk.
+     */
+    static boolean isUnwritten(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the header is full or the file ends.
+            }
+            for (int i = 0; i < header.position(); i++) {
+                if (header.get(i) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Creates an empty segment whose first entry will have the given sequence.
+     */
+    static JournalSegment create(Path path, long firstSequence, int size) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT);
+        buffer.putLong(8, firstSequence);
+        return new JournalSegment(path, channel, buffer, firstSequence);
+    }
+
+    /**
+     * Opens an existing segment and finds the end of its valid entries, where appends continue. Whatever follows
+     * the last valid frame is the remains of an interrupted write and is cleared, so it cannot be mistaken for
+     * an entry later.
+     *
+     * @param writable Whether entries will be appended to the segment.
+     */
+    static JournalSegment open(Path path, boolean writable) throws IOException {
+        FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        MappedByteBuffer buffer = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+            channel.close();
+            throw new IOException("Not a journal segment: " + path);
+        }
+        JournalSegment segment = new JournalSegment(path, channel, buffer, buffer.getLong(8));
+        segment.read(Long.MAX_VALUE, null);
+        if (writable) {
+            segment.clearTail();
+        }
+        return segment;
+    }
+
+    /**
+     * Reads the valid entries of the segment in order, and leaves the append position after the last of them.
+     *
+     * @param after   Only entries with a greater sequence are decoded.
+     * @param entries Receives the decoded entries, or {@code null} to only check the frames.
+     */
+    void read(long after, Consumer<JournalEntry> entries) {
+        CRC32C crc = new CRC32C();
+        int at = HEADER_BYTES;
+        long sequence = firstSequence;
+        while (at + FRAME_HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(at);
+            if (length <= 0 || at + FRAME_HEADER_BYTES + length > buffer.capacity() || buffer.getLong(at + 8) != sequence) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(at + 8, 8 + length));
+            if ((int) crc.getValue() != buffer.getInt(at + 4)) {
+                break;
+            }
+            if (entries != null && sequence > after) {
+                entries.accept(JournalEntry.readFrom(buffer.slice(at + FRAME_HEADER_BYTES, length)));
+            }
+            at += FRAME_HEADER_BYTES + length;
+            sequence++;
+        }
+        position = at;
+        forced = at;
+        lastSequence = sequence - 1;
+    }
+
+    /**
+     * Appends an encoded entry under the next sequence.
+     *
+     * @param entry The entry, between its position and limit.
+     * @return {@code false}, with nothing written, if the segment has no room left for it.
+     */
+    boolean append(ByteBuffer entry) {
+        int length = entry.remaining();
+        if (position + FRAME_HEADER_BYTES + length > buffer.capacity()) {
+            return false;
+        }
+        long sequence = lastSequence + 1;
+        buffer.putLong(position + 8, sequence);
+        buffer.put(position + FRAME_HEADER_BYTES, entry, entry.position(), length);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position + 8, 8 + length));
+        buffer.putInt(position + 4, (int) crc.getValue());
+        // The length goes last: until it is written, the frame reads as the end of the segment.
+        buffer.putInt(position, length);
+        position += FRAME_HEADER_BYTES + length;
+        lastSequence = sequence;
+        return true;
+    }
+
+    /**
+     * Forces the bytes in {@code [from, to)} to the disk.
+     */
+    void force(int from, int to) {
+        if (to > from) {
+            buffer.force(from, to - from);
+        }
+    }
+
+    private void clearTail() {
+        // The pages of a torn frame may have reached the disk in any order, so its bytes can be anywhere past the
+        // append position, zeros included; clear up to the last byte that is not zero.
+        int end = buffer.capacity();
+        while (end - Long.BYTES >= position && buffer.getLong(end - Long.BYTES) == 0) {
+            end -= Long.BYTES;
+        }
+        while (end > position && buffer.get(end - 1) == 0) {
+            end--;
+        }
+        for (int i = position; i < end; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        force(position, end);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long firstSequence() {
+        return firstSequence;
+    }
+
+    long lastSequence() {
+        return lastSequence;
+    }
+
+    int position() {
+        return position;
+    }
+
+    int forced() {
+        return forced;
+    }
+
+    void forcedTo(int to) {
+        forced = Math.max(forced, to);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,107 @@
+package com.hostfullystay.app.journal;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.EntityKind;
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.domain.Tombstone;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The state a replay of the journal arrives at: the live properties, bookings and blocks, and the tombstones.
+ * <p>
+ * Writes are appended once their transaction commits, so two writes of the same booking or block can reach the
+ * journal in the opposite order of their commits. A save therefore only replaces a stored one with a lower version,
+ * and once an entity is deleted, saves of it that arrive later are ignored; ids are never reused.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public class JournalState implements Consumer<JournalEntry> {
+
+    private final Map<Long, Property> properties = new HashMap<>();
+    private final Map<Long, Booking> bookings = new HashMap<>();
+    private final Map<Long, Block> blocks = new HashMap<>();
+    private final Map<Long, Tombstone> tombstones = new HashMap<>();
+    private final Set<Long> deletedBookings = new HashSet<>();
+    private final Set<Long> deletedBlocks = new HashSet<>();
+
+    @Override
+    public void accept(JournalEntry entry) {
+        switch (entry.type()) {
+            case PROPERTY_SAVED -> properties.put(entry.property().getPropertyId(), entry.property());
+            case BOOKING_SAVED -> {
+                Booking booking = entry.booking();
+                if (!deletedBookings.contains(booking.getBookingId())) {
+                    bookings.merge(booking.getBookingId(), booking, (stored, saved) -> newer(stored.getVersion(), saved.getVersion()) ? saved : stored);
+                }
+            }
+            case BLOCK_SAVED -> {
+                Block block = entry.block();
+                if (!deletedBlocks.contains(block.getBlockId())) {
+                    blocks.merge(block.getBlockId(), block, (stored, saved) -> newer(stored.getVersion(), saved.getVersion()) ? saved : stored);
+                }
+            }
+            case DELETED -> {
+                Tombstone tombstone = entry.tombstone();
+                tombstones.put(tombstone.getRevision(), tombstone);
+                if (tombstone.getKind() == EntityKind.BOOKING) {
+                    deletedBookings.add(tombstone.getEntityId());
+                    bookings.remove(tombstone.getEntityId());
+                } else {
+                    deletedBlocks.add(tombstone.getEntityId());
+                    blocks.remove(tombstone.getEntityId());
+                }
+            }
+        }
+    }
+
+    public Collection<Property> properties() {
+        return properties.values();
+    }
+
+    public Collection<Booking> bookings() {
+        return bookings.values();
+    }
+
+    public Collection<Block> blocks() {
+        return blocks.values();
+    }
+
+    public Collection<Tombstone> tombstones() {
+        return tombstones.values();
+    }
+
+    /**
+     * Returns the highest id of a property, booking or block, live or deleted, or 0 if there is none.
+     */
+    public long maxId() {
+        long max = 0;
+        for (Collection<Long> ids : List.of(properties.keySet(), bookings.keySet(), blocks.keySet(), deletedBookings, deletedBlocks)) {
+            for (long id : ids) {
+                max = Math.max(max, id);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Writes the state as the entries of a snapshot.
+     */
+    public void writeTo(Consumer<JournalEntry> entries) {
+        properties.values().forEach(property -> entries.accept(JournalEntry.of(property)));
+        bookings.values().forEach(booking -> entries.accept(JournalEntry.of(booking)));
+        blocks.values().forEach(block -> entries.accept(JournalEntry.of(block)));
+        tombstones.values().forEach(tombstone -> entries.accept(JournalEntry.deleted(tombstone)));
+    }
+
+    private static boolean newer(Long stored, Long saved) {
+        return stored == null || saved != null && saved > stored;
+    }
+}
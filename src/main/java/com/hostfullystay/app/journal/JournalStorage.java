@@ -0,0 +1,234 @@
+package com.hostfullystay.app.journal;
+
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.NightLedger;
+import com.hostfullystay.app.availability.OccupancyCalendar;
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.EntityKind;
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.domain.Tombstone;
+import com.hostfullystay.app.service.ChangeLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Makes the {@link Journal} the durable copy of the data, in front of a database that may not survive a restart.
+ * <p>
+ * At startup, the latest snapshot and the entries after it are replayed into a {@link JournalState}, which is written
+ * to the tables in JDBC batches and handed directly to the availability index, the occupancy calendar and the night
+ * ledger, so the replayed rows are never read back. The id sequence continues after the highest id replayed, and the
+ * change log after the highest revision. A journal that has never been written adopts the rows already in the
+ * database with a first snapshot instead.
+ * <p>
+ * Once {@code snapshotEvery} entries have been appended since the last snapshot, a background thread writes a new
+ * one from the tables, and a last one is written at shutdown, so a restart replays at most that many entries on top
+ * of a snapshot.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public class JournalStorage {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final Journal journal;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AvailabilityIndex availabilityIndex;
+    private final OccupancyCalendar occupancyCalendar;
+    private final NightLedger nightLedger;
+    private final ChangeLog changeLog;
+    private final long snapshotEvery;
+    private final ScheduledExecutorService snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile long snapshotSequence;
+    private volatile Journal.Recovery recovery;
+
+    public JournalStorage(
+            Journal journal,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            AvailabilityIndex availabilityIndex,
+            OccupancyCalendar occupancyCalendar,
+            NightLedger nightLedger,
+            ChangeLog changeLog,
+            long snapshotEvery
+    ) {
+        this.journal = journal;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.availabilityIndex = availabilityIndex;
+        this.occupancyCalendar = occupancyCalendar;
+        this.nightLedger = nightLedger;
+        this.changeLog = changeLog;
+        this.snapshotEvery = snapshotEvery;
+    }
+
+    /**
+     * Restores the tables and the in-memory views from the journal, then starts taking snapshots.
+     */
+    @PostConstruct
+    public void recover() throws IOException {
+        JournalState state = new JournalState();
+        recovery = journal.recover(state);
+        snapshotSequence = recovery.snapshotSequence();
+        if (recovery.entries() == 0) {
+            // Nothing journaled yet: whatever the database holds becomes the first snapshot.
+            snapshot();
+        } else {
+            transactionTemplate.executeWithoutResult(status -> restore(state));
+            availabilityIndex.load(state.bookings(), state.blocks());
+            occupancyCalendar.load(state.bookings(), state.blocks());
+            nightLedger.rebuild(state.bookings(), state.blocks());
+            changeLog.load();
+        }
+        snapshots.scheduleWithFixedDelay(this::snapshotIfDue, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns what the startup recovery read.
+     */
+    public Journal.Recovery recovery() {
+        return recovery;
+    }
+
+    /**
+     * Writes a snapshot of the tables, covering every entry appended so far.
+     */
+    public synchronized void snapshot() throws IOException {
+        // Entries are appended after their transaction commits, so every entry up to this sequence is in the tables.
+        long sequence = journal.lastSequence();
+        journal.snapshot(sequence, this::readTables);
+        snapshotSequence = sequence;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        snapshots.shutdownNow();
+        if (journal.lastSequence() > snapshotSequence) {
+            snapshot();
+        }
+    }
+
+    private void snapshotIfDue() {
+        if (journal.lastSequence() - snapshotSequence < snapshotEvery) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            // Tried again on the next tick; until then, recovery replays a longer tail.
+        }
+    }
+
+    private void restore(JournalState state) {
+        for (String table : new String[]{"occupied_night", "tombstone", "booking", "block", "property"}) {
+            jdbcTemplate.update("delete from " + table);
+        }
+        jdbcTemplate.batchUpdate("insert into property (property_id, name) values (?, ?)",
+                new ArrayList<>(state.properties()), BATCH_SIZE, (statement, property) -> {
+                    statement.setLong(1, property.getPropertyId());
+                    statement.setString(2, property.getName());
+                });
+        jdbcTemplate.batchUpdate("insert into booking (booking_id, property_id, date_from, date_to, guest_name, state, version, revision) values (?, ?, ?, ?, ?, ?, ?, ?)",
+                new ArrayList<>(state.bookings()), BATCH_SIZE, (statement, booking) -> {
+                    statement.setLong(1, booking.getBookingId());
+                    statement.setLong(2, booking.getPropertyId());
+                    statement.setObject(3, booking.getDateFrom());
+                    statement.setObject(4, booking.getDateTo());
+                    statement.setString(5, booking.getGuestName());
+                    statement.setString(6, booking.getState() != null ? booking.getState().name() : null);
+                    statement.setObject(7, booking.getVersion());
+                    statement.setObject(8, booking.getRevision());
+                });
+        jdbcTemplate.batchUpdate("insert into block (block_id, property_id, date_from, date_to, manager, version, revision) values (?, ?, ?, ?, ?, ?, ?)",
+                new ArrayList<>(state.blocks()), BATCH_SIZE, (statement, block) -> {
+                    statement.setLong(1, block.getBlockId());
+                    statement.setLong(2, block.getPropertyId());
+                    statement.setObject(3, block.getDateFrom());
+                    statement.setObject(4, block.getDateTo());
+                    statement.setString(5, block.getManager());
+                    statement.setObject(6, block.getVersion());
+                    statement.setObject(7, block.getRevision());
+                });
+        jdbcTemplate.batchUpdate("insert into tombstone (revision, kind, entity_id, property_id) values (?, ?, ?, ?)",
+                new ArrayList<>(state.tombstones()), BATCH_SIZE, (statement, tombstone) -> {
+                    statement.setLong(1, tombstone.getRevision());
+                    statement.setString(2, tombstone.getKind().name());
+                    statement.setLong(3, tombstone.getEntityId());
+                    statement.setLong(4, tombstone.getPropertyId());
+                });
+        long maxId = state.maxId();
+        if (maxId > 0) {
+            // The pooled id generator may hand out up to an allocation below the value it fetches.
+            jdbcTemplate.execute("alter sequence sequence_generator restart with " + (maxId + 51));
+        }
+    }
+
+    /**
+     * Reads the current rows of the tables as snapshot entries.
+     */
+    private void readTables(Consumer<JournalEntry> entries) {
+        jdbcTemplate.query("select property_id, name from property", (ResultSet rows) -> {
+            Property property = new Property();
+            property.setPropertyId(rows.getLong("property_id"));
+            property.setName(rows.getString("name"));
+            entries.accept(JournalEntry.of(property));
+        });
+        jdbcTemplate.query("select booking_id, property_id, date_from, date_to, guest_name, state, version, revision from booking", (ResultSet rows) -> {
+            Booking booking = new Booking();
+            booking.setBookingId(rows.getLong("booking_id"));
+            booking.setPropertyId(rows.getLong("property_id"));
+            booking.setDateFrom(rows.getObject("date_from", LocalDate.class));
+            booking.setDateTo(rows.getObject("date_to", LocalDate.class));
+            booking.setGuestName(rows.getString("guest_name"));
+            String state = rows.getString("state");
+            booking.setState(state != null ? Booking.State.valueOf(state) : null);
+            booking.setVersion(nullableLong(rows, "version"));
+            booking.setRevision(nullableLong(rows, "revision"));
+            entries.accept(JournalEntry.of(booking));
+        });
+        jdbcTemplate.query("select block_id, property_id, date_from, date_to, manager, version, revision from block", (ResultSet rows) -> {
+            Block block = new Block();
+            block.setBlockId(rows.getLong("block_id"));
+            block.setPropertyId(rows.getLong("property_id"));
+            block.setDateFrom(rows.getObject("date_from", LocalDate.class));
+            block.setDateTo(rows.getObject("date_to", LocalDate.class));
+            block.setManager(rows.getString("manager"));
+            block.setVersion(nullableLong(rows, "version"));
+            block.setRevision(nullableLong(rows, "revision"));
+            entries.accept(JournalEntry.of(block));
+        });
+        // After the bookings and blocks: a row deleted while they were read is then still dropped by the replay.
+        jdbcTemplate.query("select revision, kind, entity_id, property_id from tombstone", (ResultSet rows) -> {
+            Tombstone tombstone = new Tombstone();
+            tombstone.setRevision(rows.getLong("revision"));
+            tombstone.setKind(EntityKind.valueOf(rows.getString("kind")));
+            tombstone.setEntityId(rows.getLong("entity_id"));
+            tombstone.setPropertyId(rows.getLong("property_id"));
+            entries.accept(JournalEntry.deleted(tombstone));
+        });
+    }
+
+    private static Long nullableLong(ResultSet rows, String column) throws SQLException {
+        long value = rows.getLong(column);
+        return rows.wasNull() ? null : value;
+    }
+}
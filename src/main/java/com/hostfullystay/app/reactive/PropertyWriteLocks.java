@@ -0,0 +1,67 @@
+package com.hostfullystay.app.reactive;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of {@link com.hostfullystay.app.availability.DateRangeLocks}: the writes of a property
+ * run one after the other, so the conflict check and the write of one cannot interleave with those of another.
+ * A write waiting for its turn holds no thread; it is resumed once the write before it completes, errors or is
+ * cancelled. Properties map to a fixed number of stripes, so unrelated properties may occasionally share a turn.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Component
+@Profile(ReactiveConfiguration.PROFILE)
+public class PropertyWriteLocks {
+
+    private final AtomicReferenceArray<Turn> tails;
+
+    public PropertyWriteLocks(@Value("${hostfully.locking.stripes:64}") int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("At least one lock stripe is required");
+        }
+        this.tails = new AtomicReferenceArray<>(stripeCount);
+    }
+
+    /**
+     * Runs the write once the earlier writes of the property have completed.
+     *
+     * @param propertyId The property written.
+     * @param write      Creates the write; called when its turn comes.
+     * @return The outcome of the write.
+     */
+    public <T> Mono<T> withLock(long propertyId, Supplier<Mono<T>> write) {
+        return Mono.defer(() -> {
+            Turn turn = new Turn();
+            Turn previous = tails.getAndSet(stripe(propertyId), turn);
+            Mono<T> run = Mono.defer(write);
+            // A write that had to wait resumes on another thread, so a queue of writes that complete synchronously
+            // does not run them all inside each other's completion.
+            Mono<T> queued = previous == null || previous.finished ? run : previous.done.asMono().publishOn(Schedulers.parallel()).then(run);
+            return queued.doFinally(signal -> turn.finish());
+        });
+    }
+
+    private int stripe(long propertyId) {
+        return (int) Math.floorMod(propertyId * 0x9E3779B97F4A7C15L >>> 32, (long) tails.length());
+    }
+
+    private static final class Turn {
+
+        private final Sinks.Empty<Void> done = Sinks.empty();
+        private volatile boolean finished;
+
+        private void finish() {
+            finished = true;
+            done.tryEmitEmpty();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.hostfullystay.app.reactive;
+
+import com.hostfullystay.app.controller.ETags;
+import com.hostfullystay.app.controller.Paging;
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.service.StaleVersionException;
+import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Objects;
+
+/**
+ * Controller class for handling HTTP requests related to Block entities on the reactive stack,
+ * on the same paths and with the same statuses as {@link com.hostfullystay.app.controller.BlockController}.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@RestController
+@Profile(ReactiveConfiguration.PROFILE)
+@RequestMapping("/v1/api/blocks")
+public class ReactiveBlockController {
+
+    /**
+     * Service for handling business logic related to Block entities.
+     */
+    private final ReactiveBlockService blockService;
+
+    /**
+     * Repository for looking up the properties blocks belong to.
+     */
+    private final ReactivePropertyRepository propertyRepository;
+
+    /**
+     * Constructor for ReactiveBlockController.
+     *
+     * @param blockService       Service for handling business logic related to Block entities.
+     * @param propertyRepository Repository for looking up the properties blocks belong to.
+     */
+    public ReactiveBlockController(ReactiveBlockService blockService, ReactivePropertyRepository propertyRepository) {
+        this.blockService = blockService;
+        this.propertyRepository = propertyRepository;
+    }
+
+    /**
+     * Handles HTTP POST requests to create a new Block entity.
+     *
+     * @param block The Block entity to be created. Must be a valid and non-existing entity.
+     * @return The created Block entity with HTTP status 201 (Created).
+     */
+    @PostMapping
+    public Mono<ResponseEntity<Block>> createBlock(@Valid @RequestBody Block block) {
+        if (block.getBlockId() != null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "A new block cannot already have an ID"));
+        }
+        return propertyRepository.existsById(block.getPropertyId())
+                .flatMap(exists -> exists ? blockService.save(block)
+                        .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "The block can't be scheduled in that date range")))
+                        : Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Property not found")))
+                .map(result -> ResponseEntity
+                        .created(URI.create("/v1/api/blocks/" + result.getBlockId()))
+                        .eTag(ETags.of(result.getVersion()))
+                        .body(result));
+    }
+
+    /**
+     * Handles HTTP PUT requests to update an existing Block entity.
+     *
+     * @param id      The ID of the Block entity to be updated.
+     * @param block   The updated Block entity.
+     * @param ifMatch The version the client expects to replace, as an entity tag, or {@code null} for an unconditional update.
+     * @return The updated Block entity with HTTP status 200 (OK).
+     */
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Block>> updateBlock(
+            @PathVariable(value = "id", required = false) final Long id,
+            @Valid @RequestBody Block block,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
+        if (block.getBlockId() == null || !Objects.equals(id, block.getBlockId())) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id"));
+        }
+        block.setVersion(ETags.parseIfMatch(ifMatch));
+        return blockService.exists(id)
+                .flatMap(exists -> exists ? blockService.update(block)
+                        .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "The block can't be scheduled in that date range")))
+                        : Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Entity not found")))
+                .onErrorMap(StaleVersionException.class, e -> new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage()))
+                .map(result -> ResponseEntity.ok().eTag(ETags.of(result.getVersion())).body(result));
+    }
+
+    /**
+     * Handles HTTP GET requests to list the first Block entities in (dateFrom, blockId) order.
+     *
+     * @param propertyId Only blocks of this property.
+     * @param size       The page size, 50 by default and at most 500.
+     * @return The Block entities, streamed as they are read.
+     */
+    @GetMapping
+    public Flux<Block> getAllBlocks(
+            @RequestParam(value = "propertyId", required = false) Long propertyId,
+            @RequestParam(value = "size", required = false) Integer size
+    ) {
+        return blockService.findFirstPage(propertyId, Paging.pageSize(size));
+    }
+
+    /**
+     * Handles HTTP GET requests to retrieve the count of Block entities.
+     *
+     * @return The count of Block entities.
+     */
+    @GetMapping("/count")
+    public Mono<Long> countBlocks() {
+        return blockService.count();
+    }
+
+    /**
+     * Handles HTTP GET requests to retrieve a specific Block entity by ID.
+     *
+     * @param id The ID of the Block entity to be retrieved.
+     * @return The retrieved Block entity with HTTP status 200 (OK), or HTTP status 404 (Not Found).
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Block>> getBlock(@PathVariable Long id) {
+        return blockService.findOne(id)
+                .map(response -> ResponseEntity.ok().eTag(ETags.of(response.getVersion())).body(response))
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    /**
+     * Handles HTTP DELETE requests to delete a specific Block entity by ID.
+     *
+     * @param id The ID of the Block entity to be deleted.
+     * @return No content, with HTTP status 204 (No Content).
+     */
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteBlock(@PathVariable Long id) {
+        return blockService.delete(id).then(Mono.just(ResponseEntity.noContent().build()));
+    }
+}
@@ -0,0 +1,25 @@
+package com.hostfullystay.app.reactive;
+
+import com.hostfullystay.app.domain.Block;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking access to the block table.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public interface ReactiveBlockRepository extends R2dbcRepository<Block, Long> {
+
+    /**
+     * Lists the first blocks in {@code (dateFrom, blockId)} order.
+     *
+     * @param propertyId Only blocks of this property, or {@code null}.
+     * @param size       The most blocks returned.
+     */
+    @Query("select * from block where (:propertyId is null or property_id = :propertyId)"
+            + " order by date_from, block_id limit :size")
+    Flux<Block> findFirstPage(@Param("propertyId") Long propertyId, @Param("size") int size);
+}
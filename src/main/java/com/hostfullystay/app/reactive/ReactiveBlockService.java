@@ -0,0 +1,84 @@
+package com.hostfullystay.app.reactive;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.service.StaleVersionException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link com.hostfullystay.app.service.BlockService}, with the same conflict rules:
+ * a block may not share a night with a BOOKED booking of its property. Blocks may overlap each other.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Service
+@Profile(ReactiveConfiguration.PROFILE)
+public class ReactiveBlockService {
+
+    private final ReactiveBlockRepository blockRepository;
+    private final ReactiveBookingRepository bookingRepository;
+    private final PropertyWriteLocks writeLocks;
+
+    public ReactiveBlockService(ReactiveBlockRepository blockRepository, ReactiveBookingRepository bookingRepository, PropertyWriteLocks writeLocks) {
+        this.blockRepository = blockRepository;
+        this.bookingRepository = bookingRepository;
+        this.writeLocks = writeLocks;
+    }
+
+    /**
+     * Creates a block.
+     *
+     * @return The saved block, or empty if a booking already holds a night of its range.
+     */
+    public Mono<Block> save(Block block) {
+        return writeLocks.withLock(block.getPropertyId(), () -> saveIfFree(block));
+    }
+
+    /**
+     * Replaces a block, under the same version rules as {@link ReactiveBookingService#update}.
+     *
+     * @return The saved block, or empty if it does not exist or a booking already holds a night of its range.
+     */
+    public Mono<Block> update(Block block) {
+        // A block stays with its property, so the property read up front is the one to take the turn of.
+        return blockRepository.findById(block.getBlockId())
+                .flatMap(existing -> writeLocks.withLock(existing.getPropertyId(), () -> blockRepository.findById(block.getBlockId())
+                        .flatMap(current -> {
+                            if (block.getVersion() != null && !block.getVersion().equals(current.getVersion())) {
+                                return Mono.error(new StaleVersionException(block.getVersion(), current.getVersion()));
+                            }
+                            // The stored row keeps the columns the request cannot set, such as its revision.
+                            current.setDateFrom(block.getDateFrom());
+                            current.setDateTo(block.getDateTo());
+                            current.setManager(block.getManager());
+                            return saveIfFree(current);
+                        })));
+    }
+
+    public Flux<Block> findFirstPage(Long propertyId, int size) {
+        return blockRepository.findFirstPage(propertyId, size);
+    }
+
+    public Mono<Block> findOne(Long id) {
+        return blockRepository.findById(id);
+    }
+
+    public Mono<Boolean> exists(Long id) {
+        return blockRepository.existsById(id);
+    }
+
+    public Mono<Long> count() {
+        return blockRepository.count();
+    }
+
+    public Mono<Void> delete(Long id) {
+        return blockRepository.deleteById(id);
+    }
+
+    private Mono<Block> saveIfFree(Block block) {
+        return bookingRepository.existsBookedOverlap(block.getPropertyId(), block.getDateFrom(), block.getDateTo(), null)
+                .flatMap(taken -> taken ? Mono.empty() : blockRepository.save(block));
+    }
+}
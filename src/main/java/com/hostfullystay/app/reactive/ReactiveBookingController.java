@@ -0,0 +1,147 @@
+package com.hostfullystay.app.reactive;
+
+import com.hostfullystay.app.controller.ETags;
+import com.hostfullystay.app.controller.Paging;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.service.StaleVersionException;
+import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Objects;
+
+/**
+ * Controller class for handling HTTP requests related to Booking entities on the reactive stack,
+ * on the same paths and with the same statuses as {@link com.hostfullystay.app.controller.BookingController}.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@RestController
+@Profile(ReactiveConfiguration.PROFILE)
+@RequestMapping("/v1/api/bookings")
+public class ReactiveBookingController {
+
+    /**
+     * Service for handling business logic related to Booking entities.
+     */
+    private final ReactiveBookingService bookingService;
+
+    /**
+     * Repository for looking up the properties bookings belong to.
+     */
+    private final ReactivePropertyRepository propertyRepository;
+
+    /**
+     * Constructor for ReactiveBookingController.
+     *
+     * @param bookingService     Service for handling business logic related to Booking entities.
+     * @param propertyRepository Repository for looking up the properties bookings belong to.
+     */
+    public ReactiveBookingController(ReactiveBookingService bookingService, ReactivePropertyRepository propertyRepository) {
+        this.bookingService = bookingService;
+        this.propertyRepository = propertyRepository;
+    }
+
+    /**
+     * Handles HTTP POST requests to create a new Booking entity.
+     *
+     * @param booking The Booking entity to be created. Must be a valid and non-existing entity.
+     * @return The created Booking entity with HTTP status 201 (Created).
+     */
+    @PostMapping
+    public Mono<ResponseEntity<Booking>> createBooking(@Valid @RequestBody Booking booking) {
+        if (booking.getBookingId() != null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "A new booking cannot already have an ID"));
+        }
+        return propertyRepository.existsById(booking.getPropertyId())
+                .flatMap(exists -> exists ? bookingService.save(booking)
+                        .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "The booking can't be scheduled in that date range")))
+                        : Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Property not found")))
+                .map(result -> ResponseEntity
+                        .created(URI.create("/v1/api/bookings/" + result.getBookingId()))
+                        .eTag(ETags.of(result.getVersion()))
+                        .body(result));
+    }
+
+    /**
+     * Handles HTTP PUT requests to update an existing Booking entity.
+     *
+     * @param id      The ID of the Booking entity to be updated.
+     * @param booking The updated Booking entity.
+     * @param ifMatch The version the client expects to replace, as an entity tag, or {@code null} for an unconditional update.
+     * @return The updated Booking entity with HTTP status 200 (OK).
+     */
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Booking>> updateBooking(
+            @PathVariable(value = "id", required = false) final Long id,
+            @Valid @RequestBody Booking booking,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
+        if (booking.getBookingId() == null || !Objects.equals(id, booking.getBookingId())) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id"));
+        }
+        booking.setVersion(ETags.parseIfMatch(ifMatch));
+        return bookingService.exists(id)
+                .flatMap(exists -> exists ? bookingService.update(booking)
+                        .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "The booking can't be scheduled in that date range")))
+                        : Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Entity not found")))
+                .onErrorMap(StaleVersionException.class, e -> new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage()))
+                .map(result -> ResponseEntity.ok().eTag(ETags.of(result.getVersion())).body(result));
+    }
+
+    /**
+     * Handles HTTP GET requests to list the first Booking entities in (dateFrom, bookingId) order.
+     *
+     * @param propertyId Only bookings of this property.
+     * @param size       The page size, 50 by default and at most 500.
+     * @return The Booking entities, streamed as they are read.
+     */
+    @GetMapping
+    public Flux<Booking> getAllBookings(
+            @RequestParam(value = "propertyId", required = false) Long propertyId,
+            @RequestParam(value = "size", required = false) Integer size
+    ) {
+        return bookingService.findFirstPage(propertyId, Paging.pageSize(size));
+    }
+
+    /**
+     * Handles HTTP GET requests to retrieve the count of Booking entities.
+     *
+     * @return The count of Booking entities.
+     */
+    @GetMapping("/count")
+    public Mono<Long> countBookings() {
+        return bookingService.count();
+    }
+
+    /**
+     * Handles HTTP GET requests to retrieve a specific Booking entity by ID.
+     *
+     * @param id The ID of the Booking entity to be retrieved.
+     * @return The retrieved Booking entity with HTTP status 200 (OK), or HTTP status 404 (Not Found).
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Booking>> getBooking(@PathVariable Long id) {
+        return bookingService.findOne(id)
+                .map(response -> ResponseEntity.ok().eTag(ETags.of(response.getVersion())).body(response))
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    /**
+     * Handles HTTP DELETE requests to delete a specific Booking entity by ID.
+     *
+     * @param id The ID of the Booking entity to be deleted.
+     * @return No content, with HTTP status 204 (No Content).
+     */
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteBooking(@PathVariable Long id) {
+        return bookingService.delete(id).then(Mono.just(ResponseEntity.noContent().build()));
+    }
+}
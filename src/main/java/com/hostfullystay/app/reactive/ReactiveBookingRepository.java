@@ -0,0 +1,55 @@
+package com.hostfullystay.app.reactive;
+
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.repository.OccupancyRepository;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Non-blocking access to the booking table, with the same overlap checks as {@link OccupancyRepository}.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public interface ReactiveBookingRepository extends R2dbcRepository<Booking, Long> {
+
+    /**
+     * Lists the first bookings in {@code (dateFrom, bookingId)} order.
+     *
+     * @param propertyId Only bookings of this property, or {@code null}.
+     * @param size       The most bookings returned.
+     */
+    @Query("select * from booking where (:propertyId is null or property_id = :propertyId)"
+            + " order by date_from, booking_id limit :size")
+    Flux<Booking> findFirstPage(@Param("propertyId") Long propertyId, @Param("size") int size);
+
+    /**
+     * Checks whether a BOOKED booking or a block of the property overlaps the given range.
+     *
+     * @see OccupancyRepository#existsOverlap
+     */
+    @Query(OccupancyRepository.OVERLAP_QUERY)
+    Mono<Boolean> existsOverlap(
+            @Param("propertyId") Long propertyId,
+            @Param("dateFrom") LocalDate dateFrom,
+            @Param("dateTo") LocalDate dateTo,
+            @Param("excludeBookingId") Long excludeBookingId
+    );
+
+    /**
+     * Checks whether a BOOKED booking of the property overlaps the given range.
+     *
+     * @see OccupancyRepository#existsBookedOverlap
+     */
+    @Query(OccupancyRepository.BOOKED_OVERLAP_QUERY)
+    Mono<Boolean> existsBookedOverlap(
+            @Param("propertyId") Long propertyId,
+            @Param("dateFrom") LocalDate dateFrom,
+            @Param("dateTo") LocalDate dateTo,
+            @Param("excludeBookingId") Long excludeBookingId
+    );
+}
@@ -0,0 +1,96 @@
+package com.hostfullystay.app.reactive;
+
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.service.StaleVersionException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static com.hostfullystay.app.domain.Booking.State.BOOKED;
+
+/**
+ * Non-blocking counterpart of {@link com.hostfullystay.app.service.BookingService}, with the same conflict rules:
+ * a booking may not share a night with a BOOKED booking or a block of its property. The check and the write of
+ * a property run in turn, so two writes cannot both pass the check for the same night.
+ * <p>
+ * The writes only touch the tables, see {@link ReactiveConfiguration}; the profile checks availability with the
+ * database strategy.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Service
+@Profile(ReactiveConfiguration.PROFILE)
+public class ReactiveBookingService {
+
+    private final ReactiveBookingRepository bookingRepository;
+    private final PropertyWriteLocks writeLocks;
+
+    public ReactiveBookingService(ReactiveBookingRepository bookingRepository, PropertyWriteLocks writeLocks) {
+        this.bookingRepository = bookingRepository;
+        this.writeLocks = writeLocks;
+    }
+
+    /**
+     * Creates a booking.
+     *
+     * @return The saved booking, or empty if its range is already taken.
+     */
+    public Mono<Booking> save(Booking booking) {
+        if (booking.getState() == null) {
+            booking.setState(BOOKED);
+        }
+        return writeLocks.withLock(booking.getPropertyId(), () -> saveIfFree(booking));
+    }
+
+    /**
+     * Replaces a booking. A non-null {@code version} on the given booking is the version the caller
+     * expects to replace; without one the update applies to whatever version is current.
+     * A booking stays with the property it was created for.
+     *
+     * @return The saved booking, or empty if it does not exist or its range is already taken.
+     * Errors with {@link StaleVersionException} if the expected version is no longer the current one. The version is
+     * checked within the turn of the property, where no other write of the booking can interleave, and bumped by the save.
+     */
+    public Mono<Booking> update(Booking booking) {
+        // A booking stays with its property, so the property read up front is the one to take the turn of.
+        return bookingRepository.findById(booking.getBookingId())
+                .flatMap(existing -> writeLocks.withLock(existing.getPropertyId(), () -> bookingRepository.findById(booking.getBookingId())
+                        .flatMap(current -> {
+                            if (booking.getVersion() != null && !booking.getVersion().equals(current.getVersion())) {
+                                return Mono.error(new StaleVersionException(booking.getVersion(), current.getVersion()));
+                            }
+                            // The stored row keeps the columns the request cannot set, such as its revision.
+                            current.setDateFrom(booking.getDateFrom());
+                            current.setDateTo(booking.getDateTo());
+                            current.setState(booking.getState());
+                            current.setGuestName(booking.getGuestName());
+                            return BOOKED.equals(current.getState()) ? saveIfFree(current) : bookingRepository.save(current);
+                        })));
+    }
+
+    public Flux<Booking> findFirstPage(Long propertyId, int size) {
+        return bookingRepository.findFirstPage(propertyId, size);
+    }
+
+    public Mono<Booking> findOne(Long id) {
+        return bookingRepository.findById(id);
+    }
+
+    public Mono<Boolean> exists(Long id) {
+        return bookingRepository.existsById(id);
+    }
+
+    public Mono<Long> count() {
+        return bookingRepository.count();
+    }
+
+    public Mono<Void> delete(Long id) {
+        return bookingRepository.deleteById(id);
+    }
+
+    private Mono<Booking> saveIfFree(Booking booking) {
+        return bookingRepository.existsOverlap(booking.getPropertyId(), booking.getDateFrom(), booking.getDateTo(), booking.getBookingId())
+                .flatMap(taken -> taken ? Mono.empty() : bookingRepository.save(booking));
+    }
+}
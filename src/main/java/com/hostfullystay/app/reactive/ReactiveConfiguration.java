@@ -0,0 +1,135 @@
+package com.hostfullystay.app.reactive;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.Property;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.Version;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.web.reactive.WebFluxRegistrations;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mapping.model.SimpleTypeHolder;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.mapping.R2dbcMappingContext;
+import org.springframework.data.r2dbc.mapping.event.BeforeConvertCallback;
+import org.springframework.data.relational.RelationalManagedTypes;
+import org.springframework.data.relational.core.mapping.BasicRelationalPersistentProperty;
+import org.springframework.data.relational.core.mapping.DefaultNamingStrategy;
+import org.springframework.data.relational.core.mapping.NamingStrategy;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import reactor.core.publisher.Mono;
+
+/**
+ * Serves the booking, block and property API with WebFlux and R2DBC when the {@value #PROFILE} profile is active,
+ * so many concurrent slow clients are served by a handful of event loop threads instead of a thread per request.
+ * <p>
+ * Only the controllers of this package are mapped; the servlet controllers block on JPA and stay unmapped.
+ * The JDBC datasource, which Spring Boot leaves out once R2DBC is configured, is still declared, so Hibernate
+ * creates the schema and the JPA beans of the servlet stack can start. New rows take their ids from the sequence
+ * Hibernate uses, and start at version 0 as they would under JPA.
+ * <p>
+ * The writes of this profile only touch the tables. They stamp no revision, so the change feed and the collection
+ * entity tags do not see them, and they neither journal, evict the read cache, update the in-memory availability
+ * views nor publish events. Those stay accurate only while the profile is off.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile(ReactiveConfiguration.PROFILE)
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveConfiguration {
+
+    public static final String PROFILE = "reactive";
+
+    /**
+     * The sequence Hibernate draws the ids of bookings, blocks and properties from.
+     */
+    private static final String NEXT_ID = "select next value for sequence_generator";
+
+    @Bean
+    public WebFluxRegistrations reactiveControllersOnly() {
+        return new WebFluxRegistrations() {
+            @Override
+            public RequestMappingHandlerMapping getRequestMappingHandlerMapping() {
+                return new RequestMappingHandlerMapping() {
+                    @Override
+                    protected boolean isHandler(Class<?> beanType) {
+                        return super.isHandler(beanType) && beanType.getPackageName().equals(ReactiveConfiguration.class.getPackageName());
+                    }
+                };
+            }
+        };
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Maps the entities as Spring Boot would, except that their JPA {@link Version} is the version Spring Data sets on
+     * insert, and checks and bumps on update. Spring Data JPA refuses an entity whose version also carries the
+     * Spring Data annotation, as its {@code @Id} does.
+     */
+    @Bean
+    public R2dbcMappingContext r2dbcMappingContext(ObjectProvider<NamingStrategy> namingStrategy, R2dbcCustomConversions conversions,
+                                                   RelationalManagedTypes managedTypes) {
+        R2dbcMappingContext context = new R2dbcMappingContext(namingStrategy.getIfAvailable(() -> DefaultNamingStrategy.INSTANCE)) {
+            @Override
+            protected RelationalPersistentProperty createPersistentProperty(org.springframework.data.mapping.model.Property property,
+                                                                            RelationalPersistentEntity<?> owner, SimpleTypeHolder simpleTypeHolder) {
+                BasicRelationalPersistentProperty persistentProperty = new BasicRelationalPersistentProperty(property, owner, simpleTypeHolder, this) {
+                    @Override
+                    public boolean isVersionProperty() {
+                        return super.isVersionProperty() || isAnnotationPresent(Version.class);
+                    }
+                };
+                persistentProperty.setForceQuote(isForceQuote());
+                return persistentProperty;
+            }
+        };
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        context.setManagedTypes(managedTypes);
+        return context;
+    }
+
+    @Bean
+    public BeforeConvertCallback<Booking> bookingIds(DatabaseClient databaseClient) {
+        return (booking, table) -> booking.getBookingId() != null ? Mono.just(booking)
+                : nextId(databaseClient).map(id -> {
+                    booking.setBookingId(id);
+                    return booking;
+                });
+    }
+
+    @Bean
+    public BeforeConvertCallback<Block> blockIds(DatabaseClient databaseClient) {
+        return (block, table) -> block.getBlockId() != null ? Mono.just(block)
+                : nextId(databaseClient).map(id -> {
+                    block.setBlockId(id);
+                    return block;
+                });
+    }
+
+    @Bean
+    public BeforeConvertCallback<Property> propertyIds(DatabaseClient databaseClient) {
+        return (property, table) -> property.getPropertyId() != null ? Mono.just(property)
+                : nextId(databaseClient).map(id -> {
+                    property.setPropertyId(id);
+                    return property;
+                });
+    }
+
+    private static Mono<Long> nextId(DatabaseClient databaseClient) {
+        return databaseClient.sql(NEXT_ID).map(row -> row.get(0, Long.class)).one();
+    }
+}
@@ -0,0 +1,76 @@
+package com.hostfullystay.app.reactive;
+
+import com.hostfullystay.app.domain.Property;
+import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * Controller class for handling HTTP requests related to Property entities on the reactive stack,
+ * enough to create the properties that bookings and blocks belong to.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@RestController
+@Profile(ReactiveConfiguration.PROFILE)
+@RequestMapping("/v1/api/properties")
+public class ReactivePropertyController {
+
+    /**
+     * Repository for accessing and manipulating Property entities in the database.
+     */
+    private final ReactivePropertyRepository propertyRepository;
+
+    /**
+     * Constructor for ReactivePropertyController.
+     *
+     * @param propertyRepository Repository for accessing and manipulating Property entities in the database.
+     */
+    public ReactivePropertyController(ReactivePropertyRepository propertyRepository) {
+        this.propertyRepository = propertyRepository;
+    }
+
+    /**
+     * Handles HTTP POST requests to create a new Property entity.
+     *
+     * @param property The Property entity to be created. Must be a valid and non-existing entity.
+     * @return The created Property entity with HTTP status 201 (Created).
+     */
+    @PostMapping
+    public Mono<ResponseEntity<Property>> createProperty(@Valid @RequestBody Property property) {
+        if (property.getPropertyId() != null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "A new property cannot already have an ID"));
+        }
+        return propertyRepository.save(property)
+                .map(result -> ResponseEntity.created(URI.create("/v1/api/properties/" + result.getPropertyId())).body(result));
+    }
+
+    /**
+     * Handles HTTP GET requests to retrieve all Property entities.
+     *
+     * @return The Property entities, streamed as they are read.
+     */
+    @GetMapping
+    public Flux<Property> getAllProperties() {
+        return propertyRepository.findAll();
+    }
+
+    /**
+     * Handles HTTP GET requests to retrieve a specific Property entity by ID.
+     *
+     * @param id The ID of the Property entity to be retrieved.
+     * @return The retrieved Property entity with HTTP status 200 (OK), or HTTP status 404 (Not Found).
+     */
+    @GetMapping("/{id}")
+    public Mono<Property> getProperty(@PathVariable Long id) {
+        return propertyRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+}
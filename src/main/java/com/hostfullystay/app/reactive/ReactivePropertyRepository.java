@@ -0,0 +1,12 @@
+package com.hostfullystay.app.reactive;
+
+import com.hostfullystay.app.domain.Property;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+/**
+ * Non-blocking access to the property table.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public interface ReactivePropertyRepository extends R2dbcRepository<Property, Long> {
+}
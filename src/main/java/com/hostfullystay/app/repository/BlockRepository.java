@@ -1,20 +1,39 @@
 package com.hostfullystay.app.repository;
 
 import com.hostfullystay.app.domain.Block;
-import com.hostfullystay.app.domain.Booking;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface BlockRepository extends JpaRepository<Block, Long>, JpaSpecificationExecutor<Block> {
 
-    boolean existsByDateFromGreaterThanEqualAndDateFromLessThanEqual(LocalDate bookingDateFrom, LocalDate bookingDateTo);
+    /**
+     * Streams every Block in id order, reading rows from the database in batches of the fetch size
+     * instead of loading the whole table. The stream must be consumed and closed inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select b from Block b order by b.blockId")
+    Stream<Block> streamAll();
 
-    boolean existsByDateToGreaterThanEqualAndDateToLessThanEqual(LocalDate bookingDateFrom, LocalDate bookingDateTo);
+    /**
+     * Returns the blocks last written with a revision in {@code (after, before)}, oldest first.
+     */
+    @Query("select b from Block b where b.revision > :after and b.revision < :before order by b.revision")
+    List<Block> findChanged(@Param("after") long after, @Param("before") long before, Pageable pageable);
 
-    boolean existsByDateFromLessThanEqualAndDateToGreaterThanEqual(LocalDate bookingDateFromAndTo1, LocalDate bookingDateFromAndTo2);
+    @Query("select coalesce(max(b.revision), 0) from Block b")
+    long maxRevision();
 }
@@ -0,0 +1,56 @@
+package com.hostfullystay.app.repository;
+
+import com.hostfullystay.app.domain.Block;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+
+/**
+ * Filters for listing blocks through {@link BlockRepository}.
+ * Each factory returns {@code null} when its argument is {@code null}, which composed specifications ignore.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public final class BlockSpecifications {
+
+    /**
+     * Keyset order of the listings, served by the {@code (dateFrom, blockId)} index.
+     */
+    public static final Sort KEYSET_ORDER = Sort.by("dateFrom", "blockId");
+
+    private BlockSpecifications() {
+    }
+
+    /**
+     * Matches the blocks with at least one night in {@code [dateFrom, dateTo]}; either end may be open.
+     */
+    public static Specification<Block> overlapping(LocalDate dateFrom, LocalDate dateTo) {
+        if (dateFrom == null && dateTo == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.and(
+                dateFrom == null ? cb.conjunction() : cb.greaterThanOrEqualTo(root.get("dateTo"), dateFrom),
+                dateTo == null ? cb.conjunction() : cb.lessThanOrEqualTo(root.get("dateFrom"), dateTo));
+    }
+
+    public static Specification<Block> hasProperty(Long propertyId) {
+        return propertyId == null ? null : (root, query, cb) -> cb.equal(root.get("propertyId"), propertyId);
+    }
+
+    public static Specification<Block> hasManager(String manager) {
+        return manager == null ? null : (root, query, cb) -> cb.equal(root.get("manager"), manager);
+    }
+
+    /**
+     * Matches the blocks that come after the given position in {@link #KEYSET_ORDER}.
+     */
+    public static Specification<Block> after(Keyset keyset) {
+        if (keyset == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get("dateFrom"), keyset.dateFrom()),
+                cb.and(cb.equal(root.get("dateFrom"), keyset.dateFrom()), cb.greaterThan(root.get("blockId"), keyset.id())));
+    }
+}
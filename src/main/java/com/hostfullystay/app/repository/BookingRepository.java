@@ -1,17 +1,39 @@
 package com.hostfullystay.app.repository;
 
 import com.hostfullystay.app.domain.Booking;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long>, JpaSpecificationExecutor<Booking> {
 
-    boolean existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(LocalDate bookingDateFrom, LocalDate bookingDateTo, Booking.State state);
-    boolean existsByDateToGreaterThanEqualAndDateToLessThanEqualAndState(LocalDate bookingDateFrom, LocalDate bookingDateTo, Booking.State state);
-    boolean existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(LocalDate bookingDateFromAndTo1, LocalDate bookingDateFromAndTo2, Booking.State state);
+    /**
+     * Streams every Booking in id order, reading rows from the database in batches of the fetch size
+     * instead of loading the whole table. The stream must be consumed and closed inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select b from Booking b order by b.bookingId")
+    Stream<Booking> streamAll();
+
+    /**
+     * Returns the bookings last written with a revision in {@code (after, before)}, oldest first.
+     */
+    @Query("select b from Booking b where b.revision > :after and b.revision < :before order by b.revision")
+    List<Booking> findChanged(@Param("after") long after, @Param("before") long before, Pageable pageable);
+
+    @Query("select coalesce(max(b.revision), 0) from Booking b")
+    long maxRevision();
 }
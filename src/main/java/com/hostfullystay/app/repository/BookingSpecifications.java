@@ -0,0 +1,60 @@
+package com.hostfullystay.app.repository;
+
+import com.hostfullystay.app.domain.Booking;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+
+/**
+ * Filters for listing bookings through {@link BookingRepository}.
+ * Each factory returns {@code null} when its argument is {@code null}, which composed specifications ignore.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public final class BookingSpecifications {
+
+    /**
+     * Keyset order of the listings, served by the {@code (dateFrom, bookingId)} index.
+     */
+    public static final Sort KEYSET_ORDER = Sort.by("dateFrom", "bookingId");
+
+    private BookingSpecifications() {
+    }
+
+    /**
+     * Matches the bookings with at least one night in {@code [dateFrom, dateTo]}; either end may be open.
+     */
+    public static Specification<Booking> overlapping(LocalDate dateFrom, LocalDate dateTo) {
+        if (dateFrom == null && dateTo == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.and(
+                dateFrom == null ? cb.conjunction() : cb.greaterThanOrEqualTo(root.get("dateTo"), dateFrom),
+                dateTo == null ? cb.conjunction() : cb.lessThanOrEqualTo(root.get("dateFrom"), dateTo));
+    }
+
+    public static Specification<Booking> hasProperty(Long propertyId) {
+        return propertyId == null ? null : (root, query, cb) -> cb.equal(root.get("propertyId"), propertyId);
+    }
+
+    public static Specification<Booking> hasState(Booking.State state) {
+        return state == null ? null : (root, query, cb) -> cb.equal(root.get("state"), state);
+    }
+
+    public static Specification<Booking> hasGuestName(String guestName) {
+        return guestName == null ? null : (root, query, cb) -> cb.equal(root.get("guestName"), guestName);
+    }
+
+    /**
+     * Matches the bookings that come after the given position in {@link #KEYSET_ORDER}.
+     */
+    public static Specification<Booking> after(Keyset keyset) {
+        if (keyset == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get("dateFrom"), keyset.dateFrom()),
+                cb.and(cb.equal(root.get("dateFrom"), keyset.dateFrom()), cb.greaterThan(root.get("bookingId"), keyset.id())));
+    }
+}
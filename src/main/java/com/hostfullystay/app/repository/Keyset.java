@@ -0,0 +1,40 @@
+package com.hostfullystay.app.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of a row in {@code (dateFrom, id)} order, used as the cursor of keyset pagination.
+ * Clients get it as an opaque token and send it back to read the rows that follow.
+ *
+ * @param dateFrom The start date of the last row read.
+ * @param id       The id of the last row read.
+ * @author Sakthidharan Ashwin
+ */
+public record Keyset(LocalDate dateFrom, long id) {
+
+    /**
+     * Returns the opaque token form of this position.
+     */
+    public String encode() {
+        String raw = dateFrom + "_" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a token produced by {@link #encode()}.
+     *
+     * @throws IllegalArgumentException If the token was not produced by {@link #encode()}.
+     */
+    public static Keyset decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('_');
+            return new Keyset(LocalDate.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
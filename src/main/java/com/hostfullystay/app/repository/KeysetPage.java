@@ -0,0 +1,30 @@
+package com.hostfullystay.app.repository;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing.
+ *
+ * @param content The rows of the page, in {@code (dateFrom, id)} order.
+ * @param next    The position to continue from, or {@code null} on the last page.
+ * @author Sakthidharan Ashwin
+ */
+public record KeysetPage<T>(List<T> content, Keyset next) {
+
+    /**
+     * Builds a page from a query that asked for one row more than the page size,
+     * the extra row only telling that another page follows.
+     *
+     * @param rows  Up to {@code size + 1} rows in {@code (dateFrom, id)} order.
+     * @param size  The page size.
+     * @param keyOf Reads the position of a row.
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int size, Function<T, Keyset> keyOf) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> content = rows.subList(0, size);
+        return new KeysetPage<>(content, keyOf.apply(content.get(size - 1)));
+    }
+}
@@ -0,0 +1,103 @@
+package com.hostfullystay.app.repository;
+
+import com.hostfullystay.app.domain.Booking;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Single-statement overlap checks across the booking and block tables, always within one property.
+ * Two closed date ranges overlap when {@code dateFrom <= otherTo AND dateTo >= otherFrom};
+ * the predicates are written so that the composite indexes declared on
+ * {@link com.hostfullystay.app.domain.Booking} and {@link com.hostfullystay.app.domain.Block} can serve them.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Repository
+public interface OccupancyRepository extends org.springframework.data.repository.Repository<Booking, Long> {
+
+    String BOOKED_OVERLAP = "select 1 from booking b where b.property_id = :propertyId and b.state = 'BOOKED'"
+            + " and b.date_to >= :dateFrom and b.date_from <= :dateTo"
+            + " and (:excludeBookingId is null or b.booking_id <> :excludeBookingId)";
+
+    String BLOCK_OVERLAP = "select 1 from block k"
+            + " where k.property_id = :propertyId and k.date_to >= :dateFrom and k.date_from <= :dateTo";
+
+    String OVERLAP_QUERY = "select case when exists (" + BOOKED_OVERLAP + ")"
+            + " or exists (" + BLOCK_OVERLAP + ") then true else false end";
+
+    String BOOKED_OVERLAP_QUERY = "select exists (" + BOOKED_OVERLAP + ")";
+
+    String BLOCK_OVERLAP_QUERY = "select exists (" + BLOCK_OVERLAP + ")";
+
+    /**
+     * Checks whether a BOOKED booking or a block of the property overlaps the given range.
+     *
+     * @param propertyId       The property whose calendar is checked.
+     * @param dateFrom         The first day of the range, inclusive.
+     * @param dateTo           The last day of the range, inclusive.
+     * @param excludeBookingId A booking to ignore, usually the one being updated, or {@code null}.
+     * @return {@code true} if any night of the range is already taken.
+     */
+    @Query(value = OVERLAP_QUERY, nativeQuery = true)
+    boolean existsOverlap(
+            @Param("propertyId") Long propertyId,
+            @Param("dateFrom") LocalDate dateFrom,
+            @Param("dateTo") LocalDate dateTo,
+            @Param("excludeBookingId") Long excludeBookingId
+    );
+
+    @Query(value = BOOKED_OVERLAP_QUERY, nativeQuery = true)
+    boolean existsBookedOverlap(
+            @Param("propertyId") Long propertyId,
+            @Param("dateFrom") LocalDate dateFrom,
+            @Param("dateTo") LocalDate dateTo,
+            @Param("excludeBookingId") Long excludeBookingId
+    );
+
+    @Query(value = BLOCK_OVERLAP_QUERY, nativeQuery = true)
+    boolean existsBlockOverlap(
+            @Param("propertyId") Long propertyId,
+            @Param("dateFrom") LocalDate dateFrom,
+            @Param("dateTo") LocalDate dateTo
+    );
+
+    /**
+     * Lists the {@code dateFrom, dateTo} pairs of the property's BOOKED bookings overlapping the given range, by start date.
+     */
+    @Query("select b.dateFrom, b.dateTo from Booking b where b.propertyId = :propertyId and b.state = BOOKED"
+            + " and b.dateTo >= :dateFrom and b.dateFrom <= :dateTo order by b.dateFrom")
+    List<Object[]> findBookedRanges(
+            @Param("propertyId") Long propertyId,
+            @Param("dateFrom") LocalDate dateFrom,
+            @Param("dateTo") LocalDate dateTo
+    );
+
+    /**
+     * Lists the {@code dateFrom, dateTo} pairs of the property's blocks overlapping the given range, by start date.
+     */
+    @Query("select k.dateFrom, k.dateTo from Block k where k.propertyId = :propertyId"
+            + " and k.dateTo >= :dateFrom and k.dateFrom <= :dateTo order by k.dateFrom")
+    List<Object[]> findBlockRanges(
+            @Param("propertyId") Long propertyId,
+            @Param("dateFrom") LocalDate dateFrom,
+            @Param("dateTo") LocalDate dateTo
+    );
+
+    /**
+     * Lists the property's BOOKED bookings and blocks overlapping the given range in one statement, by start date.
+     * Each row is {@code isBlock, id, dateFrom, dateTo}, where the id is a booking id or a block id.
+     */
+    @Query("select false, b.bookingId, b.dateFrom, b.dateTo from Booking b where b.propertyId = :propertyId"
+            + " and b.state = BOOKED and b.dateTo >= :dateFrom and b.dateFrom <= :dateTo"
+            + " union all select true, k.blockId, k.dateFrom, k.dateTo from Block k where k.propertyId = :propertyId"
+            + " and k.dateTo >= :dateFrom and k.dateFrom <= :dateTo order by 3")
+    List<Object[]> findTakenRanges(
+            @Param("propertyId") Long propertyId,
+            @Param("dateFrom") LocalDate dateFrom,
+            @Param("dateTo") LocalDate dateTo
+    );
+}
@@ -0,0 +1,53 @@
+package com.hostfullystay.app.repository;
+
+import com.hostfullystay.app.domain.OccupiedNight;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * Writes and releases the rows of the occupied night table in single statements.
+ * The claim queries expand {@code [dateFrom, dateFrom + nights]} of a property with H2's {@code system_range}.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Repository
+public interface OccupiedNightRepository extends JpaRepository<OccupiedNight, OccupiedNight.Key> {
+
+    @Modifying
+    @Transactional
+    @Query(value = "insert into occupied_night (property_id, night, booking_id)"
+            + " select :propertyId, dateadd(day, x, cast(:dateFrom as date)), :bookingId from system_range(0, :nights)", nativeQuery = true)
+    int claimForBooking(
+            @Param("propertyId") Long propertyId,
+            @Param("dateFrom") LocalDate dateFrom,
+            @Param("nights") long nights,
+            @Param("bookingId") Long bookingId
+    );
+
+    @Modifying
+    @Transactional
+    @Query(value = "insert into occupied_night (property_id, night, block_id)"
+            + " select :propertyId, dateadd(day, x, cast(:dateFrom as date)), :blockId from system_range(0, :nights)", nativeQuery = true)
+    int claimForBlock(
+            @Param("propertyId") Long propertyId,
+            @Param("dateFrom") LocalDate dateFrom,
+            @Param("nights") long nights,
+            @Param("blockId") Long blockId
+    );
+
+    @Modifying
+    @Transactional
+    @Query("delete from OccupiedNight n where n.bookingId = :bookingId")
+    int releaseBooking(@Param("bookingId") Long bookingId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from OccupiedNight n where n.blockId = :blockId")
+    int releaseBlock(@Param("blockId") Long blockId);
+}
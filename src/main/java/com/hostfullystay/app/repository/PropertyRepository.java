@@ -0,0 +1,20 @@
+package com.hostfullystay.app.repository;
+
+import com.hostfullystay.app.domain.Property;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Set;
+
+@Repository
+public interface PropertyRepository extends JpaRepository<Property, Long> {
+
+    /**
+     * Returns which of the given ids belong to an existing property, in one statement.
+     */
+    @Query("select p.propertyId from Property p where p.propertyId in :propertyIds")
+    Set<Long> findExistingIds(@Param("propertyIds") Collection<Long> propertyIds);
+}
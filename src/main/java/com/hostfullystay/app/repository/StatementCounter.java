@@ -0,0 +1,148 @@
+package com.hostfullystay.app.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the JDBC statements sent to the database, whichever repository, query or id generator sends them.
+ * It listens on the proxy wrapped around the application's data source, and counts each execution once: a JDBC
+ * batch is one round trip, however many rows it carries.
+ * <p>
+ * The totals are published by statement type as {@value #STATEMENTS}. On top of them, a {@link Tally} started on
+ * a thread counts the statements that thread runs until it is closed, which is how the statements of a single
+ * request are measured and how the tests hold each endpoint to its statement budget. Tallies nest; a statement
+ * counts towards every tally open on its thread.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Component
+public class StatementCounter implements QueryExecutionListener, MeterBinder {
+
+    /**
+     * Counter of the statements executed, tagged with their {@code type}: select, insert, update, delete or other.
+     */
+    public static final String STATEMENTS = "hostfully.jdbc.statements";
+
+    private static final QueryType[] TYPES = QueryType.values();
+
+    private final LongAdder[] totals = new LongAdder[TYPES.length];
+    private final ThreadLocal<Tally> current = new ThreadLocal<>();
+
+    public StatementCounter() {
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Starts counting the statements run by the current thread.
+     *
+     * @param recordStatements Whether to keep the SQL of every statement, to report what a budget was spent on.
+     * @return The open tally, to be closed on the same thread.
+     */
+    public Tally start(boolean recordStatements) {
+        Tally tally = new Tally(current.get(), recordStatements);
+        current.set(tally);
+        return tally;
+    }
+
+    /**
+     * The number of statements of the given type executed since startup.
+     */
+    public long total(QueryType type) {
+        return totals[type.ordinal()].sum();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        String sql = queryInfoList.isEmpty() ? "" : queryInfoList.get(0).getQuery();
+        QueryType type = QueryUtils.getQueryType(sql);
+        totals[type.ordinal()].increment();
+        for (Tally tally = current.get(); tally != null; tally = tally.parent) {
+            tally.add(type, sql);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (QueryType type : TYPES) {
+            FunctionCounter.builder(STATEMENTS, totals[type.ordinal()], LongAdder::sum)
+                    .description("JDBC statements sent to the database")
+                    .tag("type", type.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+    }
+
+    /**
+     * The statements run by one thread between {@link #start(boolean)} and {@link #close()}.
+     */
+    public final class Tally implements AutoCloseable {
+
+        private final Tally parent;
+        private final int[] counts = new int[TYPES.length];
+        private final List<String> statements;
+
+        private Tally(Tally parent, boolean recordStatements) {
+            this.parent = parent;
+            this.statements = recordStatements ? new ArrayList<>() : null;
+        }
+
+        private void add(QueryType type, String sql) {
+            counts[type.ordinal()]++;
+            if (statements != null) {
+                statements.add(sql);
+            }
+        }
+
+        public int total() {
+            int total = 0;
+            for (int count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        public int count(QueryType type) {
+            return counts[type.ordinal()];
+        }
+
+        /**
+         * The SQL of the statements counted, in order, or an empty list if they were not recorded.
+         */
+        public List<String> statements() {
+            return statements != null ? Collections.unmodifiableList(statements) : List.of();
+        }
+
+        /**
+         * Stops counting; the tally this one was started in, if any, counts on.
+         */
+        @Override
+        public void close() {
+            if (current.get() != this) {
+                return;
+            }
+            if (parent != null) {
+                current.set(parent);
+            } else {
+                current.remove();
+            }
+        }
+    }
+}
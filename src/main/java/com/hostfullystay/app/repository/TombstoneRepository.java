@@ -0,0 +1,41 @@
+package com.hostfullystay.app.repository;
+
+import com.hostfullystay.app.domain.Tombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Writes and reads the tombstones of deleted bookings and blocks. Tombstones are only ever inserted,
+ * so they are written with a plain insert instead of a merge that would first look the revision up.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Repository
+public interface TombstoneRepository extends JpaRepository<Tombstone, Long> {
+
+    @Modifying
+    @Transactional
+    @Query(value = "insert into tombstone (revision, kind, entity_id, property_id) values (:revision, :kind, :entityId, :propertyId)", nativeQuery = true)
+    int record(
+            @Param("revision") long revision,
+            @Param("kind") String kind,
+            @Param("entityId") Long entityId,
+            @Param("propertyId") Long propertyId
+    );
+
+    /**
+     * Returns the tombstones with a revision in {@code (after, before)}, oldest first.
+     */
+    @Query("select t from Tombstone t where t.revision > :after and t.revision < :before order by t.revision")
+    List<Tombstone> findChanged(@Param("after") long after, @Param("before") long before, Pageable pageable);
+
+    @Query("select coalesce(max(t.revision), 0) from Tombstone t")
+    long maxRevision();
+}
@@ -0,0 +1,125 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.availability.AvailabilityStrategy;
+import com.hostfullystay.app.domain.EntityKind;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters the conflict checks of the booking and block services, and counts the writes they accept and reject.
+ * <p>
+ * Set next to the {@code spring.data.repository.invocations} timers of the repositories and the
+ * {@code http.server.requests} timers of the endpoints, the check timers tell how much of a write is spent
+ * deciding whether its range is free. Every meter carries the availability strategy in use, so runs with
+ * different strategies can be compared on the same dashboard.
+ * <p>
+ * Every meter is registered up front, so recording a check or a write allocates nothing.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Component
+public class AvailabilityMetrics {
+
+    /**
+     * Timer of the conflict checks, tagged with the {@code check}, the {@code entity} checked and its {@code result}.
+     */
+    public static final String CHECKS = "hostfully.availability.checks";
+
+    /**
+     * Counter of the writes, tagged with the {@code entity} written and the {@code outcome}: accepted, or rejected
+     * because its range is taken, which the endpoints answer with 406.
+     */
+    public static final String WRITES = "hostfully.availability.writes";
+
+    private final MeterRegistry registry;
+    private final String strategy;
+    private final Counter[] accepted = new Counter[EntityKind.values().length];
+    private final Counter[] rejected = new Counter[EntityKind.values().length];
+
+    public AvailabilityMetrics(MeterRegistry registry, @Value("${hostfully.availability.strategy:index}") AvailabilityStrategy strategy) {
+        this.registry = registry;
+        this.strategy = tag(strategy);
+        for (EntityKind kind : EntityKind.values()) {
+            accepted[kind.ordinal()] = counter(kind, "accepted");
+            rejected[kind.ordinal()] = counter(kind, "rejected");
+        }
+    }
+
+    /**
+     * Registers the timers of a conflict check, one per result. Services create their checks once, when they are built.
+     *
+     * @param check The name of the check, usually the service method running it.
+     * @param kind  The kind of entity whose range is checked.
+     */
+    public Check check(String check, EntityKind kind) {
+        return new Check(registry.config().clock(), timer(check, kind, true), timer(check, kind, false));
+    }
+
+    public void accepted(EntityKind kind) {
+        accepted[kind.ordinal()].increment();
+    }
+
+    public void rejected(EntityKind kind) {
+        rejected[kind.ordinal()].increment();
+    }
+
+    private Counter counter(EntityKind kind, String outcome) {
+        return Counter.builder(WRITES)
+                .description("Writes of bookings and blocks, by whether their range was free")
+                .tag("entity", tag(kind))
+                .tag("outcome", outcome)
+                .tag("strategy", strategy)
+                .register(registry);
+    }
+
+    private Timer timer(String check, EntityKind kind, boolean result) {
+        return Timer.builder(CHECKS)
+                .description("Time spent checking whether a date range is free")
+                .tag("check", check)
+                .tag("entity", tag(kind))
+                .tag("result", Boolean.toString(result))
+                .tag("strategy", strategy)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static String tag(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The timers of one conflict check. A check reads {@link #start} before it runs and hands its answer to
+     * {@link #stop}, which records the time under the timer of that answer.
+     */
+    public static final class Check {
+
+        private final Clock clock;
+        private final Timer whenTrue;
+        private final Timer whenFalse;
+
+        private Check(Clock clock, Timer whenTrue, Timer whenFalse) {
+            this.clock = clock;
+            this.whenTrue = whenTrue;
+            this.whenFalse = whenFalse;
+        }
+
+        public long start() {
+            return clock.monotonicTime();
+        }
+
+        /**
+         * @return The given answer, so a check can end with {@code return check.stop(started, answer)}.
+         */
+        public boolean stop(long started, boolean result) {
+            (result ? whenTrue : whenFalse).record(clock.monotonicTime() - started, TimeUnit.NANOSECONDS);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.CalendarDay;
+import com.hostfullystay.app.availability.FreeWindow;
+import com.hostfullystay.app.availability.FreeWindows;
+import com.hostfullystay.app.availability.OccupancyCalendar;
+import com.hostfullystay.app.repository.OccupancyRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Service class answering availability searches over bookings and blocks together.
+ * Taken ranges come from the availability index when it is enabled, or from two range queries otherwise;
+ * either way the search itself is a single sweep with no per-candidate lookups.
+ * Calendars are read from the {@link OccupancyCalendar}, which the write services keep up to date.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Service
+@Transactional(readOnly = true)
+public class AvailabilityService {
+
+    private final OccupancyRepository occupancyRepository;
+    private final AvailabilityIndex availabilityIndex;
+    private final OccupancyCalendar occupancyCalendar;
+
+    public AvailabilityService(
+            OccupancyRepository occupancyRepository,
+            AvailabilityIndex availabilityIndex,
+            OccupancyCalendar occupancyCalendar
+    ) {
+        this.occupancyRepository = occupancyRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.occupancyCalendar = occupancyCalendar;
+    }
+
+    /**
+     * Returns the state of every night of {@code [dateFrom, dateTo]} of a property, in date order.
+     *
+     * @param propertyId The property.
+     * @param dateFrom   The first night, inclusive.
+     * @param dateTo     The last night, inclusive.
+     * @return One entry per night, with the id of the booking or block owning it.
+     */
+    public List<CalendarDay> getCalendar(long propertyId, LocalDate dateFrom, LocalDate dateTo) {
+        return occupancyCalendar.days(propertyId, dateFrom, dateTo);
+    }
+
+    /**
+     * Finds the first free windows of {@code [dateFrom, dateTo]} of a property that can host a stay of {@code nights} nights.
+     *
+     * @param propertyId The property.
+     * @param dateFrom   The first day searched, inclusive.
+     * @param dateTo     The last day searched, inclusive.
+     * @param nights     The length of the stay.
+     * @param limit      The maximum number of windows returned.
+     * @return The free windows in date order, clipped to the searched range.
+     */
+    public List<FreeWindow> findFreeWindows(long propertyId, LocalDate dateFrom, LocalDate dateTo, int nights, int limit) {
+        long[] booked;
+        long[] blocked;
+        if (availabilityIndex.isEnabled()) {
+            booked = availabilityIndex.bookingRanges(propertyId, dateFrom, dateTo);
+            blocked = availabilityIndex.blockRanges(propertyId, dateFrom, dateTo);
+        } else {
+            booked = toEpochDays(occupancyRepository.findBookedRanges(propertyId, dateFrom, dateTo));
+            blocked = toEpochDays(occupancyRepository.findBlockRanges(propertyId, dateFrom, dateTo));
+        }
+        return FreeWindows.sweep(booked, blocked, dateFrom.toEpochDay(), dateTo.toEpochDay(), nights, limit);
+    }
+
+    private static long[] toEpochDays(List<Object[]> rows) {
+        long[] ranges = new long[rows.size() * 2];
+        int i = 0;
+        for (Object[] row : rows) {
+            ranges[i++] = ((LocalDate) row[0]).toEpochDay();
+            ranges[i++] = ((LocalDate) row[1]).toEpochDay();
+        }
+        return ranges;
+    }
+}
@@ -1,16 +1,28 @@
 package com.hostfullystay.app.service;
 
+import com.hostfullystay.app.availability.AfterCommit;
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.DateRangeLocks;
+import com.hostfullystay.app.availability.NightLedger;
+import com.hostfullystay.app.availability.OccupancyCalendar;
 import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.EntityKind;
+import com.hostfullystay.app.journal.JournalRecorder;
 import com.hostfullystay.app.repository.BlockRepository;
-import com.hostfullystay.app.repository.BookingRepository;
+import com.hostfullystay.app.repository.BlockSpecifications;
+import com.hostfullystay.app.repository.Keyset;
+import com.hostfullystay.app.repository.KeysetPage;
+import com.hostfullystay.app.repository.OccupancyRepository;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
-import static com.hostfullystay.app.domain.Booking.State.BOOKED;
-
 /**
  * Service class for handling business logic related to Block entities.
  * Manages the interaction between the controllers and the Block repository.
@@ -22,56 +34,113 @@ import static com.hostfullystay.app.domain.Booking.State.BOOKED;
 public class BlockService {
 
     private final BlockRepository blockRepository;
-    private final BookingRepository bookingRepository;
+    private final OccupancyRepository occupancyRepository;
+    private final AvailabilityIndex availabilityIndex;
+    private final DateRangeLocks dateRangeLocks;
+    private final NightLedger nightLedger;
+    private final OccupancyCalendar occupancyCalendar;
+    private final EntityCache<Block> blockCache;
+    private final CollectionRevisions collectionRevisions;
+    private final ChangeLog changeLog;
+    private final MutationEvents mutationEvents;
+    private final AvailabilityMetrics availabilityMetrics;
+    private final JournalRecorder journalRecorder;
+    private final AvailabilityMetrics.Check validCheck;
+    private final AvailabilityMetrics.Check bookingConflictsCheck;
 
     public BlockService(
             BlockRepository blockRepository,
-            BookingRepository bookingRepository
+            OccupancyRepository occupancyRepository,
+            AvailabilityIndex availabilityIndex,
+            DateRangeLocks dateRangeLocks,
+            NightLedger nightLedger,
+            OccupancyCalendar occupancyCalendar,
+            EntityCache<Block> blockCache,
+            CollectionRevisions collectionRevisions,
+            ChangeLog changeLog,
+            MutationEvents mutationEvents,
+            AvailabilityMetrics availabilityMetrics,
+            JournalRecorder journalRecorder
     ) {
         this.blockRepository = blockRepository;
-        this.bookingRepository = bookingRepository;
+        this.occupancyRepository = occupancyRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.dateRangeLocks = dateRangeLocks;
+        this.nightLedger = nightLedger;
+        this.occupancyCalendar = occupancyCalendar;
+        this.blockCache = blockCache;
+        this.collectionRevisions = collectionRevisions;
+        this.changeLog = changeLog;
+        this.mutationEvents = mutationEvents;
+        this.availabilityMetrics = availabilityMetrics;
+        this.journalRecorder = journalRecorder;
+        this.validCheck = availabilityMetrics.check("isBlockValid", EntityKind.BLOCK);
+        this.bookingConflictsCheck = availabilityMetrics.check("hasBookingConflicts", EntityKind.BLOCK);
     }
 
     public Block save(Block block) {
-        if (!isBlockValid(block)) {
+        if (!acceptsRange(block)) {
             return null;
         }
 
-        block = blockRepository.save(block);
-        return block;
+        return persist(block, MutationEvent.Type.CREATED);
     }
 
-    public Block update(Block block) {
-        if (!isBlockValid(block)) {
-            return null;
+    /**
+     * Saves new blocks whose ranges the caller has already locked and validated, together and in the caller's
+     * transaction, so their inserts reach the database as JDBC batches. Each is then stamped and propagated as by
+     * {@link #save}. They are not counted in the availability metrics: the caller counts its writes once they commit.
+     *
+     * @return The saved blocks, in the given order.
+     * @throws ConcurrencyFailureException If the night ledger found a night of one of them taken; the transaction
+     *                                     is then marked for rollback.
+     */
+    public List<Block> saveValidated(List<Block> blocks) {
+        for (Block block : blocks) {
+            block.setRevision(changeLog.stamp());
         }
+        List<Block> saved = blockRepository.saveAll(blocks);
+        for (Block block : saved) {
+            if (!nightLedger.blockSaved(block)) {
+                throw new ConcurrencyFailureException("A night of the batch was taken while it was being saved");
+            }
+            propagate(block, MutationEvent.Type.CREATED);
+        }
+        return saved;
+    }
 
-        block = blockRepository.save(block);
-        return block;
+    /**
+     * Replaces the dates and manager of a block. A non-null {@code version} on the given block is the version the
+     * caller expects to replace; without one the update applies to whatever version is current.
+     * A block stays with the property it was created for.
+     * <p>
+     * The stored block is read once, and the change is applied to it only after its range has been locked and
+     * validated; the version read is the one checked when the update is flushed.
+     *
+     * @return The updated block, or {@code null} if its new range is taken.
+     * @throws MissingEntityException If there is no block with that id.
+     * @throws StaleVersionException  If the expected version is no longer the current one.
+     */
+    @RetryOnConflict
+    public Block update(Block block) {
+        Block existingBlock = load(block);
+        return apply(existingBlock, block.getDateFrom(), block.getDateTo(), block.getManager());
     }
 
+    /**
+     * Applies the non-null fields of the given block to the stored one, under the same version rules as {@link #update}.
+     *
+     * @return The updated block, or empty if its new range is taken.
+     * @throws MissingEntityException If there is no block with that id.
+     * @throws StaleVersionException  If the expected version is no longer the current one.
+     */
+    @RetryOnConflict
     public Optional<Block> partialUpdate(Block block) {
-        return blockRepository
-                .findById(block.getBlockId())
-                .map(existingBlock -> {
-                    if (block.getDateFrom() != null) {
-                        existingBlock.setDateFrom(block.getDateFrom());
-                    }
-                    if (block.getDateTo() != null) {
-                        existingBlock.setDateTo(block.getDateTo());
-                    }
-                    if (block.getManager() != null) {
-                        existingBlock.setManager(block.getManager());
-                    }
-
-                    return existingBlock;
-                })
-                .map(newBlock -> {
-                    if (!isBlockValid(block)) {
-                        return null;
-                    }
-                    return blockRepository.save(newBlock);
-                });
+        Block existingBlock = load(block);
+        return Optional.ofNullable(apply(existingBlock,
+                block.getDateFrom() != null ? block.getDateFrom() : existingBlock.getDateFrom(),
+                block.getDateTo() != null ? block.getDateTo() : existingBlock.getDateTo(),
+                block.getManager() != null ? block.getManager() : existingBlock.getManager()));
     }
 
     @Transactional(readOnly = true)
@@ -79,28 +148,168 @@ public class BlockService {
         return blockRepository.findAll();
     }
 
+    /**
+     * Lists one page of blocks in {@code (dateFrom, id)} order, filtered by the non-null arguments.
+     *
+     * @param propertyId Only blocks of this property, or {@code null}.
+     * @param dateFrom   Only blocks with a night on or after this day, or {@code null}.
+     * @param dateTo     Only blocks with a night on or before this day, or {@code null}.
+     * @param manager    Only blocks set by this manager, or {@code null}.
+     * @param after      The position to continue from, or {@code null} for the first page.
+     * @param size       The page size.
+     * @return The page, with the position of the next one if there is more.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Block> findPage(Long propertyId, LocalDate dateFrom, LocalDate dateTo, String manager, Keyset after, int size) {
+        Specification<Block> filter = Specification.allOf(
+                BlockSpecifications.hasProperty(propertyId),
+                BlockSpecifications.overlapping(dateFrom, dateTo),
+                BlockSpecifications.hasManager(manager),
+                BlockSpecifications.after(after));
+        List<Block> rows = blockRepository.findBy(filter, query -> query.sortBy(BlockSpecifications.KEYSET_ORDER).limit(size + 1).all());
+        return KeysetPage.of(rows, size, block -> new Keyset(block.getDateFrom(), block.getBlockId()));
+    }
+
+    /**
+     * Returns the revision of the block collection, which changes with every committed write. No transaction is opened.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public String revision() {
+        return collectionRevisions.blocks();
+    }
+
     @Transactional(readOnly = true)
     public long count() {
         return blockRepository.count();
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Looks a block up by id, from the read cache when it holds it. A cache hit does not open a transaction.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<Block> findOne(Long id) {
-        return blockRepository.findById(id);
+        return blockCache.get(id, blockRepository::findById);
     }
 
+    /**
+     * Deletes a block, if it still exists. A delete that loses a race with a concurrent write of the block is rerun
+     * on the current version; one that loses it to a concurrent delete finds nothing left to do.
+     */
+    @RetryOnConflict
     public void delete(Long id) {
-        blockRepository.deleteById(id);
+        blockRepository.findById(id).ifPresent(block -> {
+            nightLedger.blockDeleted(id);
+            blockRepository.delete(block);
+            long revision = changeLog.deleted(EntityKind.BLOCK, id, block.getPropertyId());
+            journalRecorder.blockDeleted(revision, id, block.getPropertyId());
+            availabilityIndex.blockDeleted(block);
+            occupancyCalendar.blockDeleted(block);
+            blockCache.invalidate(id);
+            collectionRevisions.blocksChanged();
+            mutationEvents.publish(MutationEvent.Type.DELETED, Change.deleted(revision, EntityKind.BLOCK, id, block.getPropertyId()));
+        });
+    }
+
+    /**
+     * Reads the stored block an update applies to, and checks it is still at the version the caller expects.
+     */
+    private Block load(Block block) {
+        Block existingBlock = blockRepository.findById(block.getBlockId())
+                .orElseThrow(() -> new MissingEntityException(EntityKind.BLOCK, block.getBlockId()));
+        checkVersion(block.getVersion(), existingBlock.getVersion());
+        return existingBlock;
+    }
+
+    /**
+     * Validates the new dates of a stored block and, if they are free, applies and persists them.
+     * The range is checked on a copy, so a rejected update leaves the managed entity untouched and nothing is flushed.
+     *
+     * @return The updated block, or {@code null} if its new range is taken.
+     */
+    private Block apply(Block existingBlock, LocalDate dateFrom, LocalDate dateTo, String manager) {
+        Block candidate = new Block();
+        candidate.setBlockId(existingBlock.getBlockId());
+        candidate.setPropertyId(existingBlock.getPropertyId());
+        candidate.setDateFrom(dateFrom);
+        candidate.setDateTo(dateTo);
+        if (!acceptsRange(candidate)) {
+            return null;
+        }
+
+        existingBlock.setDateFrom(dateFrom);
+        existingBlock.setDateTo(dateTo);
+        existingBlock.setManager(manager);
+        return persist(existingBlock, MutationEvent.Type.UPDATED);
+    }
+
+    private static void checkVersion(Long expectedVersion, Long currentVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(currentVersion)) {
+            throw new StaleVersionException(expectedVersion, currentVersion);
+        }
+    }
+
+    /**
+     * Locks and validates the range of a write, unless the night ledger checks it when the nights are claimed.
+     */
+    private boolean acceptsRange(Block block) {
+        if (nightLedger.isEnabled()) {
+            return true;
+        }
+        dateRangeLocks.lockUntilCompletion(block.getPropertyId(), block.getDateFrom(), block.getDateTo());
+        if (!isBlockValid(block)) {
+            availabilityMetrics.rejected(EntityKind.BLOCK);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stamps the block with the next change revision, saves it, claims its nights in the night ledger and propagates it.
+     *
+     * @param type What the write does to the block.
+     * @return The saved block, or {@code null} if the night ledger found one of its nights taken.
+     */
+    private Block persist(Block block, MutationEvent.Type type) {
+        block.setRevision(changeLog.stamp());
+        Block saved = blockRepository.save(block);
+        if (!nightLedger.blockSaved(saved)) {
+            availabilityMetrics.rejected(EntityKind.BLOCK);
+            return null;
+        }
+        propagate(saved, type);
+        // Counted once it commits: a save can still fail when its insert is flushed.
+        AfterCommit.run(() -> availabilityMetrics.accepted(EntityKind.BLOCK));
+        return saved;
+    }
+
+    /**
+     * Propagates a saved block to the journal, the availability index and the occupancy calendar, drops it from
+     * the read cache, bumps the collection revision and publishes the write to the event stream once it commits.
+     */
+    private void propagate(Block saved, MutationEvent.Type type) {
+        journalRecorder.blockSaved(saved);
+        availabilityIndex.blockSaved(saved);
+        occupancyCalendar.blockSaved(saved);
+        blockCache.invalidate(saved.getBlockId());
+        collectionRevisions.blocksChanged();
+        mutationEvents.publish(type, Change.of(saved));
     }
 
     public boolean isBlockValid(Block block) {
-        return !hasBookingConflicts(block);
+        long started = validCheck.start();
+        // The nested check is part of this one, and not timed on its own.
+        return validCheck.stop(started, !bookingConflicts(block));
     }
 
     public boolean hasBookingConflicts(Block block) {
-        return bookingRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(block.getDateFrom(), block.getDateTo(), BOOKED)
-                || bookingRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqualAndState(block.getDateFrom(), block.getDateTo(), BOOKED)
-                || bookingRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(block.getDateTo(), block.getDateTo(), BOOKED)
-                || bookingRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(block.getDateFrom(), block.getDateFrom(), BOOKED);
+        long started = bookingConflictsCheck.start();
+        return bookingConflictsCheck.stop(started, bookingConflicts(block));
+    }
+
+    private boolean bookingConflicts(Block block) {
+        if (availabilityIndex.isEnabled()) {
+            return availabilityIndex.hasBookingOverlap(block.getPropertyId(), block.getDateFrom(), block.getDateTo(), null);
+        }
+        return occupancyRepository.existsBookedOverlap(block.getPropertyId(), block.getDateFrom(), block.getDateTo(), null);
     }
 }
@@ -0,0 +1,53 @@
+package com.hostfullystay.app.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one item of a bulk booking import.
+ *
+ * @param index                The position of the item in the imported batch.
+ * @param status               Whether the item was created, conflicted or was rejected as invalid.
+ * @param bookingId            The id of the created booking.
+ * @param conflictingItem      The position of the earlier batch item the item conflicts with.
+ * @param conflictingBookingId The id of the existing booking the item conflicts with.
+ * @param conflictingBlockId   The id of the existing block the item conflicts with.
+ * @param message              Why an invalid item was rejected.
+ * @author Sakthidharan Ashwin
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BookingImportResult(
+        int index,
+        Status status,
+        Long bookingId,
+        Integer conflictingItem,
+        Long conflictingBookingId,
+        Long conflictingBlockId,
+        String message
+) {
+
+    public enum Status {
+        CREATED,
+        CONFLICT,
+        INVALID,
+    }
+
+    static BookingImportResult created(int index, Long bookingId) {
+        return new BookingImportResult(index, Status.CREATED, bookingId, null, null, null, null);
+    }
+
+    static BookingImportResult conflictWithItem(int index, int item) {
+        return new BookingImportResult(index, Status.CONFLICT, null, item, null, null, null);
+    }
+
+    static BookingImportResult conflictWithBooking(int index, Long bookingId) {
+        return new BookingImportResult(index, Status.CONFLICT, null, null, bookingId, null, null);
+    }
+
+    static BookingImportResult conflictWithBlock(int index, Long blockId) {
+        return new BookingImportResult(index, Status.CONFLICT, null, null, null, blockId, null);
+    }
+
+    static BookingImportResult invalid(int index, String message) {
+        return new BookingImportResult(index, Status.INVALID, null, null, null, null, message);
+    }
+}
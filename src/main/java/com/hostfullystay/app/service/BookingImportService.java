@@ -0,0 +1,244 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.DateRangeLocks;
+import com.hostfullystay.app.availability.NightLedger;
+import com.hostfullystay.app.availability.OccupancyCalendar;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.journal.JournalRecorder;
+import com.hostfullystay.app.repository.BookingRepository;
+import com.hostfullystay.app.repository.OccupancyRepository;
+import com.hostfullystay.app.repository.PropertyRepository;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static com.hostfullystay.app.domain.Booking.State.BOOKED;
+
+/**
+ * Service class for importing batches of bookings in a single transaction.
+ * <p>
+ * The batch is checked with a sweep line instead of per-item queries: the BOOKED items of each property are
+ * sorted by start date and swept once against the property's existing bookings and blocks, loaded with a single
+ * range query over the span of those items, and once against each other, where the earlier starting item wins.
+ * The accepted items are then inserted together, which Hibernate sends as JDBC batches.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Service
+@Transactional
+public class BookingImportService {
+
+    private final BookingRepository bookingRepository;
+    private final OccupancyRepository occupancyRepository;
+    private final PropertyRepository propertyRepository;
+    private final AvailabilityIndex availabilityIndex;
+    private final DateRangeLocks dateRangeLocks;
+    private final NightLedger nightLedger;
+    private final OccupancyCalendar occupancyCalendar;
+    private final CollectionRevisions collectionRevisions;
+    private final ChangeLog changeLog;
+    private final MutationEvents mutationEvents;
+    private final JournalRecorder journalRecorder;
+
+    public BookingImportService(
+            BookingRepository bookingRepository,
+            OccupancyRepository occupancyRepository,
+            PropertyRepository propertyRepository,
+            AvailabilityIndex availabilityIndex,
+            DateRangeLocks dateRangeLocks,
+            NightLedger nightLedger,
+            OccupancyCalendar occupancyCalendar,
+            CollectionRevisions collectionRevisions,
+            ChangeLog changeLog,
+            MutationEvents mutationEvents,
+            JournalRecorder journalRecorder
+    ) {
+        this.bookingRepository = bookingRepository;
+        this.occupancyRepository = occupancyRepository;
+        this.propertyRepository = propertyRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.dateRangeLocks = dateRangeLocks;
+        this.nightLedger = nightLedger;
+        this.occupancyCalendar = occupancyCalendar;
+        this.collectionRevisions = collectionRevisions;
+        this.changeLog = changeLog;
+        this.mutationEvents = mutationEvents;
+        this.journalRecorder = journalRecorder;
+    }
+
+    /**
+     * Imports a batch of new bookings. Items without a state are imported as BOOKED.
+     *
+     * @param bookings The bookings to create, none of which may have an id.
+     * @return One result per item, in the order of the batch.
+     * @throws ConcurrencyFailureException If a concurrent write took a night of the batch after it was checked;
+     *                                     nothing of the batch is imported then.
+     */
+    public List<BookingImportResult> importAll(List<Booking> bookings) {
+        BookingImportResult[] results = new BookingImportResult[bookings.size()];
+        Set<Long> properties = existingProperties(bookings);
+        Map<Long, List<Integer>> bookedByProperty = new TreeMap<>();
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking booking = bookings.get(i);
+            String problem = validate(booking);
+            if (problem == null && !properties.contains(booking.getPropertyId())) {
+                problem = "Property " + booking.getPropertyId() + " does not exist";
+            }
+            if (problem != null) {
+                results[i] = BookingImportResult.invalid(i, problem);
+                continue;
+            }
+            if (booking.getState() == null) {
+                booking.setState(BOOKED);
+            }
+            if (BOOKED.equals(booking.getState())) {
+                bookedByProperty.computeIfAbsent(booking.getPropertyId(), key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<DateRangeLocks.Span> spans = new ArrayList<>();
+        for (Map.Entry<Long, List<Integer>> entry : bookedByProperty.entrySet()) {
+            List<Integer> booked = entry.getValue();
+            booked.sort(Comparator.comparing((Integer i) -> bookings.get(i).getDateFrom()).thenComparing(i -> i));
+            LocalDate dateTo = booked.stream().map(i -> bookings.get(i).getDateTo()).max(Comparator.naturalOrder()).orElseThrow();
+            spans.add(new DateRangeLocks.Span(entry.getKey(), bookings.get(booked.get(0)).getDateFrom(), dateTo));
+        }
+        if (!nightLedger.isEnabled() && !spans.isEmpty()) {
+            // All the properties at once, so the stripes are still taken in ascending order.
+            dateRangeLocks.lockUntilCompletion(spans);
+        }
+        for (DateRangeLocks.Span span : spans) {
+            List<Integer> booked = bookedByProperty.get(span.propertyId());
+            sweepAgainstTaken(bookings, booked, occupancyRepository.findTakenRanges(span.propertyId(), span.dateFrom(), span.dateTo()), results);
+            sweepWithinBatch(bookings, booked, results);
+        }
+
+        List<Integer> accepted = new ArrayList<>();
+        List<Booking> toSave = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                accepted.add(i);
+                Booking booking = bookings.get(i);
+                booking.setRevision(changeLog.stamp());
+                toSave.add(booking);
+            }
+        }
+        List<Booking> saved = bookingRepository.saveAll(toSave);
+        for (int k = 0; k < saved.size(); k++) {
+            Booking booking = saved.get(k);
+            if (!nightLedger.bookingSaved(booking)) {
+                throw new ConcurrencyFailureException("A night of the batch was taken while it was being imported");
+            }
+            journalRecorder.bookingSaved(booking);
+            availabilityIndex.bookingSaved(booking);
+            occupancyCalendar.bookingSaved(booking);
+            mutationEvents.publish(MutationEvent.Type.CREATED, Change.of(booking));
+            results[accepted.get(k)] = BookingImportResult.created(accepted.get(k), booking.getBookingId());
+        }
+        if (!saved.isEmpty()) {
+            collectionRevisions.bookingsChanged();
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Rejects the items overlapping an existing booking or block.
+     * Walking both lists by start date, an item overlaps an earlier starting range exactly when the
+     * widest such range reaches its first night, and a later starting one exactly when the next range
+     * begins before its last night.
+     */
+    static void sweepAgainstTaken(List<Booking> bookings, List<Integer> order, List<Object[]> taken, BookingImportResult[] results) {
+        int next = 0;
+        Object[] widest = null;
+        for (int i : order) {
+            Booking booking = bookings.get(i);
+            while (next < taken.size() && !dateFrom(taken.get(next)).isAfter(booking.getDateFrom())) {
+                if (widest == null || dateTo(taken.get(next)).isAfter(dateTo(widest))) {
+                    widest = taken.get(next);
+                }
+                next++;
+            }
+            if (widest != null && !dateTo(widest).isBefore(booking.getDateFrom())) {
+                results[i] = conflict(i, widest);
+            } else if (next < taken.size() && !dateFrom(taken.get(next)).isAfter(booking.getDateTo())) {
+                results[i] = conflict(i, taken.get(next));
+            }
+        }
+    }
+
+    /**
+     * Rejects the items overlapping an earlier starting item of the batch that is still accepted.
+     */
+    static void sweepWithinBatch(List<Booking> bookings, List<Integer> order, BookingImportResult[] results) {
+        int widest = -1;
+        for (int i : order) {
+            if (results[i] != null) {
+                continue;
+            }
+            Booking booking = bookings.get(i);
+            if (widest >= 0 && !bookings.get(widest).getDateTo().isBefore(booking.getDateFrom())) {
+                results[i] = BookingImportResult.conflictWithItem(i, widest);
+            } else if (widest < 0 || booking.getDateTo().isAfter(bookings.get(widest).getDateTo())) {
+                widest = i;
+            }
+        }
+    }
+
+    private Set<Long> existingProperties(List<Booking> bookings) {
+        Set<Long> propertyIds = new HashSet<>();
+        for (Booking booking : bookings) {
+            if (booking != null && booking.getPropertyId() != null) {
+                propertyIds.add(booking.getPropertyId());
+            }
+        }
+        return propertyIds.isEmpty() ? propertyIds : propertyRepository.findExistingIds(propertyIds);
+    }
+
+    private static String validate(Booking booking) {
+        if (booking == null) {
+            return "The item is empty";
+        }
+        if (booking.getBookingId() != null) {
+            return "A new booking cannot already have an ID";
+        }
+        if (booking.getPropertyId() == null) {
+            return "propertyId is required";
+        }
+        if (booking.getDateFrom() == null || booking.getDateTo() == null) {
+            return "dateFrom and dateTo are required";
+        }
+        if (booking.getDateFrom().isAfter(booking.getDateTo())) {
+            return "dateTo must not be before dateFrom";
+        }
+        if (booking.getGuestName() == null || booking.getGuestName().length() > 255) {
+            return "guestName is required and at most 255 characters long";
+        }
+        return null;
+    }
+
+    private static BookingImportResult conflict(int index, Object[] taken) {
+        Long id = (Long) taken[1];
+        return Boolean.TRUE.equals(taken[0])
+                ? BookingImportResult.conflictWithBlock(index, id)
+                : BookingImportResult.conflictWithBooking(index, id);
+    }
+
+    private static LocalDate dateFrom(Object[] taken) {
+        return (LocalDate) taken[2];
+    }
+
+    private static LocalDate dateTo(Object[] taken) {
+        return (LocalDate) taken[3];
+    }
+}
@@ -1,11 +1,25 @@
 package com.hostfullystay.app.service;
 
+import com.hostfullystay.app.availability.AfterCommit;
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.DateRangeLocks;
+import com.hostfullystay.app.availability.NightLedger;
+import com.hostfullystay.app.availability.OccupancyCalendar;
 import com.hostfullystay.app.domain.Booking;
-import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.domain.EntityKind;
+import com.hostfullystay.app.journal.JournalRecorder;
 import com.hostfullystay.app.repository.BookingRepository;
+import com.hostfullystay.app.repository.BookingSpecifications;
+import com.hostfullystay.app.repository.Keyset;
+import com.hostfullystay.app.repository.KeysetPage;
+import com.hostfullystay.app.repository.OccupancyRepository;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,18 +36,54 @@ import static com.hostfullystay.app.domain.Booking.State.BOOKED;
 public class BookingService {
 
     private final BookingRepository bookingRepository;
-    private final BlockRepository blockRepository;
+    private final OccupancyRepository occupancyRepository;
+    private final AvailabilityIndex availabilityIndex;
+    private final DateRangeLocks dateRangeLocks;
+    private final NightLedger nightLedger;
+    private final OccupancyCalendar occupancyCalendar;
+    private final EntityCache<Booking> bookingCache;
+    private final CollectionRevisions collectionRevisions;
+    private final ChangeLog changeLog;
+    private final MutationEvents mutationEvents;
+    private final AvailabilityMetrics availabilityMetrics;
+    private final JournalRecorder journalRecorder;
+    private final AvailabilityMetrics.Check validCheck;
+    private final AvailabilityMetrics.Check bookingConflictsCheck;
+    private final AvailabilityMetrics.Check blockConflictsCheck;
 
     public BookingService(
             BookingRepository bookingRepository,
-            BlockRepository blockRepository
+            OccupancyRepository occupancyRepository,
+            AvailabilityIndex availabilityIndex,
+            DateRangeLocks dateRangeLocks,
+            NightLedger nightLedger,
+            OccupancyCalendar occupancyCalendar,
+            EntityCache<Booking> bookingCache,
+            CollectionRevisions collectionRevisions,
+            ChangeLog changeLog,
+            MutationEvents mutationEvents,
+            AvailabilityMetrics availabilityMetrics,
+            JournalRecorder journalRecorder
     ) {
         this.bookingRepository = bookingRepository;
-        this.blockRepository = blockRepository;
+        this.occupancyRepository = occupancyRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.dateRangeLocks = dateRangeLocks;
+        this.nightLedger = nightLedger;
+        this.occupancyCalendar = occupancyCalendar;
+        this.bookingCache = bookingCache;
+        this.collectionRevisions = collectionRevisions;
+        this.changeLog = changeLog;
+        this.mutationEvents = mutationEvents;
+        this.availabilityMetrics = availabilityMetrics;
+        this.journalRecorder = journalRecorder;
+        this.validCheck = availabilityMetrics.check("isBookingValid", EntityKind.BOOKING);
+        this.bookingConflictsCheck = availabilityMetrics.check("hasBookingConflicts", EntityKind.BOOKING);
+        this.blockConflictsCheck = availabilityMetrics.check("hasBlockConflicts", EntityKind.BOOKING);
     }
 
     public Booking save(Booking booking) {
-        if (!isBookingValid(booking)) {
+        if (!acceptsRange(booking)) {
             return null;
         }
 
@@ -41,48 +91,65 @@ public class BookingService {
             booking.setState(BOOKED);
         }
 
-        booking = bookingRepository.save(booking);
-        return booking;
+        return persist(booking, MutationEvent.Type.CREATED);
     }
 
-    public Booking update(Booking booking) {
-        if (BOOKED.equals(booking.getState())) {
-            if (!isBookingValid(booking)) {
-                return null;
+    /**
+     * Saves new bookings whose ranges the caller has already locked and validated, together and in the caller's
+     * transaction, so their inserts reach the database as JDBC batches. Each is then stamped and propagated as by
+     * {@link #save}. They are not counted in the availability metrics: the caller counts its writes once they commit.
+     *
+     * @return The saved bookings, in the given order.
+     * @throws ConcurrencyFailureException If the night ledger found a night of one of them taken; the transaction
+     *                                     is then marked for rollback.
+     */
+    public List<Booking> saveValidated(List<Booking> bookings) {
+        for (Booking booking : bookings) {
+            booking.setRevision(changeLog.stamp());
+        }
+        List<Booking> saved = bookingRepository.saveAll(bookings);
+        for (Booking booking : saved) {
+            if (!nightLedger.bookingSaved(booking)) {
+                throw new ConcurrencyFailureException("A night of the batch was taken while it was being saved");
             }
+            propagate(booking, MutationEvent.Type.CREATED);
         }
+        return saved;
+    }
 
-        booking = bookingRepository.save(booking);
-        return booking;
+    /**
+     * Replaces the dates, state and guest of a booking. A non-null {@code version} on the given booking is the version
+     * the caller expects to replace; without one the update applies to whatever version is current.
+     * A booking stays with the property it was created for.
+     * <p>
+     * The stored booking is read once, and the change is applied to it only after its range has been locked and
+     * validated; the version read is the one checked when the update is flushed.
+     *
+     * @return The updated booking, or {@code null} if its new range is taken.
+     * @throws MissingEntityException If there is no booking with that id.
+     * @throws StaleVersionException  If the expected version is no longer the current one.
+     */
+    @RetryOnConflict
+    public Booking update(Booking booking) {
+        Booking existingBooking = load(booking);
+        return apply(existingBooking, booking.getDateFrom(), booking.getDateTo(), booking.getState(), booking.getGuestName());
     }
 
+    /**
+     * Applies the non-null fields of the given booking to the stored one, under the same version rules as {@link #update}.
+     *
+     * @return The updated booking, or empty if its new range is taken.
+     * @throws MissingEntityException If there is no booking with that id.
+     * @throws StaleVersionException  If the expected version is no longer the current one.
+     */
+    @RetryOnConflict
     public Optional<Booking> partialUpdate(Booking booking) {
-        return bookingRepository
-                .findById(booking.getBookingId())
-                .map(existingBooking -> {
-                    if (booking.getDateFrom() != null) {
-                        existingBooking.setDateFrom(booking.getDateFrom());
-                    }
-                    if (booking.getDateTo() != null) {
-                        existingBooking.setDateTo(booking.getDateTo());
-                    }
-                    if (booking.getGuestName() != null) {
-                        existingBooking.setGuestName(booking.getGuestName());
-                    }
-                    if (booking.getState() != null) {
-                        existingBooking.setState(booking.getState());
-                    }
-
-                    return existingBooking;
-                })
-                .map(newBooking -> {
-                    if (BOOKED.equals(newBooking.getState())) {
-                        if (!isBookingValid(newBooking)) {
-                            return null;
-                        }
-                    }
-                    return bookingRepository.save(newBooking);
-                });
+        Booking existingBooking = load(booking);
+        return Optional.ofNullable(apply(existingBooking,
+                booking.getDateFrom() != null ? booking.getDateFrom() : existingBooking.getDateFrom(),
+                booking.getDateTo() != null ? booking.getDateTo() : existingBooking.getDateTo(),
+                booking.getState() != null ? booking.getState() : existingBooking.getState(),
+                booking.getGuestName() != null ? booking.getGuestName() : existingBooking.getGuestName()));
     }
 
     @Transactional(readOnly = true)
@@ -90,35 +157,200 @@ public class BookingService {
         return bookingRepository.findAll();
     }
 
+    /**
+     * Lists one page of bookings in {@code (dateFrom, id)} order, filtered by the non-null arguments.
+     *
+     * @param propertyId Only bookings of this property, or {@code null}.
+     * @param dateFrom   Only bookings with a night on or after this day, or {@code null}.
+     * @param dateTo     Only bookings with a night on or before this day, or {@code null}.
+     * @param state      Only bookings in this state, or {@code null}.
+     * @param guestName  Only bookings of this guest, or {@code null}.
+     * @param after      The position to continue from, or {@code null} for the first page.
+     * @param size       The page size.
+     * @return The page, with the position of the next one if there is more.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Booking> findPage(Long propertyId, LocalDate dateFrom, LocalDate dateTo, Booking.State state, String guestName, Keyset after, int size) {
+        Specification<Booking> filter = Specification.allOf(
+                BookingSpecifications.hasProperty(propertyId),
+                BookingSpecifications.overlapping(dateFrom, dateTo),
+                BookingSpecifications.hasState(state),
+                BookingSpecifications.hasGuestName(guestName),
+                BookingSpecifications.after(after));
+        List<Booking> rows = bookingRepository.findBy(filter, query -> query.sortBy(BookingSpecifications.KEYSET_ORDER).limit(size + 1).all());
+        return KeysetPage.of(rows, size, booking -> new Keyset(booking.getDateFrom(), booking.getBookingId()));
+    }
+
+    /**
+     * Returns the revision of the booking collection, which changes with every committed write. No transaction is opened.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public String revision() {
+        return collectionRevisions.bookings();
+    }
+
     @Transactional(readOnly = true)
     public long count() {
         return bookingRepository.count();
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Looks a booking up by id, from the read cache when it holds it. A cache hit does not open a transaction.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<Booking> findOne(Long id) {
-        return bookingRepository.findById(id);
+        return bookingCache.get(id, bookingRepository::findById);
     }
 
+    /**
+     * Deletes a booking, if it still exists. A delete that loses a race with a concurrent write of the booking is rerun
+     * on the current version; one that loses it to a concurrent delete finds nothing left to do.
+     */
+    @RetryOnConflict
     public void delete(Long id) {
-        bookingRepository.deleteById(id);
+        bookingRepository.findById(id).ifPresent(booking -> {
+            nightLedger.bookingDeleted(id);
+            bookingRepository.delete(booking);
+            long revision = changeLog.deleted(EntityKind.BOOKING, id, booking.getPropertyId());
+            journalRecorder.bookingDeleted(revision, id, booking.getPropertyId());
+            availabilityIndex.bookingDeleted(booking);
+            occupancyCalendar.bookingDeleted(booking);
+            bookingCache.invalidate(id);
+            collectionRevisions.bookingsChanged();
+            mutationEvents.publish(MutationEvent.Type.DELETED, Change.deleted(revision, EntityKind.BOOKING, id, booking.getPropertyId()));
+        });
+    }
+
+    /**
+     * Tells a cancellation apart from other updates of an existing booking.
+     */
+    private static MutationEvent.Type typeOf(Booking.State previousState, Booking.State state) {
+        if (Booking.State.CANCELED.equals(state) && !Booking.State.CANCELED.equals(previousState)) {
+            return MutationEvent.Type.CANCELED;
+        }
+        return MutationEvent.Type.UPDATED;
+    }
+
+    /**
+     * Reads the stored booking an update applies to, and checks it is still at the version the caller expects.
+     */
+    private Booking load(Booking booking) {
+        Booking existingBooking = bookingRepository.findById(booking.getBookingId())
+                .orElseThrow(() -> new MissingEntityException(EntityKind.BOOKING, booking.getBookingId()));
+        checkVersion(booking.getVersion(), existingBooking.getVersion());
+        return existingBooking;
+    }
+
+    /**
+     * Validates the new values of a stored booking and, if its range is free, applies and persists them.
+     * The range is checked on a copy, so a rejected update leaves the managed entity untouched and nothing is flushed.
+     *
+     * @return The updated booking, or {@code null} if its new range is taken.
+     */
+    private Booking apply(Booking existingBooking, LocalDate dateFrom, LocalDate dateTo, Booking.State state, String guestName) {
+        if (BOOKED.equals(state)) {
+            Booking candidate = new Booking();
+            candidate.setBookingId(existingBooking.getBookingId());
+            candidate.setPropertyId(existingBooking.getPropertyId());
+            candidate.setDateFrom(dateFrom);
+            candidate.setDateTo(dateTo);
+            candidate.setState(state);
+            if (!acceptsRange(candidate)) {
+                return null;
+            }
+        }
+
+        Booking.State previousState = existingBooking.getState();
+        existingBooking.setDateFrom(dateFrom);
+        existingBooking.setDateTo(dateTo);
+        existingBooking.setState(state);
+        existingBooking.setGuestName(guestName);
+        return persist(existingBooking, typeOf(previousState, state));
+    }
+
+    private static void checkVersion(Long expectedVersion, Long currentVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(currentVersion)) {
+            throw new StaleVersionException(expectedVersion, currentVersion);
+        }
+    }
+
+    /**
+     * Locks and validates the range of a write, unless the night ledger checks it when the nights are claimed.
+     */
+    private boolean acceptsRange(Booking booking) {
+        if (nightLedger.isEnabled()) {
+            return true;
+        }
+        dateRangeLocks.lockUntilCompletion(booking.getPropertyId(), booking.getDateFrom(), booking.getDateTo());
+        if (!isBookingValid(booking)) {
+            availabilityMetrics.rejected(EntityKind.BOOKING);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stamps the booking with the next change revision, saves it, claims its nights in the night ledger and propagates it.
+     *
+     * @param type What the write does to the booking.
+     * @return The saved booking, or {@code null} if the night ledger found one of its nights taken.
+     */
+    private Booking persist(Booking booking, MutationEvent.Type type) {
+        booking.setRevision(changeLog.stamp());
+        Booking saved = bookingRepository.save(booking);
+        if (!nightLedger.bookingSaved(saved)) {
+            availabilityMetrics.rejected(EntityKind.BOOKING);
+            return null;
+        }
+        propagate(saved, type);
+        // Counted once it commits: a save can still fail when its insert is flushed.
+        AfterCommit.run(() -> availabilityMetrics.accepted(EntityKind.BOOKING));
+        return saved;
+    }
+
+    /**
+     * Propagates a saved booking to the journal, the availability index and the occupancy calendar, drops it from
+     * the read cache, bumps the collection revision and publishes the write to the event stream once it commits.
+     */
+    private void propagate(Booking saved, MutationEvent.Type type) {
+        journalRecorder.bookingSaved(saved);
+        availabilityIndex.bookingSaved(saved);
+        occupancyCalendar.bookingSaved(saved);
+        bookingCache.invalidate(saved.getBookingId());
+        collectionRevisions.bookingsChanged();
+        mutationEvents.publish(type, Change.of(saved));
     }
 
     public boolean isBookingValid(Booking booking) {
-        return !hasBookingConflicts(booking) && !hasBlockConflicts(booking);
+        long started = validCheck.start();
+        if (availabilityIndex.isEnabled()) {
+            // The nested checks are part of this one, and not timed on their own.
+            return validCheck.stop(started, !bookingConflicts(booking) && !blockConflicts(booking));
+        }
+        return validCheck.stop(started, !occupancyRepository.existsOverlap(booking.getPropertyId(), booking.getDateFrom(), booking.getDateTo(), booking.getBookingId()));
     }
 
     public boolean hasBookingConflicts(Booking booking) {
-        return bookingRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(booking.getDateFrom(), booking.getDateTo(), BOOKED)
-                || bookingRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqualAndState(booking.getDateFrom(), booking.getDateTo(), BOOKED)
-                || bookingRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(booking.getDateTo(), booking.getDateTo(), BOOKED)
-                || bookingRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(booking.getDateFrom(), booking.getDateFrom(), BOOKED);
+        long started = bookingConflictsCheck.start();
+        return bookingConflictsCheck.stop(started, bookingConflicts(booking));
     }
 
     public boolean hasBlockConflicts(Booking booking) {
-        return blockRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqual(booking.getDateFrom(), booking.getDateTo())
-                || blockRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqual(booking.getDateFrom(), booking.getDateTo())
-                || blockRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqual(booking.getDateTo(), booking.getDateTo())
-                || blockRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqual(booking.getDateFrom(), booking.getDateFrom());
+        long started = blockConflictsCheck.start();
+        return blockConflictsCheck.stop(started, blockConflicts(booking));
+    }
+
+    private boolean bookingConflicts(Booking booking) {
+        if (availabilityIndex.isEnabled()) {
+            return availabilityIndex.hasBookingOverlap(booking.getPropertyId(), booking.getDateFrom(), booking.getDateTo(), booking.getBookingId());
+        }
+        return occupancyRepository.existsBookedOverlap(booking.getPropertyId(), booking.getDateFrom(), booking.getDateTo(), booking.getBookingId());
+    }
+
+    private boolean blockConflicts(Booking booking) {
+        if (availabilityIndex.isEnabled()) {
+            return availabilityIndex.hasBlockOverlap(booking.getPropertyId(), booking.getDateFrom(), booking.getDateTo(), null);
+        }
+        return occupancyRepository.existsBlockOverlap(booking.getPropertyId(), booking.getDateFrom(), booking.getDateTo());
     }
 }
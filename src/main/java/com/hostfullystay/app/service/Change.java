@@ -0,0 +1,47 @@
+package com.hostfullystay.app.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.EntityKind;
+import com.hostfullystay.app.domain.Tombstone;
+
+/**
+ * One entry of the change feed: the current state of a written booking or block, or the tombstone of a deleted one.
+ *
+ * @param revision   The revision of the write or deletion.
+ * @param kind       Whether the entity is a booking or a block.
+ * @param id         The id of the entity.
+ * @param propertyId The property of the entity.
+ * @param deleted    Whether the entity was deleted.
+ * @param booking    The written booking.
+ * @param block      The written block.
+ * @author Sakthidharan Ashwin
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record Change(
+        long revision,
+        EntityKind kind,
+        Long id,
+        Long propertyId,
+        boolean deleted,
+        Booking booking,
+        Block block
+) {
+
+    static Change of(Booking booking) {
+        return new Change(booking.getRevision(), EntityKind.BOOKING, booking.getBookingId(), booking.getPropertyId(), false, booking, null);
+    }
+
+    static Change of(Block block) {
+        return new Change(block.getRevision(), EntityKind.BLOCK, block.getBlockId(), block.getPropertyId(), false, null, block);
+    }
+
+    static Change of(Tombstone tombstone) {
+        return deleted(tombstone.getRevision(), tombstone.getKind(), tombstone.getEntityId(), tombstone.getPropertyId());
+    }
+
+    static Change deleted(long revision, EntityKind kind, Long id, Long propertyId) {
+        return new Change(revision, kind, id, propertyId, true, null, null);
+    }
+}
@@ -0,0 +1,14 @@
+package com.hostfullystay.app.service;
+
+import java.util.List;
+
+/**
+ * One page of the change feed.
+ *
+ * @param changes The changes after the requested revision, oldest first.
+ * @param next    The revision to continue from; always present, so a client that is up to date can poll with it.
+ * @param more    Whether further changes are already available after {@code next}.
+ * @author Sakthidharan Ashwin
+ */
+public record ChangeFeed(List<Change> changes, long next, boolean more) {
+}
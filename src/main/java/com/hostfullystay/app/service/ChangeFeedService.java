@@ -0,0 +1,68 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.repository.BookingRepository;
+import com.hostfullystay.app.repository.TombstoneRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Service class for reading the changes to bookings and blocks after a revision, for clients that keep a copy
+ * in sync. Each page reads at most one page of rows from the revision indexes of the booking, block and tombstone
+ * tables, so the cost of a sync follows the number of changes and not the size of the tables.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Service
+@Transactional(readOnly = true)
+public class ChangeFeedService {
+
+    private final BookingRepository bookingRepository;
+    private final BlockRepository blockRepository;
+    private final TombstoneRepository tombstoneRepository;
+    private final ChangeLog changeLog;
+
+    public ChangeFeedService(
+            BookingRepository bookingRepository,
+            BlockRepository blockRepository,
+            TombstoneRepository tombstoneRepository,
+            ChangeLog changeLog
+    ) {
+        this.bookingRepository = bookingRepository;
+        this.blockRepository = blockRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * Returns the changes with a revision after {@code since}, oldest first. An entity written several times
+     * appears once, under its last revision.
+     *
+     * @param since The last revision the client has seen, {@code 0} for a full sync.
+     * @param size  The page size.
+     * @return The page, with the revision to continue from.
+     */
+    public ChangeFeed changesSince(long since, int size) {
+        // Revisions from the watermark on may still be rolled back or committed out of order.
+        long watermark = changeLog.watermark();
+        Pageable page = PageRequest.of(0, size + 1);
+        List<Change> changes = new ArrayList<>();
+        bookingRepository.findChanged(since, watermark, page).forEach(booking -> changes.add(Change.of(booking)));
+        blockRepository.findChanged(since, watermark, page).forEach(block -> changes.add(Change.of(block)));
+        tombstoneRepository.findChanged(since, watermark, page).forEach(tombstone -> changes.add(Change.of(tombstone)));
+        changes.sort(Comparator.comparingLong(Change::revision));
+
+        if (changes.size() > size) {
+            List<Change> content = List.copyOf(changes.subList(0, size));
+            return new ChangeFeed(content, content.get(size - 1).revision(), true);
+        }
+        // Everything below the watermark has been read, so the gaps up to it can be skipped.
+        return new ChangeFeed(changes, Math.max(since, watermark - 1), false);
+    }
+}
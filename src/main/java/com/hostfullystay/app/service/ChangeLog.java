@@ -0,0 +1,94 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.domain.EntityKind;
+import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.repository.BookingRepository;
+import com.hostfullystay.app.repository.TombstoneRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.TreeSet;
+
+/**
+ * Hands out the revisions of the change feed: every write of a booking or block is stamped with the next
+ * revision, and every deletion leaves a tombstone under one.
+ * <p>
+ * Revisions are handed out in order, but transactions commit in any order, so a feed that returned every
+ * committed revision could move a client's cursor past a smaller one that commits later. The log therefore
+ * remembers the first revision of every open transaction, and {@link #watermark()} is the smallest of them:
+ * every revision below it has either committed or rolled back, so reads up to it are final. Like the other
+ * in-memory views, this assumes a single application instance writes the database.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Component
+public class ChangeLog {
+
+    private final BookingRepository bookingRepository;
+    private final BlockRepository blockRepository;
+    private final TombstoneRepository tombstoneRepository;
+
+    private long last;
+    private final TreeSet<Long> open = new TreeSet<>();
+
+    public ChangeLog(BookingRepository bookingRepository, BlockRepository blockRepository, TombstoneRepository tombstoneRepository) {
+        this.bookingRepository = bookingRepository;
+        this.blockRepository = blockRepository;
+        this.tombstoneRepository = tombstoneRepository;
+    }
+
+    /**
+     * Continues after the highest revision in the database.
+     */
+    @PostConstruct
+    public void load() {
+        // Queried outside the monitor, which is never held across a database call.
+        long highest = Math.max(bookingRepository.maxRevision(), Math.max(blockRepository.maxRevision(), tombstoneRepository.maxRevision()));
+        synchronized (this) {
+            last = highest;
+        }
+    }
+
+    /**
+     * Returns the next revision. Its transaction holds the watermark at or below its first revision until it completes.
+     */
+    public synchronized long stamp() {
+        long revision = ++last;
+        if (TransactionSynchronizationManager.isSynchronizationActive() && !TransactionSynchronizationManager.hasResource(this)) {
+            open.add(revision);
+            TransactionSynchronizationManager.bindResource(this, revision);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ChangeLog.this);
+                    completed(revision);
+                }
+            });
+        }
+        return revision;
+    }
+
+    /**
+     * Records the deletion of an entity under the next revision.
+     *
+     * @return The revision of the deletion.
+     */
+    public long deleted(EntityKind kind, Long id, Long propertyId) {
+        long revision = stamp();
+        tombstoneRepository.record(revision, kind.name(), id, propertyId);
+        return revision;
+    }
+
+    /**
+     * Returns the exclusive upper bound of the revisions that are final: no write below it is still in flight.
+     */
+    public synchronized long watermark() {
+        return open.isEmpty() ? last + 1 : open.first();
+    }
+
+    private synchronized void completed(long revision) {
+        open.remove(revision);
+    }
+}
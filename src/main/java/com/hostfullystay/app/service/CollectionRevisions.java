@@ -0,0 +1,48 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.availability.AfterCommit;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Revision counters of the booking and block collections, bumped by every committed write and used
+ * as the entity tags of the listings, so unchanged collections can be answered with 304 (Not Modified)
+ * without reading them.
+ * <p>
+ * A counter moves only once its write has committed, and callers read it before reading the data;
+ * a listing may then carry an older revision than its rows, which costs one extra full response,
+ * but never a newer one. Revisions carry the startup time of the process, so a tag handed out before
+ * a restart never matches one handed out after it.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Component
+public class CollectionRevisions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong bookings = new AtomicLong();
+    private final AtomicLong blocks = new AtomicLong();
+
+    public String bookings() {
+        return epoch + "-" + bookings.get();
+    }
+
+    public String blocks() {
+        return epoch + "-" + blocks.get();
+    }
+
+    /**
+     * Bumps the booking revision once the current transaction commits, or right away outside a transaction.
+     */
+    public void bookingsChanged() {
+        AfterCommit.run(bookings::incrementAndGet);
+    }
+
+    /**
+     * Bumps the block revision once the current transaction commits, or right away outside a transaction.
+     */
+    public void blocksChanged() {
+        AfterCommit.run(blocks::incrementAndGet);
+    }
+}
@@ -0,0 +1,95 @@
+package com.hostfullystay.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.hostfullystay.app.availability.AfterCommit;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Size-bounded read cache of entities by id, in front of the single-entity lookups.
+ * <p>
+ * Eviction follows W-TinyLFU, so a burst of one-off reads does not flush the hot reservations, and
+ * entries expire a fixed time after they were loaded. A miss loads the entity while holding its key,
+ * so an invalidation issued meanwhile waits for the load and then drops what it read. Writes invalidate
+ * their id once their transaction commits, which leaves no window where a reader can cache the old row
+ * after the new one is visible. Absent ids are not cached.
+ * <p>
+ * Cached entities are shared between readers and must not be modified.
+ *
+ * @param <V> The entity type.
+ * @author Sakthidharan Ashwin
+ */
+public class EntityCache<V> {
+
+    private final String name;
+    private final Cache<Long, V> cache;
+
+    public EntityCache(String name, long maximumSize, Duration ttl) {
+        this(name, maximumSize, ttl, Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    EntityCache(String name, long maximumSize, Duration ttl, Ticker ticker, Executor executor) {
+        this.name = name;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .executor(executor)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached entity, loading and caching it on a miss.
+     *
+     * @param id     The id of the entity.
+     * @param loader Loads the entity from the database.
+     * @return The entity, or empty if it does not exist.
+     */
+    public Optional<V> get(Long id, Function<Long, Optional<V>> loader) {
+        if (id == null) {
+            return loader.apply(null);
+        }
+        return Optional.ofNullable(cache.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Drops the entity once the current transaction commits, or right away outside a transaction.
+     *
+     * @param id The id of the written entity.
+     */
+    public void invalidate(Long id) {
+        if (id != null) {
+            AfterCommit.run(() -> cache.invalidate(id));
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Stats stats() {
+        CacheStats stats = cache.stats();
+        return new Stats(name, cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
+    }
+
+    /**
+     * Counters of a cache since startup.
+     *
+     * @param name          The name of the cache.
+     * @param size          The approximate number of cached entities.
+     * @param hitCount      The lookups answered from the cache.
+     * @param missCount     The lookups that went to the database.
+     * @param hitRate       The share of lookups answered from the cache, {@code 1.0} before the first one.
+     * @param evictionCount The entities dropped to respect the size bound or the TTL.
+     */
+    public record Stats(String name, long size, long hitCount, long missCount, double hitRate, long evictionCount) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Declares the read caches of bookings and blocks, sized and timed by the {@code hostfully.cache.*} properties.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Configuration
+public class EntityCacheConfiguration {
+
+    @Bean
+    public EntityCache<Booking> bookingCache(
+            @Value("${hostfully.cache.maximum-size:10000}") long maximumSize,
+            @Value("${hostfully.cache.ttl:10m}") Duration ttl
+    ) {
+        return new EntityCache<>("bookings", maximumSize, ttl);
+    }
+
+    @Bean
+    public EntityCache<Block> blockCache(
+            @Value("${hostfully.cache.maximum-size:10000}") long maximumSize,
+            @Value("${hostfully.cache.ttl:10m}") Duration ttl
+    ) {
+        return new EntityCache<>("blocks", maximumSize, ttl);
+    }
+}
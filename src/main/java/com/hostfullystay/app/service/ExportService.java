@@ -0,0 +1,91 @@
+package com.hostfullystay.app.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.repository.BookingRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Service class for exporting every booking and block as newline-delimited JSON.
+ * <p>
+ * Rows are streamed from the database with a JDBC fetch size and every entity is detached once it is
+ * written, so the persistence context, and with it the heap, stays flat whatever the size of the table.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Service
+@Transactional(readOnly = true)
+public class ExportService {
+
+    private final BookingRepository bookingRepository;
+    private final BlockRepository blockRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter writer;
+
+    public ExportService(
+            BookingRepository bookingRepository,
+            BlockRepository blockRepository,
+            EntityManager entityManager,
+            ObjectMapper objectMapper
+    ) {
+        this.bookingRepository = bookingRepository;
+        this.blockRepository = blockRepository;
+        this.entityManager = entityManager;
+        // Flushing after every row would turn each line into its own network write.
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Writes every booking, in id order, as one JSON object per line.
+     *
+     * @param out The stream to write to; it is flushed but not closed.
+     * @return The number of bookings written.
+     * @throws IOException If writing to the stream fails.
+     */
+    public long exportBookings(OutputStream out) throws IOException {
+        try (Stream<Booking> bookings = bookingRepository.streamAll()) {
+            return write(bookings, out);
+        }
+    }
+
+    /**
+     * Writes every block, in id order, as one JSON object per line.
+     *
+     * @param out The stream to write to; it is flushed but not closed.
+     * @return The number of blocks written.
+     * @throws IOException If writing to the stream fails.
+     */
+    public long exportBlocks(OutputStream out) throws IOException {
+        try (Stream<Block> blocks = blockRepository.streamAll()) {
+            return write(blocks, out);
+        }
+    }
+
+    private long write(Stream<?> rows, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = writer.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Iterator<?> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object row = iterator.next();
+                writer.writeValue(generator, row);
+                generator.writeRaw('\n');
+                entityManager.detach(row);
+                count++;
+            }
+        }
+        return count;
+    }
+}
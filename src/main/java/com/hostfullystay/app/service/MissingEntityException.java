@@ -0,0 +1,30 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.domain.EntityKind;
+
+import java.util.Locale;
+
+/**
+ * Thrown when an update names a booking or block that does not exist, so there is nothing to apply it to.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public class MissingEntityException extends RuntimeException {
+
+    private final EntityKind kind;
+    private final Long id;
+
+    public MissingEntityException(EntityKind kind, Long id) {
+        super("No " + kind.name().toLowerCase(Locale.ROOT) + " with id " + id);
+        this.kind = kind;
+        this.id = id;
+    }
+
+    public EntityKind getKind() {
+        return kind;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
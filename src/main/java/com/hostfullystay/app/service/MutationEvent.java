@@ -0,0 +1,18 @@
+package com.hostfullystay.app.service;
+
+/**
+ * A committed write of a booking or block, as pushed to the event stream subscribers.
+ *
+ * @param type   What the write did to the entity.
+ * @param change The entity as written, or its tombstone, under the revision of the write.
+ * @author Sakthidharan Ashwin
+ */
+public record MutationEvent(Type type, Change change) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        CANCELED,
+        DELETED,
+    }
+}
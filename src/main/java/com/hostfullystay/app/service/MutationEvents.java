@@ -0,0 +1,257 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.availability.AfterCommit;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans the committed writes of bookings and blocks out to the event stream subscribers.
+ * <p>
+ * Events are handed over once their transaction commits, so subscribers never see a write that is rolled back.
+ * The writer only offers the event to a bounded buffer per subscriber and returns; a small shared pool drains
+ * the buffers into the subscribers, so no subscriber holds a thread while it waits for events. A subscriber
+ * whose buffer fills up is too slow to keep up and is dropped: its stream is closed, and it catches up with
+ * the change feed from the revision of the last event it received.
+ * <p>
+ * Sending blocks while a subscriber's connection is full, so a send that has not returned within the send timeout
+ * marks its subscriber as stalled. The next event offered to it drops it, and the pool starts a thread in place of
+ * the one stuck in the send, so a few stalled subscribers cannot take the pool from the others. The stream of a
+ * dropped subscriber is closed by the thread sending to it, once its send returns, since closing it from any other
+ * thread would wait for that send.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Component
+public class MutationEvents {
+
+    /**
+     * {@link Subscription#sendingSince} of a subscriber not sending.
+     */
+    private static final long IDLE = Long.MIN_VALUE;
+
+    /**
+     * {@link Subscription#sendingSince} of a subscriber dropped while stalled, whose thread was replaced.
+     */
+    private static final long REPLACED = Long.MIN_VALUE + 1;
+
+    private final int bufferSize;
+    private final Executor executor;
+    private final long sendTimeoutNanos;
+    private final int poolSize;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private int stalledThreads;
+
+    @Autowired
+    public MutationEvents(
+            @Value("${hostfully.events.buffer-size:256}") int bufferSize,
+            @Value("${hostfully.events.threads:4}") int threads,
+            @Value("${hostfully.events.send-timeout:5s}") Duration sendTimeout
+    ) {
+        this(bufferSize, new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "mutation-events");
+            thread.setDaemon(true);
+            return thread;
+        }), sendTimeout);
+    }
+
+    MutationEvents(int bufferSize, Executor executor) {
+        this(bufferSize, executor, Duration.ofSeconds(5));
+    }
+
+    MutationEvents(int bufferSize, Executor executor, Duration sendTimeout) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("The event buffer must hold at least one event");
+        }
+        this.bufferSize = bufferSize;
+        this.executor = executor;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.poolSize = executor instanceof ThreadPoolExecutor pool ? pool.getCorePoolSize() : 0;
+    }
+
+    /**
+     * Registers a subscriber.
+     *
+     * @param propertyId Only events of this property, or {@code null} for all of them.
+     * @param sink       Receives the events, one at a time, in the order they were published.
+     * @return The subscription, to cancel when the subscriber goes away.
+     */
+    public Subscription subscribe(Long propertyId, Sink sink) {
+        Subscription subscription = new Subscription(propertyId, sink);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Publishes the event once the current transaction commits, or right away outside a transaction.
+     */
+    public void publish(MutationEvent.Type type, Change change) {
+        MutationEvent event = new MutationEvent(type, change);
+        AfterCommit.run(() -> {
+            for (Subscription subscription : subscriptions) {
+                subscription.offer(event);
+            }
+        });
+    }
+
+    public int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Grows the pool by a thread for every send stuck past the timeout, and shrinks it back as they return.
+     */
+    private synchronized void replaceStalledThreads(int delta) {
+        if (!(executor instanceof ThreadPoolExecutor pool)) {
+            return;
+        }
+        stalledThreads += delta;
+        int size = poolSize + stalledThreads;
+        // The maximum size may never fall below the core size.
+        if (delta > 0) {
+            pool.setMaximumPoolSize(size);
+            pool.setCorePoolSize(size);
+        } else {
+            pool.setCorePoolSize(size);
+            pool.setMaximumPoolSize(size);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        subscriptions.forEach(Subscription::cancel);
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Receiver of the events of one subscriber.
+     */
+    public interface Sink {
+
+        void send(MutationEvent event) throws IOException;
+
+        /**
+         * Ends the stream after the subscriber was dropped.
+         */
+        void close();
+    }
+
+    /**
+     * One subscriber, with its buffer of events not yet sent. At most one pool thread drains it at a time.
+     */
+    public final class Subscription {
+
+        private final Long propertyId;
+        private final Sink sink;
+        private final Queue<MutationEvent> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean dropped = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        /**
+         * When the send in progress started, or {@link #IDLE}, or {@link #REPLACED}.
+         */
+        private final AtomicLong sendingSince = new AtomicLong(IDLE);
+        private volatile boolean cancelled;
+
+        private Subscription(Long propertyId, Sink sink) {
+            this.propertyId = propertyId;
+            this.sink = sink;
+        }
+
+        /**
+         * Stops the events, after the subscriber disconnected or its stream failed.
+         */
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            buffer.clear();
+        }
+
+        private void offer(MutationEvent event) {
+            if (cancelled || (propertyId != null && !propertyId.equals(event.change().propertyId()))) {
+                return;
+            }
+            if (isStalled(sendingSince.get()) || !buffer.offer(event)) {
+                drop();
+                return;
+            }
+            schedule();
+        }
+
+        private boolean isStalled(long since) {
+            return since != IDLE && since != REPLACED && System.nanoTime() - since > sendTimeoutNanos;
+        }
+
+        private void drop() {
+            if (dropped.compareAndSet(false, true)) {
+                cancel();
+                long since = sendingSince.get();
+                if (isStalled(since) && sendingSince.compareAndSet(since, REPLACED)) {
+                    replaceStalledThreads(1);
+                }
+                // A drain in progress closes the stream once its send returns.
+                if (draining.compareAndSet(false, true)) {
+                    executor.execute(this::closeSink);
+                }
+            }
+        }
+
+        private void closeSink() {
+            if (closed.compareAndSet(false, true)) {
+                sink.close();
+            }
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                // Bounded, so one busy subscriber cannot keep a pool thread to itself.
+                for (int i = 0; i < bufferSize && !cancelled; i++) {
+                    MutationEvent event = buffer.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    sendingSince.set(System.nanoTime());
+                    try {
+                        sink.send(event);
+                    } finally {
+                        if (sendingSince.getAndSet(IDLE) == REPLACED) {
+                            replaceStalledThreads(-1);
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                cancel();
+            } finally {
+                draining.set(false);
+            }
+            if (dropped.get()) {
+                closeSink();
+            } else if (!cancelled && !buffer.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.journal.JournalRecorder;
+import com.hostfullystay.app.repository.PropertyRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service class for handling business logic related to Property entities.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Service
+@Transactional
+public class PropertyService {
+
+    private final PropertyRepository propertyRepository;
+    private final JournalRecorder journalRecorder;
+
+    public PropertyService(PropertyRepository propertyRepository, JournalRecorder journalRecorder) {
+        this.propertyRepository = propertyRepository;
+        this.journalRecorder = journalRecorder;
+    }
+
+    public Property save(Property property) {
+        Property saved = propertyRepository.save(property);
+        journalRecorder.propertySaved(saved);
+        return saved;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Property> findAll() {
+        return propertyRepository.findAll();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Property> findOne(Long id) {
+        return propertyRepository.findById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public boolean exists(Long id) {
+        return id != null && propertyRepository.existsById(id);
+    }
+}
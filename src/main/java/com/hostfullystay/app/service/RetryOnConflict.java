@@ -0,0 +1,36 @@
+package com.hostfullystay.app.service;
+
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Reruns a transactional service method when its commit loses an optimistic locking race,
+ * with a bounded number of attempts and a jittered exponential backoff between them.
+ * The retry advice wraps the transaction, so every attempt reloads the entity and starts afresh.
+ * <p>
+ * A {@link StaleVersionException} is never retried: the client asked for a version that is gone.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Retryable(
+        retryFor = ObjectOptimisticLockingFailureException.class,
+        maxAttemptsExpression = "${hostfully.retry.max-attempts:3}",
+        backoff = @Backoff(
+                delayExpression = "${hostfully.retry.delay:10}",
+                maxDelayExpression = "${hostfully.retry.max-delay:200}",
+                multiplier = 2,
+                random = true
+        )
+)
+public @interface RetryOnConflict {
+}
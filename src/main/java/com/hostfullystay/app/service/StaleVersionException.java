@@ -0,0 +1,27 @@
+package com.hostfullystay.app.service;
+
+/**
+ * Thrown when a conditional update names a version that is no longer the current one,
+ * meaning the client based its change on a stale copy of the entity.
+ *
+ * @author Sakthidharan Ashwin
+ */
+public class StaleVersionException extends RuntimeException {
+
+    private final Long expectedVersion;
+    private final Long currentVersion;
+
+    public StaleVersionException(Long expectedVersion, Long currentVersion) {
+        super("Expected version " + expectedVersion + " but the current version is " + currentVersion);
+        this.expectedVersion = expectedVersion;
+        this.currentVersion = currentVersion;
+    }
+
+    public Long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public Long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,381 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.availability.AfterCommit;
+import com.hostfullystay.app.availability.DateRangeLocks;
+import com.hostfullystay.app.availability.NightLedger;
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.EntityKind;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.hostfullystay.app.domain.Booking.State.BOOKED;
+
+/**
+ * Commits concurrent creates of bookings and blocks in groups, when {@code hostfully.writes.batch.enabled} is set.
+ * <p>
+ * A single committer thread takes the first waiting write, collects those arriving within the window after it, up to
+ * the maximum batch size, and commits them in one transaction: the ranges of the whole batch are locked together,
+ * each write is checked in arrival order against the calendar and against the writes of the batch accepted before it,
+ * and the accepted ones are inserted as JDBC batches. The outcome is the one the writes would have had if they were
+ * saved one after the other in that order; each caller's future completes with its own write, or {@code null} if its
+ * range was taken, once the batch has committed. Should the batch fail as a whole, its writes are saved one by one,
+ * so a write only fails for a reason of its own.
+ * <p>
+ * The entities the callers hand in are left untouched: every attempt saves a fresh copy of them, so a write retried
+ * after a failed batch is inserted anew rather than carrying the id, version and revision of the rolled back one.
+ * The writes of a batch are counted in the availability metrics once it has committed.
+ * <p>
+ * The night ledger claims the nights of each write as it is saved, so with the {@code nights} strategy writes are
+ * always saved one by one.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Component
+public class WritePipeline {
+
+    private final BookingService bookingService;
+    private final BlockService blockService;
+    private final DateRangeLocks dateRangeLocks;
+    private final AvailabilityMetrics availabilityMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxSize;
+
+    private final BlockingQueue<Write<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread committer = new Thread(this::run, "write-pipeline");
+    private volatile boolean running;
+
+    public WritePipeline(
+            BookingService bookingService,
+            BlockService blockService,
+            DateRangeLocks dateRangeLocks,
+            NightLedger nightLedger,
+            AvailabilityMetrics availabilityMetrics,
+            TransactionTemplate transactionTemplate,
+            @Value("${hostfully.writes.batch.enabled:false}") boolean enabled,
+            @Value("${hostfully.writes.batch.window:300us}") Duration window,
+            @Value("${hostfully.writes.batch.max-size:128}") int maxSize
+    ) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("A batch must hold at least one write");
+        }
+        this.bookingService = bookingService;
+        this.blockService = blockService;
+        this.dateRangeLocks = dateRangeLocks;
+        this.availabilityMetrics = availabilityMetrics;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled && !nightLedger.isEnabled();
+        this.windowNanos = window.toNanos();
+        this.maxSize = maxSize;
+        committer.setDaemon(true);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            running = true;
+            committer.start();
+        }
+    }
+
+    /**
+     * Stops taking writes, and waits for the batch being committed.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (running) {
+            running = false;
+            committer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Creates a booking as {@link BookingService#save} does, in the next batch.
+     *
+     * @return The saved booking, or {@code null} if its range is taken, once it has committed.
+     */
+    public CompletableFuture<Booking> submit(Booking booking) {
+        if (!enabled) {
+            return now(() -> bookingService.save(booking));
+        }
+        return enqueue(new Write<>(booking, booking.getPropertyId(), booking.getDateFrom(), booking.getDateTo()));
+    }
+
+    /**
+     * Creates a block as {@link BlockService#save} does, in the next batch.
+     *
+     * @return The saved block, or {@code null} if its range is taken, once it has committed.
+     */
+    public CompletableFuture<Block> submit(Block block) {
+        if (!enabled) {
+            return now(() -> blockService.save(block));
+        }
+        return enqueue(new Write<>(block, block.getPropertyId(), block.getDateFrom(), block.getDateTo()));
+    }
+
+    /**
+     * Creates a booking in the next batch and waits until it has committed.
+     *
+     * @return The saved booking, or {@code null} if its range is taken.
+     */
+    public Booking save(Booking booking) {
+        return enabled ? await(submit(booking)) : bookingService.save(booking);
+    }
+
+    /**
+     * Creates a block in the next batch and waits until it has committed.
+     *
+     * @return The saved block, or {@code null} if its range is taken.
+     */
+    public Block save(Block block) {
+        return enabled ? await(submit(block)) : blockService.save(block);
+    }
+
+    private <T> CompletableFuture<T> enqueue(Write<T> write) {
+        queue.add(write);
+        // A write queued while the committer stopped would never be taken.
+        if (!running && queue.remove(write)) {
+            write.result().completeExceptionally(new IllegalStateException("The write pipeline is stopped"));
+        }
+        return write.result();
+    }
+
+    private void run() {
+        List<Write<?>> batch = new ArrayList<>(maxSize);
+        while (running) {
+            try {
+                // Polled, so that a stop is noticed without interrupting a batch in the middle of its transaction.
+                Write<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxSize) {
+                    queue.drainTo(batch, maxSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxSize || remaining <= 0) {
+                        break;
+                    }
+                    Write<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+        for (Write<?> write = queue.poll(); write != null; write = queue.poll()) {
+            write.result().completeExceptionally(new IllegalStateException("The write pipeline is stopped"));
+        }
+    }
+
+    /**
+     * Commits a batch, or saves its writes one by one if the batch fails before it commits.
+     */
+    private void commit(List<Write<?>> batch) {
+        Object[] outcomes = new Object[batch.size()];
+        boolean[] committed = {false};
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Registered first, so it runs before the other callbacks of the commit, which may still fail.
+                AfterCommit.run(() -> committed[0] = true);
+                saveTogether(batch, outcomes);
+            });
+        } catch (RuntimeException e) {
+            if (!committed[0]) {
+                saveOneByOne(batch);
+                return;
+            }
+            count(batch, outcomes);
+            // The batch committed, but what runs after the commit failed, as it would have for the writes on their own.
+            for (int i = 0; i < batch.size(); i++) {
+                if (outcomes[i] != null) {
+                    batch.get(i).result().completeExceptionally(e);
+                } else {
+                    batch.get(i).complete(null);
+                }
+            }
+            return;
+        }
+        count(batch, outcomes);
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).complete(outcomes[i]);
+        }
+    }
+
+    /**
+     * Counts the writes of a committed batch as accepted, or rejected if their range was taken.
+     */
+    private void count(List<Write<?>> batch, Object[] outcomes) {
+        for (int i = 0; i < batch.size(); i++) {
+            EntityKind kind = batch.get(i).entity() instanceof Booking ? EntityKind.BOOKING : EntityKind.BLOCK;
+            if (outcomes[i] != null) {
+                availabilityMetrics.accepted(kind);
+            } else {
+                availabilityMetrics.rejected(kind);
+            }
+        }
+    }
+
+    /**
+     * Locks, checks and saves the writes of a batch in the current transaction.
+     *
+     * @param outcomes Receives the saved entity of each write, or {@code null} for those whose range is taken.
+     */
+    private void saveTogether(List<Write<?>> batch, Object[] outcomes) {
+        List<DateRangeLocks.Span> spans = new ArrayList<>(batch.size());
+        for (Write<?> write : batch) {
+            spans.add(new DateRangeLocks.Span(write.propertyId(), write.dateFrom(), write.dateTo()));
+        }
+        dateRangeLocks.lockUntilCompletion(spans);
+
+        Map<Long, List<Write<?>>> booked = new HashMap<>();
+        Map<Long, List<Write<?>>> blocked = new HashMap<>();
+        List<Booking> bookings = new ArrayList<>();
+        List<Integer> bookingIndexes = new ArrayList<>();
+        List<Block> blocks = new ArrayList<>();
+        List<Integer> blockIndexes = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Write<?> write = batch.get(i);
+            if (write.entity() instanceof Booking submitted) {
+                Booking booking = copyOf(submitted);
+                if (booking.getState() == null) {
+                    booking.setState(BOOKED);
+                }
+                if (overlapsAny(booked, write) || overlapsAny(blocked, write) || !bookingService.isBookingValid(booking)) {
+                    continue;
+                }
+                if (BOOKED.equals(booking.getState())) {
+                    booked.computeIfAbsent(write.propertyId(), key -> new ArrayList<>()).add(write);
+                }
+                bookings.add(booking);
+                bookingIndexes.add(i);
+            } else if (write.entity() instanceof Block submitted) {
+                Block block = copyOf(submitted);
+                // Blocks only conflict with bookings, never with other blocks.
+                if (overlapsAny(booked, write) || !blockService.isBlockValid(block)) {
+                    continue;
+                }
+                blocked.computeIfAbsent(write.propertyId(), key -> new ArrayList<>()).add(write);
+                blocks.add(block);
+                blockIndexes.add(i);
+            }
+        }
+
+        List<Booking> savedBookings = bookingService.saveValidated(bookings);
+        for (int k = 0; k < savedBookings.size(); k++) {
+            outcomes[bookingIndexes.get(k)] = savedBookings.get(k);
+        }
+        List<Block> savedBlocks = blockService.saveValidated(blocks);
+        for (int k = 0; k < savedBlocks.size(); k++) {
+            outcomes[blockIndexes.get(k)] = savedBlocks.get(k);
+        }
+    }
+
+    private void saveOneByOne(List<Write<?>> batch) {
+        for (Write<?> write : batch) {
+            try {
+                write.complete(write.entity() instanceof Booking booking ? bookingService.save(copyOf(booking)) : blockService.save(copyOf((Block) write.entity())));
+            } catch (RuntimeException e) {
+                write.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    private static boolean overlapsAny(Map<Long, List<Write<?>>> taken, Write<?> write) {
+        for (Write<?> other : taken.getOrDefault(write.propertyId(), List.of())) {
+            if (!other.dateTo().isBefore(write.dateFrom()) && !write.dateTo().isBefore(other.dateFrom())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies what a caller may set on a new booking, leaving the id, version and revision to the save.
+     */
+    private static Booking copyOf(Booking submitted) {
+        Booking booking = new Booking();
+        booking.setPropertyId(submitted.getPropertyId());
+        booking.setDateFrom(submitted.getDateFrom());
+        booking.setDateTo(submitted.getDateTo());
+        booking.setGuestName(submitted.getGuestName());
+        booking.setState(submitted.getState());
+        return booking;
+    }
+
+    /**
+     * Copies what a caller may set on a new block, leaving the id, version and revision to the save.
+     */
+    private static Block copyOf(Block submitted) {
+        Block block = new Block();
+        block.setPropertyId(submitted.getPropertyId());
+        block.setDateFrom(submitted.getDateFrom());
+        block.setDateTo(submitted.getDateTo());
+        block.setManager(submitted.getManager());
+        return block;
+    }
+
+    private static <T> CompletableFuture<T> now(Supplier<T> save) {
+        try {
+            return CompletableFuture.completedFuture(save.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A write waiting for its batch, with the range it takes. The entity is the caller's, and is never saved itself.
+     */
+    private record Write<T>(T entity, long propertyId, LocalDate dateFrom, LocalDate dateTo, CompletableFuture<T> result) {
+
+        Write(T entity, long propertyId, LocalDate dateFrom, LocalDate dateTo) {
+            this(entity, propertyId, dateFrom, dateTo, new CompletableFuture<>());
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Object outcome) {
+            result.complete((T) outcome);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.hostfullystay.app.service;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Adapts the connection handling to the {@link WritePipeline} when {@code hostfully.writes.batch.enabled} is set.
+ * <p>
+ * With open-in-view, a request keeps the connection of its first transaction until it ends. A create waiting for its
+ * batch would then hold a connection the whole time, and enough waiting creates would take every connection of the
+ * pool from the committer. Connections therefore go back to the pool at the end of each transaction.
+ *
+ * @author Sakthidharan Ashwin
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "hostfully.writes.batch.enabled", havingValue = "true")
+public class WritePipelineConfiguration {
+
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
@@ -0,0 +1,34 @@
+package com.hostfullystay.app;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes the results of a benchmark to {@code target/benchmarks/<name>.txt}, or the directory given with
+ * {@code -Dbenchmark.reports}, so runs can be compared without reading them out of the build log.
+ */
+public final class BenchmarkReport {
+
+    private BenchmarkReport() {
+    }
+
+    /**
+     * Replaces the report of the benchmark with the given lines.
+     *
+     * @return The report, one result per line, for the messages of the assertions.
+     */
+    public static String write(String name, List<String> lines) {
+        String report = String.join(System.lineSeparator(), lines);
+        Path directory = Path.of(System.getProperty("benchmark.reports", "target/benchmarks"));
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(directory.resolve(name + ".txt"), report + System.lineSeparator());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return report;
+    }
+}
@@ -0,0 +1,258 @@
+package com.hostfullystay.app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.repository.PropertyRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers the booking and block endpoints with concurrent creates, updates, cancellations and deletes, then
+ * checks that the calendar stayed consistent: no two BOOKED bookings of a property share a night, and no BOOKED
+ * booking shares a night with a block. Each run has an application of its own, on a random port and a fresh
+ * database, and reports its throughput, response codes and latency percentiles through {@link BenchmarkReport}.
+ * <p>
+ * A share of the new and moved ranges, the overlap rate, falls into a short window of each property that all
+ * clients compete for; the others fall into dates only one client uses and never conflict. Updates, cancellations
+ * and deletes pick any booking or block created so far, so clients also race on the same entities.
+ * <p>
+ * The default build runs a short load on the default strategy. The full load, on every strategy, is a benchmark
+ * run with {@code mvn -Pbenchmark test}, and is tuned with {@code -Dload.clients}, {@code -Dload.seconds},
+ * {@code -Dload.overlap-percent} and {@code -Dload.mix}, the weights of each operation, e.g.
+ * {@code create=40,block=10,update=20,cancel=15,delete=15}.
+ */
+class CalendarLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 16);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 3);
+    private static final int SHORT_CLIENTS = 8;
+    private static final int SHORT_SECONDS = 1;
+    private static final int OVERLAP_PERCENT = Integer.getInteger("load.overlap-percent", 50);
+    private static final Map<Operation, Integer> MIX = mix(System.getProperty("load.mix", "create=40,block=10,update=20,cancel=15,delete=15"));
+    private static final int PROPERTIES = 4;
+    private static final int CONTESTED_DAYS = 14;
+    private static final LocalDate BASE = LocalDate.now().plusYears(1).withDayOfYear(1);
+    /**
+     * Codes the API answers under contention: a range already taken (406), an entity deleted by another client
+     * (400 on update, 404 on patch), an update that kept losing the optimistic locking race (409).
+     */
+    private static final Set<Integer> EXPECTED = Set.of(200, 201, 204, 400, 404, 406, 409);
+
+    private enum Operation {
+        CREATE, BLOCK, UPDATE, CANCEL, DELETE
+    }
+
+    @Test
+    void testCalendarStaysConsistentUnderShortLoad() throws Exception {
+        run("bitmap", SHORT_CLIENTS, SHORT_SECONDS);
+    }
+
+    @Tag("benchmark")
+    @ParameterizedTest
+    @ValueSource(strings = {"database", "index", "bitmap", "nights"})
+    void testCalendarStaysConsistentUnderLoad(String strategy) throws Exception {
+        run(strategy, CLIENTS, SECONDS);
+    }
+
+    private static void run(String strategy, int clients, int seconds) throws Exception {
+        try (ConfigurableApplicationContext context = LoadHarness.start(new SpringApplicationBuilder(HostfullyApplication.class),
+                "--spring.datasource.url=jdbc:h2:mem:calendarload-" + strategy,
+                "--hostfully.availability.strategy=" + strategy
+        )) {
+            List<Long> properties = new ArrayList<>();
+            for (int p = 0; p < PROPERTIES; p++) {
+                Property property = new Property();
+                property.setName("property " + p);
+                properties.add(context.getBean(PropertyRepository.class).save(property).getPropertyId());
+            }
+            String baseUrl = LoadHarness.baseUrl(context);
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            Load load = new Load(client, baseUrl, properties, clients);
+            LoadHarness.Result report = LoadHarness.run(clients, seconds, load::send);
+            String summary = BenchmarkReport.write("calendar-load-" + strategy,
+                    List.of(String.format("%s, %d%% overlap: %s", strategy, OVERLAP_PERCENT, report)));
+
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+            List<Booking> bookings = Arrays.asList(objectMapper.readValue(get(client, baseUrl + "/bookings?unpaged=true"), Booking[].class));
+            List<Block> blocks = Arrays.asList(objectMapper.readValue(get(client, baseUrl + "/blocks?unpaged=true"), Block[].class));
+            List<String> violations = violations(bookings, blocks);
+
+            assertTrue(report.requests() > 0, "No request was sent");
+            assertEquals(Map.of(), report.unexpected(EXPECTED), "Unexpected response codes, " + summary);
+            assertEquals(List.of(), violations, "The calendar holds overlapping reservations, " + summary);
+        }
+    }
+
+    /**
+     * Lists the pairs of reservations sharing a night: two BOOKED bookings, or a BOOKED booking and a block.
+     */
+    private static List<String> violations(List<Booking> bookings, List<Block> blocks) {
+        List<String> violations = new ArrayList<>();
+        List<Booking> booked = bookings.stream().filter(booking -> Booking.State.BOOKED.equals(booking.getState())).toList();
+        for (int i = 0; i < booked.size(); i++) {
+            Booking booking = booked.get(i);
+            for (int j = i + 1; j < booked.size(); j++) {
+                Booking other = booked.get(j);
+                if (booking.getPropertyId().equals(other.getPropertyId()) && overlap(booking.getDateFrom(), booking.getDateTo(), other.getDateFrom(), other.getDateTo())) {
+                    violations.add("booking " + booking.getBookingId() + " overlaps booking " + other.getBookingId());
+                }
+            }
+            for (Block block : blocks) {
+                if (booking.getPropertyId().equals(block.getPropertyId()) && overlap(booking.getDateFrom(), booking.getDateTo(), block.getDateFrom(), block.getDateTo())) {
+                    violations.add("booking " + booking.getBookingId() + " overlaps block " + block.getBlockId());
+                }
+            }
+        }
+        return violations;
+    }
+
+    private static boolean overlap(LocalDate from, LocalDate to, LocalDate otherFrom, LocalDate otherTo) {
+        return !from.isAfter(otherTo) && !to.isBefore(otherFrom);
+    }
+
+    private static String get(HttpClient client, String url) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        return response.body();
+    }
+
+    private static Map<Operation, Integer> mix(String weights) {
+        Map<Operation, Integer> mix = new LinkedHashMap<>();
+        for (String weight : weights.split(",")) {
+            String[] pair = weight.trim().split("=");
+            mix.put(Operation.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+        }
+        return mix;
+    }
+
+    /**
+     * The clients of one run, with the ids they created so far, shared so that clients race on the same entities.
+     */
+    private static final class Load {
+
+        private final HttpClient client;
+        private final String baseUrl;
+        private final List<Long> properties;
+        private final int clientCount;
+        private final List<Long> bookingIds = Collections.synchronizedList(new ArrayList<>());
+        private final List<Long> blockIds = Collections.synchronizedList(new ArrayList<>());
+        private final int totalWeight = MIX.values().stream().mapToInt(Integer::intValue).sum();
+
+        private Load(HttpClient client, String baseUrl, List<Long> properties, int clientCount) {
+            this.client = client;
+            this.baseUrl = baseUrl;
+            this.properties = properties;
+            this.clientCount = clientCount;
+        }
+
+        private int send(int clientId, int sequence) throws Exception {
+            HttpRequest request = request(clientId, sequence);
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            record(request, response);
+            return response.statusCode();
+        }
+
+        private HttpRequest request(int clientId, int sequence) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long propertyId = properties.get(random.nextInt(properties.size()));
+            LocalDate from = random.nextInt(100) < OVERLAP_PERCENT
+                    ? BASE.plusDays(random.nextInt(CONTESTED_DAYS))
+                    // Past the contested window, in days no other client uses.
+                    : BASE.plusDays(CONTESTED_DAYS + 10L * (clientId + (long) clientCount * sequence));
+            LocalDate to = from.plusDays(random.nextInt(3));
+            Long bookingId = pick(bookingIds, random);
+            Long blockId = pick(blockIds, random);
+            switch (operation(random)) {
+                case UPDATE -> {
+                    if (bookingId != null) {
+                        return patch("/bookings/" + bookingId, "{\"bookingId\":" + bookingId + ",\"dateFrom\":\"" + from + "\",\"dateTo\":\"" + to + "\",\"state\":\"BOOKED\"}");
+                    }
+                }
+                case CANCEL -> {
+                    if (bookingId != null) {
+                        return patch("/bookings/" + bookingId, "{\"bookingId\":" + bookingId + ",\"state\":\"CANCELED\"}");
+                    }
+                }
+                case DELETE -> {
+                    if (random.nextBoolean() ? bookingId != null : blockId == null && bookingId != null) {
+                        return HttpRequest.newBuilder(URI.create(baseUrl + "/bookings/" + bookingId)).DELETE().build();
+                    }
+                    if (blockId != null) {
+                        return HttpRequest.newBuilder(URI.create(baseUrl + "/blocks/" + blockId)).DELETE().build();
+                    }
+                }
+                case BLOCK -> {
+                    return post("/blocks", "{\"propertyId\":" + propertyId + ",\"dateFrom\":\"" + from + "\",\"dateTo\":\"" + to + "\",\"manager\":\"load\"}");
+                }
+                default -> {
+                }
+            }
+            return post("/bookings", "{\"propertyId\":" + propertyId + ",\"dateFrom\":\"" + from + "\",\"dateTo\":\"" + to + "\",\"guestName\":\"load\"}");
+        }
+
+        private Operation operation(ThreadLocalRandom random) {
+            int pick = random.nextInt(totalWeight);
+            for (Map.Entry<Operation, Integer> entry : MIX.entrySet()) {
+                pick -= entry.getValue();
+                if (pick < 0) {
+                    return entry.getKey();
+                }
+            }
+            return Operation.CREATE;
+        }
+
+        /**
+         * Remembers the id of a created booking or block.
+         */
+        private void record(HttpRequest request, HttpResponse<String> response) {
+            if (response.statusCode() == 201) {
+                String location = response.headers().firstValue("Location").orElseThrow();
+                long id = Long.parseLong(location.substring(location.lastIndexOf('/') + 1));
+                (request.uri().getPath().endsWith("/blocks") ? blockIds : bookingIds).add(id);
+            }
+        }
+
+        private HttpRequest post(String path, String body) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+
+        private HttpRequest patch(String path, String body) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/merge-patch+json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+
+        private static Long pick(List<Long> ids, ThreadLocalRandom random) {
+            synchronized (ids) {
+                return ids.isEmpty() ? null : ids.get(random.nextInt(ids.size()));
+            }
+        }
+    }
+}
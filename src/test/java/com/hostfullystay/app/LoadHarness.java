@@ -0,0 +1,137 @@
+package com.hostfullystay.app;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Starts the applications of the load tests and benchmarks, and drives load against them: each client sends its next
+ * request as soon as the previous one is answered, until the time is up.
+ */
+public final class LoadHarness {
+
+    private LoadHarness() {
+    }
+
+    /**
+     * Sends one request of a client.
+     */
+    @FunctionalInterface
+    public interface Request {
+
+        /**
+         * @param client   The client sending it, from 0.
+         * @param sequence The number of requests the client sent before this one in the run.
+         * @return The status code of the response.
+         */
+        int send(int client, int sequence) throws Exception;
+    }
+
+    /**
+     * Starts the application on a random port, with the given properties in {@code --name=value} form.
+     */
+    public static ConfigurableApplicationContext start(SpringApplicationBuilder application, String... properties) {
+        List<String> args = new ArrayList<>(List.of("--server.port=0"));
+        args.addAll(List.of(properties));
+        // Passed as arguments, which take precedence over the application properties.
+        return application.run(args.toArray(String[]::new));
+    }
+
+    /**
+     * The URL the API of the started application is served under.
+     */
+    public static String baseUrl(ConfigurableApplicationContext context) {
+        return "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/v1/api";
+    }
+
+    /**
+     * Runs the clients for half the given time, then measures them for the whole of it.
+     */
+    public static Result warmUpAndRun(int clients, int seconds, Request request) throws Exception {
+        // Warm up first, so whatever is compared is measured on compiled code.
+        run(clients, Math.max(1, seconds / 2), request);
+        return run(clients, seconds, request);
+    }
+
+    /**
+     * Runs the clients for the given time.
+     */
+    public static Result run(int clients, int seconds, Request request) throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(clients);
+        Map<Integer, AtomicLong> codes = new ConcurrentHashMap<>();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                futures.add(threads.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long started = System.nanoTime();
+                        int status = request.send(client, count);
+                        long latency = System.nanoTime() - started;
+                        codes.computeIfAbsent(status, code -> new AtomicLong()).incrementAndGet();
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = latency;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+            List<long[]> all = new ArrayList<>();
+            for (Future<long[]> future : futures) {
+                all.add(future.get());
+            }
+            long[] latencies = all.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            Map<Integer, Long> counts = new TreeMap<>();
+            codes.forEach((code, count) -> counts.put(code, count.get()));
+            return new Result(clients, latencies.length, latencies.length / (double) seconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), counts);
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+    }
+
+    /**
+     * @param codes The number of responses with each status code.
+     */
+    public record Result(int clients, long requests, double throughput, double p50Millis, double p99Millis, Map<Integer, Long> codes) {
+
+        /**
+         * The number of responses with each status code outside the given ones.
+         */
+        public Map<Integer, Long> unexpected(Set<Integer> expected) {
+            return codes.entrySet().stream()
+                    .filter(entry -> !expected.contains(entry.getKey()))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d clients: %d requests, %.0f req/s, p50 %.2f ms, p99 %.2f ms, codes %s",
+                    clients, requests, throughput, p50Millis, p99Millis, codes);
+        }
+    }
+}
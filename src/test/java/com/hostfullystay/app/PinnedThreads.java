@@ -0,0 +1,60 @@
+package com.hostfullystay.app;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records with Flight Recorder the virtual threads that blocked while pinned to their carrier, the
+ * {@code jdk.VirtualThreadPinned} events of Java 21, counted by the first frame outside the JDK, where the code that
+ * blocked was.
+ */
+public final class PinnedThreads implements AutoCloseable {
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private final RecordingStream recording = new RecordingStream();
+    private final Map<String, Integer> frames = new ConcurrentHashMap<>();
+    private volatile CountDownLatch flushed = new CountDownLatch(1);
+
+    public PinnedThreads() {
+        recording.enable(EVENT).withStackTrace().withThreshold(Duration.ZERO);
+        recording.onEvent(EVENT, event -> frames.merge(frame(event), 1, Integer::sum));
+        recording.onFlush(() -> flushed.countDown());
+        recording.startAsync();
+    }
+
+    /**
+     * Returns the pinned threads recorded so far, once the events buffered until now are delivered.
+     */
+    public Map<String, Integer> frames() throws InterruptedException {
+        CountDownLatch next = new CountDownLatch(1);
+        flushed = next;
+        next.await(5, TimeUnit.SECONDS);
+        return new TreeMap<>(frames);
+    }
+
+    @Override
+    public void close() {
+        recording.close();
+    }
+
+    private static String frame(RecordedEvent event) {
+        List<RecordedFrame> stack = event.getStackTrace() != null ? event.getStackTrace().getFrames() : List.of();
+        for (RecordedFrame frame : stack) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName();
+            }
+        }
+        return "unknown";
+    }
+}
@@ -0,0 +1,64 @@
+package com.hostfullystay.app;
+
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.repository.PropertyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes a booking that is accepted and one that is rejected, then scrapes the Prometheus endpoint for the
+ * conflict check, repository and endpoint meters.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.datasource.url=jdbc:h2:mem:metricsdb")
+@AutoConfigureObservability(tracing = false)
+class PrometheusEndpointTest {
+
+    private static final LocalDate BASE = LocalDate.now().plusYears(6).withDayOfYear(1);
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Test
+    void testExposesConflictChecksWritesRepositoriesAndEndpoints() {
+        Property property = new Property();
+        property.setName("Beach house");
+        Long propertyId = propertyRepository.save(property).getPropertyId();
+        assertEquals(HttpStatus.CREATED, restTemplate.postForEntity("/v1/api/bookings", booking(propertyId), Booking.class).getStatusCode());
+        assertEquals(HttpStatus.NOT_ACCEPTABLE, restTemplate.postForEntity("/v1/api/bookings", booking(propertyId), String.class).getStatusCode());
+
+        ResponseEntity<String> scrape = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        assertEquals(HttpStatus.OK, scrape.getStatusCode());
+        assertTrue(MediaType.TEXT_PLAIN.isCompatibleWith(scrape.getHeaders().getContentType()));
+        String metrics = scrape.getBody();
+        assertTrue(metrics.contains("hostfully_availability_writes_total{entity=\"booking\",outcome=\"accepted\""), metrics);
+        assertTrue(metrics.contains("hostfully_availability_writes_total{entity=\"booking\",outcome=\"rejected\""), metrics);
+        assertTrue(metrics.contains("hostfully_availability_checks_seconds_bucket{check=\"isBookingValid\""), metrics);
+        assertTrue(metrics.contains("spring_data_repository_invocations_seconds_bucket{"), metrics);
+        assertTrue(metrics.contains("http_server_requests_seconds_bucket{"), metrics);
+        assertTrue(metrics.contains("uri=\"/v1/api/bookings\""), metrics);
+    }
+
+    private static Booking booking(Long propertyId) {
+        Booking booking = new Booking();
+        booking.setPropertyId(propertyId);
+        booking.setDateFrom(BASE);
+        booking.setDateTo(BASE.plusDays(2));
+        booking.setGuestName("guestName");
+        return booking;
+    }
+}
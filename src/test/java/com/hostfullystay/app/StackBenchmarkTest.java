@@ -0,0 +1,132 @@
+package com.hostfullystay.app;
+
+import com.hostfullystay.app.reactive.ReactiveConfiguration;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the servlet and the reactive stacks under many concurrent slow clients: each client uploads the body
+ * of its new bookings in two chunks with a pause in between, as a client on a poor mobile network would, and
+ * lists a property's bookings in between. The servlet stack holds a worker thread for the whole upload, the
+ * reactive stack only reacts to the chunks as they arrive. Each stack runs in an application of its own on a
+ * fresh database; the test reports the throughput and the p50 and p99 latencies of both through
+ * {@link BenchmarkReport}.
+ * <p>
+ * It is a benchmark, run with {@code mvn -Pbenchmark test}. The load is tuned with {@code -Dbenchmark.clients},
+ * {@code -Dbenchmark.seconds} and {@code -Dbenchmark.body-delay-millis}, the pause in the middle of each upload.
+ */
+@Tag("benchmark")
+class StackBenchmarkTest {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 64);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 5);
+    private static final int BODY_DELAY_MILLIS = Integer.getInteger("benchmark.body-delay-millis", 100);
+    private static final int PROPERTIES = 50;
+    private static final LocalDate BASE = LocalDate.now().plusYears(5).withDayOfYear(1);
+    private static final int WRITE_PERCENT = 50;
+    /**
+     * Codes of the traffic itself, including a new booking whose nights are already taken (406).
+     */
+    private static final Set<Integer> EXPECTED = Set.of(200, 201, 406);
+
+    @Test
+    void testCompareServletAndReactiveStacks() throws Exception {
+        Run servlet = run(false);
+        Run reactive = run(true);
+        String report = BenchmarkReport.write("stack", List.of(servlet.toString(), reactive.toString(),
+                String.format("reactive/servlet: throughput x%.2f, p50 x%.2f, p99 x%.2f", reactive.load().throughput() / servlet.load().throughput(),
+                        reactive.load().p50Millis() / servlet.load().p50Millis(), reactive.load().p99Millis() / servlet.load().p99Millis())));
+
+        assertEquals(Map.of(), servlet.load().unexpected(EXPECTED), "Requests failed on the servlet stack: " + report);
+        assertEquals(Map.of(), reactive.load().unexpected(EXPECTED), "Requests failed on the reactive stack: " + report);
+    }
+
+    private static Run run(boolean reactive) throws Exception {
+        String stack = reactive ? "reactive" : "servlet";
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(HostfullyApplication.class);
+        if (reactive) {
+            builder.profiles(ReactiveConfiguration.PROFILE);
+        }
+        ConnectionProvider connections = ConnectionProvider.builder("benchmark").maxConnections(CLIENTS).pendingAcquireMaxCount(-1).build();
+        try (ConfigurableApplicationContext context = LoadHarness.start(builder,
+                "--spring.datasource.url=jdbc:h2:mem:stack-" + stack + ";DB_CLOSE_DELAY=-1",
+                "--spring.r2dbc.url=r2dbc:h2:mem:///stack-" + stack + ";DB_CLOSE_DELAY=-1",
+                "--hostfully.availability.strategy=database"
+        )) {
+            WebClient client = WebClient.builder()
+                    .baseUrl(LoadHarness.baseUrl(context))
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                    .build();
+            List<Long> properties = seed(client);
+            return new Run(stack, LoadHarness.warmUpAndRun(CLIENTS, SECONDS, (c, sequence) -> send(client, properties)));
+        } finally {
+            connections.dispose();
+        }
+    }
+
+    private static List<Long> seed(WebClient client) {
+        List<Long> properties = new ArrayList<>();
+        for (int p = 0; p < PROPERTIES; p++) {
+            Map<?, ?> property = client.post().uri("/properties").contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(Map.of("name", "property " + p))
+                    .retrieve()
+                    .bodyToMono(Map.class)
+                    .block(Duration.ofSeconds(10));
+            properties.add(((Number) property.get("propertyId")).longValue());
+        }
+        return properties;
+    }
+
+    /**
+     * Sends a new booking, slowly, or lists the bookings of a property, and waits for the response.
+     */
+    private static int send(WebClient client, List<Long> properties) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long propertyId = properties.get(random.nextInt(properties.size()));
+        WebClient.RequestHeadersSpec<?> request;
+        if (random.nextInt(100) < WRITE_PERCENT) {
+            LocalDate from = BASE.plusDays(random.nextInt(3650));
+            String body = "{\"propertyId\":" + propertyId + ",\"dateFrom\":\"" + from + "\",\"dateTo\":\"" + from.plusDays(random.nextInt(3))
+                    + "\",\"guestName\":\"benchmark\"}";
+            int half = body.length() / 2;
+            Flux<DataBuffer> chunks = Flux.just(body.substring(0, half), body.substring(half))
+                    .delayElements(Duration.ofMillis(BODY_DELAY_MILLIS))
+                    .map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+            request = client.post().uri("/bookings").contentType(MediaType.APPLICATION_JSON).body(BodyInserters.fromDataBuffers(chunks));
+        } else {
+            request = client.get().uri("/bookings?propertyId={propertyId}&size=20", propertyId);
+        }
+        return request.exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .block(Duration.ofSeconds(60));
+    }
+
+    private record Run(String stack, LoadHarness.Result load) {
+
+        @Override
+        public String toString() {
+            return String.format("%-8s slow %s", stack, load);
+        }
+    }
+}
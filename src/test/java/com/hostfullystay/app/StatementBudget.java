@@ -0,0 +1,50 @@
+package com.hostfullystay.app;
+
+import com.hostfullystay.app.repository.StatementCounter;
+import org.junit.jupiter.api.function.ThrowingSupplier;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Holds requests and calls to a budget of JDBC statements, so a change that adds round trips to the database
+ * fails the build. Requests go through {@link MockMvc}, which handles them on the calling thread, where the
+ * statements are counted; the failure lists the SQL the budget was spent on.
+ */
+public final class StatementBudget {
+
+    private final MockMvc mockMvc;
+    private final StatementCounter statementCounter;
+
+    public StatementBudget(MockMvc mockMvc, StatementCounter statementCounter) {
+        this.mockMvc = mockMvc;
+        this.statementCounter = statementCounter;
+    }
+
+    /**
+     * Performs a request, failing if it runs more than the given number of statements.
+     */
+    public ResultActions perform(int budget, RequestBuilder request) throws Throwable {
+        return within(budget, () -> mockMvc.perform(request));
+    }
+
+    /**
+     * Runs a call, failing if it runs more than the given number of statements.
+     */
+    public <T> T within(int budget, ThrowingSupplier<T> call) throws Throwable {
+        T result;
+        StatementCounter.Tally tally = statementCounter.start(true);
+        try {
+            result = call.get();
+        } finally {
+            tally.close();
+        }
+        if (tally.total() > budget) {
+            fail("Budget of " + budget + " statements exceeded, ran " + tally.total() + ":\n  "
+                    + String.join("\n  ", tally.statements()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,137 @@
+package com.hostfullystay.app;
+
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.repository.PropertyRepository;
+import com.hostfullystay.app.service.BookingService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares the platform and the virtual thread request modes under the same mixed traffic: listings of a
+ * property's bookings, lookups by id and new bookings, whose conflict checks query the database. Each mode runs
+ * in an application of its own on a fresh database, seeded identically, with the same number of concurrent
+ * clients; the test reports the throughput and the p50 and p99 latencies of both through {@link BenchmarkReport}.
+ * In virtual thread mode, the virtual threads that blocked while pinned to their carrier are reported as well, see
+ * {@link PinnedThreads}.
+ * <p>
+ * It is a benchmark, run with {@code mvn -Pbenchmark test}. The virtual thread mode needs Java 21; on older runtimes
+ * the comparison is skipped before anything is measured. The load is tuned with {@code -Dbenchmark.clients},
+ * {@code -Dbenchmark.seconds} and {@code -Dbenchmark.datasource-url}, which points both runs at a networked database
+ * where the waits on JDBC are real.
+ */
+@Tag("benchmark")
+class ThreadModeBenchmarkTest {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 64);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 5);
+    private static final String DATASOURCE_URL = System.getProperty("benchmark.datasource-url");
+    private static final int PROPERTIES = 50;
+    private static final int BOOKINGS_PER_PROPERTY = 20;
+    private static final LocalDate BASE = LocalDate.now().plusYears(4).withDayOfYear(1);
+    private static final int WRITE_PERCENT = 20;
+    private static final int LOOKUP_PERCENT = 10;
+    /**
+     * Codes of the traffic itself: a lookup of an id no booking took (404), a new booking whose nights are taken (406).
+     */
+    private static final Set<Integer> EXPECTED = Set.of(200, 201, 404, 406);
+
+    @Test
+    void testComparePlatformAndVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported(), "Virtual threads need Java 21, this is Java " + Runtime.version());
+        Run platform = run(false);
+        Run virtual = run(true);
+        String report = BenchmarkReport.write("thread-mode", List.of(platform.toString(), virtual.toString(),
+                String.format("virtual/platform: throughput x%.2f, p50 x%.2f, p99 x%.2f", virtual.load().throughput() / platform.load().throughput(),
+                        virtual.load().p50Millis() / platform.load().p50Millis(), virtual.load().p99Millis() / platform.load().p99Millis())));
+
+        assertEquals(Map.of(), platform.load().unexpected(EXPECTED), "Requests failed on platform threads: " + report);
+        assertEquals(Map.of(), virtual.load().unexpected(EXPECTED), "Requests failed on virtual threads: " + report);
+    }
+
+    private static Run run(boolean virtual) throws Exception {
+        String mode = virtual ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = LoadHarness.start(new SpringApplicationBuilder(HostfullyApplication.class),
+                "--spring.datasource.url=" + (DATASOURCE_URL != null ? DATASOURCE_URL : "jdbc:h2:mem:threadmode-" + mode),
+                "--hostfully.availability.strategy=database",
+                "--hostfully.threads.virtual=" + virtual
+        )) {
+            List<Long> properties = seed(context);
+            String baseUrl = LoadHarness.baseUrl(context);
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            try (PinnedThreads pinned = new PinnedThreads()) {
+                LoadHarness.Result load = LoadHarness.warmUpAndRun(CLIENTS, SECONDS, (c, sequence) -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    HttpRequest request = request(baseUrl, properties.get(random.nextInt(properties.size())), random);
+                    return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                });
+                return new Run(mode, load, virtual ? pinned.frames() : Map.of());
+            }
+        }
+    }
+
+    /**
+     * Creates the properties, each with bookings spread over the first years after {@link #BASE}.
+     */
+    private static List<Long> seed(ConfigurableApplicationContext context) {
+        PropertyRepository propertyRepository = context.getBean(PropertyRepository.class);
+        BookingService bookingService = context.getBean(BookingService.class);
+        List<Long> properties = new ArrayList<>();
+        for (int p = 0; p < PROPERTIES; p++) {
+            Property property = new Property();
+            property.setName("property " + p);
+            Long propertyId = propertyRepository.save(property).getPropertyId();
+            properties.add(propertyId);
+            for (int b = 0; b < BOOKINGS_PER_PROPERTY; b++) {
+                Booking booking = new Booking();
+                booking.setPropertyId(propertyId);
+                booking.setDateFrom(BASE.plusDays(30L * b));
+                booking.setDateTo(BASE.plusDays(30L * b + 2));
+                booking.setGuestName("guest " + b);
+                assertNotNull(bookingService.save(booking));
+            }
+        }
+        return properties;
+    }
+
+    private static HttpRequest request(String baseUrl, long propertyId, ThreadLocalRandom random) {
+        int pick = random.nextInt(100);
+        if (pick < WRITE_PERCENT) {
+            LocalDate from = BASE.plusDays(random.nextInt(30 * BOOKINGS_PER_PROPERTY));
+            String body = "{\"propertyId\":" + propertyId + ",\"dateFrom\":\"" + from + "\",\"dateTo\":\"" + from.plusDays(random.nextInt(3))
+                    + "\",\"guestName\":\"benchmark\"}";
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/bookings"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+        if (pick < WRITE_PERCENT + LOOKUP_PERCENT) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/bookings/" + (1000 + random.nextInt(PROPERTIES * BOOKINGS_PER_PROPERTY)))).GET().build();
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/bookings?propertyId=" + propertyId + "&size=20")).GET().build();
+    }
+
+    private record Run(String mode, LoadHarness.Result load, Map<String, Integer> pinned) {
+
+        @Override
+        public String toString() {
+            return String.format("%-8s %s%s", mode, load, pinned.isEmpty() ? "" : ", pinned in " + pinned);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.hostfullystay.app;
+
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.repository.PropertyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs a short load of new bookings and listings in virtual thread mode, and reports through {@link BenchmarkReport}
+ * where the virtual threads blocked while pinned to their carrier, as {@code virtual-thread-pinning}. It fails when
+ * the code that blocked is the application's own; pinning inside the libraries it calls is only reported.
+ * <p>
+ * Virtual threads need Java 21, which the {@code java21} profile builds for; on older runtimes the test is skipped.
+ */
+class VirtualThreadPinningTest {
+
+    private static final int CLIENTS = 8;
+    private static final int SECONDS = 2;
+    private static final LocalDate BASE = LocalDate.now().plusYears(6).withDayOfYear(1);
+    private static final Set<Integer> EXPECTED = Set.of(200, 201, 406);
+
+    @Test
+    void testReportsWhereVirtualThreadsArePinned() throws Exception {
+        assumeTrue(VirtualThreads.isSupported(), "Virtual threads need Java 21, this is Java " + Runtime.version());
+        try (ConfigurableApplicationContext context = LoadHarness.start(new SpringApplicationBuilder(HostfullyApplication.class),
+                "--spring.datasource.url=jdbc:h2:mem:pinning",
+                "--hostfully.availability.strategy=database",
+                "--hostfully.threads.virtual=true"
+        ); PinnedThreads pinned = new PinnedThreads()) {
+            Property property = new Property();
+            property.setName("pinning");
+            long propertyId = context.getBean(PropertyRepository.class).save(property).getPropertyId();
+            String baseUrl = LoadHarness.baseUrl(context);
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            LoadHarness.Result load = LoadHarness.warmUpAndRun(CLIENTS, SECONDS, (c, sequence) -> {
+                HttpRequest request = ThreadLocalRandom.current().nextBoolean()
+                        ? HttpRequest.newBuilder(URI.create(baseUrl + "/bookings?propertyId=" + propertyId + "&size=20")).GET().build()
+                        : HttpRequest.newBuilder(URI.create(baseUrl + "/bookings"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"propertyId\":" + propertyId + ",\"dateFrom\":\"" + BASE.plusDays(c * 1000L + sequence)
+                                + "\",\"dateTo\":\"" + BASE.plusDays(c * 1000L + sequence) + "\",\"guestName\":\"pinning\"}"))
+                        .build();
+                return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            });
+            Map<String, Integer> frames = pinned.frames();
+            String report = BenchmarkReport.write("virtual-thread-pinning", List.of(load.toString(),
+                    frames.isEmpty() ? "no pinned virtual thread" : "pinned in " + frames));
+
+            assertEquals(Map.of(), load.unexpected(EXPECTED), "Requests failed: " + report);
+            assertTrue(frames.keySet().stream().noneMatch(frame -> frame.startsWith(HostfullyApplication.class.getPackageName() + ".")),
+                    "Virtual threads blocked while pinned in the application: " + report);
+        }
+    }
+}
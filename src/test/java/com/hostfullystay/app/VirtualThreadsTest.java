@@ -0,0 +1,25 @@
+package com.hostfullystay.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadsTest {
+
+    @Test
+    void testRunsTasksOnVirtualThreadsOrFailsFast() throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            assertThrows(IllegalStateException.class, VirtualThreads::newThreadPerTaskExecutor);
+            return;
+        }
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor();
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get();
+            assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
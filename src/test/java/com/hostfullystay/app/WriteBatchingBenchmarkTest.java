@@ -0,0 +1,99 @@
+package com.hostfullystay.app;
+
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.repository.PropertyRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the write throughput of single and batched commits: concurrent clients create bookings over HTTP, each
+ * in dates of its own so that few of them conflict, against an application that commits every create on its own
+ * and one that groups them. Both journal their writes with fsync on every commit, the durable setup where each
+ * commit costs the most. The creates per second of both and their ratio go to {@link BenchmarkReport}.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test}; the load is tuned with {@code -Dbenchmark.clients} and
+ * {@code -Dbenchmark.seconds}.
+ */
+@Tag("benchmark")
+class WriteBatchingBenchmarkTest {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 32);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 3);
+    private static final int PROPERTIES = 8;
+    private static final LocalDate BASE = LocalDate.now().plusYears(5).withDayOfYear(1);
+    private static final Set<Integer> CREATED = Set.of(201);
+
+    @TempDir
+    Path journals;
+
+    @Test
+    void testCompareSingleAndBatchedCommits() throws Exception {
+        Run single = run(false);
+        Run batched = run(true);
+        String report = BenchmarkReport.write("write-batching", List.of(single.toString(), batched.toString(),
+                String.format("batched/single: throughput x%.2f", batched.load().throughput() / single.load().throughput())));
+
+        assertEquals(Map.of(), single.load().unexpected(CREATED), "Creates failed with single commits, " + report);
+        assertEquals(Map.of(), batched.load().unexpected(CREATED), "Creates failed with batched commits, " + report);
+    }
+
+    private Run run(boolean batched) throws Exception {
+        String mode = batched ? "batched" : "single";
+        try (ConfigurableApplicationContext context = LoadHarness.start(new SpringApplicationBuilder(HostfullyApplication.class),
+                "--spring.datasource.url=jdbc:h2:mem:writebatching-" + mode,
+                "--hostfully.writes.batch.enabled=" + batched,
+                "--hostfully.journal.enabled=true",
+                "--hostfully.journal.directory=" + journals.resolve(mode),
+                "--hostfully.journal.fsync=always"
+        )) {
+            List<Long> properties = new ArrayList<>();
+            for (int p = 0; p < PROPERTIES; p++) {
+                Property property = new Property();
+                property.setName("property " + p);
+                properties.add(context.getBean(PropertyRepository.class).save(property).getPropertyId());
+            }
+            String url = LoadHarness.baseUrl(context) + "/bookings";
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            // Each client books its own years of its property, night after night, through the warm-up and the run.
+            LocalDate[] next = new LocalDate[CLIENTS];
+            for (int c = 0; c < CLIENTS; c++) {
+                next[c] = BASE.plusYears(10L * (c / PROPERTIES));
+            }
+            return new Run(mode, LoadHarness.warmUpAndRun(CLIENTS, SECONDS, (c, sequence) -> {
+                LocalDate from = next[c];
+                next[c] = from.plusDays(1 + ThreadLocalRandom.current().nextInt(2));
+                String body = "{\"propertyId\":" + properties.get(c % PROPERTIES) + ",\"dateFrom\":\"" + from + "\",\"dateTo\":\"" + from
+                        + "\",\"guestName\":\"benchmark\"}";
+                return client.send(HttpRequest.newBuilder(URI.create(url))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+            }));
+        }
+    }
+
+    private record Run(String mode, LoadHarness.Result load) {
+
+        @Override
+        public String toString() {
+            return String.format("%-8s %s", mode, load);
+        }
+    }
+}
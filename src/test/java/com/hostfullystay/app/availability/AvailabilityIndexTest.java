@@ -0,0 +1,194 @@
+package com.hostfullystay.app.availability;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.repository.BookingRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AvailabilityIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final long PROPERTY = 5000L;
+
+    @Mock
+    private BookingRepository mockBookingRepository;
+    @Mock
+    private BlockRepository mockBlockRepository;
+
+    private AvailabilityIndex availabilityIndex(AvailabilityStrategy strategy) {
+        return new AvailabilityIndex(mockBookingRepository, mockBlockRepository, strategy, 2);
+    }
+
+    private static LocalDate day(int offset) {
+        return TODAY.plusDays(offset);
+    }
+
+    private static Booking booking(long id, LocalDate from, LocalDate to, Booking.State state) {
+        Booking booking = new Booking();
+        booking.setBookingId(id);
+        booking.setPropertyId(PROPERTY);
+        booking.setDateFrom(from);
+        booking.setDateTo(to);
+        booking.setGuestName("guestName");
+        booking.setState(state);
+        return booking;
+    }
+
+    private static Block block(long id, LocalDate from, LocalDate to) {
+        Block block = new Block();
+        block.setBlockId(id);
+        block.setPropertyId(PROPERTY);
+        block.setDateFrom(from);
+        block.setDateTo(to);
+        block.setManager("manager");
+        return block;
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AvailabilityStrategy.class, names = {"INDEX", "BITMAP"})
+    void testLoadKeepsOnlyBookedBookingsAndAllBlocks(AvailabilityStrategy strategy) {
+        AvailabilityIndex availabilityIndexUnderTest = availabilityIndex(strategy);
+        when(mockBookingRepository.findAll()).thenReturn(List.of(
+                booking(1L, day(10), day(15), Booking.State.BOOKED),
+                booking(2L, day(40), day(45), Booking.State.CANCELED)));
+        when(mockBlockRepository.findAll()).thenReturn(List.of(block(3L, day(70), day(75))));
+
+        availabilityIndexUnderTest.load();
+
+        assertTrue(availabilityIndexUnderTest.hasBookingOverlap(PROPERTY, day(15), day(18), null));
+        assertFalse(availabilityIndexUnderTest.hasBookingOverlap(PROPERTY, day(15), day(18), 1L));
+        assertFalse(availabilityIndexUnderTest.hasBookingOverlap(PROPERTY, day(40), day(45), null));
+        assertTrue(availabilityIndexUnderTest.hasBlockOverlap(PROPERTY, day(60), day(70), null));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AvailabilityStrategy.class, names = {"INDEX", "BITMAP"})
+    void testBookingSavedAndDeletedKeepIndexInSync(AvailabilityStrategy strategy) {
+        AvailabilityIndex availabilityIndexUnderTest = availabilityIndex(strategy);
+        Booking booking = booking(1L, day(1), day(5), Booking.State.BOOKED);
+
+        availabilityIndexUnderTest.bookingSaved(booking);
+        assertTrue(availabilityIndexUnderTest.hasBookingOverlap(PROPERTY, day(3), day(3), null));
+
+        booking.setState(Booking.State.CANCELED);
+        availabilityIndexUnderTest.bookingSaved(booking);
+        assertFalse(availabilityIndexUnderTest.hasBookingOverlap(PROPERTY, day(3), day(3), null));
+
+        booking.setState(Booking.State.BOOKED);
+        availabilityIndexUnderTest.bookingSaved(booking);
+        availabilityIndexUnderTest.bookingDeleted(booking);
+        assertFalse(availabilityIndexUnderTest.hasBookingOverlap(PROPERTY, day(3), day(3), null));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AvailabilityStrategy.class, names = {"INDEX", "BITMAP"})
+    void testBlockSavedMovesTheBlock(AvailabilityStrategy strategy) {
+        AvailabilityIndex availabilityIndexUnderTest = availabilityIndex(strategy);
+        Block block = block(1L, day(1), day(5));
+        availabilityIndexUnderTest.blockSaved(block);
+
+        block.setDateFrom(day(100));
+        block.setDateTo(day(105));
+        availabilityIndexUnderTest.blockSaved(block);
+
+        assertFalse(availabilityIndexUnderTest.hasBlockOverlap(PROPERTY, day(1), day(5), null));
+        assertTrue(availabilityIndexUnderTest.hasBlockOverlap(PROPERTY, day(105), day(109), null));
+
+        availabilityIndexUnderTest.blockDeleted(block);
+        assertFalse(availabilityIndexUnderTest.hasBlockOverlap(PROPERTY, day(105), day(109), null));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AvailabilityStrategy.class, names = {"INDEX", "BITMAP"})
+    void testPropertiesHaveSeparateCalendars(AvailabilityStrategy strategy) {
+        AvailabilityIndex availabilityIndexUnderTest = availabilityIndex(strategy);
+        Booking booking = booking(1L, day(1), day(5), Booking.State.BOOKED);
+        Block block = block(2L, day(10), day(12));
+        block.setPropertyId(PROPERTY + 1);
+
+        availabilityIndexUnderTest.bookingSaved(booking);
+        availabilityIndexUnderTest.blockSaved(block);
+
+        assertTrue(availabilityIndexUnderTest.hasBookingOverlap(PROPERTY, day(3), day(3), null));
+        assertFalse(availabilityIndexUnderTest.hasBookingOverlap(PROPERTY + 1, day(3), day(3), null));
+        assertFalse(availabilityIndexUnderTest.hasBlockOverlap(PROPERTY, day(10), day(12), null));
+        assertTrue(availabilityIndexUnderTest.hasBlockOverlap(PROPERTY + 1, day(10), day(12), null));
+        assertEquals(0, availabilityIndexUnderTest.bookingRanges(PROPERTY + 2, day(0), day(20)).length);
+    }
+
+    @Test
+    void testBitmapKeepsNightsOfOverlappingBlocksWhenOneIsDeleted() {
+        AvailabilityIndex availabilityIndexUnderTest = availabilityIndex(AvailabilityStrategy.BITMAP);
+        Block first = block(1L, day(1), day(10));
+        availabilityIndexUnderTest.blockSaved(first);
+        availabilityIndexUnderTest.blockSaved(block(2L, day(8), day(12)));
+
+        availabilityIndexUnderTest.blockDeleted(first);
+
+        assertFalse(availabilityIndexUnderTest.hasBlockOverlap(PROPERTY, day(1), day(7), null));
+        assertTrue(availabilityIndexUnderTest.hasBlockOverlap(PROPERTY, day(8), day(8), null));
+    }
+
+    @Test
+    void testBitmapFallsBackToTreeOutsideTheHorizon() {
+        AvailabilityIndex availabilityIndexUnderTest = availabilityIndex(AvailabilityStrategy.BITMAP);
+        availabilityIndexUnderTest.bookingSaved(booking(1L, day(-5000), day(-4990), Booking.State.BOOKED));
+        availabilityIndexUnderTest.bookingSaved(booking(2L, day(5000), day(5010), Booking.State.BOOKED));
+
+        assertTrue(availabilityIndexUnderTest.hasBookingOverlap(PROPERTY, day(-4995), day(-4995), null));
+        assertTrue(availabilityIndexUnderTest.hasBookingOverlap(PROPERTY, day(4990), day(5000), null));
+        assertFalse(availabilityIndexUnderTest.hasBookingOverlap(PROPERTY, day(-100), day(100), null));
+    }
+
+    @Test
+    void testBitmapCheckDoesNotAllocate() {
+        AvailabilityIndex availabilityIndexUnderTest = availabilityIndex(AvailabilityStrategy.BITMAP);
+        for (int i = 0; i < 100; i++) {
+            availabilityIndexUnderTest.bookingSaved(booking(i + 1000L, day(i * 3), day(i * 3 + 1), Booking.State.BOOKED));
+        }
+        LocalDate from = day(2);
+        LocalDate to = day(2);
+        Long excludeId = 5000L;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        int free = 0;
+        for (int i = 0; i < 10_000; i++) {
+            free += availabilityIndexUnderTest.hasBookingOverlap(PROPERTY, from, to, excludeId) ? 0 : 1;
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            free += availabilityIndexUnderTest.hasBookingOverlap(PROPERTY, from, to, excludeId) ? 0 : 1;
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(110_000, free);
+        // Any object allocated per check would take at least 16 bytes; the JIT may still allocate a little once.
+        assertTrue(allocated < 100_000, "allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void testDatabaseStrategyDisablesTheIndex() {
+        AvailabilityIndex availabilityIndexUnderTest = availabilityIndex(AvailabilityStrategy.DATABASE);
+
+        availabilityIndexUnderTest.load();
+
+        assertFalse(availabilityIndexUnderTest.isEnabled());
+        verifyNoInteractions(mockBookingRepository, mockBlockRepository);
+    }
+}
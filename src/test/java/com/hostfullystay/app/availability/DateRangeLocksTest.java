@@ -0,0 +1,78 @@
+package com.hostfullystay.app.availability;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DateRangeLocksTest {
+
+    private DateRangeLocks dateRangeLocksUnderTest;
+
+    @BeforeEach
+    void setUp() {
+        dateRangeLocksUnderTest = new DateRangeLocks(12);
+    }
+
+    private static int count(boolean[] stripes) {
+        int count = 0;
+        for (boolean stripe : stripes) {
+            count += stripe ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Test
+    void testRangeInsideOneMonthTakesOneStripe() {
+        boolean[] stripes = dateRangeLocksUnderTest.stripesFor(1L, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+
+        assertEquals(1, count(stripes));
+    }
+
+    @Test
+    void testRangeAcrossMonthsTakesEveryMonthStripe() {
+        boolean[] stripes = dateRangeLocksUnderTest.stripesFor(1L, LocalDate.of(2024, 11, 28), LocalDate.of(2025, 1, 2));
+
+        assertEquals(3, count(stripes));
+    }
+
+    @Test
+    void testOverlappingRangesShareAStripe() {
+        boolean[] first = dateRangeLocksUnderTest.stripesFor(1L, LocalDate.of(2024, 1, 20), LocalDate.of(2024, 2, 3));
+        boolean[] second = dateRangeLocksUnderTest.stripesFor(1L, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 10));
+
+        boolean shared = false;
+        for (int i = 0; i < first.length; i++) {
+            shared |= first[i] && second[i];
+        }
+        assertTrue(shared);
+    }
+
+    @Test
+    void testLongRangeTakesAllStripes() {
+        boolean[] stripes = dateRangeLocksUnderTest.stripesFor(1L, LocalDate.of(2024, 1, 1), LocalDate.of(2026, 1, 1));
+
+        assertEquals(12, count(stripes));
+    }
+
+    @Test
+    void testPropertiesSpreadOverTheStripes() {
+        boolean[] taken = new boolean[12];
+        for (long propertyId = 1; propertyId <= 12; propertyId++) {
+            boolean[] stripes = dateRangeLocksUnderTest.stripesFor(propertyId, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+            for (int i = 0; i < stripes.length; i++) {
+                taken[i] |= stripes[i];
+            }
+        }
+
+        // The same month of different properties does not pile up on a single stripe.
+        assertTrue(count(taken) > 6);
+    }
+
+    @Test
+    void testLockOutsideTransactionIsNoOp() {
+        assertDoesNotThrow(() -> dateRangeLocksUnderTest.lockUntilCompletion(1L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2)));
+    }
+}
@@ -0,0 +1,127 @@
+package com.hostfullystay.app.availability;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FreeWindowsTest {
+
+    private static final long BASE = LocalDate.of(2030, 1, 1).toEpochDay();
+
+    @Test
+    void testSweepReturnsGapsBetweenTakenRanges() {
+        long[] booked = {BASE + 2, BASE + 4, BASE + 10, BASE + 12};
+        long[] blocked = {BASE + 6, BASE + 7};
+
+        List<FreeWindow> windows = FreeWindows.sweep(booked, blocked, BASE, BASE + 20, 1, 10);
+
+        assertEquals(List.of(window(0, 1), window(5, 5), window(8, 9), window(13, 20)), windows);
+    }
+
+    @Test
+    void testSweepMergesOverlappingRangesAndRangesStartingEarlier() {
+        long[] booked = {BASE - 5, BASE + 3, BASE + 8, BASE + 9};
+        long[] blocked = {BASE + 2, BASE + 6, BASE + 4, BASE + 5};
+
+        List<FreeWindow> windows = FreeWindows.sweep(booked, blocked, BASE, BASE + 12, 1, 10);
+
+        assertEquals(List.of(window(7, 7), window(10, 12)), windows);
+    }
+
+    @Test
+    void testSweepSkipsWindowsShorterThanTheStay() {
+        long[] booked = {BASE + 2, BASE + 4, BASE + 7, BASE + 7};
+
+        List<FreeWindow> windows = FreeWindows.sweep(booked, new long[0], BASE, BASE + 11, 3, 10);
+
+        assertEquals(List.of(window(8, 11)), windows);
+    }
+
+    @Test
+    void testSweepStopsAtLimit() {
+        long[] booked = {BASE + 1, BASE + 1, BASE + 3, BASE + 3, BASE + 5, BASE + 5};
+
+        List<FreeWindow> windows = FreeWindows.sweep(booked, new long[0], BASE, BASE + 10, 1, 2);
+
+        assertEquals(List.of(window(0, 0), window(2, 2)), windows);
+    }
+
+    @Test
+    void testSweepOfFullyTakenRangeIsEmpty() {
+        long[] blocked = {BASE - 1, BASE + 30};
+
+        assertTrue(FreeWindows.sweep(new long[0], blocked, BASE, BASE + 20, 1, 10).isEmpty());
+    }
+
+    @Test
+    void testSweepMatchesNightByNightScan() {
+        Random random = new Random(7);
+        IntervalTree bookings = new IntervalTree();
+        IntervalTree blocks = new IntervalTree();
+        boolean[] taken = new boolean[400];
+        for (int i = 0; i < 60; i++) {
+            int from = random.nextInt(390);
+            int to = from + random.nextInt(8);
+            (i % 4 == 0 ? blocks : bookings).put(i, BASE + from, BASE + to);
+            Arrays.fill(taken, from, to + 1, true);
+        }
+
+        List<FreeWindow> windows = FreeWindows.sweep(bookings.overlapping(BASE, BASE + 399),
+                blocks.overlapping(BASE, BASE + 399), BASE, BASE + 399, 2, Integer.MAX_VALUE);
+
+        int expected = 0;
+        for (int day = 0; day < taken.length; ) {
+            if (taken[day]) {
+                day++;
+                continue;
+            }
+            int end = day;
+            while (end + 1 < taken.length && !taken[end + 1]) {
+                end++;
+            }
+            if (end - day + 1 >= 2) {
+                assertEquals(window(day, end), windows.get(expected++));
+            }
+            day = end + 1;
+        }
+        assertEquals(expected, windows.size());
+    }
+
+    @Test
+    void testSweepOverMultiYearHorizonWithTensOfThousandsOfRanges() {
+        IntervalTree bookings = new IntervalTree();
+        IntervalTree blocks = new IntervalTree();
+        Random random = new Random(11);
+        long day = BASE;
+        for (int i = 0; i < 20_000; i++) {
+            long to = day + random.nextInt(4);
+            (i % 10 == 0 ? blocks : bookings).put(i, day, to);
+            // Mostly back to back, with an occasional free night or two.
+            day = to + 1 + (random.nextInt(8) == 0 ? 1 + random.nextInt(2) : 0);
+        }
+        long horizonEnd = day + 10;
+
+        long best = Long.MAX_VALUE;
+        List<FreeWindow> windows = null;
+        for (int run = 0; run < 50; run++) {
+            long started = System.nanoTime();
+            windows = FreeWindows.sweep(bookings.overlapping(BASE, horizonEnd),
+                    blocks.overlapping(BASE, horizonEnd), BASE, horizonEnd, 3, 10);
+            best = Math.min(best, System.nanoTime() - started);
+        }
+
+        assertEquals(1, windows.size());
+        assertEquals(LocalDate.ofEpochDay(horizonEnd), windows.get(0).dateTo());
+        System.out.printf("Free window search over %d years and 20000 ranges: %.3f ms%n",
+                (horizonEnd - BASE) / 365, best / 1e6);
+    }
+
+    private static FreeWindow window(int from, int to) {
+        return new FreeWindow(LocalDate.ofEpochDay(BASE + from), LocalDate.ofEpochDay(BASE + to));
+    }
+}
@@ -0,0 +1,82 @@
+package com.hostfullystay.app.availability;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalTreeTest {
+
+    private IntervalTree intervalTreeUnderTest;
+
+    @BeforeEach
+    void setUp() {
+        intervalTreeUnderTest = new IntervalTree();
+    }
+
+    @Test
+    void testOverlapsIsInclusiveOnBothEnds() {
+        intervalTreeUnderTest.put(1L, 10, 20);
+
+        assertTrue(intervalTreeUnderTest.overlaps(20, 25, null));
+        assertTrue(intervalTreeUnderTest.overlaps(5, 10, null));
+        assertTrue(intervalTreeUnderTest.overlaps(12, 13, null));
+        assertTrue(intervalTreeUnderTest.overlaps(0, 30, null));
+        assertFalse(intervalTreeUnderTest.overlaps(21, 25, null));
+        assertFalse(intervalTreeUnderTest.overlaps(5, 9, null));
+    }
+
+    @Test
+    void testOverlapsIgnoresExcludedId() {
+        intervalTreeUnderTest.put(1L, 10, 20);
+
+        assertFalse(intervalTreeUnderTest.overlaps(10, 20, 1L));
+
+        intervalTreeUnderTest.put(2L, 18, 22);
+        assertTrue(intervalTreeUnderTest.overlaps(10, 20, 1L));
+    }
+
+    @Test
+    void testPutReplacesAndRemoveDeletes() {
+        intervalTreeUnderTest.put(1L, 10, 20);
+        intervalTreeUnderTest.put(1L, 30, 40);
+
+        assertEquals(1, intervalTreeUnderTest.size());
+        assertFalse(intervalTreeUnderTest.overlaps(10, 20, null));
+        assertTrue(intervalTreeUnderTest.overlaps(35, 35, null));
+
+        assertTrue(intervalTreeUnderTest.remove(1L));
+        assertFalse(intervalTreeUnderTest.remove(1L));
+        assertFalse(intervalTreeUnderTest.overlaps(0, 100, null));
+    }
+
+    @Test
+    void testOverlapsMatchesBruteForceUnderRandomChurn() {
+        Random random = new Random(42);
+        Map<Long, long[]> expected = new HashMap<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            long id = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id) != null, intervalTreeUnderTest.remove(id));
+            } else {
+                long from = random.nextInt(3_000);
+                long to = from + random.nextInt(15);
+                intervalTreeUnderTest.put(id, from, to);
+                expected.put(id, new long[]{from, to});
+            }
+
+            long from = random.nextInt(3_000);
+            long to = from + random.nextInt(15);
+            Long excludeId = random.nextBoolean() ? (long) random.nextInt(500) : null;
+            boolean bruteForce = expected.entrySet().stream()
+                    .anyMatch(e -> !e.getKey().equals(excludeId) && e.getValue()[0] <= to && e.getValue()[1] >= from);
+            assertEquals(bruteForce, intervalTreeUnderTest.overlaps(from, to, excludeId));
+        }
+        assertEquals(expected.size(), intervalTreeUnderTest.size());
+    }
+}
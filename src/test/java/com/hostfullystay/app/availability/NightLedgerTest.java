@@ -0,0 +1,131 @@
+package com.hostfullystay.app.availability;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.repository.BookingRepository;
+import com.hostfullystay.app.repository.OccupiedNightRepository;
+import com.hostfullystay.app.service.BlockService;
+import com.hostfullystay.app.service.BookingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "hostfully.availability.strategy=nights")
+class NightLedgerTest {
+
+    private static final LocalDate BASE = LocalDate.now().plusYears(1).withDayOfYear(1);
+    private static final Long PROPERTY_ID = 1000L;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BlockService blockService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BlockRepository blockRepository;
+
+    @Autowired
+    private OccupiedNightRepository occupiedNightRepository;
+
+    @Autowired
+    private NightLedger nightLedger;
+
+    @AfterEach
+    void tearDown() {
+        bookingRepository.deleteAll();
+        blockRepository.deleteAll();
+        nightLedger.rebuild();
+    }
+
+    @Test
+    void testSaveClaimsEveryNight() {
+        Booking saved = bookingService.save(booking(BASE, BASE.plusDays(3)));
+
+        assertNotNull(saved);
+        assertEquals(4, occupiedNightRepository.count());
+    }
+
+    @Test
+    void testOverlappingBookingIsRejectedAndRolledBack() {
+        assertNotNull(bookingService.save(booking(BASE, BASE.plusDays(3))));
+
+        assertNull(bookingService.save(booking(BASE.plusDays(3), BASE.plusDays(5))));
+        assertEquals(1, bookingRepository.count());
+        assertEquals(4, occupiedNightRepository.count());
+    }
+
+    @Test
+    void testBlockOverlappingBookingIsRejected() {
+        assertNotNull(bookingService.save(booking(BASE, BASE.plusDays(3))));
+
+        assertNull(blockService.save(block(BASE.plusDays(2), BASE.plusDays(4))));
+        assertEquals(0, blockRepository.count());
+    }
+
+    @Test
+    void testBlocksCannotOverlapEachOther() {
+        assertNotNull(blockService.save(block(BASE, BASE.plusDays(3))));
+
+        assertNull(blockService.save(block(BASE.plusDays(1), BASE.plusDays(2))));
+    }
+
+    @Test
+    void testCancelReleasesNights() {
+        Booking saved = bookingService.save(booking(BASE, BASE.plusDays(3)));
+        saved.setState(Booking.State.CANCELED);
+        bookingService.update(saved);
+
+        assertEquals(0, occupiedNightRepository.count());
+        assertNotNull(bookingService.save(booking(BASE, BASE.plusDays(3))));
+    }
+
+    @Test
+    void testDeleteReleasesNights() {
+        Block saved = blockService.save(block(BASE, BASE.plusDays(3)));
+        blockService.delete(saved.getBlockId());
+
+        assertEquals(0, occupiedNightRepository.count());
+        assertNotNull(bookingService.save(booking(BASE, BASE.plusDays(3))));
+    }
+
+    @Test
+    void testMovingBookingReleasesOldNights() {
+        Booking saved = bookingService.save(booking(BASE, BASE.plusDays(3)));
+        Booking patch = new Booking();
+        patch.setBookingId(saved.getBookingId());
+        patch.setDateFrom(BASE.plusDays(10));
+        patch.setDateTo(BASE.plusDays(11));
+
+        assertTrue(bookingService.partialUpdate(patch).isPresent());
+        assertEquals(2, occupiedNightRepository.count());
+        assertNotNull(bookingService.save(booking(BASE, BASE.plusDays(3))));
+    }
+
+    private static Booking booking(LocalDate from, LocalDate to) {
+        Booking booking = new Booking();
+        booking.setPropertyId(PROPERTY_ID);
+        booking.setDateFrom(from);
+        booking.setDateTo(to);
+        booking.setGuestName("guestName");
+        return booking;
+    }
+
+    private static Block block(LocalDate from, LocalDate to) {
+        Block block = new Block();
+        block.setPropertyId(PROPERTY_ID);
+        block.setDateFrom(from);
+        block.setDateTo(to);
+        block.setManager("manager");
+        return block;
+    }
+}
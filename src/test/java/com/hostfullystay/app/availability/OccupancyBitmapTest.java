@@ -0,0 +1,86 @@
+package com.hostfullystay.app.availability;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupancyBitmapTest {
+
+    private static final LocalDate ORIGIN = LocalDate.of(2024, 1, 1);
+    private static final long ORIGIN_DAY = ORIGIN.toEpochDay();
+
+    private OccupancyBitmap occupancyBitmapUnderTest;
+
+    @BeforeEach
+    void setUp() {
+        occupancyBitmapUnderTest = new OccupancyBitmap(ORIGIN, 366);
+    }
+
+    @Test
+    void testCovers() {
+        assertTrue(occupancyBitmapUnderTest.covers(ORIGIN_DAY, ORIGIN_DAY + 365));
+        assertFalse(occupancyBitmapUnderTest.covers(ORIGIN_DAY - 1, ORIGIN_DAY));
+        assertFalse(occupancyBitmapUnderTest.covers(ORIGIN_DAY, ORIGIN_DAY + 366));
+    }
+
+    @Test
+    void testSetAndClearAcrossWordBoundaries() {
+        occupancyBitmapUnderTest.set(ORIGIN_DAY + 60, ORIGIN_DAY + 200);
+
+        assertTrue(occupancyBitmapUnderTest.anySet(ORIGIN_DAY, ORIGIN_DAY + 60));
+        assertTrue(occupancyBitmapUnderTest.anySet(ORIGIN_DAY + 200, ORIGIN_DAY + 365));
+        assertFalse(occupancyBitmapUnderTest.anySet(ORIGIN_DAY, ORIGIN_DAY + 59));
+        assertFalse(occupancyBitmapUnderTest.anySet(ORIGIN_DAY + 201, ORIGIN_DAY + 365));
+
+        occupancyBitmapUnderTest.clear(ORIGIN_DAY + 64, ORIGIN_DAY + 127);
+        assertFalse(occupancyBitmapUnderTest.anySet(ORIGIN_DAY + 64, ORIGIN_DAY + 127));
+        assertTrue(occupancyBitmapUnderTest.anySet(ORIGIN_DAY + 63, ORIGIN_DAY + 63));
+        assertTrue(occupancyBitmapUnderTest.anySet(ORIGIN_DAY + 128, ORIGIN_DAY + 128));
+    }
+
+    @Test
+    void testWritesOutsideTheHorizonAreClamped() {
+        occupancyBitmapUnderTest.set(ORIGIN_DAY - 100, ORIGIN_DAY);
+        occupancyBitmapUnderTest.set(ORIGIN_DAY + 400, ORIGIN_DAY + 500);
+
+        assertTrue(occupancyBitmapUnderTest.anySet(ORIGIN_DAY, ORIGIN_DAY));
+        assertFalse(occupancyBitmapUnderTest.anySet(ORIGIN_DAY + 1, ORIGIN_DAY + 365));
+    }
+
+    @Test
+    void testMemoryPerYearOfHorizon() {
+        assertEquals(48, occupancyBitmapUnderTest.sizeInBytes());
+    }
+
+    @Test
+    void testAnySetMatchesBruteForce() {
+        Random random = new Random(7);
+        boolean[] expected = new boolean[366];
+
+        for (int i = 0; i < 5_000; i++) {
+            int from = random.nextInt(366);
+            int to = Math.min(365, from + random.nextInt(90));
+            boolean value = random.nextBoolean();
+            if (value) {
+                occupancyBitmapUnderTest.set(ORIGIN_DAY + from, ORIGIN_DAY + to);
+            } else {
+                occupancyBitmapUnderTest.clear(ORIGIN_DAY + from, ORIGIN_DAY + to);
+            }
+            for (int day = from; day <= to; day++) {
+                expected[day] = value;
+            }
+
+            int queryFrom = random.nextInt(366);
+            int queryTo = Math.min(365, queryFrom + random.nextInt(90));
+            boolean bruteForce = false;
+            for (int day = queryFrom; day <= queryTo; day++) {
+                bruteForce |= expected[day];
+            }
+            assertEquals(bruteForce, occupancyBitmapUnderTest.anySet(ORIGIN_DAY + queryFrom, ORIGIN_DAY + queryTo));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.hostfullystay.app.availability;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.repository.BookingRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OccupancyCalendarTest {
+
+    private static final LocalDate BASE = LocalDate.of(2024, 1, 1);
+    private static final long PROPERTY = 5000L;
+
+    @Mock
+    private BookingRepository mockBookingRepository;
+    @Mock
+    private BlockRepository mockBlockRepository;
+
+    private static LocalDate day(int offset) {
+        return BASE.plusDays(offset);
+    }
+
+    private static Booking booking(long id, int from, int to, Booking.State state) {
+        Booking booking = new Booking();
+        booking.setBookingId(id);
+        booking.setPropertyId(PROPERTY);
+        booking.setDateFrom(day(from));
+        booking.setDateTo(day(to));
+        booking.setGuestName("guestName");
+        booking.setState(state);
+        return booking;
+    }
+
+    private static Block block(long id, int from, int to) {
+        Block block = new Block();
+        block.setBlockId(id);
+        block.setPropertyId(PROPERTY);
+        block.setDateFrom(day(from));
+        block.setDateTo(day(to));
+        block.setManager("manager");
+        return block;
+    }
+
+    @Test
+    void testLoadReportsEveryNight() {
+        when(mockBookingRepository.findAll()).thenReturn(List.of(
+                booking(1, 2, 3, Booking.State.BOOKED), booking(2, 5, 5, Booking.State.CANCELED)));
+        when(mockBlockRepository.findAll()).thenReturn(List.of(block(7, 4, 5)));
+        OccupancyCalendar calendar = new OccupancyCalendar(mockBookingRepository, mockBlockRepository);
+
+        calendar.load();
+
+        List<CalendarDay> days = calendar.days(PROPERTY, day(1), day(6));
+        assertEquals(List.of(
+                CalendarDay.free(day(1)),
+                CalendarDay.booked(day(2), 1),
+                CalendarDay.booked(day(3), 1),
+                CalendarDay.blocked(day(4), 7),
+                CalendarDay.blocked(day(5), 7),
+                CalendarDay.free(day(6))), days);
+    }
+
+    @Test
+    void testWritesMoveAndReleaseNights() {
+        OccupancyCalendar calendar = new OccupancyCalendar(mockBookingRepository, mockBlockRepository);
+
+        calendar.bookingSaved(booking(1, 0, 40, Booking.State.BOOKED));
+        calendar.bookingSaved(booking(1, 30, 35, Booking.State.BOOKED));
+        calendar.blockSaved(block(7, 0, 1));
+
+        List<CalendarDay> days = calendar.days(PROPERTY, day(0), day(40));
+        assertEquals(CalendarDay.blocked(day(0), 7), days.get(0));
+        assertEquals(CalendarDay.free(day(29)), days.get(29));
+        assertEquals(CalendarDay.booked(day(30), 1), days.get(30));
+        assertEquals(CalendarDay.free(day(36)), days.get(36));
+        assertEquals(6, days.stream().filter(d -> d.state() == CalendarDay.State.BOOKED).count());
+
+        calendar.bookingSaved(booking(1, 30, 35, Booking.State.CANCELED));
+        calendar.blockDeleted(block(7, 0, 1));
+
+        assertTrue(calendar.days(PROPERTY, day(0), day(40)).stream().allMatch(d -> d.state() == CalendarDay.State.FREE));
+    }
+
+    @Test
+    void testReleasingAnOverlappedBlockKeepsTheOtherOne() {
+        OccupancyCalendar calendar = new OccupancyCalendar(mockBookingRepository, mockBlockRepository);
+        calendar.blockSaved(block(7, 0, 5));
+        calendar.blockSaved(block(8, 3, 8));
+
+        calendar.blockDeleted(block(8, 3, 8));
+
+        List<CalendarDay> days = calendar.days(PROPERTY, day(0), day(8));
+        assertEquals(CalendarDay.blocked(day(5), 7), days.get(5));
+        assertEquals(CalendarDay.free(day(6)), days.get(6));
+
+        calendar.blockSaved(block(8, 3, 8));
+        calendar.blockDeleted(block(7, 0, 5));
+
+        days = calendar.days(PROPERTY, day(0), day(8));
+        assertEquals(CalendarDay.free(day(2)), days.get(2));
+        assertEquals(CalendarDay.blocked(day(3), 8), days.get(3));
+    }
+
+    @Test
+    void testBookedWinsOverBlocked() {
+        OccupancyCalendar calendar = new OccupancyCalendar(mockBookingRepository, mockBlockRepository);
+        calendar.blockSaved(block(7, 0, 3));
+        calendar.bookingSaved(booking(1, 2, 2, Booking.State.BOOKED));
+
+        assertEquals(CalendarDay.booked(day(2), 1), calendar.days(PROPERTY, day(2), day(2)).get(0));
+    }
+
+    @Test
+    void testPropertiesHaveSeparateCalendars() {
+        OccupancyCalendar calendar = new OccupancyCalendar(mockBookingRepository, mockBlockRepository);
+        Block other = block(7, 0, 3);
+        other.setPropertyId(PROPERTY + 1);
+        calendar.bookingSaved(booking(1, 2, 2, Booking.State.BOOKED));
+        calendar.blockSaved(other);
+
+        assertEquals(CalendarDay.free(day(0)), calendar.days(PROPERTY, day(0), day(0)).get(0));
+        assertEquals(CalendarDay.booked(day(2), 1), calendar.days(PROPERTY, day(2), day(2)).get(0));
+        assertEquals(CalendarDay.blocked(day(2), 7), calendar.days(PROPERTY + 1, day(2), day(2)).get(0));
+        assertEquals(CalendarDay.free(day(2)), calendar.days(PROPERTY + 2, day(2), day(2)).get(0));
+    }
+}
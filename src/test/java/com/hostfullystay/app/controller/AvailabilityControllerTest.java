@@ -0,0 +1,77 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.availability.FreeWindow;
+import com.hostfullystay.app.service.AvailabilityService;
+import com.hostfullystay.app.service.PropertyService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AvailabilityControllerTest {
+
+    private static final Long PROPERTY_ID = 1000L;
+
+    @Mock
+    private AvailabilityService availabilityService;
+
+    @Mock
+    private PropertyService propertyService;
+
+    @InjectMocks
+    private AvailabilityController availabilityController;
+
+    @Test
+    void getFreeWindows() {
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 12, 31);
+        List<FreeWindow> windows = List.of(new FreeWindow(from, from.plusDays(9)));
+        when(propertyService.exists(PROPERTY_ID)).thenReturn(true);
+        when(availabilityService.findFreeWindows(PROPERTY_ID, from, to, 3, 5)).thenReturn(windows);
+
+        ResponseEntity<List<FreeWindow>> responseEntity = availabilityController.getFreeWindows(PROPERTY_ID, from, to, 3, 5);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(windows, responseEntity.getBody());
+    }
+
+    @Test
+    void getFreeWindowsWithInvertedRange() {
+        LocalDate from = LocalDate.of(2024, 1, 1);
+
+        assertThrows(ResponseStatusException.class,
+                () -> availabilityController.getFreeWindows(PROPERTY_ID, from, from.minusDays(1), 3, 5));
+    }
+
+    @Test
+    void getFreeWindowsWithInvalidNightsOrLimit() {
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 12, 31);
+
+        assertThrows(ResponseStatusException.class, () -> availabilityController.getFreeWindows(PROPERTY_ID, from, to, 0, 5));
+        assertThrows(ResponseStatusException.class, () -> availabilityController.getFreeWindows(PROPERTY_ID, from, to, 3, 0));
+        assertThrows(ResponseStatusException.class,
+                () -> availabilityController.getFreeWindows(PROPERTY_ID, from, to, 3, AvailabilityController.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void getFreeWindowsOfUnknownProperty() {
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        when(propertyService.exists(PROPERTY_ID)).thenReturn(false);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> availabilityController.getFreeWindows(PROPERTY_ID, from, from.plusDays(30), 3, 5));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+}
@@ -1,8 +1,13 @@
 package com.hostfullystay.app.controller;
 
 import com.hostfullystay.app.domain.Block;
-import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.domain.EntityKind;
+import com.hostfullystay.app.repository.Keyset;
+import com.hostfullystay.app.repository.KeysetPage;
 import com.hostfullystay.app.service.BlockService;
+import com.hostfullystay.app.service.MissingEntityException;
+import com.hostfullystay.app.service.PropertyService;
+import com.hostfullystay.app.service.WritePipeline;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -11,14 +16,18 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.net.URISyntaxException;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,7 +37,10 @@ class BlockControllerTest {
     private BlockService blockService;
 
     @Mock
-    private BlockRepository blockRepository;
+    private PropertyService propertyService;
+
+    @Mock
+    private WritePipeline writePipeline;
 
     @InjectMocks
     private BlockController blockController;
@@ -36,7 +48,9 @@ class BlockControllerTest {
     @Test
     void createBlock() throws URISyntaxException {
         Block block = new Block();
-        when(blockService.save(Mockito.any(Block.class))).thenReturn(block);
+        block.setPropertyId(1000L);
+        when(propertyService.exists(1000L)).thenReturn(true);
+        when(writePipeline.save(Mockito.any(Block.class))).thenReturn(block);
 
         ResponseEntity<Block> responseEntity = blockController.createBlock(block);
 
@@ -52,26 +66,47 @@ class BlockControllerTest {
         assertThrows(ResponseStatusException.class, () -> blockController.createBlock(block));
     }
 
+    @Test
+    void createBlockForUnknownProperty() {
+        Block block = new Block();
+        block.setPropertyId(1000L);
+        when(propertyService.exists(1000L)).thenReturn(false);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> blockController.createBlock(block));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
     @Test
     void updateBlock() throws URISyntaxException {
         Block block = new Block();
         block.setBlockId(1L);
 
-        when(blockRepository.existsById(1L)).thenReturn(true);
         when(blockService.update(Mockito.any(Block.class))).thenReturn(block);
 
-        ResponseEntity<Block> responseEntity = blockController.updateBlock(1L, block);
+        ResponseEntity<Block> responseEntity = blockController.updateBlock(1L, block, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertNotNull(responseEntity.getBody());
     }
 
+    @Test
+    void updateBlockNotFound() {
+        Block block = new Block();
+        block.setBlockId(1L);
+
+        when(blockService.update(Mockito.any(Block.class))).thenThrow(new MissingEntityException(EntityKind.BLOCK, 1L));
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> blockController.updateBlock(1L, block, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
     @Test
     void updateBlockWithInvalidId() {
         Block block = new Block();
         block.setBlockId(1L);
 
-        assertThrows(ResponseStatusException.class, () -> blockController.updateBlock(2L, block));
+        assertThrows(ResponseStatusException.class, () -> blockController.updateBlock(2L, block, null));
     }
 
     @Test
@@ -79,10 +114,9 @@ class BlockControllerTest {
         Block block = new Block();
         block.setBlockId(1L);
 
-        when(blockRepository.existsById(1L)).thenReturn(true);
         when(blockService.partialUpdate(Mockito.any(Block.class))).thenReturn(Optional.of(block));
 
-        ResponseEntity<Block> responseEntity = blockController.partialUpdateBlock(1L, block);
+        ResponseEntity<Block> responseEntity = blockController.partialUpdateBlock(1L, block, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertNotNull(responseEntity.getBody());
@@ -93,7 +127,7 @@ class BlockControllerTest {
         Block block = new Block();
         block.setBlockId(1L);
 
-        assertThrows(ResponseStatusException.class, () -> blockController.partialUpdateBlock(2L, block));
+        assertThrows(ResponseStatusException.class, () -> blockController.partialUpdateBlock(2L, block, null));
     }
 
     @Test
@@ -101,20 +135,63 @@ class BlockControllerTest {
         List<Block> blockList = Arrays.asList(new Block(), new Block());
         when(blockService.findAll()).thenReturn(blockList);
 
-        ResponseEntity<List<Block>> responseEntity = blockController.getAllBlocks();
+        ResponseEntity<List<Block>> responseEntity = blockController.getAllBlocks(null, null, null, null, null, null, true, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertEquals(blockList, responseEntity.getBody());
     }
 
+    @Test
+    void getAllBlocksPaged() {
+        List<Block> page = Arrays.asList(new Block(), new Block());
+        Keyset next = new Keyset(LocalDate.of(2024, 1, 1), 1001L);
+        when(blockService.findPage(null, null, null, "manager", null, 2)).thenReturn(new KeysetPage<>(page, next));
+
+        ResponseEntity<List<Block>> responseEntity = blockController.getAllBlocks(null, null, null, "manager", null, 2, false, null);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(page, responseEntity.getBody());
+        assertEquals(next, Keyset.decode(responseEntity.getHeaders().getFirst("X-Next-Cursor")));
+    }
+
+    @Test
+    void getAllBlocksWithInvalidPageSizeOrCursor() {
+        assertThrows(ResponseStatusException.class, () -> blockController.getAllBlocks(null, null, null, "manager", null, 0, false, null));
+        assertThrows(ResponseStatusException.class, () -> blockController.getAllBlocks(null, null, null, "manager", "not-a-cursor", 2, false, null));
+    }
+
     @Test
     void countBlocks() {
+        when(blockService.revision()).thenReturn("abc-3");
         when(blockService.count()).thenReturn(5L);
 
-        ResponseEntity<Long> responseEntity = blockController.countBlocks();
+        ResponseEntity<Long> responseEntity = blockController.countBlocks("\"abc-2\"");
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertEquals(5L, responseEntity.getBody());
+        assertEquals("\"abc-3\"", responseEntity.getHeaders().getETag());
+    }
+
+    @Test
+    void countBlocksNotModified() {
+        when(blockService.revision()).thenReturn("abc-3");
+
+        ResponseEntity<Long> responseEntity = blockController.countBlocks("\"abc-2\", W/\"abc-3\"");
+
+        assertEquals(HttpStatus.NOT_MODIFIED, responseEntity.getStatusCode());
+        assertNull(responseEntity.getBody());
+        verify(blockService, never()).count();
+    }
+
+    @Test
+    void getAllBlocksNotModified() {
+        when(blockService.revision()).thenReturn("abc-3");
+
+        ResponseEntity<List<Block>> responseEntity = blockController.getAllBlocks(null, null, null, null, null, null, true, "\"abc-3\"");
+
+        assertEquals(HttpStatus.NOT_MODIFIED, responseEntity.getStatusCode());
+        assertEquals("\"abc-3\"", responseEntity.getHeaders().getETag());
+        verify(blockService, never()).findAll();
     }
 
     @Test
@@ -141,4 +218,12 @@ class BlockControllerTest {
     void deleteBlock() {
         assertDoesNotThrow(() -> blockController.deleteBlock(1L));
     }
+
+    @Test
+    void deleteBlockLosingEveryRetry() {
+        Mockito.doThrow(new ObjectOptimisticLockingFailureException(Block.class, 1L)).when(blockService).delete(1L);
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> blockController.deleteBlock(1L));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    }
 }
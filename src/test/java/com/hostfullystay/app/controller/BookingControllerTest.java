@@ -1,8 +1,14 @@
 package com.hostfullystay.app.controller;
 
 import com.hostfullystay.app.domain.Booking;
-import com.hostfullystay.app.repository.BookingRepository;
+import com.hostfullystay.app.domain.EntityKind;
+import com.hostfullystay.app.repository.Keyset;
+import com.hostfullystay.app.repository.KeysetPage;
 import com.hostfullystay.app.service.BookingService;
+import com.hostfullystay.app.service.MissingEntityException;
+import com.hostfullystay.app.service.PropertyService;
+import com.hostfullystay.app.service.StaleVersionException;
+import com.hostfullystay.app.service.WritePipeline;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -10,6 +16,7 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -20,6 +27,8 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,7 +38,10 @@ class BookingControllerTest {
     private BookingService bookingService;
 
     @Mock
-    private BookingRepository bookingRepository;
+    private PropertyService propertyService;
+
+    @Mock
+    private WritePipeline writePipeline;
 
     @InjectMocks
     private BookingController bookingController;
@@ -45,8 +57,10 @@ class BookingControllerTest {
     @Test
     void createBooking() throws URISyntaxException {
         Booking booking = new Booking();
+        booking.setPropertyId(1000L);
+        when(propertyService.exists(1000L)).thenReturn(true);
 
-        when(bookingService.save(Mockito.any(Booking.class))).thenReturn(booking);
+        when(writePipeline.save(Mockito.any(Booking.class))).thenReturn(booking);
 
         ResponseEntity<Booking> responseEntity = bookingController.createBooking(booking);
 
@@ -62,26 +76,98 @@ class BookingControllerTest {
         assertThrows(ResponseStatusException.class, () -> bookingController.createBooking(booking));
     }
 
+    @Test
+    void createBookingForUnknownProperty() {
+        Booking booking = new Booking();
+        booking.setPropertyId(1000L);
+        when(propertyService.exists(1000L)).thenReturn(false);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> bookingController.createBooking(booking));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
     @Test
     void updateBooking() throws URISyntaxException {
         Booking booking = new Booking();
         booking.setBookingId(1L);
 
-        when(bookingRepository.existsById(1L)).thenReturn(true);
         when(bookingService.update(Mockito.any(Booking.class))).thenReturn(booking);
-        ResponseEntity<Booking> responseEntity = bookingController.updateBooking(1L, booking);
+        ResponseEntity<Booking> responseEntity = bookingController.updateBooking(1L, booking, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertNotNull(responseEntity.getBody());
 
     }
 
+    @Test
+    void updateBookingReturnsVersionAsETag() throws URISyntaxException {
+        Booking booking = new Booking();
+        booking.setBookingId(1L);
+        Booking saved = new Booking();
+        saved.setBookingId(1L);
+        saved.setVersion(4L);
+
+        when(bookingService.update(Mockito.any(Booking.class))).thenReturn(saved);
+        ResponseEntity<Booking> responseEntity = bookingController.updateBooking(1L, booking, "\"3\"");
+
+        assertEquals(3L, booking.getVersion());
+        assertEquals("\"4\"", responseEntity.getHeaders().getETag());
+    }
+
+    @Test
+    void updateBookingWithStaleIfMatch() {
+        Booking booking = new Booking();
+        booking.setBookingId(1L);
+
+        when(bookingService.update(Mockito.any(Booking.class))).thenThrow(new StaleVersionException(3L, 4L));
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> bookingController.updateBooking(1L, booking, "\"3\""));
+
+        assertEquals(HttpStatus.PRECONDITION_FAILED, exception.getStatusCode());
+    }
+
+    @Test
+    void updateBookingWithWeakIfMatch() {
+        Booking booking = new Booking();
+        booking.setBookingId(1L);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> bookingController.updateBooking(1L, booking, "W/\"3\""));
+
+        assertEquals(HttpStatus.PRECONDITION_FAILED, exception.getStatusCode());
+    }
+
+    @Test
+    void partialUpdateBookingLosingEveryRetry() {
+        Booking booking = new Booking();
+        booking.setBookingId(1L);
+
+        when(bookingService.partialUpdate(Mockito.any(Booking.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Booking.class, 1L));
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> bookingController.partialUpdateBooking(1L, booking, null));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    }
+
+    @Test
+    void updateBookingNotFound() {
+        Booking booking = new Booking();
+        booking.setBookingId(1L);
+
+        when(bookingService.update(Mockito.any(Booking.class))).thenThrow(new MissingEntityException(EntityKind.BOOKING, 1L));
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> bookingController.updateBooking(1L, booking, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
     @Test
     void updateBookingWithInvalidId() {
         Booking booking = new Booking();
         booking.setBookingId(1L);
 
-        assertThrows(ResponseStatusException.class, () -> bookingController.updateBooking(2L, booking));
+        assertThrows(ResponseStatusException.class, () -> bookingController.updateBooking(2L, booking, null));
     }
 
     @Test
@@ -89,10 +175,9 @@ class BookingControllerTest {
         Booking booking = new Booking();
         booking.setBookingId(1L);
 
-        when(bookingRepository.existsById(1L)).thenReturn(true);
         when(bookingService.partialUpdate(Mockito.any(Booking.class))).thenReturn(Optional.of(booking));
 
-        ResponseEntity<Booking> responseEntity = bookingController.partialUpdateBooking(1L, booking);
+        ResponseEntity<Booking> responseEntity = bookingController.partialUpdateBooking(1L, booking, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertNotNull(responseEntity.getBody());
@@ -103,7 +188,7 @@ class BookingControllerTest {
         Booking booking = new Booking();
         booking.setBookingId(1L);
 
-        assertThrows(ResponseStatusException.class, () -> bookingController.partialUpdateBooking(2L, booking));
+        assertThrows(ResponseStatusException.class, () -> bookingController.partialUpdateBooking(2L, booking, null));
     }
 
     @Test
@@ -111,21 +196,64 @@ class BookingControllerTest {
         List<Booking> bookingList = Arrays.asList(new Booking(), new Booking());
         when(bookingService.findAll()).thenReturn(bookingList);
 
-        ResponseEntity<List<Booking>> responseEntity = bookingController.getAllBookings();
+        ResponseEntity<List<Booking>> responseEntity = bookingController.getAllBookings(null, null, null, null, null, null, null, true, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertEquals(bookingList, responseEntity.getBody());
 
     }
 
+    @Test
+    void getAllBookingsPaged() {
+        List<Booking> page = Arrays.asList(new Booking(), new Booking());
+        Keyset next = new Keyset(LocalDate.of(2024, 1, 1), 1001L);
+        when(bookingService.findPage(null, null, null, Booking.State.BOOKED, null, null, 2)).thenReturn(new KeysetPage<>(page, next));
+
+        ResponseEntity<List<Booking>> responseEntity = bookingController.getAllBookings(null, null, null, Booking.State.BOOKED, null, null, 2, false, null);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(page, responseEntity.getBody());
+        assertEquals(next, Keyset.decode(responseEntity.getHeaders().getFirst("X-Next-Cursor")));
+    }
+
+    @Test
+    void getAllBookingsWithInvalidPageSizeOrCursor() {
+        assertThrows(ResponseStatusException.class, () -> bookingController.getAllBookings(null, null, null, Booking.State.BOOKED, null, null, 0, false, null));
+        assertThrows(ResponseStatusException.class, () -> bookingController.getAllBookings(null, null, null, Booking.State.BOOKED, null, "not-a-cursor", 2, false, null));
+    }
+
     @Test
     void countBookings() {
+        when(bookingService.revision()).thenReturn("abc-3");
         when(bookingService.count()).thenReturn(5L);
 
-        ResponseEntity<Long> responseEntity = bookingController.countBookings();
+        ResponseEntity<Long> responseEntity = bookingController.countBookings("\"abc-2\"");
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertEquals(5L, responseEntity.getBody());
+        assertEquals("\"abc-3\"", responseEntity.getHeaders().getETag());
+    }
+
+    @Test
+    void countBookingsNotModified() {
+        when(bookingService.revision()).thenReturn("abc-3");
+
+        ResponseEntity<Long> responseEntity = bookingController.countBookings("\"abc-2\", W/\"abc-3\"");
+
+        assertEquals(HttpStatus.NOT_MODIFIED, responseEntity.getStatusCode());
+        assertNull(responseEntity.getBody());
+        verify(bookingService, never()).count();
+    }
+
+    @Test
+    void getAllBookingsNotModified() {
+        when(bookingService.revision()).thenReturn("abc-3");
+
+        ResponseEntity<List<Booking>> responseEntity = bookingController.getAllBookings(null, null, null, null, null, null, null, true, "\"abc-3\"");
+
+        assertEquals(HttpStatus.NOT_MODIFIED, responseEntity.getStatusCode());
+        assertEquals("\"abc-3\"", responseEntity.getHeaders().getETag());
+        verify(bookingService, never()).findAll();
     }
 
     @Test
@@ -152,4 +280,12 @@ class BookingControllerTest {
     void deleteBooking() {
         assertDoesNotThrow(() -> bookingController.deleteBooking(1L));
     }
+
+    @Test
+    void deleteBookingLosingEveryRetry() {
+        Mockito.doThrow(new ObjectOptimisticLockingFailureException(Booking.class, 1L)).when(bookingService).delete(1L);
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> bookingController.deleteBooking(1L));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    }
 }
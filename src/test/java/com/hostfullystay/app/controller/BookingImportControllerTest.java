@@ -0,0 +1,90 @@
+package com.hostfullystay.app.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.service.BookingImportResult;
+import com.hostfullystay.app.service.BookingImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookingImportControllerTest {
+
+    @Mock
+    private BookingImportService bookingImportService;
+
+    private BookingImportController bookingImportController;
+
+    @BeforeEach
+    void setUp() {
+        bookingImportController = new BookingImportController(bookingImportService, new ObjectMapper().findAndRegisterModules());
+    }
+
+    @Test
+    void importBookingStream() throws IOException {
+        String body = "{\"dateFrom\":\"2030-01-01\",\"dateTo\":\"2030-01-02\",\"guestName\":\"a\"}\n"
+                + "{\"dateFrom\":\"2030-01-05\",\"dateTo\":\"2030-01-06\",\"guestName\":\"b\"}\n";
+        when(bookingImportService.importAll(any())).thenReturn(List.of());
+
+        ResponseEntity<List<BookingImportResult>> responseEntity = bookingImportController.importBookingStream(stream(body));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Booking>> captor = ArgumentCaptor.forClass(List.class);
+        verify(bookingImportService).importAll(captor.capture());
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(2, captor.getValue().size());
+        assertEquals(LocalDate.of(2030, 1, 5), captor.getValue().get(1).getDateFrom());
+    }
+
+    @Test
+    void importBookingStreamWithMalformedLine() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> bookingImportController.importBookingStream(stream("{\"dateFrom\":\n")));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
+    @Test
+    void importBookingsTooLarge() {
+        List<Booking> bookings = Collections.nCopies(BookingImportController.MAX_IMPORT_SIZE + 1, new Booking());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> bookingImportController.importBookings(bookings));
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, exception.getStatusCode());
+    }
+
+    @Test
+    void importBookingsRacingAnotherWriter() {
+        when(bookingImportService.importAll(any())).thenThrow(new ConcurrencyFailureException("taken"));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> bookingImportController.importBookings(List.of(new Booking())));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
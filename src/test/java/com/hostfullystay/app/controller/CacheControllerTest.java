@@ -0,0 +1,34 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.service.EntityCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheControllerTest {
+
+    @Test
+    void getCacheStats() {
+        EntityCache<String> bookings = new EntityCache<>("bookings", 10, Duration.ofMinutes(10));
+        EntityCache<String> blocks = new EntityCache<>("blocks", 10, Duration.ofMinutes(10));
+        bookings.get(1L, id -> Optional.of("booking"));
+        bookings.get(1L, id -> Optional.of("booking"));
+        CacheController cacheController = new CacheController(List.of(bookings, blocks));
+
+        ResponseEntity<List<EntityCache.Stats>> responseEntity = cacheController.getCacheStats();
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        List<EntityCache.Stats> stats = responseEntity.getBody();
+        assertEquals(2, stats.size());
+        assertEquals("bookings", stats.get(0).name());
+        assertEquals(1, stats.get(0).hitCount());
+        assertEquals(1, stats.get(0).missCount());
+        assertEquals(0, stats.get(1).missCount());
+    }
+}
@@ -0,0 +1,68 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.availability.CalendarDay;
+import com.hostfullystay.app.service.AvailabilityService;
+import com.hostfullystay.app.service.PropertyService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CalendarControllerTest {
+
+    private static final Long PROPERTY_ID = 1000L;
+
+    @Mock
+    private AvailabilityService availabilityService;
+
+    @Mock
+    private PropertyService propertyService;
+
+    @InjectMocks
+    private CalendarController calendarController;
+
+    @Test
+    void getCalendar() {
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        List<CalendarDay> days = List.of(
+                new CalendarDay(from, CalendarDay.State.BOOKED, 1000L, null),
+                new CalendarDay(from.plusDays(1), CalendarDay.State.FREE, null, null));
+        when(propertyService.exists(PROPERTY_ID)).thenReturn(true);
+        when(availabilityService.getCalendar(PROPERTY_ID, from, from.plusDays(1))).thenReturn(days);
+
+        ResponseEntity<List<CalendarDay>> responseEntity = calendarController.getCalendar(PROPERTY_ID, from, from.plusDays(1));
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(days, responseEntity.getBody());
+    }
+
+    @Test
+    void getCalendarWithInvalidRange() {
+        LocalDate from = LocalDate.of(2024, 1, 1);
+
+        assertThrows(ResponseStatusException.class, () -> calendarController.getCalendar(PROPERTY_ID, from, from.minusDays(1)));
+        assertThrows(ResponseStatusException.class,
+                () -> calendarController.getCalendar(PROPERTY_ID, from, from.plusDays(CalendarController.MAX_DAYS)));
+    }
+
+    @Test
+    void getCalendarOfUnknownProperty() {
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        when(propertyService.exists(PROPERTY_ID)).thenReturn(false);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> calendarController.getCalendar(PROPERTY_ID, from, from.plusDays(1)));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+}
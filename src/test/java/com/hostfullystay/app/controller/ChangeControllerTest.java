@@ -0,0 +1,59 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.service.ChangeFeed;
+import com.hostfullystay.app.service.ChangeFeedService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChangeControllerTest {
+
+    @Mock
+    private ChangeFeedService changeFeedService;
+
+    private ChangeController changeController;
+
+    @BeforeEach
+    void setUp() {
+        changeController = new ChangeController(changeFeedService);
+    }
+
+    @Test
+    void getChanges() {
+        ChangeFeed feed = new ChangeFeed(List.of(), 42L, false);
+        when(changeFeedService.changesSince(7L, Paging.DEFAULT_PAGE_SIZE)).thenReturn(feed);
+
+        ResponseEntity<ChangeFeed> responseEntity = changeController.getChanges(7L, null);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(feed, responseEntity.getBody());
+    }
+
+    @Test
+    void getChangesRejectsNegativeRevision() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> changeController.getChanges(-1L, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(changeFeedService);
+    }
+
+    @Test
+    void getChangesRejectsInvalidPageSize() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> changeController.getChanges(0L, Paging.MAX_PAGE_SIZE + 1));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(changeFeedService);
+    }
+}
@@ -0,0 +1,26 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.service.MutationEvents;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventControllerTest {
+
+    @Test
+    void subscribe() {
+        MutationEvents mutationEvents = new MutationEvents(16, 1, Duration.ofSeconds(5));
+        EventController eventController = new EventController(mutationEvents);
+
+        SseEmitter emitter = eventController.subscribe(1000L);
+
+        assertNotNull(emitter);
+        assertEquals(0L, emitter.getTimeout());
+        assertEquals(1, mutationEvents.subscriberCount());
+        mutationEvents.close();
+        assertEquals(0, mutationEvents.subscriberCount());
+    }
+}
@@ -0,0 +1,82 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.service.PropertyService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PropertyControllerTest {
+
+    @Mock
+    private PropertyService propertyService;
+
+    @InjectMocks
+    private PropertyController propertyController;
+
+    @Test
+    void createProperty() throws URISyntaxException {
+        Property property = new Property();
+        property.setName("Beach house");
+        Property saved = new Property();
+        saved.setPropertyId(1000L);
+        saved.setName("Beach house");
+        when(propertyService.save(Mockito.any(Property.class))).thenReturn(saved);
+
+        ResponseEntity<Property> responseEntity = propertyController.createProperty(property);
+
+        assertEquals(HttpStatus.CREATED, responseEntity.getStatusCode());
+        assertEquals("/v1/api/properties/1000", responseEntity.getHeaders().getLocation().toString());
+    }
+
+    @Test
+    void createPropertyWithInvalidId() {
+        Property property = new Property();
+        property.setPropertyId(1L);
+
+        assertThrows(ResponseStatusException.class, () -> propertyController.createProperty(property));
+    }
+
+    @Test
+    void getAllProperties() {
+        List<Property> properties = List.of(new Property(), new Property());
+        when(propertyService.findAll()).thenReturn(properties);
+
+        ResponseEntity<List<Property>> responseEntity = propertyController.getAllProperties();
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(properties, responseEntity.getBody());
+    }
+
+    @Test
+    void getProperty() {
+        Property property = new Property();
+        when(propertyService.findOne(1L)).thenReturn(Optional.of(property));
+
+        ResponseEntity<Property> responseEntity = propertyController.getProperty(1L);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(property, responseEntity.getBody());
+    }
+
+    @Test
+    void getPropertyNotFound() {
+        when(propertyService.findOne(1L)).thenReturn(Optional.empty());
+
+        assertThrows(ResponseStatusException.class, () -> propertyController.getProperty(1L));
+    }
+}
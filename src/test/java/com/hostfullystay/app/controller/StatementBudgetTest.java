@@ -0,0 +1,135 @@
+package com.hostfullystay.app.controller;
+
+import com.hostfullystay.app.StatementBudget;
+import com.hostfullystay.app.StatementCountingConfiguration;
+import com.hostfullystay.app.repository.StatementCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.QueryType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Holds the booking, block and property endpoints to the number of statements they send to the database.
+ * The conflict checks query the tables, as with the "database" strategy, so the budgets are those of the most
+ * expensive setup; when an endpoint gets cheaper, lower its budget to keep the gain.
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:statementbudgetdb", "hostfully.availability.strategy=database"})
+@AutoConfigureMockMvc
+class StatementBudgetTest {
+
+    private static final LocalDate BASE = LocalDate.now().plusYears(7).withDayOfYear(1);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private StatementBudget budget;
+    private long propertyId;
+
+    @BeforeEach
+    void setUp() throws Throwable {
+        budget = new StatementBudget(mockMvc, statementCounter);
+        // Insert, and a sequence fetch when the ids allocated by the previous one are used up.
+        propertyId = idOf(budget.perform(2, json(post("/v1/api/properties"), "{\"name\":\"Beach house\"}"))
+                .andExpect(status().isCreated()).andReturn());
+    }
+
+    @Test
+    void testBookingEndpoints() throws Throwable {
+        // Property lookup, overlap check, insert and at times a sequence fetch.
+        long bookingId = idOf(budget.perform(4, json(post("/v1/api/bookings"), booking(null, 0)))
+                .andExpect(status().isCreated()).andReturn());
+        // Property lookup and overlap check.
+        budget.perform(2, json(post("/v1/api/bookings"), booking(null, 1))).andExpect(status().isNotAcceptable());
+        // A single load, the overlap check and the update.
+        budget.perform(3, json(put("/v1/api/bookings/" + bookingId), booking(bookingId, 2))).andExpect(status().isOk());
+        budget.perform(3, json(patch("/v1/api/bookings/" + bookingId), "{\"bookingId\":" + bookingId + ",\"guestName\":\"renamed\"}"))
+                .andExpect(status().isOk());
+        budget.perform(1, get("/v1/api/bookings/" + bookingId)).andExpect(status().isOk());
+        // Served from the cache.
+        budget.perform(0, get("/v1/api/bookings/" + bookingId)).andExpect(status().isOk());
+        budget.perform(1, get("/v1/api/bookings?propertyId=" + propertyId)).andExpect(status().isOk());
+        budget.perform(1, get("/v1/api/bookings/count")).andExpect(status().isOk());
+        // Load, delete and tombstone.
+        budget.perform(3, delete("/v1/api/bookings/" + bookingId)).andExpect(status().isNoContent());
+        // The load finds nothing to update.
+        budget.perform(1, json(put("/v1/api/bookings/" + bookingId), booking(bookingId, 2))).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testBlockEndpoints() throws Throwable {
+        long blockId = idOf(budget.perform(4, json(post("/v1/api/blocks"), block(null, 0)))
+                .andExpect(status().isCreated()).andReturn());
+        budget.perform(3, json(put("/v1/api/blocks/" + blockId), block(blockId, 1))).andExpect(status().isOk());
+        budget.perform(3, json(patch("/v1/api/blocks/" + blockId), "{\"blockId\":" + blockId + ",\"manager\":\"other\"}"))
+                .andExpect(status().isOk());
+        budget.perform(3, delete("/v1/api/blocks/" + blockId)).andExpect(status().isNoContent());
+    }
+
+    @Test
+    void testPropertyAndCalendarEndpoints() throws Throwable {
+        budget.perform(1, get("/v1/api/properties/" + propertyId)).andExpect(status().isOk());
+        budget.perform(1, get("/v1/api/calendar?propertyId=" + propertyId + "&from=" + BASE + "&to=" + BASE.plusDays(30)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testFailsARequestOverItsBudget() {
+        AssertionError error = assertThrows(AssertionError.class,
+                () -> budget.perform(1, json(post("/v1/api/bookings"), booking(null, 10))));
+        assertTrue(error.getMessage().contains("ran 4"), error.getMessage());
+        assertTrue(error.getMessage().contains("insert into booking"), error.getMessage());
+    }
+
+    @Test
+    void testPublishesStatementsPerRequestAndByType() throws Throwable {
+        long inserts = statementCounter.total(QueryType.INSERT);
+        budget.perform(4, json(post("/v1/api/bookings"), booking(null, 20))).andExpect(status().isCreated());
+
+        assertEquals(inserts + 1, statementCounter.total(QueryType.INSERT));
+        assertEquals(inserts + 1, meterRegistry.get(StatementCounter.STATEMENTS).tags("type", "insert").functionCounter().count());
+        assertEquals(4.0, meterRegistry.get(StatementCountingConfiguration.PER_REQUEST)
+                .tags("method", "POST", "uri", "/v1/api/bookings").summary().max());
+    }
+
+    private static RequestBuilder json(MockHttpServletRequestBuilder request, String content) {
+        return request.contentType(MediaType.APPLICATION_JSON).content(content);
+    }
+
+    private static long idOf(MvcResult result) {
+        String location = result.getResponse().getHeader(HttpHeaders.LOCATION);
+        return Long.parseLong(location.substring(location.lastIndexOf('/') + 1));
+    }
+
+    private String booking(Long bookingId, int offset) {
+        return "{" + (bookingId != null ? "\"bookingId\":" + bookingId + "," : "") + "\"propertyId\":" + propertyId
+                + ",\"dateFrom\":\"" + BASE.plusDays(offset) + "\",\"dateTo\":\"" + BASE.plusDays(offset + 2)
+                + "\",\"guestName\":\"guestName\",\"state\":\"BOOKED\"}";
+    }
+
+    private String block(Long blockId, int offset) {
+        return "{" + (blockId != null ? "\"blockId\":" + blockId + "," : "") + "\"propertyId\":" + propertyId
+                + ",\"dateFrom\":\"" + BASE.plusDays(100 + offset) + "\",\"dateTo\":\"" + BASE.plusDays(102 + offset)
+                + "\",\"manager\":\"manager\"}";
+    }
+}
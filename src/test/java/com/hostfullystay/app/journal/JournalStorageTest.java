@@ -0,0 +1,134 @@
+package com.hostfullystay.app.journal;
+
+import com.hostfullystay.app.HostfullyApplication;
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.service.BlockService;
+import com.hostfullystay.app.service.BookingService;
+import com.hostfullystay.app.service.ChangeLog;
+import com.hostfullystay.app.service.PropertyService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes through the services of an application journaling to a directory, then starts new applications on fresh
+ * in-memory databases over a copy of that directory taken while the first one was running, as a crash would leave
+ * it, and checks that they come back with the same data and calendar.
+ */
+class JournalStorageTest {
+
+    private static final LocalDate BASE = LocalDate.now().plusYears(3).withDayOfYear(1);
+
+    @TempDir
+    Path directory;
+
+    @TempDir
+    Path crashed;
+
+    @Test
+    void testRestoresTheDataAndTheCalendarAfterACrash() throws IOException {
+        long propertyId;
+        long bookingId;
+        long movedBookingId;
+        long blockId;
+        long deletedBookingId;
+        try (ConfigurableApplicationContext context = start("journal-first", directory)) {
+            Property property = new Property();
+            property.setName("Beach house");
+            propertyId = context.getBean(PropertyService.class).save(property).getPropertyId();
+            BookingService bookingService = context.getBean(BookingService.class);
+            bookingId = bookingService.save(booking(propertyId, 0)).getBookingId();
+            movedBookingId = bookingService.save(booking(propertyId, 10)).getBookingId();
+            Booking moved = booking(propertyId, 20);
+            moved.setBookingId(movedBookingId);
+            bookingService.update(moved);
+            deletedBookingId = bookingService.save(booking(propertyId, 40)).getBookingId();
+            bookingService.delete(deletedBookingId);
+            blockId = context.getBean(BlockService.class).save(block(propertyId, 30)).getBlockId();
+            // The state of the disk if the process died now: no snapshot since the empty one taken at startup.
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.copy(file, crashed.resolve(file.getFileName()));
+                }
+            }
+        }
+
+        try (ConfigurableApplicationContext context = start("journal-second", crashed)) {
+            Journal.Recovery recovery = context.getBean(JournalStorage.class).recovery();
+            assertEquals(0, recovery.snapshotSequence());
+            assertEquals(7, recovery.entries());
+            assertRestored(context, propertyId, bookingId, movedBookingId, blockId, deletedBookingId);
+
+            // New ids continue after the replayed ones, and the calendar accepts writes as before.
+            long newBookingId = context.getBean(BookingService.class).save(booking(propertyId, 10)).getBookingId();
+            assertTrue(newBookingId > blockId);
+        }
+
+        // The second application snapshotted its state at shutdown; the third starts from that snapshot.
+        try (ConfigurableApplicationContext context = start("journal-third", crashed)) {
+            Journal.Recovery recovery = context.getBean(JournalStorage.class).recovery();
+            assertEquals(8, recovery.snapshotSequence());
+            assertEquals(8, recovery.lastSequence());
+            assertRestored(context, propertyId, bookingId, movedBookingId, blockId, deletedBookingId);
+            assertEquals(3, context.getBean(BookingService.class).count());
+        }
+    }
+
+    private void assertRestored(ConfigurableApplicationContext context, long propertyId, long bookingId, long movedBookingId, long blockId, long deletedBookingId) {
+        BookingService bookingService = context.getBean(BookingService.class);
+        assertEquals("Beach house", context.getBean(PropertyService.class).findOne(propertyId).orElseThrow().getName());
+        Booking moved = bookingService.findOne(movedBookingId).orElseThrow();
+        assertEquals(BASE.plusDays(20), moved.getDateFrom());
+        assertEquals(1L, moved.getVersion());
+        assertTrue(bookingService.findOne(bookingId).isPresent());
+        assertTrue(bookingService.findOne(deletedBookingId).isEmpty());
+        assertEquals("manager", context.getBean(BlockService.class).findOne(blockId).orElseThrow().getManager());
+
+        // The availability index was rebuilt from the replay: the booked, moved and blocked nights are taken.
+        assertNull(bookingService.save(booking(propertyId, 1)));
+        assertNull(bookingService.save(booking(propertyId, 21)));
+        assertNull(bookingService.save(booking(propertyId, 31)));
+        assertTrue(context.getBean(ChangeLog.class).watermark() > moved.getRevision());
+    }
+
+    private static ConfigurableApplicationContext start(String database, Path directory) {
+        return new SpringApplicationBuilder(HostfullyApplication.class).run(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:" + database,
+                "--hostfully.journal.enabled=true",
+                "--hostfully.journal.directory=" + directory,
+                "--hostfully.journal.segment-size=1MB"
+        ).toArray(String[]::new));
+    }
+
+    private static Booking booking(long propertyId, int offset) {
+        Booking booking = new Booking();
+        booking.setPropertyId(propertyId);
+        booking.setDateFrom(BASE.plusDays(offset));
+        booking.setDateTo(BASE.plusDays(offset + 2));
+        booking.setGuestName("guestName");
+        booking.setState(Booking.State.BOOKED);
+        return booking;
+    }
+
+    private static Block block(long propertyId, int offset) {
+        Block block = new Block();
+        block.setPropertyId(propertyId);
+        block.setDateFrom(BASE.plusDays(offset));
+        block.setDateTo(BASE.plusDays(offset + 2));
+        block.setManager("manager");
+        return block;
+    }
+}
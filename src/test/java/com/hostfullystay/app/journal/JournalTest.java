@@ -0,0 +1,284 @@
+package com.hostfullystay.app.journal;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.EntityKind;
+import com.hostfullystay.app.domain.Property;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+
+    private static final LocalDate BASE = LocalDate.of(2030, 1, 1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReplaysWhatWasAppended() throws IOException {
+        try (Journal journal = open(1 << 20)) {
+            assertEquals(2, journal.append(List.of(JournalEntry.of(property(1)), JournalEntry.of(booking(2, 1, 0, 0)))));
+            journal.sync(2);
+            assertEquals(3, journal.append(List.of(JournalEntry.deleted(5, EntityKind.BOOKING, 2L, 1L))));
+            journal.sync(3);
+        }
+
+        try (Journal journal = open(1 << 20)) {
+            List<JournalEntry> entries = new ArrayList<>();
+            Journal.Recovery recovery = journal.recover(entries::add);
+
+            assertEquals(new Journal.Recovery(0, 3, 3), recovery);
+            assertEquals("property-1", entries.get(0).property().getName());
+            Booking booking = entries.get(1).booking();
+            assertEquals(2L, booking.getBookingId());
+            assertEquals(BASE, booking.getDateFrom());
+            assertEquals(Booking.State.BOOKED, booking.getState());
+            assertEquals(0L, booking.getVersion());
+            assertEquals(EntityKind.BOOKING, entries.get(2).tombstone().getKind());
+            assertEquals(4, journal.append(List.of(JournalEntry.of(property(6)))));
+        }
+    }
+
+    @Test
+    void testStopsAtATornEntryAndOverwritesIt() throws IOException {
+        try (Journal journal = open(1 << 20)) {
+            journal.sync(journal.append(List.of(JournalEntry.of(property(1)), JournalEntry.of(property(2)))));
+        }
+        Path segment = segments().get(0);
+        long secondEntry;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, JournalSegment.HEADER_BYTES);
+            secondEntry = JournalSegment.HEADER_BYTES + JournalSegment.FRAME_HEADER_BYTES + length.getInt(0);
+            // A crash in the middle of the second entry: its payload only partly reached the disk.
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), secondEntry + JournalSegment.FRAME_HEADER_BYTES + 2);
+        }
+
+        try (Journal journal = open(1 << 20)) {
+            List<JournalEntry> entries = new ArrayList<>();
+            assertEquals(1, journal.recover(entries::add).lastSequence());
+            assertEquals(1, entries.size());
+            journal.sync(journal.append(List.of(JournalEntry.of(property(3)))));
+        }
+        try (Journal journal = open(1 << 20)) {
+            List<JournalEntry> entries = new ArrayList<>();
+            journal.recover(entries::add);
+            assertEquals(List.of(1L, 3L), entries.stream().map(entry -> entry.property().getPropertyId()).toList());
+        }
+    }
+
+    @Test
+    void testRollsOverToNewSegments() throws IOException {
+        try (Journal journal = open(4096)) {
+            for (int i = 1; i <= 500; i++) {
+                journal.sync(journal.append(List.of(JournalEntry.of(booking(i, 1, i, 0)))));
+            }
+        }
+        assertTrue(segments().size() > 5);
+
+        try (Journal journal = open(4096)) {
+            List<Long> ids = new ArrayList<>();
+            Journal.Recovery recovery = journal.recover(entry -> ids.add(entry.booking().getBookingId()));
+            assertEquals(500, recovery.lastSequence());
+            assertEquals(500, ids.size());
+            assertEquals(500L, ids.get(499));
+        }
+    }
+
+    @Test
+    void testRecoversFromTheLatestSnapshotAndPrunesOlderSegments() throws IOException {
+        try (Journal journal = open(4096)) {
+            JournalState state = new JournalState();
+            for (int i = 1; i <= 400; i++) {
+                List<JournalEntry> entries = List.of(JournalEntry.of(booking(i, 1, i, 0)));
+                entries.forEach(state);
+                journal.sync(journal.append(entries));
+                if (i % 100 == 0) {
+                    journal.snapshot(i, state::writeTo);
+                }
+            }
+            journal.sync(journal.append(List.of(JournalEntry.deleted(1000, EntityKind.BOOKING, 400L, 1L))));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.filter(path -> path.getFileName().toString().endsWith(".snap")).count());
+        }
+        // Segments wholly covered by the older of the two snapshots are gone.
+        assertTrue(firstSequenceOf(segments().get(0)) > 200);
+
+        try (Journal journal = open(4096)) {
+            JournalState state = new JournalState();
+            Journal.Recovery recovery = journal.recover(state);
+            assertEquals(400, recovery.snapshotSequence());
+            assertEquals(401, recovery.lastSequence());
+            assertEquals(401, recovery.entries());
+            assertEquals(399, state.bookings().size());
+            assertEquals(400, state.maxId());
+        }
+    }
+
+    @Test
+    void testFallsBackToTheOlderSnapshotWhenTheLatestIsDamaged() throws IOException {
+        try (Journal journal = open(4096)) {
+            JournalState state = new JournalState();
+            for (int i = 1; i <= 300; i++) {
+                List<JournalEntry> entries = List.of(JournalEntry.of(booking(i, 1, i, 0)));
+                entries.forEach(state);
+                journal.sync(journal.append(entries));
+                if (i % 100 == 0) {
+                    journal.snapshot(i, state::writeTo);
+                }
+            }
+        }
+        Path latest = directory.resolve(String.format("snapshot-%019d.snap", 300));
+        byte[] bytes = Files.readAllBytes(latest);
+        bytes[bytes.length / 2] ^= 0x55;
+        Files.write(latest, bytes);
+
+        try (Journal journal = open(4096)) {
+            JournalState state = new JournalState();
+            Journal.Recovery recovery = journal.recover(state);
+            assertEquals(200, recovery.snapshotSequence());
+            assertEquals(300, state.bookings().size());
+        }
+    }
+
+    @Test
+    void testKeepsTheHighestVersionAndIgnoresSavesAfterADelete() {
+        JournalState state = new JournalState();
+        state.accept(JournalEntry.of(booking(1, 1, 0, 2)));
+        // A write that committed earlier but reached the journal later.
+        state.accept(JournalEntry.of(booking(1, 1, 5, 1)));
+        state.accept(JournalEntry.of(block(2, 1, 10, 0)));
+        state.accept(JournalEntry.deleted(7, EntityKind.BLOCK, 2L, 1L));
+        state.accept(JournalEntry.of(block(2, 1, 10, 1)));
+
+        assertEquals(BASE, state.bookings().iterator().next().getDateFrom());
+        assertTrue(state.blocks().isEmpty());
+        assertEquals(1, state.tombstones().size());
+        assertEquals(2, state.maxId());
+    }
+
+    @Test
+    void testGroupCommitsConcurrentWriters() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (Journal journal = open(1 << 20)) {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int writer = t;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        long id = writer * 1000L + i;
+                        journal.sync(journal.append(List.of(JournalEntry.of(booking(id, writer, i, 0)))));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            assertEquals(1600, journal.lastSequence());
+        } finally {
+            executor.shutdownNow();
+        }
+        try (Journal journal = open(1 << 20)) {
+            JournalState state = new JournalState();
+            assertEquals(1600, journal.recover(state).entries());
+            assertEquals(1600, state.bookings().size());
+        }
+    }
+
+    @Test
+    void testReplaysAMillionEntriesOnTopOfASnapshot() throws IOException {
+        int bookings = 1_000_000;
+        try (Journal journal = new Journal(directory, 64 << 20, FsyncPolicy.NEVER, Duration.ZERO)) {
+            JournalState state = new JournalState();
+            List<JournalEntry> batch = new ArrayList<>();
+            for (int i = 1; i <= bookings / 2; i++) {
+                batch.add(JournalEntry.of(booking(i, i % 1000, i % 300, 0)));
+            }
+            batch.forEach(state);
+            journal.snapshot(journal.append(batch), state::writeTo);
+            batch.clear();
+            for (int i = bookings / 2 + 1; i <= bookings; i++) {
+                batch.add(JournalEntry.of(booking(i, i % 1000, i % 300, 0)));
+            }
+            journal.append(batch);
+        }
+
+        long start = System.nanoTime();
+        try (Journal journal = new Journal(directory, 64 << 20, FsyncPolicy.NEVER, Duration.ZERO)) {
+            JournalState state = new JournalState();
+            Journal.Recovery recovery = journal.recover(state);
+            long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+            System.out.printf("Recovered %d entries (snapshot at %d) in %d ms%n", recovery.entries(), recovery.snapshotSequence(), elapsed);
+
+            assertEquals(bookings / 2, recovery.snapshotSequence());
+            assertEquals(bookings, recovery.entries());
+            assertEquals(bookings, state.bookings().size());
+        }
+    }
+
+    private Journal open(int segmentSize) throws IOException {
+        return new Journal(directory, segmentSize, FsyncPolicy.ALWAYS, Duration.ZERO);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+    }
+
+    private static Property property(long id) {
+        Property property = new Property();
+        property.setPropertyId(id);
+        property.setName("property-" + id);
+        return property;
+    }
+
+    private static Booking booking(long id, long propertyId, int offset, long version) {
+        Booking booking = new Booking();
+        booking.setBookingId(id);
+        booking.setPropertyId(propertyId);
+        booking.setDateFrom(BASE.plusDays(offset));
+        booking.setDateTo(BASE.plusDays(offset + 2));
+        booking.setGuestName("guest-" + id);
+        booking.setState(Booking.State.BOOKED);
+        booking.setVersion(version);
+        booking.setRevision(id);
+        return booking;
+    }
+
+    private static Block block(long id, long propertyId, int offset, long version) {
+        Block block = new Block();
+        block.setBlockId(id);
+        block.setPropertyId(propertyId);
+        block.setDateFrom(BASE.plusDays(offset));
+        block.setDateTo(BASE.plusDays(offset + 2));
+        block.setManager("manager");
+        block.setVersion(version);
+        block.setRevision(id);
+        return block;
+    }
+}
@@ -0,0 +1,92 @@
+package com.hostfullystay.app.reactive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertyWriteLocksTest {
+
+    private PropertyWriteLocks propertyWriteLocksUnderTest;
+
+    @BeforeEach
+    void setUp() {
+        propertyWriteLocksUnderTest = new PropertyWriteLocks(64);
+    }
+
+    @Test
+    void testWritesOfOnePropertyRunOneAfterTheOther() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+
+        List<Integer> done = Flux.range(0, 50)
+                .flatMap(i -> propertyWriteLocksUnderTest.withLock(1000L, () -> Mono.fromCallable(() -> {
+                    if (running.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    return i;
+                }).delayElement(Duration.ofMillis(1)).doFinally(signal -> running.decrementAndGet())), 50)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(50, done.size());
+        assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    void testWaitingWriteRunsOnceTheEarlierOneCompletes() {
+        Sinks.Empty<Void> release = Sinks.empty();
+        List<String> order = new ArrayList<>();
+        Mono<String> first = propertyWriteLocksUnderTest.withLock(1000L, () -> release.asMono().then(Mono.fromCallable(() -> {
+            order.add("first");
+            return "first";
+        })));
+        Mono<String> second = propertyWriteLocksUnderTest.withLock(1000L, () -> Mono.fromCallable(() -> {
+            order.add("second");
+            return "second";
+        }));
+
+        first.subscribe();
+        StepVerifier.create(second)
+                .then(() -> assertTrue(order.isEmpty()))
+                .then(release::tryEmitEmpty)
+                .expectNext("second")
+                .verifyComplete();
+        assertEquals(List.of("first", "second"), order);
+    }
+
+    @Test
+    void testFailedWriteReleasesTheTurn() {
+        StepVerifier.create(propertyWriteLocksUnderTest.withLock(1000L, () -> Mono.error(new IllegalStateException("boom"))))
+                .verifyError(IllegalStateException.class);
+
+        StepVerifier.create(propertyWriteLocksUnderTest.withLock(1000L, () -> Mono.just("next")))
+                .expectNext("next")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testLongQueueOfSynchronousWritesCompletes() {
+        Long count = Flux.range(0, 10_000)
+                .flatMap(i -> propertyWriteLocksUnderTest.withLock(1000L, () -> Mono.just(i)), 10_000)
+                .count()
+                .block(Duration.ofSeconds(30));
+
+        assertEquals(10_000L, count);
+    }
+
+    @Test
+    void testRejectsZeroStripes() {
+        assertThrows(IllegalArgumentException.class, () -> new PropertyWriteLocks(0));
+    }
+}
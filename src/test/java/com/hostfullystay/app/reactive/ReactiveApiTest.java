@@ -0,0 +1,229 @@
+package com.hostfullystay.app.reactive;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.Property;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the booking and block endpoints on the reactive stack, against a database of its own.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactivedb;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactivedb;DB_CLOSE_DELAY=-1"
+})
+@ActiveProfiles(ReactiveConfiguration.PROFILE)
+class ReactiveApiTest {
+
+    private static final LocalDate BASE = LocalDate.now().plusYears(3).withDayOfYear(1);
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private ReactiveBookingRepository bookingRepository;
+
+    @LocalServerPort
+    private int port;
+
+    private Long propertyId;
+
+    @BeforeEach
+    void setUp() {
+        Property property = new Property();
+        property.setName("Beach house");
+        propertyId = webTestClient.post().uri("/v1/api/properties").bodyValue(property)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Property.class).returnResult().getResponseBody().getPropertyId();
+    }
+
+    @Test
+    void testCreatesAndReadsBookings() {
+        Booking created = create(booking(BASE, BASE.plusDays(2)));
+        assertNotNull(created.getBookingId());
+        assertEquals(Booking.State.BOOKED, created.getState());
+
+        webTestClient.get().uri("/v1/api/bookings/{id}", created.getBookingId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + created.getVersion() + "\"")
+                .expectBody().jsonPath("$.guestName").isEqualTo("guestName");
+        webTestClient.get().uri("/v1/api/bookings?propertyId={propertyId}", propertyId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Booking.class).hasSize(1);
+        webTestClient.get().uri("/v1/api/bookings/{id}", created.getBookingId() + 10_000)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void testRejectsOverlappingBookingsAndBlocks() {
+        create(booking(BASE, BASE.plusDays(2)));
+
+        webTestClient.post().uri("/v1/api/bookings").bodyValue(booking(BASE.plusDays(2), BASE.plusDays(4)))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_ACCEPTABLE);
+        webTestClient.post().uri("/v1/api/blocks").bodyValue(block(BASE.plusDays(1), BASE.plusDays(1)))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_ACCEPTABLE);
+        webTestClient.post().uri("/v1/api/blocks").bodyValue(block(BASE.plusDays(5), BASE.plusDays(6)))
+                .exchange()
+                .expectStatus().isCreated();
+        webTestClient.post().uri("/v1/api/bookings").bodyValue(booking(BASE.plusDays(6), BASE.plusDays(7)))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_ACCEPTABLE);
+    }
+
+    @Test
+    void testRejectsUnknownPropertyAndPresetId() {
+        Booking orphan = booking(BASE, BASE);
+        orphan.setPropertyId(propertyId + 10_000);
+        webTestClient.post().uri("/v1/api/bookings").bodyValue(orphan)
+                .exchange()
+                .expectStatus().isBadRequest();
+        Booking withId = booking(BASE, BASE);
+        withId.setBookingId(1L);
+        webTestClient.post().uri("/v1/api/bookings").bodyValue(withId)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testUpdatesUnderTheVersionRules() {
+        Booking created = create(booking(BASE.plusDays(20), BASE.plusDays(21)));
+        create(booking(BASE.plusDays(30), BASE.plusDays(31)));
+
+        created.setGuestName("renamed");
+        Booking updated = withVersion(webTestClient.put().uri("/v1/api/bookings/{id}", created.getBookingId())
+                .header(HttpHeaders.IF_MATCH, "\"" + created.getVersion() + "\"")
+                .bodyValue(created)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Booking.class).returnResult());
+        assertEquals("renamed", updated.getGuestName());
+        assertEquals(created.getVersion() + 1, updated.getVersion());
+
+        webTestClient.put().uri("/v1/api/bookings/{id}", created.getBookingId())
+                .header(HttpHeaders.IF_MATCH, "\"" + created.getVersion() + "\"")
+                .bodyValue(created)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        // Moving onto the other booking is refused while BOOKED, and allowed once CANCELED.
+        updated.setDateFrom(BASE.plusDays(30));
+        updated.setDateTo(BASE.plusDays(30));
+        webTestClient.put().uri("/v1/api/bookings/{id}", created.getBookingId()).bodyValue(updated)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_ACCEPTABLE);
+        updated.setState(Booking.State.CANCELED);
+        webTestClient.put().uri("/v1/api/bookings/{id}", created.getBookingId()).bodyValue(updated)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void testUpdateKeepsTheColumnsTheRequestCannotSet() {
+        Booking created = create(booking(BASE.plusDays(60), BASE.plusDays(61)));
+        databaseClient.sql("update booking set revision = 42 where booking_id = :id")
+                .bind("id", created.getBookingId())
+                .then()
+                .block(Duration.ofSeconds(10));
+
+        created.setGuestName("renamed");
+        webTestClient.put().uri("/v1/api/bookings/{id}", created.getBookingId()).bodyValue(created)
+                .exchange()
+                .expectStatus().isOk();
+
+        Booking stored = bookingRepository.findById(created.getBookingId()).block(Duration.ofSeconds(10));
+        assertEquals("renamed", stored.getGuestName());
+        assertEquals(42L, stored.getRevision());
+        assertEquals(propertyId, stored.getPropertyId());
+        assertEquals(created.getVersion() + 1, stored.getVersion());
+    }
+
+    @Test
+    void testDeletesBookings() {
+        Booking created = create(booking(BASE.plusDays(40), BASE.plusDays(41)));
+
+        webTestClient.delete().uri("/v1/api/bookings/{id}", created.getBookingId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get().uri("/v1/api/bookings/{id}", created.getBookingId())
+                .exchange()
+                .expectStatus().isNotFound();
+        create(booking(BASE.plusDays(40), BASE.plusDays(41)));
+    }
+
+    @Test
+    void testConcurrentBookingsOfTheSameNightsOnlyOneWins() {
+        WebClient client = WebClient.create("http://localhost:" + port);
+        List<HttpStatusCode> statuses = Flux.range(0, 20)
+                .flatMap(i -> client.post().uri("/v1/api/bookings").bodyValue(booking(BASE.plusDays(50), BASE.plusDays(52)))
+                        .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode())), 20)
+                .collectList()
+                .block(Duration.ofSeconds(60));
+
+        assertEquals(1, statuses.stream().filter(status -> status.value() == 201).count());
+        assertEquals(19, statuses.stream().filter(status -> status.value() == 406).count());
+    }
+
+    /**
+     * Creates the booking and returns it with its version, which is only sent back in the ETag.
+     */
+    private Booking create(Booking booking) {
+        EntityExchangeResult<Booking> result = webTestClient.post().uri("/v1/api/bookings").bodyValue(booking)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Booking.class).returnResult();
+        return withVersion(result);
+    }
+
+    private static Booking withVersion(EntityExchangeResult<Booking> result) {
+        Booking booking = result.getResponseBody();
+        booking.setVersion(Long.valueOf(result.getResponseHeaders().getETag().replace("\"", "")));
+        return booking;
+    }
+
+    private Booking booking(LocalDate from, LocalDate to) {
+        Booking booking = new Booking();
+        booking.setPropertyId(propertyId);
+        booking.setDateFrom(from);
+        booking.setDateTo(to);
+        booking.setGuestName("guestName");
+        return booking;
+    }
+
+    private Block block(LocalDate from, LocalDate to) {
+        Block block = new Block();
+        block.setPropertyId(propertyId);
+        block.setDateFrom(from);
+        block.setDateTo(to);
+        block.setManager("manager");
+        return block;
+    }
+}
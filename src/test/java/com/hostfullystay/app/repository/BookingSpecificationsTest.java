@@ -0,0 +1,124 @@
+package com.hostfullystay.app.repository;
+
+import com.hostfullystay.app.domain.Booking;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+public class BookingSpecificationsTest {
+
+    private static final LocalDate BASE = LocalDate.of(2024, 1, 1);
+    private static final Long PROPERTY_ID = 1000L;
+    private static final Long OTHER_PROPERTY_ID = 1001L;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @BeforeEach
+    public void setUp() {
+        // Three bookings per start day, so that pages have to break ties on the id.
+        for (int day = 0; day < 10; day++) {
+            for (int i = 0; i < 3; i++) {
+                Booking booking = new Booking();
+                booking.setPropertyId(day < 5 ? PROPERTY_ID : OTHER_PROPERTY_ID);
+                booking.setDateFrom(BASE.plusDays(day));
+                booking.setDateTo(BASE.plusDays(day + 2));
+                booking.setGuestName(i == 0 ? "alice" : "bob");
+                booking.setState(i == 2 ? Booking.State.CANCELED : Booking.State.BOOKED);
+                bookingRepository.save(booking);
+            }
+        }
+    }
+
+    @Test
+    public void testKeysetPagesVisitEveryRowOnceInOrder() {
+        List<Booking> visited = new ArrayList<>();
+        Keyset after = null;
+        int pages = 0;
+        do {
+            KeysetPage<Booking> page = page(null, after, 7);
+            visited.addAll(page.content());
+            after = page.next();
+            pages++;
+        } while (after != null);
+
+        assertEquals(5, pages);
+        assertEquals(30, visited.size());
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < visited.size(); i++) {
+            assertTrue(ids.add(visited.get(i).getBookingId()));
+            if (i > 0) {
+                Booking previous = visited.get(i - 1);
+                Booking current = visited.get(i);
+                assertTrue(previous.getDateFrom().isBefore(current.getDateFrom())
+                        || previous.getDateFrom().equals(current.getDateFrom()) && previous.getBookingId() < current.getBookingId());
+            }
+        }
+    }
+
+    @Test
+    public void testFiltersCombine() {
+        Specification<Booking> filter = Specification.allOf(
+                BookingSpecifications.overlapping(BASE.plusDays(5), BASE.plusDays(6)),
+                BookingSpecifications.hasState(Booking.State.BOOKED),
+                BookingSpecifications.hasGuestName("alice"));
+
+        List<Booking> bookings = bookingRepository.findAll(filter, BookingSpecifications.KEYSET_ORDER);
+
+        // Start days 3 to 6 reach into the range.
+        assertEquals(4, bookings.size());
+        assertEquals(BASE.plusDays(3), bookings.get(0).getDateFrom());
+        assertTrue(bookings.stream().allMatch(booking -> "alice".equals(booking.getGuestName())));
+    }
+
+    @Test
+    public void testPropertyFilterKeepsOneCalendar() {
+        Specification<Booking> filter = Specification.allOf(
+                BookingSpecifications.hasProperty(OTHER_PROPERTY_ID),
+                BookingSpecifications.overlapping(BASE, BASE.plusDays(5)));
+
+        List<Booking> bookings = bookingRepository.findAll(filter, BookingSpecifications.KEYSET_ORDER);
+
+        // Start days 5 and later belong to the other property; only day 5 reaches into the range.
+        assertEquals(3, bookings.size());
+        assertTrue(bookings.stream().allMatch(booking -> OTHER_PROPERTY_ID.equals(booking.getPropertyId())));
+    }
+
+    @Test
+    public void testNullFiltersMatchEverything() {
+        Specification<Booking> filter = Specification.allOf(
+                BookingSpecifications.hasProperty(null),
+                BookingSpecifications.overlapping(null, null),
+                BookingSpecifications.hasState(null),
+                BookingSpecifications.hasGuestName(null),
+                BookingSpecifications.after(null));
+
+        assertEquals(30, bookingRepository.count(filter));
+    }
+
+    @Test
+    public void testKeysetTokenRoundTrips() {
+        Keyset keyset = new Keyset(BASE, 1234L);
+
+        assertEquals(keyset, Keyset.decode(keyset.encode()));
+        assertThrows(IllegalArgumentException.class, () -> Keyset.decode("%%%"));
+    }
+
+    private KeysetPage<Booking> page(Specification<Booking> filter, Keyset after, int size) {
+        Specification<Booking> spec = Specification.allOf(filter, BookingSpecifications.after(after));
+        List<Booking> rows = bookingRepository.findBy(spec,
+                query -> query.sortBy(BookingSpecifications.KEYSET_ORDER).limit(size + 1).all());
+        return KeysetPage.of(rows, size, booking -> new Keyset(booking.getDateFrom(), booking.getBookingId()));
+    }
+}
@@ -0,0 +1,152 @@
+package com.hostfullystay.app.repository;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+public class OccupancyRepositoryTest {
+
+    private static final Long PROPERTY_ID = 1000L;
+    private static final Long OTHER_PROPERTY_ID = 1001L;
+
+    @Autowired
+    private OccupancyRepository occupancyRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BlockRepository blockRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Booking booked;
+
+    @BeforeEach
+    public void setUp() {
+        booked = bookingRepository.save(booking(LocalDate.of(2024, 1, 10), LocalDate.of(2024, 1, 15), Booking.State.BOOKED));
+        bookingRepository.save(booking(LocalDate.of(2024, 2, 10), LocalDate.of(2024, 2, 15), Booking.State.CANCELED));
+        blockRepository.save(block(LocalDate.of(2024, 3, 10), LocalDate.of(2024, 3, 15)));
+        entityManager.flush();
+    }
+
+    private static Booking booking(LocalDate dateFrom, LocalDate dateTo, Booking.State state) {
+        return booking(PROPERTY_ID, dateFrom, dateTo, state);
+    }
+
+    private static Booking booking(Long propertyId, LocalDate dateFrom, LocalDate dateTo, Booking.State state) {
+        Booking booking = new Booking();
+        booking.setPropertyId(propertyId);
+        booking.setDateFrom(dateFrom);
+        booking.setDateTo(dateTo);
+        booking.setGuestName("guestName");
+        booking.setState(state);
+        return booking;
+    }
+
+    private static Block block(LocalDate dateFrom, LocalDate dateTo) {
+        Block block = new Block();
+        block.setPropertyId(PROPERTY_ID);
+        block.setDateFrom(dateFrom);
+        block.setDateTo(dateTo);
+        block.setManager("manager");
+        return block;
+    }
+
+    @Test
+    public void testExistsBookedOverlapMatchesEveryOverlapShape() {
+        // Starts inside, ends inside, encloses and is enclosed by the booked range
+        assertTrue(occupancyRepository.existsBookedOverlap(PROPERTY_ID, LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 20), null));
+        assertTrue(occupancyRepository.existsBookedOverlap(PROPERTY_ID, LocalDate.of(2024, 1, 5), LocalDate.of(2024, 1, 10), null));
+        assertTrue(occupancyRepository.existsBookedOverlap(PROPERTY_ID, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), null));
+        assertTrue(occupancyRepository.existsBookedOverlap(PROPERTY_ID, LocalDate.of(2024, 1, 12), LocalDate.of(2024, 1, 12), null));
+
+        assertFalse(occupancyRepository.existsBookedOverlap(PROPERTY_ID, LocalDate.of(2024, 1, 16), LocalDate.of(2024, 1, 20), null));
+        assertFalse(occupancyRepository.existsBookedOverlap(PROPERTY_ID, LocalDate.of(2024, 1, 12), LocalDate.of(2024, 1, 12), booked.getBookingId()));
+    }
+
+    @Test
+    public void testExistsBookedOverlapIgnoresCanceledBookings() {
+        assertFalse(occupancyRepository.existsBookedOverlap(PROPERTY_ID, LocalDate.of(2024, 2, 10), LocalDate.of(2024, 2, 15), null));
+    }
+
+    @Test
+    public void testExistsBlockOverlap() {
+        assertTrue(occupancyRepository.existsBlockOverlap(PROPERTY_ID, LocalDate.of(2024, 3, 15), LocalDate.of(2024, 3, 20)));
+        assertFalse(occupancyRepository.existsBlockOverlap(PROPERTY_ID, LocalDate.of(2024, 1, 10), LocalDate.of(2024, 1, 15)));
+    }
+
+    @Test
+    public void testExistsOverlapCoversBookingsAndBlocks() {
+        assertTrue(occupancyRepository.existsOverlap(PROPERTY_ID, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 10), null));
+        assertTrue(occupancyRepository.existsOverlap(PROPERTY_ID, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 10), null));
+        assertFalse(occupancyRepository.existsOverlap(PROPERTY_ID, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 28), null));
+        assertFalse(occupancyRepository.existsOverlap(PROPERTY_ID, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 10), booked.getBookingId()));
+    }
+
+    @Test
+    public void testOverlapsAreScopedToTheProperty() {
+        bookingRepository.save(booking(OTHER_PROPERTY_ID, LocalDate.of(2024, 4, 1), LocalDate.of(2024, 4, 5), Booking.State.BOOKED));
+        entityManager.flush();
+
+        assertTrue(occupancyRepository.existsBookedOverlap(OTHER_PROPERTY_ID, LocalDate.of(2024, 4, 3), LocalDate.of(2024, 4, 3), null));
+        assertFalse(occupancyRepository.existsBookedOverlap(PROPERTY_ID, LocalDate.of(2024, 4, 3), LocalDate.of(2024, 4, 3), null));
+        assertFalse(occupancyRepository.existsOverlap(OTHER_PROPERTY_ID, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31), null));
+        assertEquals(1, occupancyRepository.findTakenRanges(OTHER_PROPERTY_ID, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)).size());
+    }
+
+    @Test
+    public void testFindRangesListsTakenRangesByStartDate() {
+        bookingRepository.save(booking(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 3), Booking.State.BOOKED));
+        entityManager.flush();
+
+        List<Object[]> booked = occupancyRepository.findBookedRanges(PROPERTY_ID, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31));
+        List<Object[]> blocked = occupancyRepository.findBlockRanges(PROPERTY_ID, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31));
+
+        assertEquals(2, booked.size());
+        assertEquals(LocalDate.of(2024, 1, 1), booked.get(0)[0]);
+        assertEquals(LocalDate.of(2024, 1, 15), booked.get(1)[1]);
+        assertEquals(1, blocked.size());
+        assertEquals(LocalDate.of(2024, 3, 10), blocked.get(0)[0]);
+    }
+
+    @Test
+    public void testFindTakenRangesUnionsBookedBookingsAndBlocksByStartDate() {
+        List<Object[]> taken = occupancyRepository.findTakenRanges(PROPERTY_ID, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31));
+
+        assertEquals(2, taken.size());
+        assertEquals(false, taken.get(0)[0]);
+        assertEquals(booked.getBookingId(), taken.get(0)[1]);
+        assertEquals(true, taken.get(1)[0]);
+        assertEquals(LocalDate.of(2024, 3, 15), taken.get(1)[3]);
+    }
+
+    @Test
+    public void testOverlapQueryPlanUsesCompositeIndexes() {
+        String plan = explain(OccupancyRepository.OVERLAP_QUERY).toUpperCase();
+
+        assertTrue(plan.contains("IDX_BOOKING_PROPERTY_DATES"), plan);
+        assertTrue(plan.contains("IDX_BLOCK_PROPERTY_DATES"), plan);
+    }
+
+    private String explain(String sql) {
+        Query query = entityManager.createNativeQuery("explain " + sql);
+        query.setParameter("propertyId", PROPERTY_ID);
+        query.setParameter("dateFrom", LocalDate.of(2024, 1, 1));
+        query.setParameter("dateTo", LocalDate.of(2024, 1, 31));
+        query.setParameter("excludeBookingId", null);
+        return String.valueOf(query.getSingleResult());
+    }
+}
@@ -1,18 +1,30 @@
 package com.hostfullystay.app.service;
 
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.AvailabilityStrategy;
+import com.hostfullystay.app.availability.DateRangeLocks;
+import com.hostfullystay.app.availability.NightLedger;
+import com.hostfullystay.app.availability.OccupancyCalendar;
 import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.journal.JournalRecorder;
 import com.hostfullystay.app.repository.BlockRepository;
 import com.hostfullystay.app.repository.BookingRepository;
+import com.hostfullystay.app.repository.OccupancyRepository;
+import com.hostfullystay.app.repository.OccupiedNightRepository;
+import com.hostfullystay.app.repository.TombstoneRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Optional;
 
-import static com.hostfullystay.app.domain.Booking.State.BOOKED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
@@ -20,26 +32,52 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class BlockServiceTest {
 
+    private static final Long PROPERTY_ID = 1000L;
+
     @Mock
     private BlockRepository blockRepository;
 
+    @Mock
+    private OccupancyRepository occupancyRepository;
+
     @Mock
     private BookingRepository bookingRepository;
 
-    @InjectMocks
+    @Mock
+    private OccupiedNightRepository occupiedNightRepository;
+
+    @Mock
+    private TombstoneRepository tombstoneRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private BlockService blockService;
 
+    @BeforeEach
+    void setUp() {
+        blockService = new BlockService(blockRepository, occupancyRepository,
+                new AvailabilityIndex(bookingRepository, blockRepository, AvailabilityStrategy.DATABASE, 0), new DateRangeLocks(16),
+                new NightLedger(occupiedNightRepository, bookingRepository, blockRepository, AvailabilityStrategy.DATABASE),
+                new OccupancyCalendar(bookingRepository, blockRepository), new EntityCache<>("blocks", 100, Duration.ofMinutes(10)), new CollectionRevisions(),
+                new ChangeLog(bookingRepository, blockRepository, tombstoneRepository), new MutationEvents(16, Runnable::run),
+                new AvailabilityMetrics(meterRegistry, AvailabilityStrategy.DATABASE), new JournalRecorder(Optional.empty()));
+    }
+
     @Test
     void testSaveValidBlock() {
         Block block = new Block();
+        block.setPropertyId(PROPERTY_ID);
         LocalDate fromDate = LocalDate.now();
         LocalDate toDate = LocalDate.now().plusDays(1);
 
-        // Mock the behavior of the bookingRepository.existsByDateFrom... methods
-        when(bookingRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(
-                any(LocalDate.class), any(LocalDate.class), any())).thenReturn(false);
+        // Mock the behavior of the occupancyRepository.existsBookedOverlap method
+        when(occupancyRepository.existsBookedOverlap(eq(PROPERTY_ID), any(LocalDate.class), any(LocalDate.class), any())).thenReturn(false);
 
-        when(blockRepository.save(block)).thenReturn(block);
+        // The repository assigns the id on save
+        when(blockRepository.save(block)).thenAnswer(invocation -> {
+            block.setBlockId(1L);
+            return block;
+        });
 
         // Call the method with valid arguments
         block.setDateFrom(fromDate);
@@ -48,21 +86,24 @@ class BlockServiceTest {
 
         assertNotNull(savedBlock);
 
-        // Verify that the bookingRepository.existsByDateFrom... methods were called with the correct arguments
-        verify(bookingRepository, times(1)).existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(
-                eq(fromDate), eq(toDate), any());
+        // Verify that the occupancyRepository.existsBookedOverlap method was called with the correct arguments
+        verify(occupancyRepository, times(1)).existsBookedOverlap(eq(PROPERTY_ID), eq(fromDate), eq(toDate), isNull());
         verify(blockRepository, times(1)).save(block);
+        assertEquals(1.0, meterRegistry.get(AvailabilityMetrics.WRITES).tags("entity", "block", "outcome", "accepted").counter().count());
+        assertEquals(1, meterRegistry.get(AvailabilityMetrics.CHECKS).tags("check", "isBlockValid", "result", "true").timer().count());
+        // The nested check is timed as part of the outer one only.
+        assertEquals(0, meterRegistry.get(AvailabilityMetrics.CHECKS).tags("check", "hasBookingConflicts", "result", "false").timer().count());
     }
     @Test
     void testSaveInvalidBlock() {
         // Create a block with conflicting dates
         Block block = new Block();
+        block.setPropertyId(PROPERTY_ID);
         block.setDateFrom(LocalDate.now().minusDays(1));
         block.setDateTo(LocalDate.now().plusDays(1));
 
-        // Mock the behavior of the bookingRepository.existsByDateFrom... methods
-        when(bookingRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(
-                any(LocalDate.class), any(LocalDate.class), any())).thenReturn(true);
+        // Mock the behavior of the occupancyRepository.existsBookedOverlap method
+        when(occupancyRepository.existsBookedOverlap(eq(PROPERTY_ID), any(LocalDate.class), any(LocalDate.class), any())).thenReturn(true);
 
         // Call the method with the conflicting block
         Block savedBlock = blockService.save(block);
@@ -70,21 +111,25 @@ class BlockServiceTest {
         // Assert that the block was not saved due to conflicts
         assertNull(savedBlock);
 
-        // Verify that the bookingRepository.existsByDateFrom... methods were called with the correct arguments
-        verify(bookingRepository, times(1)).existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(
-                eq(block.getDateFrom()), eq(block.getDateTo()), eq(BOOKED));
+        // Verify that the occupancyRepository.existsBookedOverlap method was called with the correct arguments
+        verify(occupancyRepository, times(1)).existsBookedOverlap(eq(PROPERTY_ID), eq(block.getDateFrom()), eq(block.getDateTo()), isNull());
         verify(blockRepository, never()).save(any());
+        assertEquals(1.0, meterRegistry.get(AvailabilityMetrics.WRITES).tags("entity", "block", "outcome", "rejected").counter().count());
+        assertEquals(0.0, meterRegistry.get(AvailabilityMetrics.WRITES).tags("entity", "block", "outcome", "accepted").counter().count());
     }
 
 
     @Test
     void testDeleteBlock() {
         Long blockId = 1L;
-        doNothing().when(blockRepository).deleteById(blockId);
+        Block block = new Block();
+        block.setBlockId(blockId);
+        block.setPropertyId(PROPERTY_ID);
+        when(blockRepository.findById(blockId)).thenReturn(Optional.of(block));
 
         blockService.delete(blockId);
 
-        verify(blockRepository, times(1)).deleteById(blockId);
+        verify(blockRepository, times(1)).delete(block);
     }
 
 }
@@ -0,0 +1,104 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.OccupancyCalendar;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.repository.BookingRepository;
+import com.hostfullystay.app.repository.PropertyRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Imports a large batch end to end and checks that the inserts reach the database in JDBC batches.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BookingImportIntegrationTest {
+
+    private static final LocalDate BASE = LocalDate.now().plusYears(3).withDayOfYear(1);
+    private static final int SIZE = 2000;
+
+    @Autowired
+    private BookingImportService bookingImportService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private OccupancyCalendar occupancyCalendar;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long propertyId;
+
+    @BeforeEach
+    void setUp() {
+        Property property = new Property();
+        property.setName("Beach house");
+        propertyId = propertyRepository.save(property).getPropertyId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingRepository.deleteAll();
+        propertyRepository.deleteAll();
+        availabilityIndex.load();
+        occupancyCalendar.load();
+    }
+
+    @Test
+    void testImportBatchesInsertsAndFeedsTheIndex() {
+        Booking existing = bookingService.save(booking(BASE.plusDays(1), BASE.plusDays(1)));
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            // One night stays on consecutive days; the second one lands on the existing booking.
+            bookings.add(booking(BASE.plusDays(i), BASE.plusDays(i)));
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long started = System.nanoTime();
+        List<BookingImportResult> results = bookingImportService.importAll(bookings);
+        long elapsed = System.nanoTime() - started;
+
+        assertEquals(BookingImportResult.conflictWithBooking(1, existing.getBookingId()), results.get(1));
+        assertEquals(SIZE - 1, results.stream().filter(result -> result.status() == BookingImportResult.Status.CREATED).count());
+        assertEquals(SIZE, bookingRepository.count());
+        assertTrue(bookingService.hasBookingConflicts(booking(BASE.plusDays(SIZE - 1), BASE.plusDays(SIZE + 5))));
+        // 2000 single-row inserts would take 2000 statements; batches of 50 take 40, plus the sequence calls.
+        assertTrue(statistics.getPrepareStatementCount() < 150, "Prepared " + statistics.getPrepareStatementCount());
+        System.out.printf("Imported %d bookings in %.1f ms with %d prepared statements%n",
+                SIZE, elapsed / 1e6, statistics.getPrepareStatementCount());
+    }
+
+    private Booking booking(LocalDate from, LocalDate to) {
+        Booking booking = new Booking();
+        booking.setPropertyId(propertyId);
+        booking.setDateFrom(from);
+        booking.setDateTo(to);
+        booking.setGuestName("guestName");
+        return booking;
+    }
+}
@@ -0,0 +1,187 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.AvailabilityStrategy;
+import com.hostfullystay.app.availability.DateRangeLocks;
+import com.hostfullystay.app.availability.NightLedger;
+import com.hostfullystay.app.availability.OccupancyCalendar;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.journal.JournalRecorder;
+import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.repository.BookingRepository;
+import com.hostfullystay.app.repository.OccupancyRepository;
+import com.hostfullystay.app.repository.OccupiedNightRepository;
+import com.hostfullystay.app.repository.PropertyRepository;
+import com.hostfullystay.app.repository.TombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookingImportServiceTest {
+
+    private static final LocalDate BASE = LocalDate.of(2030, 1, 1);
+    private static final Long PROPERTY_ID = 1000L;
+    private static final Long OTHER_PROPERTY_ID = 1001L;
+
+    @Mock
+    private BookingRepository mockBookingRepository;
+    @Mock
+    private OccupancyRepository mockOccupancyRepository;
+    @Mock
+    private BlockRepository mockBlockRepository;
+    @Mock
+    private OccupiedNightRepository mockOccupiedNightRepository;
+    @Mock
+    private TombstoneRepository mockTombstoneRepository;
+    @Mock
+    private PropertyRepository mockPropertyRepository;
+
+    private BookingImportService bookingImportServiceUnderTest;
+
+    @BeforeEach
+    void setUp() {
+        bookingImportServiceUnderTest = new BookingImportService(mockBookingRepository, mockOccupancyRepository, mockPropertyRepository,
+                new AvailabilityIndex(mockBookingRepository, mockBlockRepository, AvailabilityStrategy.DATABASE, 0), new DateRangeLocks(16),
+                new NightLedger(mockOccupiedNightRepository, mockBookingRepository, mockBlockRepository, AvailabilityStrategy.DATABASE),
+                new OccupancyCalendar(mockBookingRepository, mockBlockRepository), new CollectionRevisions(),
+                new ChangeLog(mockBookingRepository, mockBlockRepository, mockTombstoneRepository), new MutationEvents(16, Runnable::run), new JournalRecorder(Optional.empty()));
+    }
+
+    @Test
+    void testImportAll() {
+        // Setup
+        when(mockPropertyRepository.findExistingIds(Set.of(PROPERTY_ID))).thenReturn(Set.of(PROPERTY_ID));
+        final List<Booking> bookings = List.of(booking(0, 2), booking(5, 6), booking(10, 12));
+        when(mockOccupancyRepository.findTakenRanges(PROPERTY_ID, BASE, BASE.plusDays(12))).thenReturn(List.of());
+        assignIdsOnSave();
+
+        // Run the test
+        final List<BookingImportResult> result = bookingImportServiceUnderTest.importAll(bookings);
+
+        // Verify the results
+        assertEquals(List.of(BookingImportResult.created(0, 1000L), BookingImportResult.created(1, 1001L),
+                BookingImportResult.created(2, 1002L)), result);
+        verify(mockOccupancyRepository, times(1)).findTakenRanges(any(), any(), any());
+        verify(mockBookingRepository, times(1)).saveAll(any());
+    }
+
+    @Test
+    void testImportAll_ConflictsWithExistingBookingsAndBlocks() {
+        // Setup
+        when(mockPropertyRepository.findExistingIds(any())).thenReturn(Set.of(PROPERTY_ID));
+        final List<Booking> bookings = List.of(booking(0, 2), booking(4, 6), booking(9, 9), booking(20, 21));
+        final List<Object[]> taken = List.of(
+                new Object[]{false, 7L, BASE.minusDays(3), BASE},
+                new Object[]{true, 8L, BASE.plusDays(5), BASE.plusDays(5)},
+                new Object[]{true, 9L, BASE.plusDays(8), BASE.plusDays(15)});
+        when(mockOccupancyRepository.findTakenRanges(PROPERTY_ID, BASE, BASE.plusDays(21))).thenReturn(taken);
+        assignIdsOnSave();
+
+        // Run the test
+        final List<BookingImportResult> result = bookingImportServiceUnderTest.importAll(bookings);
+
+        // Verify the results
+        assertEquals(BookingImportResult.conflictWithBooking(0, 7L), result.get(0));
+        assertEquals(BookingImportResult.conflictWithBlock(1, 8L), result.get(1));
+        assertEquals(BookingImportResult.conflictWithBlock(2, 9L), result.get(2));
+        assertEquals(BookingImportResult.created(3, 1000L), result.get(3));
+    }
+
+    @Test
+    void testImportAll_ConflictsWithinBatchKeepEarlierStart() {
+        // Setup
+        when(mockPropertyRepository.findExistingIds(any())).thenReturn(Set.of(PROPERTY_ID));
+        final List<Booking> bookings = List.of(booking(3, 8), booking(0, 4), booking(5, 5), booking(9, 10));
+        when(mockOccupancyRepository.findTakenRanges(PROPERTY_ID, BASE, BASE.plusDays(10))).thenReturn(List.of());
+        assignIdsOnSave();
+
+        // Run the test
+        final List<BookingImportResult> result = bookingImportServiceUnderTest.importAll(bookings);
+
+        // Verify the results
+        assertEquals(BookingImportResult.conflictWithItem(0, 1), result.get(0));
+        assertEquals(BookingImportResult.Status.CREATED, result.get(1).status());
+        assertEquals(BookingImportResult.Status.CREATED, result.get(2).status());
+        assertEquals(BookingImportResult.Status.CREATED, result.get(3).status());
+    }
+
+    @Test
+    void testImportAll_InvalidAndCanceledItemsSkipTheSweep() {
+        // Setup
+        when(mockPropertyRepository.findExistingIds(any())).thenReturn(Set.of(PROPERTY_ID));
+        final Booking withId = booking(0, 1);
+        withId.setBookingId(5L);
+        final Booking inverted = booking(3, 1);
+        final Booking canceled = booking(0, 1);
+        canceled.setState(Booking.State.CANCELED);
+        assignIdsOnSave();
+
+        // Run the test
+        final List<BookingImportResult> result = bookingImportServiceUnderTest.importAll(List.of(withId, inverted, canceled));
+
+        // Verify the results
+        assertEquals(BookingImportResult.Status.INVALID, result.get(0).status());
+        assertEquals(BookingImportResult.Status.INVALID, result.get(1).status());
+        assertEquals(BookingImportResult.created(2, 1000L), result.get(2));
+        verifyNoInteractions(mockOccupancyRepository);
+    }
+
+    @Test
+    void testImportAll_SweepsEachPropertyOnItsOwn() {
+        // Setup
+        when(mockPropertyRepository.findExistingIds(any())).thenReturn(Set.of(PROPERTY_ID, OTHER_PROPERTY_ID));
+        final Booking other = booking(0, 4);
+        other.setPropertyId(OTHER_PROPERTY_ID);
+        final Booking unknown = booking(0, 4);
+        unknown.setPropertyId(1002L);
+        final List<Booking> bookings = List.of(booking(3, 8), other, booking(6, 7), unknown);
+        when(mockOccupancyRepository.findTakenRanges(PROPERTY_ID, BASE.plusDays(3), BASE.plusDays(8))).thenReturn(List.of());
+        when(mockOccupancyRepository.findTakenRanges(OTHER_PROPERTY_ID, BASE, BASE.plusDays(4))).thenReturn(List.of());
+        assignIdsOnSave();
+
+        // Run the test
+        final List<BookingImportResult> result = bookingImportServiceUnderTest.importAll(bookings);
+
+        // Verify the results
+        assertEquals(BookingImportResult.Status.CREATED, result.get(0).status());
+        assertEquals(BookingImportResult.Status.CREATED, result.get(1).status());
+        assertEquals(BookingImportResult.conflictWithItem(2, 0), result.get(2));
+        assertEquals(BookingImportResult.Status.INVALID, result.get(3).status());
+        verify(mockOccupancyRepository, times(2)).findTakenRanges(any(), any(), any());
+    }
+
+    private void assignIdsOnSave() {
+        AtomicLong ids = new AtomicLong(1000);
+        when(mockBookingRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<Booking> saved = new ArrayList<>();
+            for (Booking booking : invocation.<Iterable<Booking>>getArgument(0)) {
+                booking.setBookingId(ids.getAndIncrement());
+                saved.add(booking);
+            }
+            return saved;
+        });
+    }
+
+    private static Booking booking(int from, int to) {
+        Booking booking = new Booking();
+        booking.setPropertyId(PROPERTY_ID);
+        booking.setDateFrom(BASE.plusDays(from));
+        booking.setDateTo(BASE.plusDays(to));
+        booking.setGuestName("guestName");
+        return booking;
+    }
+}
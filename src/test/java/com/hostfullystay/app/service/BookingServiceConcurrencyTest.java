@@ -0,0 +1,171 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.CalendarDay;
+import com.hostfullystay.app.availability.NightLedger;
+import com.hostfullystay.app.availability.OccupancyCalendar;
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.repository.BookingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers BookingService and BlockService from several threads with heavily overlapping ranges
+ * and checks that the calendar never ends up double-booked.
+ */
+@SpringBootTest
+class BookingServiceConcurrencyTest {
+
+    private static final LocalDate BASE = LocalDate.now().plusYears(1).withDayOfYear(1);
+    private static final int ATTEMPTS_PER_THREAD = 150;
+    private static final Long PROPERTY_ID = 1000L;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BlockService blockService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BlockRepository blockRepository;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private NightLedger nightLedger;
+
+    @Autowired
+    private OccupancyCalendar occupancyCalendar;
+
+    @AfterEach
+    void tearDown() {
+        bookingRepository.deleteAll();
+        blockRepository.deleteAll();
+        availabilityIndex.load();
+        nightLedger.rebuild();
+        occupancyCalendar.load();
+    }
+
+    @Test
+    void testConcurrentOverlappingWritesNeverDoubleBook() throws Exception {
+        for (int threads : new int[]{1, 2, 4, 8}) {
+            tearDown();
+            AtomicInteger accepted = new AtomicInteger();
+            long elapsed = hammer(threads, accepted);
+
+            assertCalendarIntegrity();
+            int writes = threads * ATTEMPTS_PER_THREAD;
+            System.out.printf("%d threads: %d writes in %d ms (%.0f writes/s), %d accepted%n",
+                    threads, writes, elapsed, writes * 1000.0 / Math.max(1, elapsed), accepted.get());
+        }
+    }
+
+    private long hammer(int threads, AtomicInteger accepted) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(31L * threads + t);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    LocalDate from = BASE.plusDays(random.nextInt(180));
+                    LocalDate to = from.plusDays(random.nextInt(7));
+                    boolean saved = random.nextInt(10) == 0
+                            ? blockService.save(block(from, to)) != null
+                            : bookingService.save(booking(from, to)) != null;
+                    if (saved) {
+                        accepted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        executor.shutdown();
+        return elapsed;
+    }
+
+    private void assertCalendarIntegrity() {
+        List<Booking> booked = bookingRepository.findAll().stream()
+                .filter(booking -> Booking.State.BOOKED.equals(booking.getState()))
+                .sorted(Comparator.comparing(Booking::getDateFrom))
+                .toList();
+        assertFalse(booked.isEmpty());
+
+        for (int i = 1; i < booked.size(); i++) {
+            Booking previous = booked.get(i - 1);
+            Booking current = booked.get(i);
+            assertTrue(current.getDateFrom().isAfter(previous.getDateTo()),
+                    "Bookings " + previous.getBookingId() + " and " + current.getBookingId() + " overlap");
+        }
+        for (Block block : blockRepository.findAll()) {
+            for (Booking booking : booked) {
+                boolean overlaps = !booking.getDateFrom().isAfter(block.getDateTo())
+                        && !booking.getDateTo().isBefore(block.getDateFrom());
+                assertFalse(overlaps, "Booking " + booking.getBookingId() + " overlaps block " + block.getBlockId());
+            }
+        }
+
+        // The calendar was maintained write by write and must agree with the tables.
+        List<CalendarDay> days = occupancyCalendar.days(PROPERTY_ID, BASE, BASE.plusDays(190));
+        long bookedNights = 0;
+        for (Booking booking : booked) {
+            for (LocalDate night = booking.getDateFrom(); !night.isAfter(booking.getDateTo()); night = night.plusDays(1)) {
+                assertEquals(booking.getBookingId(), days.get((int) (night.toEpochDay() - BASE.toEpochDay())).bookingId());
+                bookedNights++;
+            }
+        }
+        for (Block block : blockRepository.findAll()) {
+            for (LocalDate night = block.getDateFrom(); !night.isAfter(block.getDateTo()); night = night.plusDays(1)) {
+                assertEquals(CalendarDay.State.BLOCKED, days.get((int) (night.toEpochDay() - BASE.toEpochDay())).state());
+            }
+        }
+        assertEquals(bookedNights, days.stream().filter(day -> day.state() == CalendarDay.State.BOOKED).count());
+    }
+
+    private static Booking booking(LocalDate from, LocalDate to) {
+        Booking booking = new Booking();
+        booking.setPropertyId(PROPERTY_ID);
+        booking.setDateFrom(from);
+        booking.setDateTo(to);
+        booking.setGuestName("guestName");
+        return booking;
+    }
+
+    private static Block block(LocalDate from, LocalDate to) {
+        Block block = new Block();
+        block.setPropertyId(PROPERTY_ID);
+        block.setDateFrom(from);
+        block.setDateTo(to);
+        block.setManager("manager");
+        return block;
+    }
+}
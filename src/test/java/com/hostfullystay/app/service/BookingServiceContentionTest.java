@@ -0,0 +1,142 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.OccupancyCalendar;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.repository.BookingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Patches bookings from several threads, either all the same booking or one booking per thread,
+ * and checks that every acknowledged patch is exactly one version increment, so none was lost.
+ */
+@SpringBootTest
+class BookingServiceContentionTest {
+
+    private static final LocalDate BASE = LocalDate.now().plusYears(2).withDayOfYear(1);
+    private static final Long PROPERTY_ID = 1000L;
+    private static final int PATCHES_PER_THREAD = 100;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private OccupancyCalendar occupancyCalendar;
+
+    @AfterEach
+    void tearDown() {
+        bookingRepository.deleteAll();
+        availabilityIndex.load();
+        occupancyCalendar.load();
+    }
+
+    @Test
+    void testConcurrentPatchesAreNeverLost() throws Exception {
+        for (int threads : new int[]{1, 2, 4, 8}) {
+            for (boolean shared : new boolean[]{true, false}) {
+                tearDown();
+                List<Long> ids = new ArrayList<>();
+                for (int t = 0; t < (shared ? 1 : threads); t++) {
+                    ids.add(bookingService.save(booking(BASE.plusMonths(2L * t), BASE.plusMonths(2L * t).plusDays(3))).getBookingId());
+                }
+                AtomicInteger applied = new AtomicInteger();
+                AtomicInteger conflicts = new AtomicInteger();
+                long elapsed = patch(threads, ids, applied, conflicts);
+
+                long increments = 0;
+                for (Long id : ids) {
+                    increments += bookingRepository.findById(id).orElseThrow().getVersion();
+                }
+                assertEquals(applied.get(), increments);
+                assertEquals(threads * PATCHES_PER_THREAD, applied.get() + conflicts.get());
+                int patches = threads * PATCHES_PER_THREAD;
+                System.out.printf("%d threads, %s: %d patches in %d ms (%.0f patches/s), %d gave up after retries%n",
+                        threads, shared ? "same booking" : "own booking", patches, elapsed,
+                        patches * 1000.0 / Math.max(1, elapsed), conflicts.get());
+            }
+        }
+    }
+
+    @Test
+    void testStaleVersionIsRejectedWithoutRetry() {
+        Booking saved = bookingService.save(booking(BASE, BASE.plusDays(3)));
+        Booking first = new Booking();
+        first.setBookingId(saved.getBookingId());
+        first.setGuestName("first");
+        first.setVersion(saved.getVersion());
+        bookingService.partialUpdate(first);
+
+        Booking second = new Booking();
+        second.setBookingId(saved.getBookingId());
+        second.setGuestName("second");
+        second.setVersion(saved.getVersion());
+
+        StaleVersionException exception = assertThrows(StaleVersionException.class, () -> bookingService.partialUpdate(second));
+        assertEquals(saved.getVersion() + 1, exception.getCurrentVersion());
+        assertEquals("first", bookingRepository.findById(saved.getBookingId()).orElseThrow().getGuestName());
+    }
+
+    private long patch(int threads, List<Long> ids, AtomicInteger applied, AtomicInteger conflicts) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Long id = ids.get(t % ids.size());
+            String guestName = "guest-" + t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < PATCHES_PER_THREAD; i++) {
+                    Booking patch = new Booking();
+                    patch.setBookingId(id);
+                    patch.setGuestName(guestName + "-" + i);
+                    try {
+                        bookingService.partialUpdate(patch);
+                        applied.incrementAndGet();
+                    } catch (OptimisticLockingFailureException e) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        executor.shutdown();
+        return elapsed;
+    }
+
+    private static Booking booking(LocalDate from, LocalDate to) {
+        Booking booking = new Booking();
+        booking.setPropertyId(PROPERTY_ID);
+        booking.setDateFrom(from);
+        booking.setDateTo(to);
+        booking.setGuestName("guestName");
+        return booking;
+    }
+}
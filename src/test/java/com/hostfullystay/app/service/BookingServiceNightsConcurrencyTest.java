@@ -0,0 +1,11 @@
+package com.hostfullystay.app.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Runs the concurrency checks against the occupied night table, where conflicts are
+ * rejected by the database on insert instead of by the application locks.
+ */
+@SpringBootTest(properties = "hostfully.availability.strategy=nights")
+class BookingServiceNightsConcurrencyTest extends BookingServiceConcurrencyTest {
+}
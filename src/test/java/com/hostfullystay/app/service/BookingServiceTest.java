@@ -1,14 +1,25 @@
 package com.hostfullystay.app.service;
 
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.AvailabilityStrategy;
+import com.hostfullystay.app.availability.DateRangeLocks;
+import com.hostfullystay.app.availability.NightLedger;
+import com.hostfullystay.app.availability.OccupancyCalendar;
 import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.journal.JournalRecorder;
 import com.hostfullystay.app.repository.BlockRepository;
 import com.hostfullystay.app.repository.BookingRepository;
+import com.hostfullystay.app.repository.OccupancyRepository;
+import com.hostfullystay.app.repository.OccupiedNightRepository;
+import com.hostfullystay.app.repository.TombstoneRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
@@ -16,7 +27,10 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,13 +39,26 @@ class BookingServiceTest {
     @Mock
     private BookingRepository mockBookingRepository;
     @Mock
+    private OccupancyRepository mockOccupancyRepository;
+    @Mock
     private BlockRepository mockBlockRepository;
+    @Mock
+    private OccupiedNightRepository mockOccupiedNightRepository;
+    @Mock
+    private TombstoneRepository mockTombstoneRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     private BookingService bookingServiceUnderTest;
 
     @BeforeEach
     void setUp() {
-        bookingServiceUnderTest = new BookingService(mockBookingRepository, mockBlockRepository);
+        bookingServiceUnderTest = new BookingService(mockBookingRepository, mockOccupancyRepository,
+                new AvailabilityIndex(mockBookingRepository, mockBlockRepository, AvailabilityStrategy.DATABASE, 0), new DateRangeLocks(16),
+                new NightLedger(mockOccupiedNightRepository, mockBookingRepository, mockBlockRepository, AvailabilityStrategy.DATABASE),
+                new OccupancyCalendar(mockBookingRepository, mockBlockRepository), new EntityCache<>("bookings", 100, Duration.ofMinutes(10)), new CollectionRevisions(),
+                new ChangeLog(mockBookingRepository, mockBlockRepository, mockTombstoneRepository), new MutationEvents(16, Runnable::run),
+                new AvailabilityMetrics(meterRegistry, AvailabilityStrategy.DATABASE), new JournalRecorder(Optional.empty()));
     }
 
     @Test
@@ -39,25 +66,23 @@ class BookingServiceTest {
         // Setup
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
         booking.setGuestName("guestName");
         booking.setState(Booking.State.BOOKED);
 
-        when(mockBookingRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
+        when(mockOccupancyRepository.existsOverlap(1000L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), 0L)).thenReturn(false);
 
         // Configure BookingRepository.save(...).
         final Booking booking1 = new Booking();
         booking1.setBookingId(0L);
+        booking1.setPropertyId(1000L);
         booking1.setDateFrom(LocalDate.of(2020, 1, 1));
         booking1.setDateTo(LocalDate.of(2020, 1, 1));
         booking1.setGuestName("guestName");
         booking1.setState(Booking.State.BOOKED);
+        booking1.setRevision(1L);
         when(mockBookingRepository.save(any(Booking.class))).thenReturn(booking1);
 
         // Run the test
@@ -67,51 +92,25 @@ class BookingServiceTest {
     }
 
     @Test
-    void testSave_BookingRepositoryExistsByDateFromLessThanEqualAndDateToGreaterThanEqualAndStateReturnsTrue() {
-        // Setup
-        final Booking booking = new Booking();
-        booking.setBookingId(0L);
-        booking.setDateFrom(LocalDate.of(2020, 1, 1));
-        booking.setDateTo(LocalDate.of(2020, 1, 1));
-        booking.setGuestName("guestName");
-        booking.setState(Booking.State.BOOKED);
-
-        when(mockBookingRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(true);
-
-        // Run the test
-        final Booking result = bookingServiceUnderTest.save(booking);
-
-        // Verify the results
-        assertNull(result);
-    }
-
-    @Test
-    void testSave_BlockRepositoryExistsByDateFromLessThanEqualAndDateToGreaterThanEqualReturnsTrue() {
+    void testSave_OccupancyRepositoryExistsOverlapReturnsTrue() {
         // Setup
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
         booking.setGuestName("guestName");
         booking.setState(Booking.State.BOOKED);
 
-        when(mockBlockRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
-        when(mockBlockRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
-        when(mockBlockRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(true);
+        when(mockOccupancyRepository.existsOverlap(1000L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), 0L)).thenReturn(true);
 
         // Run the test
         final Booking result = bookingServiceUnderTest.save(booking);
 
         // Verify the results
         assertNull(result);
+        assertEquals(1.0, meterRegistry.get(AvailabilityMetrics.WRITES).tags("entity", "booking", "outcome", "rejected").counter().count());
+        assertEquals(1, meterRegistry.get(AvailabilityMetrics.CHECKS).tags("check", "isBookingValid", "result", "false", "strategy", "database").timer().count());
     }
 
     @Test
@@ -119,73 +118,53 @@ class BookingServiceTest {
         // Setup
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
         booking.setGuestName("guestName");
         booking.setState(Booking.State.BOOKED);
 
-        when(mockBookingRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
+        final Booking stored = stored();
+        when(mockBookingRepository.findById(0L)).thenReturn(Optional.of(stored));
+        when(mockOccupancyRepository.existsOverlap(1000L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), 0L)).thenReturn(false);
 
         // Configure BookingRepository.save(...).
         final Booking booking1 = new Booking();
         booking1.setBookingId(0L);
+        booking1.setPropertyId(1000L);
         booking1.setDateFrom(LocalDate.of(2020, 1, 1));
         booking1.setDateTo(LocalDate.of(2020, 1, 1));
         booking1.setGuestName("guestName");
         booking1.setState(Booking.State.BOOKED);
+        booking1.setRevision(1L);
         when(mockBookingRepository.save(any(Booking.class))).thenReturn(booking1);
 
         // Run the test
         final Booking result = bookingServiceUnderTest.update(booking);
 
         // Verify the results
+        assertEquals(booking1, result);
+        // The change is applied to the booking loaded once, which keeps its version.
+        verify(mockBookingRepository, times(1)).findById(0L);
+        verify(mockBookingRepository).save(stored);
+        assertEquals(LocalDate.of(2020, 1, 1), stored.getDateFrom());
+        assertEquals("guestName", stored.getGuestName());
+        assertEquals(2L, stored.getVersion());
     }
 
     @Test
-    void testUpdate_BookingRepositoryExistsByDateFromLessThanEqualAndDateToGreaterThanEqualAndStateReturnsTrue() {
-        // Setup
-        final Booking booking = new Booking();
-        booking.setBookingId(0L);
-        booking.setDateFrom(LocalDate.of(2020, 1, 1));
-        booking.setDateTo(LocalDate.of(2020, 1, 1));
-        booking.setGuestName("guestName");
-        booking.setState(Booking.State.BOOKED);
-
-        when(mockBookingRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(true);
-
-        // Run the test
-        final Booking result = bookingServiceUnderTest.update(booking);
-
-        // Verify the results
-        assertNull(result);
-    }
-
-    @Test
-    void testUpdate_BlockRepositoryExistsByDateFromLessThanEqualAndDateToGreaterThanEqualReturnsTrue() {
+    void testUpdate_OccupancyRepositoryExistsOverlapReturnsTrue() {
         // Setup
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
         booking.setGuestName("guestName");
         booking.setState(Booking.State.BOOKED);
 
-        when(mockBlockRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
-        when(mockBlockRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
-        when(mockBlockRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(true);
+        when(mockBookingRepository.findById(0L)).thenReturn(Optional.of(stored()));
+        when(mockOccupancyRepository.existsOverlap(1000L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), 0L)).thenReturn(true);
 
         // Run the test
         final Booking result = bookingServiceUnderTest.update(booking);
@@ -199,6 +178,7 @@ class BookingServiceTest {
         // Setup
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
         booking.setGuestName("guestName");
@@ -207,6 +187,7 @@ class BookingServiceTest {
         // Configure BookingRepository.findById(...).
         final Booking booking2 = new Booking();
         booking2.setBookingId(0L);
+        booking2.setPropertyId(1000L);
         booking2.setDateFrom(LocalDate.of(2020, 1, 1));
         booking2.setDateTo(LocalDate.of(2020, 1, 1));
         booking2.setGuestName("guestName");
@@ -214,26 +195,17 @@ class BookingServiceTest {
         final Optional<Booking> booking1 = Optional.of(booking2);
         when(mockBookingRepository.findById(0L)).thenReturn(booking1);
 
-        when(mockBookingRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBlockRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
-        when(mockBlockRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
-        when(mockBlockRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
+        when(mockOccupancyRepository.existsOverlap(1000L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), 0L)).thenReturn(false);
 
         // Configure BookingRepository.save(...).
         final Booking booking3 = new Booking();
         booking3.setBookingId(0L);
+        booking3.setPropertyId(1000L);
         booking3.setDateFrom(LocalDate.of(2020, 1, 1));
         booking3.setDateTo(LocalDate.of(2020, 1, 1));
         booking3.setGuestName("guestName");
         booking3.setState(Booking.State.BOOKED);
+        booking3.setRevision(1L);
         when(mockBookingRepository.save(any(Booking.class))).thenReturn(booking3);
 
         // Run the test
@@ -247,6 +219,7 @@ class BookingServiceTest {
         // Setup
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
         booking.setGuestName("guestName");
@@ -255,51 +228,18 @@ class BookingServiceTest {
         when(mockBookingRepository.findById(0L)).thenReturn(Optional.empty());
 
         // Run the test
-        final Optional<Booking> result = bookingServiceUnderTest.partialUpdate(booking);
-
-        // Verify the results
-        assertEquals(Optional.empty(), result);
-    }
-
-    @Test
-    void testPartialUpdate_BookingRepositoryExistsByDateFromLessThanEqualAndDateToGreaterThanEqualAndStateReturnsTrue() {
-        // Setup
-        final Booking booking = new Booking();
-        booking.setBookingId(0L);
-        booking.setDateFrom(LocalDate.of(2020, 1, 1));
-        booking.setDateTo(LocalDate.of(2020, 1, 1));
-        booking.setGuestName("guestName");
-        booking.setState(Booking.State.BOOKED);
-
-        // Configure BookingRepository.findById(...).
-        final Booking booking2 = new Booking();
-        booking2.setBookingId(0L);
-        booking2.setDateFrom(LocalDate.of(2020, 1, 1));
-        booking2.setDateTo(LocalDate.of(2020, 1, 1));
-        booking2.setGuestName("guestName");
-        booking2.setState(Booking.State.BOOKED);
-        final Optional<Booking> booking1 = Optional.of(booking2);
-        when(mockBookingRepository.findById(0L)).thenReturn(booking1);
-
-        when(mockBookingRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(true);
-
-        // Run the test
-        final Optional<Booking> result = bookingServiceUnderTest.partialUpdate(booking);
+        assertThrows(MissingEntityException.class, () -> bookingServiceUnderTest.partialUpdate(booking));
 
         // Verify the results
-        assertEquals(Optional.empty(), result);
+        verify(mockBookingRepository, never()).save(any(Booking.class));
     }
 
     @Test
-    void testPartialUpdate_BlockRepositoryExistsByDateFromLessThanEqualAndDateToGreaterThanEqualReturnsTrue() {
+    void testPartialUpdate_OccupancyRepositoryExistsOverlapReturnsTrue() {
         // Setup
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
         booking.setGuestName("guestName");
@@ -308,6 +248,7 @@ class BookingServiceTest {
         // Configure BookingRepository.findById(...).
         final Booking booking2 = new Booking();
         booking2.setBookingId(0L);
+        booking2.setPropertyId(1000L);
         booking2.setDateFrom(LocalDate.of(2020, 1, 1));
         booking2.setDateTo(LocalDate.of(2020, 1, 1));
         booking2.setGuestName("guestName");
@@ -315,12 +256,7 @@ class BookingServiceTest {
         final Optional<Booking> booking1 = Optional.of(booking2);
         when(mockBookingRepository.findById(0L)).thenReturn(booking1);
 
-        when(mockBlockRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
-        when(mockBlockRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
-        when(mockBlockRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(true);
+        when(mockOccupancyRepository.existsOverlap(1000L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), 0L)).thenReturn(true);
 
         // Run the test
         final Optional<Booking> result = bookingServiceUnderTest.partialUpdate(booking);
@@ -335,6 +271,7 @@ class BookingServiceTest {
         // Configure BookingRepository.findAll(...).
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
         booking.setGuestName("guestName");
@@ -378,6 +315,7 @@ class BookingServiceTest {
         // Configure BookingRepository.findById(...).
         final Booking booking1 = new Booking();
         booking1.setBookingId(0L);
+        booking1.setPropertyId(1000L);
         booking1.setDateFrom(LocalDate.of(2020, 1, 1));
         booking1.setDateTo(LocalDate.of(2020, 1, 1));
         booking1.setGuestName("guestName");
@@ -392,91 +330,119 @@ class BookingServiceTest {
     }
 
     @Test
-    void testFindOne_BookingRepositoryReturnsAbsent() {
+    void testFindOne_ServedFromTheCacheUntilAWrite() {
         // Setup
-        when(mockBookingRepository.findById(0L)).thenReturn(Optional.empty());
+        final Booking booking = new Booking();
+        booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
+        booking.setDateFrom(LocalDate.of(2020, 1, 1));
+        booking.setDateTo(LocalDate.of(2020, 1, 1));
+        booking.setGuestName("guestName");
+        booking.setState(Booking.State.BOOKED);
+        when(mockBookingRepository.findById(0L)).thenReturn(Optional.of(booking));
+        when(mockBookingRepository.save(any(Booking.class))).thenReturn(booking);
 
         // Run the test
+        bookingServiceUnderTest.findOne(0L);
+        bookingServiceUnderTest.findOne(0L);
+        bookingServiceUnderTest.update(booking);
         final Optional<Booking> result = bookingServiceUnderTest.findOne(0L);
 
         // Verify the results
-        assertEquals(Optional.empty(), result);
+        assertEquals(Optional.of(booking), result);
+        // Two reads go to the repository and the update loads the stored booking once.
+        verify(mockBookingRepository, times(3)).findById(0L);
     }
 
     @Test
-    void testDelete() {
+    void testRevisionChangesWithEveryWrite() {
         // Setup
+        final Booking booking = new Booking();
+        booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
+        booking.setDateFrom(LocalDate.of(2020, 1, 1));
+        booking.setDateTo(LocalDate.of(2020, 1, 1));
+        booking.setGuestName("guestName");
+        booking.setState(Booking.State.BOOKED);
+        when(mockBookingRepository.save(any(Booking.class))).thenReturn(booking);
+        when(mockBookingRepository.findById(0L)).thenReturn(Optional.of(booking));
+        final String initial = bookingServiceUnderTest.revision();
+
         // Run the test
+        bookingServiceUnderTest.save(booking);
+        final String saved = bookingServiceUnderTest.revision();
+        bookingServiceUnderTest.findOne(0L);
+        final String read = bookingServiceUnderTest.revision();
         bookingServiceUnderTest.delete(0L);
 
         // Verify the results
-        verify(mockBookingRepository).deleteById(0L);
+        assertNotEquals(initial, saved);
+        assertEquals(saved, read);
+        assertNotEquals(read, bookingServiceUnderTest.revision());
     }
 
     @Test
-    void testIsBookingValid() {
+    void testFindOne_BookingRepositoryReturnsAbsent() {
+        // Setup
+        when(mockBookingRepository.findById(0L)).thenReturn(Optional.empty());
+
+        // Run the test
+        final Optional<Booking> result = bookingServiceUnderTest.findOne(0L);
+
+        // Verify the results
+        assertEquals(Optional.empty(), result);
+    }
+
+    @Test
+    void testDelete() {
         // Setup
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
-        booking.setGuestName("guestName");
         booking.setState(Booking.State.BOOKED);
-
-        when(mockBookingRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
+        when(mockBookingRepository.findById(0L)).thenReturn(Optional.of(booking));
 
         // Run the test
-        final boolean result = bookingServiceUnderTest.isBookingValid(booking);
+        bookingServiceUnderTest.delete(0L);
 
         // Verify the results
-        assertTrue(result);
+        verify(mockBookingRepository).delete(booking);
     }
 
     @Test
-    void testIsBookingValid_BookingRepositoryExistsByDateFromLessThanEqualAndDateToGreaterThanEqualAndStateReturnsTrue() {
+    void testIsBookingValid() {
         // Setup
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
         booking.setGuestName("guestName");
         booking.setState(Booking.State.BOOKED);
 
-        when(mockBookingRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(true);
+        when(mockOccupancyRepository.existsOverlap(1000L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), 0L)).thenReturn(false);
 
         // Run the test
         final boolean result = bookingServiceUnderTest.isBookingValid(booking);
 
         // Verify the results
-        assertFalse(result);
+        assertTrue(result);
     }
 
     @Test
-    void testIsBookingValid_BlockRepositoryExistsByDateFromLessThanEqualAndDateToGreaterThanEqualReturnsTrue() {
+    void testIsBookingValid_OccupancyRepositoryExistsOverlapReturnsTrue() {
         // Setup
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
         booking.setGuestName("guestName");
         booking.setState(Booking.State.BOOKED);
 
-        when(mockBlockRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
-        when(mockBlockRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
-        when(mockBlockRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(true);
+        when(mockOccupancyRepository.existsOverlap(1000L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), 0L)).thenReturn(true);
 
         // Run the test
         final boolean result = bookingServiceUnderTest.isBookingValid(booking);
@@ -490,17 +456,13 @@ class BookingServiceTest {
         // Setup
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
         booking.setGuestName("guestName");
         booking.setState(Booking.State.BOOKED);
 
-        when(mockBookingRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
+        when(mockOccupancyRepository.existsBookedOverlap(1000L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), 0L)).thenReturn(false);
 
         // Run the test
         final boolean result = bookingServiceUnderTest.hasBookingConflicts(booking);
@@ -510,21 +472,17 @@ class BookingServiceTest {
     }
 
     @Test
-    void testHasBookingConflicts_BookingRepositoryExistsByDateFromLessThanEqualAndDateToGreaterThanEqualAndStateReturnsTrue() {
+    void testHasBookingConflicts_OccupancyRepositoryExistsBookedOverlapReturnsTrue() {
         // Setup
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
         booking.setGuestName("guestName");
         booking.setState(Booking.State.BOOKED);
 
-        when(mockBookingRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(false);
-        when(mockBookingRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqualAndState(
-                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), Booking.State.BOOKED)).thenReturn(true);
+        when(mockOccupancyRepository.existsBookedOverlap(1000L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1), 0L)).thenReturn(true);
 
         // Run the test
         final boolean result = bookingServiceUnderTest.hasBookingConflicts(booking);
@@ -538,17 +496,13 @@ class BookingServiceTest {
         // Setup
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
         booking.setGuestName("guestName");
         booking.setState(Booking.State.BOOKED);
 
-        when(mockBlockRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
-        when(mockBlockRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
-        when(mockBlockRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
+        when(mockOccupancyRepository.existsBlockOverlap(1000L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1))).thenReturn(false);
 
         // Run the test
         final boolean result = bookingServiceUnderTest.hasBlockConflicts(booking);
@@ -559,21 +513,17 @@ class BookingServiceTest {
 
 
     @Test
-    void testHasBlockConflicts_BlockRepositoryExistsByDateFromLessThanEqualAndDateToGreaterThanEqualReturnsTrue() {
+    void testHasBlockConflicts_OccupancyRepositoryExistsBlockOverlapReturnsTrue() {
         // Setup
         final Booking booking = new Booking();
         booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
         booking.setDateFrom(LocalDate.of(2020, 1, 1));
         booking.setDateTo(LocalDate.of(2020, 1, 1));
         booking.setGuestName("guestName");
         booking.setState(Booking.State.BOOKED);
 
-        when(mockBlockRepository.existsByDateFromGreaterThanEqualAndDateFromLessThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
-        when(mockBlockRepository.existsByDateToGreaterThanEqualAndDateToLessThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(false);
-        when(mockBlockRepository.existsByDateFromLessThanEqualAndDateToGreaterThanEqual(LocalDate.of(2020, 1, 1),
-                LocalDate.of(2020, 1, 1))).thenReturn(true);
+        when(mockOccupancyRepository.existsBlockOverlap(1000L, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1))).thenReturn(true);
 
         // Run the test
         final boolean result = bookingServiceUnderTest.hasBlockConflicts(booking);
@@ -581,4 +531,54 @@ class BookingServiceTest {
         // Verify the results
         assertTrue(result);
     }
+
+    @Test
+    void testHasBookingConflicts_AvailabilityIndexEnabled() {
+        // Setup
+        final AvailabilityIndex availabilityIndex = new AvailabilityIndex(mockBookingRepository, mockBlockRepository, AvailabilityStrategy.INDEX, 0);
+        bookingServiceUnderTest = new BookingService(mockBookingRepository, mockOccupancyRepository, availabilityIndex, new DateRangeLocks(16),
+                new NightLedger(mockOccupiedNightRepository, mockBookingRepository, mockBlockRepository, AvailabilityStrategy.DATABASE),
+                new OccupancyCalendar(mockBookingRepository, mockBlockRepository), new EntityCache<>("bookings", 100, Duration.ofMinutes(10)), new CollectionRevisions(),
+                new ChangeLog(mockBookingRepository, mockBlockRepository, mockTombstoneRepository), new MutationEvents(16, Runnable::run),
+                new AvailabilityMetrics(meterRegistry, AvailabilityStrategy.DATABASE), new JournalRecorder(Optional.empty()));
+
+        final Booking existing = new Booking();
+        existing.setBookingId(1L);
+        existing.setPropertyId(1000L);
+        existing.setDateFrom(LocalDate.of(2019, 12, 30));
+        existing.setDateTo(LocalDate.of(2020, 1, 1));
+        existing.setGuestName("guestName");
+        existing.setState(Booking.State.BOOKED);
+        availabilityIndex.bookingSaved(existing);
+
+        final Booking booking = new Booking();
+        booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
+        booking.setDateFrom(LocalDate.of(2020, 1, 1));
+        booking.setDateTo(LocalDate.of(2020, 1, 1));
+        booking.setGuestName("guestName");
+        booking.setState(Booking.State.BOOKED);
+
+        // Run the test
+        final boolean result = bookingServiceUnderTest.hasBookingConflicts(booking);
+
+        // Verify the results
+        assertTrue(result);
+        verifyNoInteractions(mockOccupancyRepository);
+    }
+
+    /**
+     * The booking stored under id 0, as the updates load it.
+     */
+    private static Booking stored() {
+        final Booking booking = new Booking();
+        booking.setBookingId(0L);
+        booking.setPropertyId(1000L);
+        booking.setDateFrom(LocalDate.of(2019, 12, 1));
+        booking.setDateTo(LocalDate.of(2019, 12, 3));
+        booking.setGuestName("previousGuest");
+        booking.setState(Booking.State.BOOKED);
+        booking.setVersion(2L);
+        return booking;
+    }
 }
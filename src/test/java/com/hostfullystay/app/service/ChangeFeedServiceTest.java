@@ -0,0 +1,233 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.OccupancyCalendar;
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.EntityKind;
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.repository.BookingRepository;
+import com.hostfullystay.app.repository.PropertyRepository;
+import com.hostfullystay.app.repository.TombstoneRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes bookings and blocks end to end and reads them back through the change feed and the event stream.
+ * The test has a database of its own, so the revisions it sees are only its own.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:changefeeddb")
+class ChangeFeedServiceTest {
+
+    private static final LocalDate BASE = LocalDate.now().plusYears(2).withDayOfYear(1);
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BlockService blockService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BlockRepository blockRepository;
+
+    @Autowired
+    private TombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private OccupancyCalendar occupancyCalendar;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MutationEvents mutationEvents;
+
+    private Long propertyId;
+    private long since;
+
+    @BeforeEach
+    void setUp() {
+        Property property = new Property();
+        property.setName("Beach house");
+        propertyId = propertyRepository.save(property).getPropertyId();
+        since = changeFeedService.changesSince(0, 500).next();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingRepository.deleteAll();
+        blockRepository.deleteAll();
+        tombstoneRepository.deleteAll();
+        propertyRepository.deleteAll();
+        availabilityIndex.load();
+        occupancyCalendar.load();
+    }
+
+    @Test
+    void testReportsTheLastWriteAndTheTombstones() {
+        Booking booking = bookingService.save(booking(BASE, BASE.plusDays(2)));
+        Block block = blockService.save(block(BASE.plusDays(10), BASE.plusDays(12)));
+        booking.setGuestName("renamed");
+        bookingService.update(booking);
+        blockService.delete(block.getBlockId());
+
+        ChangeFeed feed = changeFeedService.changesSince(since, 50);
+
+        assertEquals(2, feed.changes().size());
+        Change updated = feed.changes().get(0);
+        assertEquals(EntityKind.BOOKING, updated.kind());
+        assertEquals(booking.getBookingId(), updated.id());
+        assertEquals("renamed", updated.booking().getGuestName());
+        assertFalse(updated.deleted());
+        Change deleted = feed.changes().get(1);
+        assertEquals(EntityKind.BLOCK, deleted.kind());
+        assertEquals(block.getBlockId(), deleted.id());
+        assertEquals(propertyId, deleted.propertyId());
+        assertTrue(deleted.deleted());
+        assertNull(deleted.block());
+        assertTrue(updated.revision() < deleted.revision());
+        assertEquals(deleted.revision(), feed.next());
+        assertFalse(feed.more());
+
+        ChangeFeed upToDate = changeFeedService.changesSince(feed.next(), 50);
+        assertTrue(upToDate.changes().isEmpty());
+        assertEquals(feed.next(), upToDate.next());
+    }
+
+    @Test
+    void testPagesInRevisionOrder() {
+        List<Long> written = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            written.add(bookingService.save(booking(BASE.plusDays(3L * i), BASE.plusDays(3L * i))).getBookingId());
+        }
+
+        List<Long> read = new ArrayList<>();
+        long cursor = since;
+        List<Boolean> more = new ArrayList<>();
+        do {
+            ChangeFeed feed = changeFeedService.changesSince(cursor, 2);
+            feed.changes().forEach(change -> read.add(change.id()));
+            more.add(feed.more());
+            cursor = feed.next();
+        } while (more.get(more.size() - 1));
+
+        assertEquals(written, read);
+        assertEquals(List.of(true, true, false), more);
+    }
+
+    @Test
+    void testHoldsBackRevisionsBehindAnOpenTransaction() throws Exception {
+        CountDownLatch saved = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Months apart, so the two writes take different lock stripes.
+        CompletableFuture<Long> slow = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            Long id = bookingService.save(booking(BASE, BASE)).getBookingId();
+            saved.countDown();
+            await(release);
+            return id;
+        }));
+        await(saved);
+        Long fast = bookingService.save(booking(BASE.plusMonths(2), BASE.plusMonths(2))).getBookingId();
+
+        ChangeFeed blocked = changeFeedService.changesSince(since, 50);
+        assertTrue(blocked.changes().isEmpty(), "A later revision was served while an earlier one was still open");
+        assertEquals(since, blocked.next());
+
+        release.countDown();
+        Long slowId = slow.get(10, TimeUnit.SECONDS);
+        ChangeFeed feed = changeFeedService.changesSince(blocked.next(), 50);
+        assertEquals(List.of(slowId, fast), feed.changes().stream().map(Change::id).toList());
+    }
+
+    @Test
+    void testPushesCommittedWritesToSubscribers() throws Exception {
+        BlockingQueue<MutationEvent> received = new LinkedBlockingQueue<>();
+        MutationEvents.Subscription subscription = mutationEvents.subscribe(propertyId, new MutationEvents.Sink() {
+            @Override
+            public void send(MutationEvent event) {
+                received.add(event);
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        try {
+            Booking booking = bookingService.save(booking(BASE, BASE.plusDays(1)));
+            booking.setState(Booking.State.CANCELED);
+            bookingService.update(booking);
+            transactionTemplate.executeWithoutResult(status -> {
+                bookingService.save(booking(BASE.plusDays(5), BASE.plusDays(5)));
+                status.setRollbackOnly();
+            });
+            bookingService.delete(booking.getBookingId());
+
+            List<MutationEvent.Type> types = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                MutationEvent event = received.poll(5, TimeUnit.SECONDS);
+                assertNotNull(event);
+                assertEquals(booking.getBookingId(), event.change().id());
+                types.add(event.type());
+            }
+            assertEquals(List.of(MutationEvent.Type.CREATED, MutationEvent.Type.CANCELED, MutationEvent.Type.DELETED), types);
+            assertNull(received.poll(100, TimeUnit.MILLISECONDS), "A rolled back write was pushed");
+        } finally {
+            subscription.cancel();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Booking booking(LocalDate from, LocalDate to) {
+        Booking booking = new Booking();
+        booking.setPropertyId(propertyId);
+        booking.setDateFrom(from);
+        booking.setDateTo(to);
+        booking.setGuestName("guestName");
+        return booking;
+    }
+
+    private Block block(LocalDate from, LocalDate to) {
+        Block block = new Block();
+        block.setPropertyId(propertyId);
+        block.setDateFrom(from);
+        block.setDateTo(to);
+        block.setManager("manager");
+        return block;
+    }
+}
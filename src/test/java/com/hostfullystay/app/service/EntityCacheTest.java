@@ -0,0 +1,89 @@
+package com.hostfullystay.app.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<Long, Optional<String>> loader = id -> {
+        loads.incrementAndGet();
+        return id < 100 ? Optional.of("entity " + id + " v" + loads.get()) : Optional.empty();
+    };
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private EntityCache<String> cache(long maximumSize) {
+        return new EntityCache<>("test", maximumSize, Duration.ofMinutes(10), nanos::get, Runnable::run);
+    }
+
+    @Test
+    void testRepeatedReadsAreHits() {
+        EntityCache<String> cache = cache(10);
+
+        assertEquals(Optional.of("entity 1 v1"), cache.get(1L, loader));
+        assertEquals(Optional.of("entity 1 v1"), cache.get(1L, loader));
+        assertEquals(Optional.empty(), cache.get(100L, loader));
+        assertEquals(Optional.empty(), cache.get(100L, loader));
+
+        EntityCache.Stats stats = cache.stats();
+        assertEquals(1, stats.size());
+        assertEquals(1, stats.hitCount());
+        // Absent ids are not cached, so each lookup of one is a miss.
+        assertEquals(3, stats.missCount());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testSizeBoundEvicts() {
+        EntityCache<String> cache = cache(10);
+
+        for (long id = 0; id < 50; id++) {
+            cache.get(id, loader);
+        }
+
+        EntityCache.Stats stats = cache.stats();
+        assertEquals(10, stats.size());
+        assertEquals(40, stats.evictionCount());
+    }
+
+    @Test
+    void testEntriesExpireAfterTheTtl() {
+        EntityCache<String> cache = cache(10);
+        cache.get(1L, loader);
+
+        nanos.addAndGet(Duration.ofMinutes(9).toNanos());
+        assertEquals(Optional.of("entity 1 v1"), cache.get(1L, loader));
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertEquals(Optional.of("entity 1 v2"), cache.get(1L, loader));
+    }
+
+    @Test
+    void testInvalidationWaitsForTheCommit() {
+        EntityCache<String> cache = cache(10);
+        cache.get(1L, loader);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.invalidate(1L);
+
+        assertEquals(Optional.of("entity 1 v1"), cache.get(1L, loader));
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(Optional.of("entity 1 v2"), cache.get(1L, loader));
+    }
+}
@@ -0,0 +1,159 @@
+package com.hostfullystay.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exports generated tables end to end, checking the NDJSON output and that rows are detached as they are streamed.
+ * The test has a database of its own, so the generated rows can be truncated instead of deleted one by one.
+ * <p>
+ * The export of a million bookings, which also samples the heap, is tagged as a benchmark and only runs with
+ * {@code mvn -Pbenchmark test}.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:exportdb")
+class ExportServiceTest {
+
+    private static final long FIRST_ID = 100_000_000L;
+    private static final int ROWS = 5_000;
+    private static final int BENCHMARK_ROWS = 1_000_000;
+    private static final long MAX_HEAP_GROWTH = 64L * 1024 * 1024;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("truncate table booking");
+        jdbcTemplate.execute("truncate table block");
+    }
+
+    @Test
+    void testExportWritesOneObjectPerLine() throws IOException {
+        insertBlocks(3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportBlocks(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, count);
+        assertEquals(3, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(FIRST_ID + 1, first.get("blockId").asLong());
+        assertEquals("2040-01-02", first.get("dateFrom").asText());
+        assertEquals("manager 1", first.get("manager").asText());
+    }
+
+    @Test
+    void testExportDetachesEachRowAsItIsWritten() throws IOException {
+        insertBookings(ROWS);
+        ExportSampler out = new ExportSampler(null, 1);
+
+        long count = exportService.exportBookings(out);
+
+        assertEquals(ROWS, count);
+        assertEquals(count, out.lines);
+        // Detached as they are written, at most the row being serialized is ever managed.
+        assertTrue(out.maxManagedEntities <= 1, "Managed " + out.maxManagedEntities);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testExportOfAMillionBookingsKeepsMemoryFlat() throws IOException {
+        insertBookings(BENCHMARK_ROWS);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        ExportSampler out = new ExportSampler(memory, 100_000);
+
+        long count = exportService.exportBookings(out);
+
+        assertEquals(BENCHMARK_ROWS, count);
+        assertEquals(count, out.lines);
+        assertTrue(out.maxManagedEntities <= 1, "Managed " + out.maxManagedEntities);
+        assertTrue(out.maxHeapUsed - baseline < MAX_HEAP_GROWTH,
+                "Heap grew by " + (out.maxHeapUsed - baseline) / (1024 * 1024) + " MB");
+    }
+
+    private void insertBookings(int rows) {
+        jdbcTemplate.update("insert into booking (booking_id, property_id, date_from, date_to, guest_name, state, version)"
+                + " select ? + x, 1000 + mod(x, 100), dateadd(day, mod(x, 3650), date '2040-01-01'), dateadd(day, mod(x, 3650) + 2, date '2040-01-01'),"
+                + " concat('guest ', x), 'CANCELED', 0 from system_range(1, ?)", FIRST_ID, rows);
+    }
+
+    private void insertBlocks(int rows) {
+        jdbcTemplate.update("insert into block (block_id, property_id, date_from, date_to, manager, version)"
+                + " select ? + x, 1000, dateadd(day, x, date '2040-01-01'), dateadd(day, x + 1, date '2040-01-01'),"
+                + " concat('manager ', x), 0 from system_range(1, ?)", FIRST_ID, rows);
+    }
+
+    /**
+     * Discards the export while counting its lines and, every given number of lines, sampling the size of the
+     * persistence context and, if a memory bean is given, the live heap.
+     */
+    private class ExportSampler extends OutputStream {
+
+        private final MemoryMXBean memory;
+        private final int every;
+        private long lines;
+        private long maxHeapUsed;
+        private int maxManagedEntities;
+
+        ExportSampler(MemoryMXBean memory, int every) {
+            this.memory = memory;
+            this.every = every;
+        }
+
+        @Override
+        public void write(int b) {
+            count(b);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                count(buffer[i]);
+            }
+        }
+
+        private void count(int b) {
+            if (b != '\n') {
+                return;
+            }
+            lines++;
+            if (lines % every == 0) {
+                if (memory != null) {
+                    System.gc();
+                    maxHeapUsed = Math.max(maxHeapUsed, memory.getHeapMemoryUsage().getUsed());
+                }
+                int managed = entityManager.unwrap(Session.class).getStatistics().getEntityCount();
+                maxManagedEntities = Math.max(maxManagedEntities, managed);
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.domain.EntityKind;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationEventsTest {
+
+    private ExecutorService executor;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testDeliversInOrderToMatchingSubscribers() {
+        MutationEvents events = new MutationEvents(16, Runnable::run);
+        RecordingSink all = new RecordingSink();
+        RecordingSink oneProperty = new RecordingSink();
+        events.subscribe(null, all);
+        events.subscribe(1000L, oneProperty);
+
+        events.publish(MutationEvent.Type.CREATED, change(1, 1000L));
+        events.publish(MutationEvent.Type.DELETED, change(2, 2000L));
+        events.publish(MutationEvent.Type.UPDATED, change(3, 1000L));
+
+        assertEquals(List.of(1L, 2L, 3L), all.revisions());
+        assertEquals(List.of(1L, 3L), oneProperty.revisions());
+        assertEquals(MutationEvent.Type.DELETED, all.events.get(1).type());
+    }
+
+    @Test
+    void testPublishesOnlyOnceTheTransactionCommits() {
+        MutationEvents events = new MutationEvents(16, Runnable::run);
+        RecordingSink sink = new RecordingSink();
+        events.subscribe(null, sink);
+
+        TransactionSynchronizationManager.initSynchronization();
+        events.publish(MutationEvent.Type.CREATED, change(1, 1000L));
+        assertTrue(sink.events.isEmpty());
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(List.of(1L), sink.revisions());
+    }
+
+    @Test
+    void testDropsSlowSubscriberWithoutBlockingThePublisher() throws Exception {
+        executor = Executors.newFixedThreadPool(2);
+        MutationEvents events = new MutationEvents(4, executor);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch stuck = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        events.subscribe(null, new MutationEvents.Sink() {
+            @Override
+            public void send(MutationEvent event) {
+                sending.countDown();
+                try {
+                    stuck.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        });
+
+        long started = System.nanoTime();
+        events.publish(MutationEvent.Type.CREATED, change(1, 1000L));
+        // The first send is stuck before the buffer fills up.
+        assertTrue(sending.await(5, TimeUnit.SECONDS), "The first event was not sent");
+        for (int i = 2; i <= 100; i++) {
+            events.publish(MutationEvent.Type.CREATED, change(i, 1000L));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertEquals(0, events.subscriberCount());
+        assertTrue(elapsedMillis < 1000, "Publishing took " + elapsedMillis + " ms");
+        // Its stream is closed by the thread sending to it, once the send returns.
+        assertEquals(1, closed.getCount());
+        stuck.countDown();
+        assertTrue(closed.await(5, TimeUnit.SECONDS), "The slow subscriber was not closed");
+    }
+
+    @Test
+    void testStalledSubscribersDoNotHoldUpTheOthers() throws Exception {
+        int threads = 2;
+        executor = Executors.newFixedThreadPool(threads);
+        MutationEvents events = new MutationEvents(64, executor, Duration.ofMillis(100));
+        CountDownLatch stuck = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            events.subscribe(null, new MutationEvents.Sink() {
+                @Override
+                public void send(MutationEvent event) {
+                    try {
+                        stuck.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                @Override
+                public void close() {
+                    closed.countDown();
+                }
+            });
+        }
+        RecordingSink fast = new RecordingSink();
+        events.subscribe(null, fast);
+
+        // The first event pins every pool thread in a send to the stalled subscribers.
+        events.publish(MutationEvent.Type.CREATED, change(1, 1000L));
+        for (int i = 2; i <= 20; i++) {
+            Thread.sleep(20);
+            events.publish(MutationEvent.Type.CREATED, change(i, 1000L));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (fast.revisions().size() < 20 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(LongStream.rangeClosed(1, 20).boxed().toList(), fast.revisions());
+        assertEquals(1, events.subscriberCount());
+        assertEquals(threads * 2, ((ThreadPoolExecutor) executor).getCorePoolSize());
+
+        stuck.countDown();
+        assertTrue(closed.await(5, TimeUnit.SECONDS), "The stalled subscribers were not closed");
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (((ThreadPoolExecutor) executor).getCorePoolSize() != threads && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(threads, ((ThreadPoolExecutor) executor).getCorePoolSize());
+    }
+
+    @Test
+    void testCancelsSubscriberWhoseStreamFails() {
+        MutationEvents events = new MutationEvents(16, Runnable::run);
+        events.subscribe(null, new MutationEvents.Sink() {
+            @Override
+            public void send(MutationEvent event) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        events.publish(MutationEvent.Type.CREATED, change(1, 1000L));
+
+        assertEquals(0, events.subscriberCount());
+    }
+
+    private static Change change(long revision, Long propertyId) {
+        return Change.deleted(revision, EntityKind.BOOKING, revision, propertyId);
+    }
+
+    private static class RecordingSink implements MutationEvents.Sink {
+
+        private final List<MutationEvent> events = new ArrayList<>();
+
+        @Override
+        public synchronized void send(MutationEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        synchronized List<Long> revisions() {
+            return events.stream().map(event -> event.change().revision()).toList();
+        }
+    }
+}
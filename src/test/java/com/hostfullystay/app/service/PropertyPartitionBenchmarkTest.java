@@ -0,0 +1,132 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.availability.AvailabilityIndex;
+import com.hostfullystay.app.availability.OccupancyCalendar;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.repository.OccupancyRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures writes and conflict checks on one property, first alone and then inside a portfolio of 10,000
+ * properties with 20 bookings each, and checks that the cost follows the property's calendar and not the
+ * size of the portfolio. The test has a database of its own, so the portfolio can be truncated afterwards.
+ * It is a benchmark, run with {@code mvn -Pbenchmark test}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:portfoliodb")
+class PropertyPartitionBenchmarkTest {
+
+    private static final long FIRST_PROPERTY_ID = 1_000_000L;
+    private static final int PROPERTIES = 10_000;
+    private static final int BOOKINGS_PER_PROPERTY = 20;
+    private static final LocalDate BASE = LocalDate.now().plusYears(1).withDayOfYear(1);
+    private static final int WRITES = 300;
+    private static final int CHECKS = 2_000;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private OccupancyRepository occupancyRepository;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private OccupancyCalendar occupancyCalendar;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("truncate table booking");
+        jdbcTemplate.execute("truncate table property");
+        availabilityIndex.load();
+        occupancyCalendar.load();
+    }
+
+    @Test
+    void testWriteCostDoesNotGrowWithThePortfolio() {
+        seed(1);
+        // Warm up on a property of its own, so both measured rounds run compiled code.
+        measure(FIRST_PROPERTY_ID + PROPERTIES + 1, 0);
+        Round alone = measure(FIRST_PROPERTY_ID, 1);
+
+        seed(PROPERTIES);
+        Round portfolio = measure(FIRST_PROPERTY_ID + PROPERTIES / 2, 2);
+
+        // The nights just booked are taken on the measured property only.
+        LocalDate written = BASE.plusDays(10L * BOOKINGS_PER_PROPERTY + 2 * WRITES);
+        assertTrue(bookingService.hasBookingConflicts(booking(FIRST_PROPERTY_ID + PROPERTIES / 2, written, written)));
+        assertFalse(bookingService.hasBookingConflicts(booking(FIRST_PROPERTY_ID + 1, written, written)));
+        assertFalse(occupancyRepository.existsOverlap(FIRST_PROPERTY_ID + 1, written, written, null));
+        // 10,000 times the data; a cost that followed the portfolio would grow by orders of magnitude.
+        assertTrue(portfolio.writeMicros < 5 * alone.writeMicros, "Writes went from " + alone.writeMicros + " to " + portfolio.writeMicros + " us");
+        assertTrue(portfolio.queryMicros < 5 * alone.queryMicros, "Queries went from " + alone.queryMicros + " to " + portfolio.queryMicros + " us");
+    }
+
+    /**
+     * Replaces the portfolio with the given number of properties, each booked for two nights every ten days.
+     */
+    private void seed(int properties) {
+        jdbcTemplate.execute("truncate table booking");
+        jdbcTemplate.execute("truncate table property");
+        jdbcTemplate.update("insert into property (property_id, name) select cast(? as bigint) + x, concat('property ', x)"
+                + " from system_range(0, ?)", FIRST_PROPERTY_ID, properties - 1);
+        // Booking x belongs to property x mod n and takes the nights 10 * (x / n) and the one after.
+        jdbcTemplate.update("insert into booking (booking_id, property_id, date_from, date_to, guest_name, state, version)"
+                + " select 100000000 + x, cast(? as bigint) + mod(x, n), dateadd(day, 10 * (x / n), base), dateadd(day, 10 * (x / n) + 1, base),"
+                + " concat('guest ', x), 'BOOKED', 0 from system_range(0, ?), (select cast(? as int) n, cast(? as date) base)",
+                FIRST_PROPERTY_ID, properties * BOOKINGS_PER_PROPERTY - 1, properties, BASE);
+        availabilityIndex.load();
+        occupancyCalendar.load();
+    }
+
+    /**
+     * Books the given property night by night after its seeded stays, half of the writes landing on a taken
+     * night, then runs conflict queries against the database.
+     */
+    private Round measure(long propertyId, int round) {
+        LocalDate first = BASE.plusDays(10L * BOOKINGS_PER_PROPERTY + round * WRITES);
+        long started = System.nanoTime();
+        int saved = 0;
+        for (int i = 0; i < WRITES; i++) {
+            LocalDate night = first.plusDays(i / 2);
+            saved += bookingService.save(booking(propertyId, night, night)) != null ? 1 : 0;
+        }
+        double writeMicros = (System.nanoTime() - started) / 1e3 / WRITES;
+        assertEquals(WRITES / 2, saved);
+
+        started = System.nanoTime();
+        int taken = 0;
+        for (int i = 0; i < CHECKS; i++) {
+            LocalDate from = BASE.plusDays(i % (10 * BOOKINGS_PER_PROPERTY));
+            taken += occupancyRepository.existsOverlap(propertyId, from, from, null) ? 1 : 0;
+        }
+        double queryMicros = (System.nanoTime() - started) / 1e3 / CHECKS;
+        assertTrue(round == 0 || taken == CHECKS / 5, "Taken " + taken);
+        return new Round(writeMicros, queryMicros);
+    }
+
+    private static Booking booking(long propertyId, LocalDate from, LocalDate to) {
+        Booking booking = new Booking();
+        booking.setPropertyId(propertyId);
+        booking.setDateFrom(from);
+        booking.setDateTo(to);
+        booking.setGuestName("guestName");
+        return booking;
+    }
+
+    private record Round(double writeMicros, double queryMicros) {
+    }
+}
@@ -0,0 +1,256 @@
+package com.hostfullystay.app.service;
+
+import com.hostfullystay.app.domain.Block;
+import com.hostfullystay.app.domain.Booking;
+import com.hostfullystay.app.domain.Property;
+import com.hostfullystay.app.journal.Journal;
+import com.hostfullystay.app.journal.JournalEntry;
+import com.hostfullystay.app.repository.BlockRepository;
+import com.hostfullystay.app.repository.BookingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that batched creates get the outcome they would have had one after the other in arrival order, that a
+ * failed batch falls back to single saves, and that concurrent batched creates never double-book the calendar.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:writepipelinedb",
+        "hostfully.writes.batch.enabled=true",
+        "hostfully.writes.batch.window=50ms",
+        "hostfully.journal.enabled=true"
+})
+class WritePipelineTest {
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("hostfully.journal.directory", Files.createTempDirectory("writepipeline-journal")::toString);
+    }
+
+    private static final LocalDate BASE = LocalDate.now().plusYears(2).withDayOfYear(1);
+
+    @Autowired
+    private WritePipeline writePipeline;
+
+    @Autowired
+    private PropertyService propertyService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BlockRepository blockRepository;
+
+    @Autowired
+    private MutationEvents mutationEvents;
+
+    @Autowired
+    private Journal journal;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private long propertyId;
+
+    @BeforeEach
+    void setUp() {
+        Property property = new Property();
+        property.setName("Beach house");
+        propertyId = propertyService.save(property).getPropertyId();
+    }
+
+    @Test
+    void testChecksABatchInArrivalOrder() {
+        assertTrue(writePipeline.isEnabled());
+        assertNotNull(bookingService.save(booking(30, 32, null)));
+
+        // Submitted together, well within the window, so they are committed as one batch.
+        List<CompletableFuture<?>> results = List.of(
+                writePipeline.submit(booking(0, 2, null)),
+                writePipeline.submit(booking(1, 3, null)),
+                writePipeline.submit(block(2, 4)),
+                writePipeline.submit(booking(0, 1, Booking.State.CANCELED)),
+                writePipeline.submit(booking(10, 12, null)),
+                writePipeline.submit(block(20, 22)),
+                writePipeline.submit(block(21, 23)),
+                writePipeline.submit(booking(22, 22, null)),
+                writePipeline.submit(booking(31, 33, null)));
+
+        List<Boolean> accepted = results.stream().map(result -> result.join() != null).toList();
+        assertEquals(List.of(true, false, false, false, true, true, true, false, false), accepted);
+        Booking first = (Booking) results.get(0).join();
+        assertEquals(Booking.State.BOOKED, first.getState());
+        assertEquals(first.getDateFrom(), bookingService.findOne(first.getBookingId()).orElseThrow().getDateFrom());
+        // The accepted writes went through the same propagation as single saves.
+        assertFalse(bookingService.isBookingValid(booking(11, 11, null)));
+    }
+
+    @Test
+    void testReleasesConnectionsAfterEachTransaction() {
+        // Otherwise the requests waiting for their batch would hold the connections it needs.
+        assertEquals(PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION,
+                PhysicalConnectionHandlingMode.interpret(entityManagerFactory.getProperties().get(AvailableSettings.CONNECTION_HANDLING)));
+    }
+
+    @Test
+    void testFallsBackToSingleSavesWhenABatchFails() throws Exception {
+        BlockingQueue<MutationEvent> received = new LinkedBlockingQueue<>();
+        MutationEvents.Subscription subscription = mutationEvents.subscribe(propertyId, new MutationEvents.Sink() {
+            @Override
+            public void send(MutationEvent event) {
+                received.add(event);
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        double acceptedBefore = writes("booking", "accepted") + writes("block", "accepted");
+        double rejectedBefore = writes("booking", "rejected") + writes("block", "rejected");
+        try {
+            Booking first = booking(0, 1, null);
+            // Too long for its column: the batch fails when it is flushed, and so does this booking on its own.
+            Booking failing = booking(3, 4, null);
+            failing.setGuestName("x".repeat(300));
+            Block block = block(6, 7);
+            CompletableFuture<Booking> firstResult = writePipeline.submit(first);
+            CompletableFuture<Booking> failingResult = writePipeline.submit(failing);
+            CompletableFuture<Block> blockResult = writePipeline.submit(block);
+
+            Booking savedFirst = firstResult.join();
+            Block savedBlock = blockResult.join();
+            assertThrows(CompletionException.class, failingResult::join);
+
+            // The submitted entities were copied, never saved themselves.
+            assertNull(first.getBookingId());
+            assertNull(first.getRevision());
+            assertNull(block.getBlockId());
+            assertEquals(0L, bookingRepository.findById(savedFirst.getBookingId()).orElseThrow().getVersion());
+            assertEquals(0L, blockRepository.findById(savedBlock.getBlockId()).orElseThrow().getVersion());
+            assertEquals(1, bookingRepository.findAll().stream().filter(booking -> booking.getPropertyId() == propertyId).count());
+
+            List<Long> events = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                MutationEvent event = received.poll(5, TimeUnit.SECONDS);
+                assertNotNull(event);
+                assertEquals(MutationEvent.Type.CREATED, event.type());
+                events.add(event.change().id());
+            }
+            assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+            assertEquals(List.of(savedFirst.getBookingId(), savedBlock.getBlockId()), events.stream().sorted().toList());
+
+            List<Long> journaled = new ArrayList<>();
+            journal.recover(entry -> {
+                if (entry.type() == JournalEntry.Type.BOOKING_SAVED && entry.booking().getPropertyId() == propertyId) {
+                    journaled.add(entry.booking().getBookingId());
+                } else if (entry.type() == JournalEntry.Type.BLOCK_SAVED && entry.block().getPropertyId() == propertyId) {
+                    journaled.add(entry.block().getBlockId());
+                }
+            });
+            assertEquals(List.of(savedFirst.getBookingId(), savedBlock.getBlockId()), journaled.stream().sorted().toList());
+
+            // Counted once, by the single saves, and not for the failed batch.
+            assertEquals(acceptedBefore + 2, writes("booking", "accepted") + writes("block", "accepted"));
+            assertEquals(rejectedBefore, writes("booking", "rejected") + writes("block", "rejected"));
+        } finally {
+            subscription.cancel();
+        }
+    }
+
+    @Test
+    void testConcurrentWritesKeepTheCalendarConsistent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<Integer>> clients = new ArrayList<>();
+        for (int c = 0; c < 16; c++) {
+            int client = c;
+            clients.add(executor.submit(() -> {
+                Random random = new Random(client);
+                int saved = 0;
+                for (int i = 0; i < 20; i++) {
+                    int from = random.nextInt(60);
+                    int to = from + random.nextInt(4);
+                    Object result = random.nextInt(5) == 0 ? writePipeline.save(block(from, to)) : writePipeline.save(booking(from, to, null));
+                    saved += result != null ? 1 : 0;
+                }
+                return saved;
+            }));
+        }
+        int saved = 0;
+        for (Future<Integer> client : clients) {
+            saved += client.get();
+        }
+        executor.shutdown();
+
+        List<Booking> bookings = bookingRepository.findAll().stream().filter(booking -> booking.getPropertyId() == propertyId).toList();
+        List<Block> blocks = blockRepository.findAll().stream().filter(block -> block.getPropertyId() == propertyId).toList();
+        assertEquals(saved, bookings.size() + blocks.size());
+        for (Booking booking : bookings) {
+            for (Booking other : bookings) {
+                assertFalse(booking != other && overlap(booking.getDateFrom(), booking.getDateTo(), other.getDateFrom(), other.getDateTo()),
+                        "Bookings " + booking.getBookingId() + " and " + other.getBookingId() + " overlap");
+            }
+            for (Block block : blocks) {
+                assertFalse(overlap(booking.getDateFrom(), booking.getDateTo(), block.getDateFrom(), block.getDateTo()),
+                        "Booking " + booking.getBookingId() + " overlaps block " + block.getBlockId());
+            }
+        }
+    }
+
+    private double writes(String entity, String outcome) {
+        return meterRegistry.get(AvailabilityMetrics.WRITES).tags("entity", entity, "outcome", outcome).counter().count();
+    }
+
+    private static boolean overlap(LocalDate from, LocalDate to, LocalDate otherFrom, LocalDate otherTo) {
+        return !to.isBefore(otherFrom) && !otherTo.isBefore(from);
+    }
+
+    private Booking booking(int from, int to, Booking.State state) {
+        Booking booking = new Booking();
+        booking.setPropertyId(propertyId);
+        booking.setDateFrom(BASE.plusDays(from));
+        booking.setDateTo(BASE.plusDays(to));
+        booking.setGuestName("guestName");
+        booking.setState(state);
+        return booking;
+    }
+
+    private Block block(int from, int to) {
+        Block block = new Block();
+        block.setPropertyId(propertyId);
+        block.setDateFrom(BASE.plusDays(from));
+        block.setDateTo(BASE.plusDays(to));
+        block.setManager("manager");
+        return block;
+    }
+}